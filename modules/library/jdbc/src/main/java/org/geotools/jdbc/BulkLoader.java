@@ -0,0 +1,126 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+/**
+ * Streams new features into a table, using the fastest loading facility the database offers.
+ *
+ * <p>Features are handed over one at a time with {@link #add(SimpleFeature)}, the loader is free
+ * to buffer a bounded amount of them, but never the whole input. {@link #finish()} flushes the
+ * pending features and ends the load, after which other statements can be run on the connection
+ * and more features can be added, starting a new load. {@link #close()} releases the resources
+ * held by the loader and must always be called, the features not flushed yet are discarded.
+ *
+ * <p>The primary key columns are left to the database, the feature ids generated during the load
+ * are not reported back to the features.
+ *
+ * @see SQLDialect#createBulkLoader(SimpleFeatureType, PrimaryKey, Connection)
+ */
+public abstract class BulkLoader implements Closeable {
+
+    protected final JDBCDataStore dataStore;
+
+    protected final SimpleFeatureType featureType;
+
+    protected final PrimaryKey key;
+
+    protected final Connection cx;
+
+    /** The attributes to be loaded, in table order, without the primary key columns */
+    protected final List<AttributeDescriptor> attributes;
+
+    protected BulkLoader(
+            JDBCDataStore dataStore,
+            SimpleFeatureType featureType,
+            PrimaryKey key,
+            Connection cx) {
+        this.dataStore = dataStore;
+        this.featureType = featureType;
+        this.key = key;
+        this.cx = cx;
+
+        // skip the pk columns in case we have exposed them
+        Set<String> keyColumns = JDBCDataStore.getColumnNames(key);
+        List<AttributeDescriptor> attributes = new ArrayList<>();
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (!keyColumns.contains(att.getLocalName())) {
+                attributes.add(att);
+            }
+        }
+        this.attributes = Collections.unmodifiableList(attributes);
+    }
+
+    /**
+     * Adds a feature to the load, the feature might be written to the database only at a later
+     * time.
+     */
+    public abstract void add(SimpleFeature feature) throws IOException;
+
+    /**
+     * Writes out the pending features, and ends the load
+     *
+     * @return The number of features loaded since the previous call
+     */
+    public abstract int finish() throws IOException;
+
+    /** Releases the loader resources, without writing out the pending features */
+    @Override
+    public void close() throws IOException {
+        // nothing to release by default
+    }
+
+    /**
+     * Returns the value of the attribute
+     *
+     * @throws IOException If the value is null, and the attribute is not nillable
+     */
+    protected Object getValue(SimpleFeature feature, AttributeDescriptor att) throws IOException {
+        Object value = feature.getAttribute(att.getLocalName());
+        if (value == null && !att.isNillable()) {
+            throw new IOException(
+                    "Cannot set a NULL value on the not null column " + att.getLocalName());
+        }
+        return value;
+    }
+
+    /** Looks up the geometry srid, see {@link JDBCDataStore#getGeometrySRID} */
+    protected int getGeometrySRID(Geometry g, AttributeDescriptor att) throws IOException {
+        return dataStore.getGeometrySRID(g, att);
+    }
+
+    /** Looks up the geometry dimension, see {@link JDBCDataStore#getGeometryDimension} */
+    protected int getGeometryDimension(Geometry g, AttributeDescriptor att) throws IOException {
+        return dataStore.getGeometryDimension(g, att);
+    }
+
+    /** Returns true if the attribute is a native SQL array */
+    protected boolean isArray(AttributeDescriptor att) {
+        return dataStore.isArray(att);
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterVisitor;
+import org.opengis.filter.Id;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.MultiValuedFilter.MatchAction;
+import org.opengis.filter.NativeFilter;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.PropertyIsNil;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.Add;
+import org.opengis.filter.expression.BinaryExpression;
+import org.opengis.filter.expression.Divide;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.ExpressionVisitor;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.Multiply;
+import org.opengis.filter.expression.NilExpression;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.Subtract;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.Beyond;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.Crosses;
+import org.opengis.filter.spatial.DWithin;
+import org.opengis.filter.spatial.Disjoint;
+import org.opengis.filter.spatial.Equals;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Overlaps;
+import org.opengis.filter.spatial.Touches;
+import org.opengis.filter.spatial.Within;
+import org.opengis.filter.temporal.After;
+import org.opengis.filter.temporal.AnyInteracts;
+import org.opengis.filter.temporal.Before;
+import org.opengis.filter.temporal.Begins;
+import org.opengis.filter.temporal.BegunBy;
+import org.opengis.filter.temporal.BinaryTemporalOperator;
+import org.opengis.filter.temporal.During;
+import org.opengis.filter.temporal.EndedBy;
+import org.opengis.filter.temporal.Ends;
+import org.opengis.filter.temporal.Meets;
+import org.opengis.filter.temporal.MetBy;
+import org.opengis.filter.temporal.OverlappedBy;
+import org.opengis.filter.temporal.TContains;
+import org.opengis.filter.temporal.TEquals;
+import org.opengis.filter.temporal.TOverlaps;
+
+/**
+ * The structure of a filter, with the literal values left out: two filters differing only in the
+ * literal values have the same shape, and are encoded by {@link PreparedFilterToSQL} in the same
+ * SQL, with different parameter values. The literals are collected in the same order the filter
+ * encoder visits them.
+ *
+ * <p>Filters whose SQL depends on the literal values themselves, or that are encoded with values
+ * not coming from literals, have no shape: feature id filters, and the distance operators (the
+ * distance is encoded in the SQL, and might be converted based on the reference geometry).
+ */
+class FilterShape implements FilterVisitor, ExpressionVisitor {
+
+    final StringBuilder shape = new StringBuilder();
+
+    final List<Literal> literals = new ArrayList<>();
+
+    boolean supported = true;
+
+    private FilterShape() {}
+
+    /** Returns the shape of the filter, or null if the filter has none */
+    static FilterShape of(Filter filter) {
+        FilterShape shape = new FilterShape();
+        if (filter == null) {
+            shape.visitNullFilter(null);
+        } else {
+            filter.accept(shape, null);
+        }
+        return shape.supported ? shape : null;
+    }
+
+    /** The filter structure, to be used as a key */
+    String getShape() {
+        return shape.toString();
+    }
+
+    /** The literals of the filter, in encoding order */
+    List<Literal> getLiterals() {
+        return literals;
+    }
+
+    private Object unsupported() {
+        supported = false;
+        return null;
+    }
+
+    private Object logic(String name, List<Filter> children) {
+        shape.append(name).append('(');
+        for (Filter child : children) {
+            child.accept(this, null);
+            shape.append(',');
+        }
+        shape.append(')');
+        return null;
+    }
+
+    private Object comparison(String name, BinaryComparisonOperator filter) {
+        shape.append(name).append('[').append(filter.isMatchingCase());
+        return binary(filter.getMatchAction(), filter.getExpression1(), filter.getExpression2());
+    }
+
+    private Object spatial(String name, BinarySpatialOperator filter) {
+        shape.append(name).append('[');
+        return binary(filter.getMatchAction(), filter.getExpression1(), filter.getExpression2());
+    }
+
+    private Object temporal(String name, BinaryTemporalOperator filter) {
+        shape.append(name).append('[');
+        return binary(filter.getMatchAction(), filter.getExpression1(), filter.getExpression2());
+    }
+
+    private Object binary(MatchAction matchAction, Expression e1, Expression e2) {
+        shape.append(',').append(matchAction).append("](");
+        expression(e1);
+        shape.append(',');
+        expression(e2);
+        shape.append(')');
+        return null;
+    }
+
+    private Object arithmetic(String name, BinaryExpression expression) {
+        shape.append(name).append('(');
+        expression(expression.getExpression1());
+        shape.append(',');
+        expression(expression.getExpression2());
+        shape.append(')');
+        return null;
+    }
+
+    private void expression(Expression expression) {
+        if (expression == null) {
+            shape.append("null");
+        } else {
+            expression.accept(this, null);
+        }
+    }
+
+    @Override
+    public Object visitNullFilter(Object extraData) {
+        shape.append("NullFilter");
+        return null;
+    }
+
+    @Override
+    public Object visit(ExcludeFilter filter, Object extraData) {
+        shape.append("Exclude");
+        return null;
+    }
+
+    @Override
+    public Object visit(IncludeFilter filter, Object extraData) {
+        shape.append("Include");
+        return null;
+    }
+
+    @Override
+    public Object visit(And filter, Object extraData) {
+        return logic("And", filter.getChildren());
+    }
+
+    @Override
+    public Object visit(Or filter, Object extraData) {
+        return logic("Or", filter.getChildren());
+    }
+
+    @Override
+    public Object visit(Not filter, Object extraData) {
+        shape.append("Not(");
+        filter.getFilter().accept(this, null);
+        shape.append(')');
+        return null;
+    }
+
+    @Override
+    public Object visit(Id filter, Object extraData) {
+        // the id values are not literals
+        return unsupported();
+    }
+
+    @Override
+    public Object visit(PropertyIsBetween filter, Object extraData) {
+        shape.append("Between[").append(filter.getMatchAction()).append("](");
+        expression(filter.getExpression());
+        shape.append(',');
+        expression(filter.getLowerBoundary());
+        shape.append(',');
+        expression(filter.getUpperBoundary());
+        shape.append(')');
+        return null;
+    }
+
+    @Override
+    public Object visit(PropertyIsEqualTo filter, Object extraData) {
+        return comparison("EqualTo", filter);
+    }
+
+    @Override
+    public Object visit(PropertyIsNotEqualTo filter, Object extraData) {
+        return comparison("NotEqualTo", filter);
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThan filter, Object extraData) {
+        return comparison("GreaterThan", filter);
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThanOrEqualTo filter, Object extraData) {
+        return comparison("GreaterThanOrEqualTo", filter);
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThan filter, Object extraData) {
+        return comparison("LessThan", filter);
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThanOrEqualTo filter, Object extraData) {
+        return comparison("LessThanOrEqualTo", filter);
+    }
+
+    @Override
+    public Object visit(PropertyIsLike filter, Object extraData) {
+        // the pattern is encoded in the SQL
+        shape.append("Like[")
+                .append(filter.getLiteral())
+                .append(',')
+                .append(filter.getWildCard())
+                .append(',')
+                .append(filter.getSingleChar())
+                .append(',')
+                .append(filter.getEscape())
+                .append(',')
+                .append(filter.isMatchingCase())
+                .append(',')
+                .append(filter.getMatchAction())
+                .append("](");
+        expression(filter.getExpression());
+        shape.append(')');
+        return null;
+    }
+
+    @Override
+    public Object visit(PropertyIsNull filter, Object extraData) {
+        shape.append("IsNull(");
+        expression(filter.getExpression());
+        shape.append(')');
+        return null;
+    }
+
+    @Override
+    public Object visit(PropertyIsNil filter, Object extraData) {
+        shape.append("IsNil[").append(filter.getNilReason()).append("](");
+        expression(filter.getExpression());
+        shape.append(')');
+        return null;
+    }
+
+    @Override
+    public Object visit(BBOX filter, Object extraData) {
+        return spatial("BBOX", filter);
+    }
+
+    @Override
+    public Object visit(Beyond filter, Object extraData) {
+        return unsupported();
+    }
+
+    @Override
+    public Object visit(Contains filter, Object extraData) {
+        return spatial("Contains", filter);
+    }
+
+    @Override
+    public Object visit(Crosses filter, Object extraData) {
+        return spatial("Crosses", filter);
+    }
+
+    @Override
+    public Object visit(Disjoint filter, Object extraData) {
+        return spatial("Disjoint", filter);
+    }
+
+    @Override
+    public Object visit(DWithin filter, Object extraData) {
+        return unsupported();
+    }
+
+    @Override
+    public Object visit(Equals filter, Object extraData) {
+        return spatial("Equals", filter);
+    }
+
+    @Override
+    public Object visit(Intersects filter, Object extraData) {
+        return spatial("Intersects", filter);
+    }
+
+    @Override
+    public Object visit(Overlaps filter, Object extraData) {
+        return spatial("Overlaps", filter);
+    }
+
+    @Override
+    public Object visit(Touches filter, Object extraData) {
+        return spatial("Touches", filter);
+    }
+
+    @Override
+    public Object visit(Within filter, Object extraData) {
+        return spatial("Within", filter);
+    }
+
+    @Override
+    public Object visit(After after, Object extraData) {
+        return temporal("After", after);
+    }
+
+    @Override
+    public Object visit(AnyInteracts anyInteracts, Object extraData) {
+        return temporal("AnyInteracts", anyInteracts);
+    }
+
+    @Override
+    public Object visit(Before before, Object extraData) {
+        return temporal("Before", before);
+    }
+
+    @Override
+    public Object visit(Begins begins, Object extraData) {
+        return temporal("Begins", begins);
+    }
+
+    @Override
+    public Object visit(BegunBy begunBy, Object extraData) {
+        return temporal("BegunBy", begunBy);
+    }
+
+    @Override
+    public Object visit(During during, Object extraData) {
+        return temporal("During", during);
+    }
+
+    @Override
+    public Object visit(EndedBy endedBy, Object extraData) {
+        return temporal("EndedBy", endedBy);
+    }
+
+    @Override
+    public Object visit(Ends ends, Object extraData) {
+        return temporal("Ends", ends);
+    }
+
+    @Override
+    public Object visit(Meets meets, Object extraData) {
+        return temporal("Meets", meets);
+    }
+
+    @Override
+    public Object visit(MetBy metBy, Object extraData) {
+        return temporal("MetBy", metBy);
+    }
+
+    @Override
+    public Object visit(OverlappedBy overlappedBy, Object extraData) {
+        return temporal("OverlappedBy", overlappedBy);
+    }
+
+    @Override
+    public Object visit(TContains contains, Object extraData) {
+        return temporal("TContains", contains);
+    }
+
+    @Override
+    public Object visit(TEquals equals, Object extraData) {
+        return temporal("TEquals", equals);
+    }
+
+    @Override
+    public Object visit(TOverlaps contains, Object extraData) {
+        return temporal("TOverlaps", contains);
+    }
+
+    @Override
+    public Object visit(NativeFilter filter, Object extraData) {
+        shape.append("Native[").append(filter.getNative()).append(']');
+        return null;
+    }
+
+    @Override
+    public Object visit(NilExpression expression, Object extraData) {
+        shape.append("Nil");
+        return null;
+    }
+
+    @Override
+    public Object visit(Add expression, Object extraData) {
+        return arithmetic("Add", expression);
+    }
+
+    @Override
+    public Object visit(Subtract expression, Object extraData) {
+        return arithmetic("Subtract", expression);
+    }
+
+    @Override
+    public Object visit(Multiply expression, Object extraData) {
+        return arithmetic("Multiply", expression);
+    }
+
+    @Override
+    public Object visit(Divide expression, Object extraData) {
+        return arithmetic("Divide", expression);
+    }
+
+    @Override
+    public Object visit(Function expression, Object extraData) {
+        shape.append("Function[").append(expression.getName()).append("](");
+        if (expression.getParameters() != null) {
+            for (Expression parameter : expression.getParameters()) {
+                expression(parameter);
+                shape.append(',');
+            }
+        }
+        shape.append(')');
+        return null;
+    }
+
+    @Override
+    public Object visit(Literal expression, Object extraData) {
+        Object value = expression.getValue();
+        shape.append("Literal[").append(value != null ? value.getClass().getName() : null);
+        shape.append(']');
+        literals.add(expression);
+        return null;
+    }
+
+    @Override
+    public Object visit(PropertyName expression, Object extraData) {
+        shape.append("Property[").append(expression.getPropertyName()).append(']');
+        return null;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * The {@link BulkLoader} handed out by {@link JDBCDataStore}. Sends the features to the bulk
+ * loader of the table, when there is one, and inserts the others (the features whose id has to be
+ * used as the primary key value, or all of them if the table has primary key values not generated
+ * by the database) in chunks, with the regular inserts.
+ *
+ * <p>The bulk load is ended before each chunk of regular inserts, as some loaders (e.g., the
+ * PostgreSQL copy) do not allow other statements to run on the connection while loading.
+ */
+class InsertBulkLoader extends BulkLoader {
+
+    final BulkLoader loader;
+
+    final int chunkSize;
+
+    final List<SimpleFeature> chunk;
+
+    int count;
+
+    /**
+     * @param loader The bulk loader of the table, or null if the features must be inserted with
+     *     the regular inserts
+     * @param chunkSize The number of features inserted at once by the regular inserts
+     */
+    InsertBulkLoader(
+            JDBCDataStore dataStore,
+            SimpleFeatureType featureType,
+            PrimaryKey key,
+            Connection cx,
+            BulkLoader loader,
+            int chunkSize) {
+        super(dataStore, featureType, key, cx);
+        this.loader = loader;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunk = new ArrayList<>(this.chunkSize);
+    }
+
+    @Override
+    public void add(SimpleFeature feature) throws IOException {
+        if (loader != null && !InsertionClassifier.useExisting(feature)) {
+            loader.add(feature);
+        } else {
+            chunk.add(feature);
+            if (chunk.size() >= chunkSize) {
+                insertChunk();
+            }
+        }
+    }
+
+    @Override
+    public int finish() throws IOException {
+        insertChunk();
+        if (loader != null) {
+            count += loader.finish();
+        }
+        int loaded = count;
+        count = 0;
+        return loaded;
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunk.clear();
+        if (loader != null) {
+            loader.close();
+        }
+    }
+
+    private void insertChunk() throws IOException {
+        if (!chunk.isEmpty()) {
+            if (loader != null) {
+                count += loader.finish();
+            }
+            dataStore.insert(chunk, featureType, cx);
+            count += chunk.size();
+            chunk.clear();
+        }
+    }
+}
@@ -71,9 +71,12 @@ import org.geotools.data.store.ContentState;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.NameImpl;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.visitor.AverageVisitor;
 import org.geotools.feature.visitor.CountVisitor;
 import org.geotools.feature.visitor.GroupByVisitor;
 import org.geotools.feature.visitor.LimitingVisitor;
+import org.geotools.feature.visitor.MultiAggregateVisitor;
+import org.geotools.feature.visitor.SumVisitor;
 import org.geotools.filter.FilterCapabilities;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.JoinInfo.JoinPart;
@@ -188,6 +191,12 @@ public final class JDBCDataStore extends ContentDataStore implements GmlObjectSt
     /** Used to specify the column alias to use when encoding a column in a select */
     public static final String JDBC_COLUMN_ALIAS = "org.geotools.jdbc.columnAlias";
 
+    /**
+     * Query hint carrying a {@link KeysetCursor}, used to read consecutive pages of a sorted query
+     * seeking past the last feature read, instead of using an offset
+     */
+    public static final Hints.Key KEYSET_CURSOR = new Hints.Key(KeysetCursor.class);
+
     /** name of table to use to store geometries when {@link #associations} is set. */
     protected static final String GEOMETRY_TABLE = "geometry";
 
@@ -269,9 +278,21 @@ public final class JDBCDataStore extends ContentDataStore implements GmlObjectSt
      */
     protected int batchInsertSize = 1;
 
+    /** The minimum number of features inserted at once by the bulk loads using regular inserts */
+    static final int BULK_INSERT_CHUNK_SIZE = 1000;
+
     /** flag controlling whether primary key columns of a table are exposed via the feature type. */
     protected boolean exposePrimaryKeyColumns = false;
 
+    /** The number of select statements cached */
+    protected int sqlCacheSize = 0;
+
+    /** The cache of the generated select statements, null if disabled */
+    SQLCache sqlCache;
+
+    /** The number of features read ahead in a background thread, 0 to disable prefetching */
+    protected int prefetchSize = 0;
+
     /**
      * Finds the primary key definitions (instantiated here because the finders might keep state)
      */
@@ -426,6 +447,39 @@ public final class JDBCDataStore extends ContentDataStore implements GmlObjectSt
         this.fetchSize = fetchSize;
     }
 
+    /** Returns the number of select statements cached, or 0 if the cache is disabled */
+    public int getSQLCacheSize() {
+        return sqlCacheSize;
+    }
+
+    /**
+     * Sets the number of select statements cached, so that queries differing only in the filter
+     * literal values skip the SQL generation, and reuse the same prepared statement. Only used by
+     * prepared statement dialects, set to 0 to disable the cache.
+     *
+     * @param sqlCacheSize
+     */
+    public void setSQLCacheSize(int sqlCacheSize) {
+        this.sqlCacheSize = sqlCacheSize;
+        this.sqlCache = sqlCacheSize > 0 ? new SQLCache(sqlCacheSize) : null;
+    }
+
+    /** Returns the number of features read ahead in a background thread, or 0 if disabled */
+    public int getPrefetchSize() {
+        return prefetchSize;
+    }
+
+    /**
+     * Sets the number of features read ahead in a background thread by the readers, so that the
+     * database access and the decoding of the rows overlap with the consumption of the features.
+     * Only used for reads outside of transactions, set to 0 to disable prefetching.
+     *
+     * @param prefetchSize
+     */
+    public void setPrefetchSize(int prefetchSize) {
+        this.prefetchSize = prefetchSize;
+    }
+
     /** @return the number of features to bufferize while inserting in order to do batch inserts. */
     public int getBatchInsertSize() {
         return batchInsertSize;
@@ -1450,6 +1504,9 @@ public final class JDBCDataStore extends ContentDataStore implements GmlObjectSt
     protected Object getAggregateValue(
             FeatureVisitor visitor, SimpleFeatureType featureType, Query query, Connection cx)
             throws IOException {
+        if (visitor instanceof MultiAggregateVisitor) {
+            return getMultiAggregateValue((MultiAggregateVisitor) visitor, featureType, query, cx);
+        }
         // check if group by is supported by the underlying store
         if (isGroupByVisitor(visitor)
                 && (!dialect.isGroupBySupported()
@@ -1541,6 +1598,125 @@ public final class JDBCDataStore extends ContentDataStore implements GmlObjectSt
         }
     }
 
+    /**
+     * Computes all the scalar aggregates of a multi aggregate visitor (count, min, max, sum,
+     * average) with a single query, and marks them as computed. The other aggregates are left
+     * pending.
+     *
+     * @return the visitor result if all its aggregates have been computed, or null otherwise
+     */
+    protected Object getMultiAggregateValue(
+            MultiAggregateVisitor visitor,
+            SimpleFeatureType featureType,
+            Query query,
+            Connection cx)
+            throws IOException {
+        // the aggregate each column of the result refers to
+        List<FeatureVisitor> aggregates = new ArrayList<>();
+        List<String> functions = new ArrayList<>();
+        List<Expression> expressions = new ArrayList<>();
+        if (query.getJoins().isEmpty()) {
+            for (FeatureVisitor aggregate : visitor.getPendingVisitors()) {
+                collectScalarAggregate(aggregate, aggregates, functions, expressions);
+            }
+        }
+
+        if (!aggregates.isEmpty()) {
+            List<Object> values = new ArrayList<>();
+            Statement st = null;
+            ResultSet rs = null;
+            try {
+                StringBuffer sql = new StringBuffer();
+                List<FilterToSQL> toSQL =
+                        doSelectMultiAggregateSQL(functions, expressions, featureType, query, sql);
+                LOGGER.fine(sql.toString());
+                if (dialect instanceof PreparedStatementSQLDialect) {
+                    st = cx.prepareStatement(sql.toString());
+                    setPreparedFilterValues((PreparedStatement) st, toSQL, cx);
+                    rs = ((PreparedStatement) st).executeQuery();
+                } else {
+                    st = cx.createStatement();
+                    rs = st.executeQuery(sql.toString());
+                }
+                if (rs.next()) {
+                    for (int i = 0; i < aggregates.size(); i++) {
+                        values.add(rs.getObject(i + 1));
+                    }
+                }
+            } catch (SQLException e) {
+                throw (IOException) new IOException().initCause(e);
+            } finally {
+                closeSafe(rs);
+                closeSafe(st);
+            }
+
+            if (!values.isEmpty()) {
+                for (int i = 0; i < aggregates.size(); i++) {
+                    FeatureVisitor aggregate = aggregates.get(i);
+                    Object value = values.get(i);
+                    if (aggregate instanceof AverageVisitor) {
+                        // sum and count columns
+                        Object count = values.get(++i);
+                        if (value instanceof Number && ((Number) count).intValue() > 0) {
+                            ((AverageVisitor) aggregate)
+                                    .setValue(((Number) count).intValue(), value);
+                        }
+                        visitor.setComputed(aggregate);
+                    } else if (value == null || setResult(aggregate, value)) {
+                        // a null value means there was nothing to aggregate
+                        visitor.setComputed(aggregate);
+                    }
+                }
+            }
+        }
+
+        if (visitor.getPendingVisitors().isEmpty()) {
+            return visitor.getResult().getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Adds the aggregate functions and expressions needed to compute the aggregate in a multi
+     * aggregate query, if it's a supported scalar aggregate
+     */
+    private void collectScalarAggregate(
+            FeatureVisitor aggregate,
+            List<FeatureVisitor> aggregates,
+            List<String> functions,
+            List<Expression> expressions) {
+        if (aggregate instanceof AverageVisitor) {
+            // use sum and count, the avg result type depends on the database
+            String sum = getAggregateFunctions().get(SumVisitor.class);
+            String count = getAggregateFunctions().get(CountVisitor.class);
+            Expression expression = getExpression(aggregate);
+            if (sum != null && count != null && expression != null && fullySupports(expression)) {
+                aggregates.add(aggregate);
+                functions.add(sum);
+                expressions.add(expression);
+                aggregates.add(aggregate);
+                functions.add(count);
+                expressions.add(expression);
+            }
+        } else if (!isGroupByVisitor(aggregate) && !(aggregate instanceof LimitingVisitor)) {
+            String function = matchAggregateFunction(aggregate);
+            if (function == null || "distinct".equals(function)) {
+                // needs its own query
+                return;
+            }
+            Expression expression = null;
+            if (!isCountVisitor(aggregate)) {
+                expression = getExpression(aggregate);
+                if (expression == null || !fullySupports(expression)) {
+                    return;
+                }
+            }
+            aggregates.add(aggregate);
+            functions.add(function);
+            expressions.add(expression);
+        }
+    }
+
     /**
      * Checks if the groupBy is a supported one, that is, if it's possible to turn to SQL the
      * various {@link Expression} it's using
@@ -1975,6 +2151,58 @@ public final class JDBCDataStore extends ContentDataStore implements GmlObjectSt
         }
     }
 
+    /**
+     * Creates a loader streaming new features into the database for a particular feature type /
+     * table. When the primary key values are all generated by the database the features are
+     * written by the dialect {@link SQLDialect#createBulkLoader bulk loader}, or by multi row
+     * inserts, otherwise they are inserted in chunks with the regular inserts.
+     *
+     * <p>The loader does not close the connection, and must be closed once done with it.
+     */
+    protected BulkLoader createBulkLoader(SimpleFeatureType featureType, Connection cx)
+            throws IOException {
+        PrimaryKey key = getPrimaryKey(featureType);
+        BulkLoader loader = null;
+        if (isBulkLoadable(featureType, key)) {
+            try {
+                loader = dialect.createBulkLoader(featureType, key, cx);
+            } catch (SQLException e) {
+                throw new IOException("Error creating the bulk loader", e);
+            }
+            if (loader == null) {
+                loader = new MultiRowInsertBulkLoader(this, featureType, key, cx);
+            }
+        }
+        int chunkSize = Math.max(batchInsertSize, BULK_INSERT_CHUNK_SIZE);
+        return new InsertBulkLoader(this, featureType, key, cx, loader, chunkSize);
+    }
+
+    /**
+     * Returns true if the features can be written without computing their primary key values, that
+     * is, if the values are generated by the database, or by a sequence the dialect can refer to in
+     * the insert statement
+     */
+    private boolean isBulkLoadable(SimpleFeatureType featureType, PrimaryKey key) {
+        Set<String> keyColumns = getColumnNames(key);
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            if (col instanceof SequencedPrimaryKeyColumn) {
+                String sequenceName = ((SequencedPrimaryKeyColumn) col).getSequenceName();
+                if (dialect.encodeNextSequenceValue(null, sequenceName) == null) {
+                    return false;
+                }
+            } else if (!(col instanceof AutoGeneratedPrimaryKeyColumn)) {
+                return false;
+            }
+        }
+        // make sure there is something to insert besides the keys
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (!keyColumns.contains(att.getLocalName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** Updates an existing feature(s) in the database for a particular feature type / table. */
     protected void update(
             SimpleFeatureType featureType,
@@ -3578,41 +3806,65 @@ public final class JDBCDataStore extends ContentDataStore implements GmlObjectSt
     protected PreparedStatement selectSQLPS(
             SimpleFeatureType featureType, Query query, Connection cx)
             throws SQLException, IOException {
+        // look for a statement generated by a query with the same shape
+        SQLCache cache = sqlCache;
+        SQLCache.Key cacheKey = null;
+        String cachedSQL = null;
+        PreparedFilterToSQL toSQL = null;
+        if (cache != null && !virtualTables.containsKey(featureType.getTypeName())) {
+            SimpleFeatureType fullSchema = getSchema(featureType.getTypeName());
+            cacheKey = cache.getKey(fullSchema, featureType, query);
+            if (cacheKey != null) {
+                toSQL = createPreparedFilterToSQL(fullSchema);
+                cachedSQL = cache.get(cacheKey, toSQL);
+            }
+        }
 
-        StringBuffer sql = new StringBuffer();
-        sql.append("SELECT ");
+        String selectSQL;
+        if (cachedSQL != null) {
+            selectSQL = cachedSQL;
+        } else {
+            StringBuffer sql = new StringBuffer();
+            sql.append("SELECT ");
 
-        // column names
-        selectColumns(featureType, null, query, sql);
-        sql.setLength(sql.length() - 1);
-        dialect.encodePostSelect(featureType, sql);
+            // column names
+            selectColumns(featureType, null, query, sql);
+            sql.setLength(sql.length() - 1);
+            dialect.encodePostSelect(featureType, sql);
 
-        sql.append(" FROM ");
-        encodeTableName(featureType.getTypeName(), sql, setKeepWhereClausePlaceHolderHint(query));
+            sql.append(" FROM ");
+            encodeTableName(
+                    featureType.getTypeName(), sql, setKeepWhereClausePlaceHolderHint(query));
 
-        // filtering
-        PreparedFilterToSQL toSQL = null;
-        Filter filter = query.getFilter();
-        if (filter != null && !Filter.INCLUDE.equals(filter)) {
-            sql.append(" WHERE ");
+            // filtering
+            toSQL = null;
+            Filter filter = query.getFilter();
+            if (filter != null && !Filter.INCLUDE.equals(filter)) {
+                sql.append(" WHERE ");
 
-            // encode filter
-            toSQL = (PreparedFilterToSQL) filter(featureType, filter, sql);
-        }
+                // encode filter
+                toSQL = (PreparedFilterToSQL) filter(featureType, filter, sql);
+            }
 
-        // sorting
-        sort(featureType, query.getSortBy(), null, sql);
+            // sorting
+            sort(featureType, query.getSortBy(), null, sql);
 
-        // finally encode limit/offset, if necessary
-        applyLimitOffset(sql, query.getStartIndex(), query.getMaxFeatures());
+            // finally encode limit/offset, if necessary
+            applyLimitOffset(sql, query.getStartIndex(), query.getMaxFeatures());
 
-        // add search hints if the dialect supports them
-        applySearchHints(featureType, query, sql);
+            // add search hints if the dialect supports them
+            applySearchHints(featureType, query, sql);
 
-        LOGGER.fine(sql.toString());
+            selectSQL = sql.toString();
+            if (cacheKey != null) {
+                cache.put(cacheKey, selectSQL, toSQL);
+            }
+        }
+
+        LOGGER.fine(selectSQL);
         PreparedStatement ps =
                 cx.prepareStatement(
-                        sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                        selectSQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
         ps.setFetchSize(fetchSize);
 
         if (toSQL != null) {
@@ -3716,7 +3968,7 @@ public final class JDBCDataStore extends ContentDataStore implements GmlObjectSt
      *
      * @return
      */
-    private boolean isArray(AttributeDescriptor att) {
+    boolean isArray(AttributeDescriptor att) {
         Integer nativeType = (Integer) att.getUserData().get(JDBC_NATIVE_TYPE);
         return Objects.equals(Types.ARRAY, nativeType);
     }
@@ -4078,6 +4330,58 @@ public final class JDBCDataStore extends ContentDataStore implements GmlObjectSt
         return toSQL;
     }
 
+    /**
+     * Encodes a query computing several aggregate functions at once, <code>
+     * SELECT f1(e1), f2(e2), ... FROM table WHERE filter</code>, in a sub-query if the query has
+     * limits
+     */
+    List<FilterToSQL> doSelectMultiAggregateSQL(
+            List<String> functions,
+            List<Expression> expressions,
+            SimpleFeatureType featureType,
+            Query query,
+            StringBuffer sql)
+            throws SQLException, IOException {
+        List<FilterToSQL> toSQL = new ArrayList<>();
+        boolean queryLimitOffset = checkLimitOffset(query.getStartIndex(), query.getMaxFeatures());
+
+        FilterToSQL functionsToSQL = getFilterToSQL(featureType);
+        StringBuffer functionsSQL = new StringBuffer();
+        for (int i = 0; i < functions.size(); i++) {
+            encodeFunction(functions.get(i), expressions.get(i), functionsSQL, functionsToSQL);
+            functionsSQL.append(", ");
+        }
+        functionsSQL.setLength(functionsSQL.length() - 2);
+
+        sql.append("SELECT ");
+        if (queryLimitOffset) {
+            sql.append("* FROM ");
+        } else {
+            sql.append(functionsSQL).append(" FROM ");
+            toSQL.add(functionsToSQL);
+        }
+        encodeTableName(featureType.getTypeName(), sql, setKeepWhereClausePlaceHolderHint(query));
+        Filter filter = query.getFilter();
+        if (filter != null && !Filter.INCLUDE.equals(filter)) {
+            sql.append(" WHERE ");
+            toSQL.add(filter(featureType, filter, sql));
+        }
+
+        if (queryLimitOffset) {
+            // the sort decides which features are part of the page
+            sort(featureType, query.getSortBy(), null, sql);
+            applyLimitOffset(sql, query.getStartIndex(), query.getMaxFeatures());
+            sql.insert(0, "SELECT " + functionsSQL + " FROM (");
+            sql.append(") gt_limited_");
+            toSQL.add(0, functionsToSQL);
+        }
+
+        // add search hints if the dialect supports them
+        applySearchHints(featureType, query, sql);
+
+        return toSQL;
+    }
+
     private String getAggregateExpressionAlias(int idx) {
         return "gt_agg_" + idx;
     }
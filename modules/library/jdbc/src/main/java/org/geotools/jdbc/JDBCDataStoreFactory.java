@@ -138,6 +138,30 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
                     false,
                     1);
 
+    /**
+     * The number of select statements cached by prepared statement dialects, queries differing only
+     * in the filter literal values skip the SQL generation
+     */
+    public static final Param SQL_CACHE_SIZE =
+            new Param(
+                    "SQL cache size",
+                    Integer.class,
+                    "Number of select statements cached and reused by queries differing only in the filter values (default, 0, no caching)",
+                    false,
+                    0);
+
+    /**
+     * The number of features read ahead in a background thread, so that the database access
+     * overlaps with the consumption of the features
+     */
+    public static final Param PREFETCH_SIZE =
+            new Param(
+                    "Prefetch size",
+                    Integer.class,
+                    "Number of features read ahead in a background thread while the current ones are processed (default, 0, no prefetching)",
+                    false,
+                    0);
+
     /** Maximum amount of time the pool will wait when trying to grab a new connection * */
     public static final Param MAXWAIT =
             new Param(
@@ -318,6 +342,16 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
             dataStore.setBatchInsertSize(batchInsertSize);
         }
 
+        Integer sqlCacheSize = (Integer) SQL_CACHE_SIZE.lookUp(params);
+        if (sqlCacheSize != null && sqlCacheSize > 0) {
+            dataStore.setSQLCacheSize(sqlCacheSize);
+        }
+
+        Integer prefetchSize = (Integer) PREFETCH_SIZE.lookUp(params);
+        if (prefetchSize != null && prefetchSize > 0) {
+            dataStore.setPrefetchSize(prefetchSize);
+        }
+
         // namespace
         String namespace = (String) NAMESPACE.lookUp(params);
 
@@ -465,6 +499,8 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
         parameters.put(MINCONN.key, MINCONN);
         parameters.put(FETCHSIZE.key, FETCHSIZE);
         parameters.put(BATCH_INSERT_SIZE.key, BATCH_INSERT_SIZE);
+        parameters.put(SQL_CACHE_SIZE.key, SQL_CACHE_SIZE);
+        parameters.put(PREFETCH_SIZE.key, PREFETCH_SIZE);
         parameters.put(MAXWAIT.key, MAXWAIT);
         if (getValidationQuery() != null) parameters.put(VALIDATECONN.key, VALIDATECONN);
         parameters.put(TEST_WHILE_IDLE.key, TEST_WHILE_IDLE);
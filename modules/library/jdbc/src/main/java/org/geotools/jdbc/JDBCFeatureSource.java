@@ -106,6 +106,7 @@ public class JDBCFeatureSource extends ContentFeatureSource {
         // mark the features as detached, that is, the user can directly alter them
         // without altering the state of the datastore
         hints.add(Hints.FEATURE_DETACHED);
+        hints.add(JDBCDataStore.KEYSET_CURSOR);
         getDataStore().getSQLDialect().addSupportedHints(hints);
     }
 
@@ -564,12 +565,60 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             preQuery.setMaxFeatures(Integer.MAX_VALUE);
         }
 
+        // keyset paging, seek past the last feature of the previous page instead of using an offset
+        KeysetCursor cursor = getKeysetCursor(query);
+        KeysetPaging paging = null;
+        String[] propertyNames = query.getPropertyNames();
+        if (cursor != null) {
+            if (!postFilterRequired
+                    && query.getJoins().isEmpty()
+                    && query.getSortBy() != null
+                    && query.getSortBy().length > 0
+                    && canOffset()) {
+                paging = KeysetPaging.create(this, query.getSortBy());
+            }
+            if (paging == null) {
+                cursor.reset();
+            } else {
+                preQuery.setSortBy(paging.getSortBy());
+                int startIndex = query.getStartIndex() != null ? query.getStartIndex() : 0;
+                Object[] lastKey =
+                        cursor.start(
+                                getSchema().getTypeName(),
+                                query.getFilter(),
+                                paging.getSortBy(),
+                                startIndex);
+                if (lastKey != null) {
+                    FilterFactory ff = getDataStore().getFilterFactory();
+                    Filter seek = paging.getSeekFilter(lastKey);
+                    preQuery.setFilter(
+                            preFilter == null || Filter.INCLUDE.equals(preFilter)
+                                    ? seek
+                                    : ff.and(preFilter, seek));
+                    preQuery.setStartIndex(null);
+                }
+                // the key values are read from the features
+                if (propertyNames != Query.ALL_NAMES) {
+                    List<String> names = new ArrayList<>(Arrays.asList(propertyNames));
+                    for (String name : paging.getAttributes()) {
+                        if (!names.contains(name)) {
+                            names.add(name);
+                        }
+                    }
+                    propertyNames = names.toArray(new String[names.size()]);
+                }
+            }
+        }
+
         // Build the feature type returned by this query. Also build an eventual extra feature type
         // containing the attributes we might need in order to evaluate the post filter
         SimpleFeatureType[] types =
-                buildQueryAndReturnFeatureTypes(getSchema(), query.getPropertyNames(), postFilter);
+                buildQueryAndReturnFeatureTypes(getSchema(), propertyNames, postFilter);
         SimpleFeatureType querySchema = types[0];
         SimpleFeatureType returnedSchema = types[1];
+        if (propertyNames != query.getPropertyNames()) {
+            returnedSchema = SimpleFeatureTypeBuilder.retype(getSchema(), query.getPropertyNames());
+        }
 
         // grab connection
         Connection cx = getDataStore().getConnection(getState());
@@ -597,6 +646,17 @@ public class JDBCFeatureSource extends ContentFeatureSource {
 
                     reader = new JDBCFeatureReader(sql, cx, this, querySchema, query);
                 }
+                // the background thread needs exclusive use of the connection
+                int prefetchSize = getDataStore().getPrefetchSize();
+                if (prefetchSize > 0 && getState().getTransaction() == Transaction.AUTO_COMMIT) {
+                    reader = new PrefetchFeatureReader(reader, prefetchSize);
+                }
+                if (paging != null) {
+                    reader = paging.wrap(reader, cursor);
+                    if (!returnedSchema.equals(querySchema)) {
+                        reader = new ReTypeFeatureReader(reader, returnedSchema);
+                    }
+                }
             } else {
                 JoinInfo join = JoinInfo.create(preQuery, this);
 
@@ -658,6 +718,15 @@ public class JDBCFeatureSource extends ContentFeatureSource {
         return reader;
     }
 
+    /** Returns the keyset cursor in the query hints, if any */
+    KeysetCursor getKeysetCursor(Query query) {
+        Hints hints = query.getHints();
+        if (hints != null && hints.get(JDBCDataStore.KEYSET_CURSOR) instanceof KeysetCursor) {
+            return (KeysetCursor) hints.get(JDBCDataStore.KEYSET_CURSOR);
+        }
+        return null;
+    }
+
     SimpleFeatureType[] buildQueryAndReturnFeatureTypes(
             SimpleFeatureType featureType, String[] propertyNames, Filter filter) {
 
@@ -35,6 +35,8 @@ import org.geotools.data.Transaction;
 import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentFeatureStore;
 import org.geotools.data.store.ContentState;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.util.factory.Hints;
 import org.locationtech.jts.geom.Geometry;
@@ -444,4 +446,55 @@ public final class JDBCFeatureStore extends ContentFeatureStore {
             }
         }
     }
+
+    /**
+     * Loads the features into the table, streaming them to the database with its fastest loading
+     * facility (see {@link SQLDialect#createBulkLoader}), falling back on multi row and chunked
+     * inserts. The features are read one at a time, the collection is never loaded in memory.
+     *
+     * <p>Unlike {@link #addFeatures}, the ids generated for the new features are not reported back.
+     * A single {@link Type#ADDED} event covering all the features is issued at the end.
+     *
+     * @param featureCollection The features to be loaded
+     * @return The number of features loaded
+     */
+    public int addFeaturesBulk(
+            FeatureCollection<SimpleFeatureType, SimpleFeature> featureCollection)
+            throws IOException {
+        Transaction tx = getState().getTransaction();
+        Connection cx = null;
+        try {
+            cx = getDataStore().getConnection(tx);
+
+            ContentState state = getEntry().getState(transaction);
+            ReferencedEnvelope bounds =
+                    ReferencedEnvelope.create(getSchema().getCoordinateReferenceSystem());
+            int count;
+            try (BulkLoader loader = getDataStore().createBulkLoader(getSchema(), cx);
+                    FeatureIterator<SimpleFeature> features = featureCollection.features()) {
+                while (features.hasNext()) {
+                    SimpleFeature feature = features.next();
+                    loader.add(feature);
+                    if (state.hasListener()) {
+                        Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                        if (geometry != null) {
+                            bounds.expandToInclude(geometry.getEnvelopeInternal());
+                        }
+                    }
+                }
+                count = loader.finish();
+            }
+
+            if (count > 0 && state.hasListener()) {
+                // issue notification
+                FeatureEvent event = new FeatureEvent(this, Type.ADDED, bounds, Filter.INCLUDE);
+                state.fireFeatureEvent(event);
+            }
+            return count;
+        } finally {
+            if (tx == null || tx == Transaction.AUTO_COMMIT) {
+                getDataStore().closeSafe(cx);
+            }
+        }
+    }
 }
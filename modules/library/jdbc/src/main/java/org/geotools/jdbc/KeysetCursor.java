@@ -0,0 +1,107 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.opengis.filter.Filter;
+import org.opengis.filter.sort.SortBy;
+
+/**
+ * A resumable paging position over the features of a sorted query, used to read the consecutive
+ * pages with a keyset (seek) predicate, <code>WHERE key &gt; last key</code>, instead of skipping
+ * the features of the previous pages with an <code>OFFSET</code>. Reading a deep page then costs
+ * the same as reading the first one.
+ *
+ * <p>The cursor is passed in the {@link JDBCDataStore#KEYSET_CURSOR} query hint, and is updated by
+ * the reader with the sort key of each feature read. When the next query has the same type name,
+ * filter and sort, and its start index is the {@link #getNextIndex() index} following the last
+ * feature read, the store seeks past the last key. Otherwise the page is read with limit/offset,
+ * and the cursor restarts from it. The primary key is added to the sort, when missing, to make it
+ * unique.
+ *
+ * <p>The cursor holds no database resources, it can be kept around (e.g., in a paging session)
+ * for as long as needed, and is thread safe.
+ */
+public class KeysetCursor {
+
+    String typeName;
+
+    Filter filter;
+
+    List<SortBy> sortBy;
+
+    int nextIndex = -1;
+
+    Object[] lastKey;
+
+    /**
+     * Returns the start index of the page the cursor can seek to, that is, the index following the
+     * last feature read, or -1 if the cursor has not been used yet
+     */
+    public synchronized int getNextIndex() {
+        return nextIndex;
+    }
+
+    /** Forgets the paging position */
+    public synchronized void reset() {
+        typeName = null;
+        filter = null;
+        sortBy = null;
+        nextIndex = -1;
+        lastKey = null;
+    }
+
+    /**
+     * Starts reading a page, returning the key to seek past, or null if the page has to be read
+     * with an offset
+     */
+    synchronized Object[] start(String typeName, Filter filter, SortBy[] sortBy, int startIndex) {
+        List<SortBy> sortList = Arrays.asList(sortBy);
+        if (Objects.equals(this.typeName, typeName)
+                && Objects.equals(this.filter, filter)
+                && Objects.equals(this.sortBy, sortList)
+                && nextIndex == startIndex
+                && lastKey != null) {
+            return lastKey;
+        }
+        this.typeName = typeName;
+        this.filter = filter;
+        this.sortBy = sortList;
+        this.nextIndex = startIndex;
+        this.lastKey = null;
+        return null;
+    }
+
+    /** Records the key of a feature read */
+    synchronized void advance(Object[] key) {
+        nextIndex++;
+        lastKey = key;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "KeysetCursor [typeName="
+                + typeName
+                + ", nextIndex="
+                + nextIndex
+                + ", lastKey="
+                + Arrays.toString(lastKey)
+                + "]";
+    }
+}
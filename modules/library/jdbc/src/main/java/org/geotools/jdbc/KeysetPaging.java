@@ -0,0 +1,236 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.geotools.data.FeatureReader;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+/**
+ * The sort key used to page through a query with a {@link KeysetCursor}: the sort attributes of
+ * the query, followed by the primary key columns missing from it, so that each feature has a
+ * distinct key.
+ */
+class KeysetPaging {
+
+    final FilterFactory ff;
+
+    final PrimaryKey key;
+
+    /** The sort of the query, with the missing primary key columns */
+    final List<SortBy> sortBy = new ArrayList<>();
+
+    /** The attribute, or column, names making up the key */
+    final List<String> names = new ArrayList<>();
+
+    /** The index of the primary key column for each name, -1 for the attributes */
+    final List<Integer> keyIndexes = new ArrayList<>();
+
+    final List<Boolean> descending = new ArrayList<>();
+
+    /** The attributes the key values are read from */
+    final List<String> attributes = new ArrayList<>();
+
+    private KeysetPaging(FilterFactory ff, PrimaryKey key) {
+        this.ff = ff;
+        this.key = key;
+    }
+
+    /**
+     * Builds the paging key for the given sort, or returns null if the sort is not suitable for
+     * keyset paging (the table has no primary key, or is sorted on attributes that can be null or
+     * cannot be compared)
+     */
+    static KeysetPaging create(JDBCFeatureSource source, SortBy[] sortBy) throws IOException {
+        PrimaryKey key = source.getPrimaryKey();
+        if (key instanceof NullPrimaryKey || key.getColumns().isEmpty()) {
+            return null;
+        }
+        SimpleFeatureType schema = source.getSchema();
+        FilterFactory ff = source.getDataStore().getFilterFactory();
+        KeysetPaging paging = new KeysetPaging(ff, key);
+        for (SortBy sort : sortBy) {
+            boolean descending = sort.getSortOrder() == SortOrder.DESCENDING;
+            if (SortBy.NATURAL_ORDER.equals(sort) || SortBy.REVERSE_ORDER.equals(sort)) {
+                for (int i = 0; i < key.getColumns().size(); i++) {
+                    paging.addKey(key.getColumns().get(i).getName(), i, descending);
+                }
+            } else {
+                PropertyName property = sort.getPropertyName();
+                AttributeDescriptor att =
+                        property != null ? (AttributeDescriptor) property.evaluate(schema) : null;
+                if (att == null) {
+                    return null;
+                }
+                int keyIndex = getKeyIndex(key, att.getLocalName());
+                if (keyIndex < 0) {
+                    // nulls would be skipped by the seek predicate
+                    Class<?> binding = att.getType().getBinding();
+                    if (att.isNillable()
+                            || att instanceof GeometryDescriptor
+                            || !Comparable.class.isAssignableFrom(binding)) {
+                        return null;
+                    }
+                }
+                paging.addKey(att.getLocalName(), keyIndex, descending);
+            }
+            paging.sortBy.add(sort);
+        }
+
+        // make the sort unique
+        for (int i = 0; i < key.getColumns().size(); i++) {
+            String column = key.getColumns().get(i).getName();
+            if (!paging.names.contains(column)) {
+                paging.addKey(column, i, false);
+                paging.sortBy.add(ff.sort(column, SortOrder.ASCENDING));
+            }
+        }
+        return paging;
+    }
+
+    private static int getKeyIndex(PrimaryKey key, String name) {
+        for (int i = 0; i < key.getColumns().size(); i++) {
+            if (key.getColumns().get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void addKey(String name, int keyIndex, boolean descending) {
+        if (names.contains(name)) {
+            // already sorted on it, the repeated sort does not change the order
+            return;
+        }
+        names.add(name);
+        keyIndexes.add(keyIndex);
+        this.descending.add(descending);
+        if (keyIndex < 0) {
+            attributes.add(name);
+        }
+    }
+
+    /** Returns the sort of the query, including the missing primary key columns */
+    SortBy[] getSortBy() {
+        return sortBy.toArray(new SortBy[sortBy.size()]);
+    }
+
+    /** Returns the attributes the reader must load in order to extract the key values */
+    List<String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Returns the filter matching the features following the given key, <code>
+     * k1 &gt; v1 OR (k1 = v1 AND k2 &gt; v2) OR ...</code>
+     */
+    Filter getSeekFilter(Object[] lastKey) {
+        List<Filter> seek = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            List<Filter> equalPrefix = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                equalPrefix.add(ff.equals(ff.property(names.get(j)), ff.literal(lastKey[j])));
+            }
+            PropertyName property = ff.property(names.get(i));
+            Literal value = ff.literal(lastKey[i]);
+            equalPrefix.add(
+                    descending.get(i) ? ff.less(property, value) : ff.greater(property, value));
+            seek.add(equalPrefix.size() == 1 ? equalPrefix.get(0) : ff.and(equalPrefix));
+        }
+        return seek.size() == 1 ? seek.get(0) : ff.or(seek);
+    }
+
+    /** Returns the key of the feature, or null if some of its values are missing */
+    Object[] getKey(SimpleFeature feature) {
+        Object[] values = new Object[names.size()];
+        List<Object> keyValues = null;
+        for (int i = 0; i < values.length; i++) {
+            int keyIndex = keyIndexes.get(i);
+            if (keyIndex >= 0) {
+                if (keyValues == null) {
+                    try {
+                        keyValues = JDBCDataStore.decodeFID(key, feature.getID(), false);
+                    } catch (IllegalArgumentException e) {
+                        // a multi column key value containing the separator
+                        return null;
+                    }
+                }
+                values[i] = keyValues.get(keyIndex);
+            } else {
+                values[i] = feature.getAttribute(names.get(i));
+            }
+            if (values[i] == null) {
+                return null;
+            }
+        }
+        return values;
+    }
+
+    /** Wraps the reader so that it updates the cursor with the key of each feature read */
+    FeatureReader<SimpleFeatureType, SimpleFeature> wrap(
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader, KeysetCursor cursor) {
+        return new CursorReader(reader, cursor);
+    }
+
+    class CursorReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
+
+        final FeatureReader<SimpleFeatureType, SimpleFeature> delegate;
+
+        final KeysetCursor cursor;
+
+        CursorReader(
+                FeatureReader<SimpleFeatureType, SimpleFeature> delegate, KeysetCursor cursor) {
+            this.delegate = delegate;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public SimpleFeatureType getFeatureType() {
+            return delegate.getFeatureType();
+        }
+
+        @Override
+        public SimpleFeature next()
+                throws IOException, IllegalArgumentException, NoSuchElementException {
+            SimpleFeature feature = delegate.next();
+            cursor.advance(getKey(feature));
+            return feature;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
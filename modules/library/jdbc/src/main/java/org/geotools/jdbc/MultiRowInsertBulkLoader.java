@@ -0,0 +1,320 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+
+/**
+ * A {@link BulkLoader} writing the features with multi row inserts, <code>
+ * INSERT INTO table (columns) VALUES (...), (...), ...</code>, each statement carrying a chunk of
+ * features. Prepared statement dialects bind the values as parameters, the statement is reused as
+ * long as the chunks need the same SQL, and the statements are sent in JDBC batches. Basic dialects
+ * encode the values in the SQL.
+ *
+ * <p>Using a single row per statement and batches of many statements turns this loader in a JDBC
+ * array binding one, for the databases not supporting multi row inserts.
+ *
+ * <p>Sequenced primary key columns are filled with the dialect {@link
+ * SQLDialect#encodeNextSequenceValue(String, String) next sequence value} expression, the other
+ * key columns are left to the database.
+ */
+public class MultiRowInsertBulkLoader extends BulkLoader {
+
+    static final Logger LOGGER = Logging.getLogger(MultiRowInsertBulkLoader.class);
+
+    /**
+     * The maximum number of parameters in a statement, some databases (e.g., SQLite) cannot handle
+     * more than this
+     */
+    static final int MAX_PARAMETERS = 999;
+
+    /** The maximum number of rows in a statement */
+    static final int MAX_ROWS = 500;
+
+    /** The number of statements sent in a single batch */
+    static final int BATCH_SIZE = 100;
+
+    final SQLDialect dialect;
+
+    final int rowsPerStatement;
+
+    final int batchSize;
+
+    /** The names of the sequenced key columns */
+    final List<String> sequenceColumns = new ArrayList<>();
+
+    /** The next value expressions of the sequenced key columns */
+    final List<String> sequenceValues = new ArrayList<>();
+
+    final List<SimpleFeature> rows;
+
+    Statement statement;
+
+    String statementSQL;
+
+    int batchedStatements;
+
+    int batchedRows;
+
+    int count;
+
+    /**
+     * Builds a loader with the default number of rows per statement, and statements per batch
+     *
+     * @throws IOException If the sequenced primary key columns cannot be encoded by the dialect
+     */
+    public MultiRowInsertBulkLoader(
+            JDBCDataStore dataStore, SimpleFeatureType featureType, PrimaryKey key, Connection cx)
+            throws IOException {
+        this(dataStore, featureType, key, cx, -1, BATCH_SIZE);
+    }
+
+    /**
+     * Builds a new loader
+     *
+     * @param rowsPerStatement The number of rows in each statement, or a negative number to use as
+     *     many as the parameter limit allows
+     * @param batchSize The number of prepared statements sent in a single batch
+     * @throws IOException If the sequenced primary key columns cannot be encoded by the dialect
+     */
+    public MultiRowInsertBulkLoader(
+            JDBCDataStore dataStore,
+            SimpleFeatureType featureType,
+            PrimaryKey key,
+            Connection cx,
+            int rowsPerStatement,
+            int batchSize)
+            throws IOException {
+        super(dataStore, featureType, key, cx);
+        this.dialect = dataStore.getSQLDialect();
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            if (col instanceof SequencedPrimaryKeyColumn) {
+                String sequenceName = ((SequencedPrimaryKeyColumn) col).getSequenceName();
+                String next = dialect.encodeNextSequenceValue(null, sequenceName);
+                if (next == null) {
+                    throw new IOException(
+                            "Cannot encode the next value of sequence " + sequenceName);
+                }
+                sequenceColumns.add(col.getName());
+                sequenceValues.add(next);
+            }
+        }
+        if (rowsPerStatement <= 0) {
+            rowsPerStatement = getRowsPerStatement(attributes.size());
+        }
+        this.rowsPerStatement = rowsPerStatement;
+        this.batchSize = Math.max(1, batchSize);
+        this.rows = new ArrayList<>(rowsPerStatement);
+    }
+
+    /** Returns the number of rows fitting in a statement, given the number of columns */
+    static int getRowsPerStatement(int columns) {
+        return Math.max(1, Math.min(MAX_ROWS, MAX_PARAMETERS / Math.max(1, columns)));
+    }
+
+    @Override
+    public void add(SimpleFeature feature) throws IOException {
+        rows.add(feature);
+        if (rows.size() >= rowsPerStatement) {
+            writeRows();
+        }
+    }
+
+    @Override
+    public int finish() throws IOException {
+        writeRows();
+        try {
+            executeBatch();
+        } catch (SQLException e) {
+            throw new IOException("Error inserting features", e);
+        }
+        int loaded = count;
+        count = 0;
+        return loaded;
+    }
+
+    @Override
+    public void close() throws IOException {
+        rows.clear();
+        dataStore.closeSafe(statement);
+        statement = null;
+    }
+
+    private void writeRows() throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            if (dialect instanceof PreparedStatementSQLDialect) {
+                writeRowsPS((PreparedStatementSQLDialect) dialect);
+            } else {
+                writeRowsNonPS((BasicSQLDialect) dialect);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error inserting features", e);
+        }
+        count += rows.size();
+        rows.clear();
+    }
+
+    private void writeRowsPS(PreparedStatementSQLDialect dialect)
+            throws IOException, SQLException {
+        StringBuffer sql = new StringBuffer();
+        encodeInsertStart(sql);
+        for (SimpleFeature feature : rows) {
+            sql.append("(");
+            for (AttributeDescriptor att : attributes) {
+                // geometries might need special treatment, delegate to the dialect
+                if (att instanceof GeometryDescriptor) {
+                    Geometry g = (Geometry) feature.getAttribute(att.getLocalName());
+                    dialect.prepareGeometryValue(
+                            g == null ? null : g.getClass(),
+                            dataStore.getDescriptorDimension(att),
+                            dataStore.getDescriptorSRID(att),
+                            att.getType().getBinding(),
+                            sql);
+                } else {
+                    sql.append("?");
+                }
+                sql.append(",");
+            }
+            encodeSequenceValues(sql);
+            sql.setLength(sql.length() - 1);
+            sql.append("),");
+        }
+        sql.setLength(sql.length() - 1);
+
+        String insert = sql.toString();
+        if (!insert.equals(statementSQL)) {
+            executeBatch();
+            dataStore.closeSafe(statement);
+            statement = null;
+            LOGGER.log(Level.FINE, "Bulk inserting features with ps: {0}", insert);
+            statement = cx.prepareStatement(insert);
+            statementSQL = insert;
+        }
+
+        PreparedStatement ps = (PreparedStatement) statement;
+        int i = 1;
+        for (SimpleFeature feature : rows) {
+            for (AttributeDescriptor att : attributes) {
+                Class binding = att.getType().getBinding();
+                Object value = getValue(feature, att);
+                if (Geometry.class.isAssignableFrom(binding)) {
+                    Geometry g = (Geometry) value;
+                    int srid = getGeometrySRID(g, att);
+                    int dimension = getGeometryDimension(g, att);
+                    dialect.setGeometryValue(g, dimension, srid, binding, ps, i);
+                } else if (isArray(att)) {
+                    dialect.setArrayValue(value, att, ps, i, cx);
+                } else {
+                    dialect.setValue(value, binding, ps, i, cx);
+                }
+                i++;
+            }
+        }
+        dialect.onInsert(ps, cx, featureType);
+        ps.addBatch();
+        batchedStatements++;
+        batchedRows += rows.size();
+        if (batchedStatements >= batchSize) {
+            executeBatch();
+        }
+    }
+
+    private void writeRowsNonPS(BasicSQLDialect dialect) throws IOException, SQLException {
+        StringBuffer sql = new StringBuffer();
+        encodeInsertStart(sql);
+        for (SimpleFeature feature : rows) {
+            sql.append("(");
+            for (AttributeDescriptor att : attributes) {
+                Class binding = att.getType().getBinding();
+                Object value = getValue(feature, att);
+                if (value == null) {
+                    sql.append("null");
+                } else if (Geometry.class.isAssignableFrom(binding)) {
+                    Geometry g = (Geometry) value;
+                    int srid = getGeometrySRID(g, att);
+                    int dimension = getGeometryDimension(g, att);
+                    dialect.encodeGeometryValue(g, dimension, srid, sql);
+                } else {
+                    dialect.encodeValue(value, binding, sql);
+                }
+                sql.append(",");
+            }
+            encodeSequenceValues(sql);
+            sql.setLength(sql.length() - 1);
+            sql.append("),");
+        }
+        sql.setLength(sql.length() - 1);
+
+        if (statement == null) {
+            statement = cx.createStatement();
+        }
+        dialect.onInsert(statement, cx, featureType);
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            LOGGER.finest("Bulk inserting features: " + sql);
+        }
+        statement.executeUpdate(sql.toString());
+    }
+
+    /** Encodes the insert up to the VALUES keyword, included */
+    private void encodeInsertStart(StringBuffer sql) throws SQLException {
+        sql.append("INSERT INTO ");
+        dataStore.encodeTableName(featureType.getTypeName(), sql, null);
+        sql.append(" ( ");
+        for (AttributeDescriptor att : attributes) {
+            dialect.encodeColumnName(null, att.getLocalName(), sql);
+            sql.append(",");
+        }
+        for (String column : sequenceColumns) {
+            dialect.encodeColumnName(null, column, sql);
+            sql.append(",");
+        }
+        sql.setLength(sql.length() - 1);
+        sql.append(" ) VALUES ");
+    }
+
+    private void encodeSequenceValues(StringBuffer sql) {
+        for (String next : sequenceValues) {
+            sql.append(next).append(",");
+        }
+    }
+
+    private void executeBatch() throws IOException, SQLException {
+        if (batchedStatements > 0) {
+            int[] inserts = statement.executeBatch();
+            JDBCDataStore.checkAllInserted(inserts, batchedRows);
+            batchedStatements = 0;
+            batchedRows = 0;
+        }
+    }
+}
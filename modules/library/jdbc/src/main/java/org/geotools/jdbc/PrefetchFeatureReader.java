@@ -0,0 +1,213 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.data.DelegatingFeatureReader;
+import org.geotools.data.FeatureReader;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * A feature reader reading the features of its delegate in a background thread, into a bounded
+ * buffer, so that the database I/O and the decoding of the rows (geometries in particular) overlap
+ * with the consumption of the features.
+ *
+ * <p>The delegate is used by the background thread only, until it's done reading. Errors in the
+ * background thread are reported by {@link #hasNext()} and {@link #next()}, once the features read
+ * before the error have been consumed. Closing the reader stops the background thread, waits for it
+ * to complete the read in progress, and then closes the delegate.
+ */
+class PrefetchFeatureReader implements DelegatingFeatureReader<SimpleFeatureType, SimpleFeature> {
+
+    static final Logger LOGGER = Logging.getLogger(PrefetchFeatureReader.class);
+
+    /** How long the background thread waits for room in the buffer before checking for close */
+    static final long OFFER_TIMEOUT_MS = 100;
+
+    static final ExecutorService EXECUTOR =
+            Executors.newCachedThreadPool(
+                    new ThreadFactory() {
+                        final AtomicInteger count = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "gt-jdbc-prefetch-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+
+    /** Marks the end of the features */
+    static final Object END = new Object();
+
+    /** Carries an error of the background thread */
+    static class Failure {
+        final Throwable error;
+
+        Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+
+    final FeatureReader<SimpleFeatureType, SimpleFeature> delegate;
+
+    final SimpleFeatureType featureType;
+
+    final BlockingQueue<Object> buffer;
+
+    final Future<?> task;
+
+    volatile boolean closed;
+
+    /** The next item taken from the buffer, not consumed yet */
+    Object next;
+
+    boolean done;
+
+    /**
+     * Starts reading the delegate in the background
+     *
+     * @param bufferSize The maximum number of features read ahead
+     */
+    PrefetchFeatureReader(
+            FeatureReader<SimpleFeatureType, SimpleFeature> delegate, int bufferSize) {
+        this.delegate = delegate;
+        this.featureType = delegate.getFeatureType();
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.task = EXECUTOR.submit(this::prefetch);
+    }
+
+    private void prefetch() {
+        try {
+            while (!closed && delegate.hasNext()) {
+                if (!put(delegate.next())) {
+                    return;
+                }
+            }
+            put(END);
+        } catch (Throwable t) { // NOSONAR
+            put(new Failure(t));
+        }
+    }
+
+    /** Adds the item to the buffer, returns false if the reader got closed while waiting */
+    private boolean put(Object item) {
+        try {
+            while (!closed) {
+                if (buffer.offer(item, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public FeatureReader<SimpleFeatureType, SimpleFeature> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (closed) {
+            throw new IOException("Reader has been closed");
+        }
+        if (next == null && !done) {
+            try {
+                next = buffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the next feature", e);
+            }
+        }
+        if (next == END) {
+            done = true;
+            next = null;
+        } else if (next instanceof Failure) {
+            // report it once, then act as if the features were over
+            Throwable error = ((Failure) next).error;
+            done = true;
+            next = null;
+            throw rethrow(error);
+        }
+        return !done;
+    }
+
+    private IOException rethrow(Throwable error) throws IOException {
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error instanceof Error) {
+            throw (Error) error;
+        }
+        throw new IOException("Error reading features", error);
+    }
+
+    @Override
+    public SimpleFeature next() throws IOException, NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException(
+                    "No more features in this reader, you should call "
+                            + "hasNext() to check for feature availability");
+        }
+        SimpleFeature feature = (SimpleFeature) next;
+        next = null;
+        return feature;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.clear();
+        try {
+            // the delegate cannot be closed while the background thread uses it
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.FINE, "Feature prefetch failed", e);
+        } finally {
+            buffer.clear();
+            delegate.close();
+        }
+    }
+}
@@ -50,6 +50,11 @@ public class PreparedFilterToSQL extends FilterToSQL {
     protected PreparedStatementSQLDialect dialect;
     boolean prepareEnabled = true;
 
+    /** the literal expressions encoded as parameters, and their target types (for the SQL cache) */
+    List<Literal> literals = new ArrayList<>();
+
+    List<Class> literalTargets = new ArrayList<>();
+
     /**
      * Default constructor
      *
@@ -93,6 +98,8 @@ public class PreparedFilterToSQL extends FilterToSQL {
 
         // evaluate the literal and store it for later
         Object literalValue = evaluateLiteral(expression, clazz);
+        literals.add(expression);
+        literalTargets.add(clazz);
         literalValues.add(literalValue);
         SRIDs.add(currentSRID);
         dimensions.add(currentDimension);
@@ -171,6 +178,8 @@ public class PreparedFilterToSQL extends FilterToSQL {
 
                     // store the value for later usage
                     literalValues.add(attValues[j]);
+                    literals.add(null);
+                    literalTargets.add(null);
                     // no srid, pk are not formed with geometry values
                     SRIDs.add(-1);
                     dimensions.add(-1);
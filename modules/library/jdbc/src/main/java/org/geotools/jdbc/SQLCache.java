@@ -0,0 +1,301 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import org.geotools.data.Query;
+import org.geotools.util.factory.Hints;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.expression.Literal;
+
+/**
+ * Caches the SELECT statements generated for the queries of a {@link JDBCDataStore} using a
+ * {@link PreparedStatementSQLDialect}, so that queries differing only in the filter literal values
+ * skip the SQL generation. As the SQL text is the same, the statements are also reused by the
+ * connection pool prepared statement cache, skipping the database parse and plan as well.
+ *
+ * <p>The cache key is made of the filter {@link FilterShape shape}, the returned attributes, sort,
+ * paging and the hints of the query. A statement is cached only if all the filter literals are
+ * encoded as parameters, in the order the shape collects them. On a cache hit the new literal
+ * values are evaluated with the types found when generating the SQL, and the cached statement is
+ * used only if the values have the same types, as the dialect parameter placeholders can depend
+ * on them.
+ */
+class SQLCache {
+
+    /** Query hints that do not change the generated SQL */
+    static final List<Hints.Key> IGNORED_HINTS =
+            Arrays.asList(
+                    Hints.JTS_GEOMETRY_FACTORY,
+                    Hints.JTS_COORDINATE_SEQUENCE_FACTORY,
+                    Hints.FEATURE_DETACHED,
+                    Hints.SCREENMAP,
+                    JDBCDataStore.KEYSET_CURSOR);
+
+    /** Marks the keys whose statements cannot be cached */
+    static final Entry NOT_CACHEABLE = new Entry(null, null);
+
+    final Map<Key, Entry> entries;
+
+    final AtomicLong hits = new AtomicLong();
+
+    final AtomicLong misses = new AtomicLong();
+
+    SQLCache(final int size) {
+        this.entries =
+                Collections.synchronizedMap(
+                        new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+                            @Override
+                            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                                return size() > size;
+                            }
+                        });
+    }
+
+    /**
+     * Builds the cache key for a select, or returns null if the select cannot be cached
+     *
+     * @param schema The full schema of the table
+     * @param featureType The returned feature type
+     * @param query The query, with the filter to be encoded in SQL
+     */
+    Key getKey(SimpleFeatureType schema, SimpleFeatureType featureType, Query query) {
+        FilterShape shape = FilterShape.of(query.getFilter());
+        if (shape == null) {
+            return null;
+        }
+        List<String> attributes = new ArrayList<>();
+        for (AttributeDescriptor ad : featureType.getAttributeDescriptors()) {
+            attributes.add(ad.getLocalName());
+        }
+        Map<Object, Object> hints = new HashMap<>();
+        if (query.getHints() != null) {
+            for (Map.Entry<Object, Object> hint : query.getHints().entrySet()) {
+                if (!IGNORED_HINTS.contains(hint.getKey())) {
+                    hints.put(hint.getKey(), hint.getValue());
+                }
+            }
+        }
+        return new Key(
+                schema,
+                attributes,
+                shape.getShape(),
+                query.getSortBy() != null ? Arrays.asList(query.getSortBy()) : null,
+                query.getStartIndex(),
+                query.getMaxFeatures(),
+                hints,
+                shape.getLiterals());
+    }
+
+    /**
+     * Returns the statement cached for the key, if any, binding the literals of the key filter to
+     * its parameters in the given filter encoder
+     */
+    String get(Key key, PreparedFilterToSQL toSQL) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry != NOT_CACHEABLE && entry.bind(key.literals, toSQL)) {
+            hits.incrementAndGet();
+            return entry.sql;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches the statement generated for the key, if all the filter literals have been encoded as
+     * parameters
+     *
+     * @param toSQL The filter encoder used to generate the statement, or null if the statement has
+     *     no filter
+     */
+    void put(Key key, String sql, PreparedFilterToSQL toSQL) {
+        if (entries.get(key) == NOT_CACHEABLE) {
+            return;
+        }
+        if (toSQL == null) {
+            if (key.literals.isEmpty()) {
+                entries.put(key, new Entry(sql, null));
+            }
+            return;
+        }
+        List<Literal> encoded = toSQL.literals;
+        boolean parametric =
+                encoded.size() == key.literals.size()
+                        && toSQL.getLiteralValues().size() == encoded.size();
+        for (int i = 0; parametric && i < encoded.size(); i++) {
+            parametric = encoded.get(i) == key.literals.get(i);
+        }
+        entries.put(key, parametric ? new Entry(sql, toSQL) : NOT_CACHEABLE);
+    }
+
+    /** The number of statements found in the cache */
+    long getHits() {
+        return hits.get();
+    }
+
+    /** The number of statements that had to be generated */
+    long getMisses() {
+        return misses.get();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    static class Key {
+
+        final SimpleFeatureType schema;
+
+        final List<String> attributes;
+
+        final String shape;
+
+        final List<?> sortBy;
+
+        final Integer startIndex;
+
+        final int maxFeatures;
+
+        final Map<Object, Object> hints;
+
+        /** The literals of the query filter, not part of the key identity */
+        final List<Literal> literals;
+
+        final int hashCode;
+
+        Key(
+                SimpleFeatureType schema,
+                List<String> attributes,
+                String shape,
+                List<?> sortBy,
+                Integer startIndex,
+                int maxFeatures,
+                Map<Object, Object> hints,
+                List<Literal> literals) {
+            this.schema = schema;
+            this.attributes = attributes;
+            this.shape = shape;
+            this.sortBy = sortBy;
+            this.startIndex = startIndex;
+            this.maxFeatures = maxFeatures;
+            this.hints = hints;
+            this.literals = literals;
+            this.hashCode =
+                    Objects.hash(
+                            System.identityHashCode(schema),
+                            attributes,
+                            shape,
+                            sortBy,
+                            startIndex,
+                            maxFeatures,
+                            hints);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            // a schema reload makes the old statements unreachable
+            return schema == other.schema
+                    && maxFeatures == other.maxFeatures
+                    && shape.equals(other.shape)
+                    && attributes.equals(other.attributes)
+                    && Objects.equals(sortBy, other.sortBy)
+                    && Objects.equals(startIndex, other.startIndex)
+                    && hints.equals(other.hints);
+        }
+    }
+
+    /** A cached statement, and the types of its parameters */
+    static class Entry {
+
+        final String sql;
+
+        final List<Class> targets;
+
+        final List<Class> valueClasses;
+
+        final List<Class> types;
+
+        final List<Integer> srids;
+
+        final List<Integer> dimensions;
+
+        final List<AttributeDescriptor> descriptors;
+
+        Entry(String sql, PreparedFilterToSQL toSQL) {
+            this.sql = sql;
+            if (toSQL != null) {
+                targets = new ArrayList<>(toSQL.literalTargets);
+                valueClasses = new ArrayList<>();
+                for (Object value : toSQL.getLiteralValues()) {
+                    valueClasses.add(value != null ? value.getClass() : null);
+                }
+                types = new ArrayList<>(toSQL.getLiteralTypes());
+                srids = new ArrayList<>(toSQL.getSRIDs());
+                dimensions = new ArrayList<>(toSQL.getDimensions());
+                descriptors = new ArrayList<>(toSQL.getDescriptors());
+            } else {
+                targets = valueClasses = types = Collections.emptyList();
+                srids = dimensions = Collections.emptyList();
+                descriptors = Collections.emptyList();
+            }
+        }
+
+        /**
+         * Evaluates the literals into the parameter values of the encoder, returns false if their
+         * types do not match the ones of the cached statement
+         */
+        boolean bind(List<Literal> literals, PreparedFilterToSQL toSQL) {
+            List<Object> values = new ArrayList<>(literals.size());
+            for (int i = 0; i < literals.size(); i++) {
+                Object value = toSQL.evaluateLiteral(literals.get(i), targets.get(i));
+                Class valueClass = value != null ? value.getClass() : null;
+                if (!Objects.equals(valueClass, valueClasses.get(i))) {
+                    return false;
+                }
+                values.add(value);
+            }
+            toSQL.literalValues.addAll(values);
+            toSQL.literalTypes.addAll(types);
+            toSQL.SRIDs.addAll(srids);
+            toSQL.dimensions.addAll(dimensions);
+            toSQL.descriptors.addAll(descriptors);
+            return true;
+        }
+    }
+}
@@ -1167,6 +1167,26 @@ public abstract class SQLDialect {
         return null;
     }
 
+    /**
+     * Creates a loader streaming new features into a table with a database specific bulk loading
+     * facility (e.g., COPY, loader APIs).
+     *
+     * <p>The loader is used only when the primary key values are all generated by the database.
+     * This method is given a direct connection to the database, the loader should never close it.
+     *
+     * <p>This default implementation returns <code>null</code>, subclasses should override.
+     *
+     * @param featureType The feature type of the table being loaded
+     * @param key The table primary key
+     * @param cx The database connection
+     * @return The bulk loader, or <code>null</code> to load the features with multi row inserts
+     * @see MultiRowInsertBulkLoader
+     */
+    public BulkLoader createBulkLoader(SimpleFeatureType featureType, PrimaryKey key, Connection cx)
+            throws SQLException, IOException {
+        return null;
+    }
+
     /**
      * Returns true if this dialect can encode both {@linkplain Query#getStartIndex()} and
      * {@linkplain Query#getMaxFeatures()} into native SQL.
@@ -0,0 +1,81 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+import org.geotools.factory.CommonFactoryFinder;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Literal;
+
+public class FilterShapeTest extends TestCase {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    public void testSameShapeDifferentValues() {
+        Filter f1 =
+                ff.and(
+                        ff.greater(ff.property("a"), ff.literal(10)),
+                        ff.bbox("geom", 0, 0, 1, 1, null));
+        Filter f2 =
+                ff.and(
+                        ff.greater(ff.property("a"), ff.literal(20)),
+                        ff.bbox("geom", 5, 5, 6, 6, null));
+        FilterShape s1 = FilterShape.of(f1);
+        FilterShape s2 = FilterShape.of(f2);
+        assertEquals(s1.getShape(), s2.getShape());
+        assertEquals(2, s2.getLiterals().size());
+        assertEquals(20, s2.getLiterals().get(0).getValue());
+    }
+
+    public void testLiteralOrder() {
+        Literal l1 = ff.literal(1);
+        Literal l2 = ff.literal(2);
+        FilterShape shape = FilterShape.of(ff.between(ff.property("a"), l1, l2));
+        assertEquals(Arrays.asList(l1, l2), shape.getLiterals());
+    }
+
+    public void testDifferentShapes() {
+        // the literal type, the match case flag, the like pattern and the children order matter
+        assertDifferent(
+                ff.equals(ff.property("a"), ff.literal(1)),
+                ff.equals(ff.property("a"), ff.literal("1")));
+        assertDifferent(
+                ff.equal(ff.property("a"), ff.literal("x"), true),
+                ff.equal(ff.property("a"), ff.literal("x"), false));
+        assertDifferent(ff.like(ff.property("a"), "x*"), ff.like(ff.property("a"), "y*"));
+        Filter a = ff.equals(ff.property("a"), ff.literal(1));
+        Filter b = ff.isNull(ff.property("b"));
+        assertDifferent(ff.and(a, b), ff.and(b, a));
+        assertDifferent(ff.and(a, b), ff.or(a, b));
+    }
+
+    public void testNoShape() {
+        assertNull(FilterShape.of(ff.id(ff.featureId("t.1"))));
+        assertNull(FilterShape.of(ff.dwithin(ff.property("geom"), ff.literal(null), 10, "m")));
+        assertNull(
+                FilterShape.of(
+                        ff.and(
+                                ff.equals(ff.property("a"), ff.literal(1)),
+                                ff.id(ff.featureId("t.1")))));
+    }
+
+    private void assertDifferent(Filter f1, Filter f2) {
+        assertFalse(FilterShape.of(f1).getShape().equals(FilterShape.of(f2).getShape()));
+    }
+}
@@ -23,10 +23,13 @@ import java.util.List;
 import java.util.Set;
 import org.geotools.data.Query;
 import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.visitor.AverageVisitor;
+import org.geotools.feature.visitor.CountVisitor;
 import org.geotools.feature.visitor.GroupByVisitor;
 import org.geotools.feature.visitor.GroupByVisitorBuilder;
 import org.geotools.feature.visitor.MaxVisitor;
 import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.MultiAggregateVisitor;
 import org.geotools.feature.visitor.NearestVisitor;
 import org.geotools.feature.visitor.SumAreaVisitor;
 import org.geotools.feature.visitor.SumVisitor;
@@ -442,6 +445,64 @@ public abstract class JDBCAggregateFunctionOnlineTest extends JDBCTestSupport {
         }
     }
 
+    public void testMultiAggregate() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property(aname("doubleProperty"));
+
+        MinVisitor min = new MyMinVisitor(p);
+        MaxVisitor max = new MyMaxVisitor(p);
+        SumVisitor sum = new MySumVisitor(p);
+        CountVisitor count = new CountVisitor();
+        AverageVisitor avg = new AverageVisitor(p);
+        UniqueVisitor unique = new MyUniqueVisitor(ff.property(aname("stringProperty")));
+        MultiAggregateVisitor v = new MultiAggregateVisitor(min, max, sum, count, avg, unique);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertFalse(visited);
+        assertTrue(v.getPendingVisitors().isEmpty());
+        assertEquals(0.0, min.getResult().toDouble(), 0.01);
+        assertEquals(2.2, max.getResult().toDouble(), 0.01);
+        assertEquals(3.3, sum.getResult().toDouble(), 0.01);
+        assertEquals(3, count.getResult().toInt());
+        assertEquals(1.1, avg.getResult().toDouble(), 0.01);
+        assertEquals(3, unique.getResult().toSet().size());
+        List values = (List) v.getResult().getValue();
+        assertEquals(6, values.size());
+    }
+
+    public void testMultiAggregateWithFilter() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property(aname("doubleProperty"));
+
+        MinVisitor min = new MyMinVisitor(p);
+        MaxVisitor max = new MyMaxVisitor(p);
+        AverageVisitor avg = new AverageVisitor(p);
+        MultiAggregateVisitor v = new MultiAggregateVisitor(min, max, avg);
+        Filter f = ff.greater(ff.property(aname("doubleProperty")), ff.literal(1));
+        Query q = new Query(tname("ft1"), f);
+        dataStore.getFeatureSource(tname("ft1")).accepts(q, v, null);
+        assertFalse(visited);
+        assertEquals(1.1, min.getResult().toDouble(), 0.01);
+        assertEquals(2.2, max.getResult().toDouble(), 0.01);
+        assertEquals(1.65, avg.getResult().toDouble(), 0.01);
+    }
+
+    public void testMultiAggregateWithLimitOffset() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property(aname("doubleProperty"));
+
+        MinVisitor min = new MyMinVisitor(p);
+        SumVisitor sum = new MySumVisitor(p);
+        MultiAggregateVisitor v = new MultiAggregateVisitor(min, sum);
+        Query q = new Query(tname("ft1"));
+        q.setStartIndex(0);
+        q.setMaxFeatures(2);
+        q.setSortBy(new SortBy[] {new SortByImpl(p, SortOrder.DESCENDING)});
+        dataStore.getFeatureSource(tname("ft1")).accepts(q, v, null);
+        assertFalse(visited);
+        assertEquals(1.1, min.getResult().toDouble(), 0.01);
+        assertEquals(3.3, sum.getResult().toDouble(), 0.01);
+    }
+
     public void testNearest() throws IOException {
         // test strings
         testNearest("ft1", "stringProperty", "two", "two"); // exact match
@@ -344,6 +344,104 @@ public abstract class JDBCFeatureSourceOnlineTest extends JDBCTestSupport {
         }
     }
 
+    public void testSQLCache() throws Exception {
+        if (!(dataStore.getSQLDialect() instanceof PreparedStatementSQLDialect)) {
+            return;
+        }
+        dataStore.setSQLCacheSize(10);
+        try {
+            FilterFactory ff = dataStore.getFilterFactory();
+            for (int i = 0; i < 3; i++) {
+                Filter f = ff.equals(ff.property(aname("intProperty")), ff.literal(i));
+                try (SimpleFeatureIterator it = featureSource.getFeatures(f).features()) {
+                    assertTrue(it.hasNext());
+                    Number value = (Number) it.next().getAttribute(aname("intProperty"));
+                    assertEquals(i, value.intValue());
+                    assertFalse(it.hasNext());
+                }
+            }
+            // the statement was generated for the first query only
+            assertEquals(1, dataStore.sqlCache.getMisses());
+            assertEquals(2, dataStore.sqlCache.getHits());
+        } finally {
+            dataStore.setSQLCacheSize(0);
+        }
+    }
+
+    public void testPrefetch() throws Exception {
+        dataStore.setPrefetchSize(1);
+        try {
+            Query query = new Query(tname("ft1"));
+            FilterFactory ff = dataStore.getFilterFactory();
+            query.setSortBy(new SortBy[] {ff.sort(aname("intProperty"), SortOrder.ASCENDING)});
+            try (SimpleFeatureIterator it = featureSource.getFeatures(query).features()) {
+                for (int i = 0; i < 3; i++) {
+                    assertTrue(it.hasNext());
+                    Number value = (Number) it.next().getAttribute(aname("intProperty"));
+                    assertEquals(i, value.intValue());
+                }
+                assertFalse(it.hasNext());
+            }
+            // closing before the end
+            try (SimpleFeatureIterator it = featureSource.getFeatures(query).features()) {
+                assertTrue(it.hasNext());
+                it.next();
+            }
+        } finally {
+            dataStore.setPrefetchSize(0);
+        }
+    }
+
+    public void testKeysetPaging() throws Exception {
+        KeysetCursor cursor = new KeysetCursor();
+        assertEquals(0, readPage(cursor, 0, 1, aname("intProperty")));
+        assertEquals(1, cursor.getNextIndex());
+        assertEquals(1, readPage(cursor, 1, 1, aname("intProperty")));
+        assertEquals(2, cursor.getNextIndex());
+        assertEquals(2, readPage(cursor, 2, 1, aname("intProperty"), aname("stringProperty")));
+        assertEquals(3, cursor.getNextIndex());
+        // not the page following the last one, reads with an offset
+        assertEquals(0, readPage(cursor, 0, 1, aname("intProperty")));
+        assertEquals(1, cursor.getNextIndex());
+    }
+
+    public void testKeysetPagingSeek() throws Exception {
+        KeysetCursor cursor = new KeysetCursor();
+        try (Transaction t = new DefaultTransaction()) {
+            JDBCFeatureStore store = (JDBCFeatureStore) featureSource;
+            store.setTransaction(t);
+            assertEquals(1, readPage(cursor, 0, 2, aname("intProperty")));
+            // removing a feature of the previous page does not shift the next one
+            FilterFactory ff = dataStore.getFilterFactory();
+            store.removeFeatures(ff.equals(ff.property(aname("intProperty")), ff.literal(0)));
+            assertEquals(2, readPage(cursor, 2, 1, aname("intProperty")));
+            assertEquals(3, cursor.getNextIndex());
+            t.rollback();
+        } finally {
+            ((JDBCFeatureStore) featureSource).setTransaction(Transaction.AUTO_COMMIT);
+        }
+    }
+
+    /** Reads a page of natural order sorted features, returns the last int property value */
+    private int readPage(KeysetCursor cursor, int startIndex, int maxFeatures, String... properties)
+            throws Exception {
+        Query q = new Query(featureSource.getSchema().getTypeName());
+        q.setSortBy(new SortBy[] {SortBy.NATURAL_ORDER});
+        q.setPropertyNames(properties);
+        q.setStartIndex(startIndex);
+        q.setMaxFeatures(maxFeatures);
+        q.setHints(new Hints(JDBCDataStore.KEYSET_CURSOR, cursor));
+        int last = -1;
+        try (SimpleFeatureIterator it = featureSource.getFeatures(q).features()) {
+            while (it.hasNext()) {
+                SimpleFeature f = it.next();
+                assertEquals(properties.length, f.getAttributeCount());
+                last = ((Number) f.getAttribute(aname("intProperty"))).intValue();
+            }
+        }
+        return last;
+    }
+
     public void testGetFeaturesWithOffsetLimitAndPostFilter() throws Exception {
         Query q = new Query(featureSource.getSchema().getTypeName());
         // no sorting, let's see if the database can use native one
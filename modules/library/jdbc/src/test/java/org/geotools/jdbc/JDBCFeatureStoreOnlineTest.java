@@ -193,6 +193,112 @@ public abstract class JDBCFeatureStoreOnlineTest extends JDBCTestSupport {
         }
     }
 
+    public void testAddFeaturesBulk() throws IOException {
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection =
+                new DefaultFeatureCollection(null, featureStore.getSchema());
+
+        FeatureEventWatcher watcher = new FeatureEventWatcher();
+
+        for (int i = 3; i < 6; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            b.set(aname("doubleProperty"), new Double(i + 0.5));
+            b.set(aname("stringProperty"), "bulk\t" + i);
+            b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            collection.add(b.buildFeature(null));
+        }
+        featureStore.addFeatureListener(watcher);
+        assertEquals(3, featureStore.addFeaturesBulk(collection));
+        assertEquals(1, watcher.count);
+        assertEquals(Type.ADDED, watcher.type);
+        assertEquals(watcher.bounds, collection.getBounds());
+
+        assertEquals(6, featureStore.getFeatures().size());
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyIsEqualTo filter = ff.equals(ff.property(aname("intProperty")), ff.literal(4));
+        try (SimpleFeatureIterator iterator = featureStore.getFeatures(filter).features()) {
+            assertTrue(iterator.hasNext());
+            SimpleFeature feature = iterator.next();
+            Number d = (Number) feature.getAttribute(aname("doubleProperty"));
+            assertEquals(4.5, d.doubleValue());
+            assertEquals("bulk\t4", feature.getAttribute(aname("stringProperty")));
+            Point p = (Point) feature.getDefaultGeometry();
+            assertEquals(new Coordinate(4, 4), p.getCoordinate());
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    public void testAddFeaturesBulkMany() throws IOException {
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection =
+                new DefaultFeatureCollection(null, featureStore.getSchema());
+
+        // enough features to fill several multi row statements, some without a geometry
+        for (int i = 0; i < 1234; i++) {
+            b.set(aname("intProperty"), new Integer(i + 10));
+            if (i % 7 != 0) {
+                b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            }
+            collection.add(b.buildFeature(null));
+        }
+        assertEquals(1234, featureStore.addFeaturesBulk(collection));
+        assertEquals(1237, featureStore.getFeatures().size());
+    }
+
+    public void testAddFeaturesBulkUseProvidedFid() throws IOException {
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection =
+                new DefaultFeatureCollection(null, featureStore.getSchema());
+
+        String typeName = b.getFeatureType().getTypeName();
+        for (int i = 3; i < 6; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            b.featureUserData(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+            collection.add(b.buildFeature(typeName + "." + (i * 10)));
+        }
+        assertEquals(3, featureStore.addFeaturesBulk(collection));
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        Id filter =
+                ff.id(
+                        Collections.singleton(
+                                SimpleFeatureBuilder.createDefaultFeatureIdentifier(
+                                        typeName + ".40")));
+        assertEquals(1, featureStore.getFeatures(filter).size());
+    }
+
+    public void testAddFeaturesBulkMixedFid() throws IOException {
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection =
+                new DefaultFeatureCollection(null, featureStore.getSchema());
+
+        // generated and provided ids interleaved, the bulk load has to be ended before the
+        // provided ones are inserted
+        String typeName = b.getFeatureType().getTypeName();
+        for (int i = 3; i < 9; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            if (i % 2 == 0) {
+                b.featureUserData(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+                collection.add(b.buildFeature(typeName + "." + (i * 10)));
+            } else {
+                collection.add(b.buildFeature(null));
+            }
+        }
+        assertEquals(6, featureStore.addFeaturesBulk(collection));
+        assertEquals(9, featureStore.getFeatures().size());
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        Id filter =
+                ff.id(
+                        Collections.singleton(
+                                SimpleFeatureBuilder.createDefaultFeatureIdentifier(
+                                        typeName + ".60")));
+        assertEquals(1, featureStore.getFeatures(filter).size());
+    }
+
     public void testAddInTransaction() throws IOException {
         SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
         DefaultFeatureCollection collection =
@@ -0,0 +1,134 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import junit.framework.TestCase;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureReader;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class PrefetchFeatureReaderTest extends TestCase {
+
+    SimpleFeatureType type;
+
+    @Override
+    protected void setUp() throws Exception {
+        type = DataUtilities.createType("test", "id:Integer");
+    }
+
+    public void testReadAll() throws Exception {
+        CountingReader delegate = new CountingReader(100, -1);
+        try (PrefetchFeatureReader reader = new PrefetchFeatureReader(delegate, 4)) {
+            assertSame(type, reader.getFeatureType());
+            for (int i = 0; i < 100; i++) {
+                assertTrue(reader.hasNext());
+                assertEquals(i, reader.next().getAttribute("id"));
+            }
+            assertFalse(reader.hasNext());
+            try {
+                reader.next();
+                fail("Should have thrown an exception");
+            } catch (NoSuchElementException e) {
+                // fine
+            }
+        }
+        assertTrue(delegate.closed);
+    }
+
+    public void testError() throws Exception {
+        CountingReader delegate = new CountingReader(100, 10);
+        try (PrefetchFeatureReader reader = new PrefetchFeatureReader(delegate, 4)) {
+            // the features read before the error are returned
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i, reader.next().getAttribute("id"));
+            }
+            try {
+                reader.hasNext();
+                fail("Should have thrown an exception");
+            } catch (IOException e) {
+                assertEquals("Failed at 10", e.getMessage());
+            }
+            assertFalse(reader.hasNext());
+        }
+        assertTrue(delegate.closed);
+    }
+
+    public void testEarlyClose() throws Exception {
+        CountingReader delegate = new CountingReader(1000, -1);
+        PrefetchFeatureReader reader = new PrefetchFeatureReader(delegate, 4);
+        assertEquals(0, reader.next().getAttribute("id"));
+        reader.close();
+        // the background thread stopped without reading everything
+        assertTrue(delegate.closed);
+        assertTrue(delegate.count < 1000);
+        try {
+            reader.hasNext();
+            fail("Should have thrown an exception");
+        } catch (IOException e) {
+            // fine
+        }
+        // closing again is fine
+        reader.close();
+    }
+
+    /** Returns a sequence of features, failing at the given position if not negative */
+    class CountingReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
+
+        final int size;
+
+        final int failAt;
+
+        volatile int count;
+
+        volatile boolean closed;
+
+        CountingReader(int size, int failAt) {
+            this.size = size;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public SimpleFeatureType getFeatureType() {
+            return type;
+        }
+
+        @Override
+        public SimpleFeature next() throws IOException, NoSuchElementException {
+            if (closed) {
+                throw new IOException("Closed");
+            }
+            if (count == failAt) {
+                throw new IOException("Failed at " + count);
+            }
+            int id = count++;
+            return DataUtilities.createFeature(type, "test." + id + "=" + id);
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return count < size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+    }
+}
@@ -176,7 +176,12 @@ public class CollectionFeatureSource implements SimpleFeatureSource {
             return new EmptyFeatureCollection(getSchema());
         }
         if (query.getFilter() != null && query.getFilter() != Filter.INCLUDE) {
-            features = new FilteringSimpleFeatureCollection(features, query.getFilter());
+            if (collection instanceof UpdatableSpatialIndexFeatureCollection) {
+                // locate the features through the spatial index
+                features = collection.subCollection(query.getFilter());
+            } else {
+                features = new FilteringSimpleFeatureCollection(features, query.getFilter());
+            }
         }
         // step two: reproject
         if (query.getCoordinateSystemReproject() != null) {
@@ -50,7 +50,7 @@ import org.opengis.util.ProgressListener;
  * FeatureCollection used to stage information for display using a SpatialIndex.
  *
  * <p>Please note that this feature collection cannot be modified after the spatial index is
- * created.
+ * created, see {@link UpdatableSpatialIndexFeatureCollection} for content that changes over time.
  *
  * @author Jody
  */
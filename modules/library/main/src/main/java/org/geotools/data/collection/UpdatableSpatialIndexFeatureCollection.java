@@ -0,0 +1,669 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.util.NullProgressListener;
+import org.geotools.data.util.PackedSTRIndex;
+import org.geotools.feature.collection.SortedSimpleFeatureCollection;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.util.ProgressListener;
+
+/**
+ * FeatureCollection holding features in a spatial index that, unlike {@link
+ * SpatialIndexFeatureCollection}, can be modified at any time and read while being modified.
+ *
+ * <p>The content is an immutable snapshot made of a packed R-tree, bulk loaded with most of the
+ * features, plus the part of an append-only log of the features added and removed since the tree
+ * was built. Changes append to the log and publish a new snapshot seeing the new entries, at a cost
+ * proportional to the size of the change. Readers work against the snapshot current when they start
+ * and never take a lock. Once the log grows past a fraction of the tree size a new tree is built in
+ * the background, without blocking readers or writers, and swapped in. Batching updates with
+ * {@link #addAll(Collection)} still pays off, as readers not using the tree scan the whole log.
+ *
+ * <p>Features are identified by their feature id, adding a feature with the same id as an existing
+ * one replaces it. This makes the collection suitable for layers refreshed often, such as vehicle
+ * positions:
+ *
+ * <pre><code>
+ * UpdatableSpatialIndexFeatureCollection vehicles =
+ *         new UpdatableSpatialIndexFeatureCollection(schema);
+ * SimpleFeatureSource source = new CollectionFeatureSource(vehicles);
+ * ...
+ * vehicles.addAll(updatedPositions); // replaces the previous positions
+ * </code></pre>
+ *
+ * {@link CollectionFeatureSource} uses the index to answer queries with a spatial filter.
+ *
+ * @since 21
+ */
+public class UpdatableSpatialIndexFeatureCollection implements SimpleFeatureCollection {
+
+    static final Logger LOGGER = Logging.getLogger(UpdatableSpatialIndexFeatureCollection.class);
+
+    /** Minimum size of the delta triggering a rebuild of the tree */
+    static final int MIN_MERGE_SIZE = 1024;
+
+    /** Builds the new trees in the background */
+    static final ExecutorService MERGER =
+            Executors.newCachedThreadPool(
+                    new ThreadFactory() {
+                        final AtomicInteger count = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "gt-index-merge-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+
+    protected final SimpleFeatureType schema;
+
+    /** The live features by id, only modified while holding the lock on the collection */
+    final Map<String, SimpleFeature> features = new ConcurrentHashMap<>();
+
+    volatile Snapshot snapshot = new Snapshot(new SimpleFeature[0]);
+
+    /** Changes made since the background merge started, or null if no merge is running */
+    List<Change> pending;
+
+    /** Incremented when the content is rebuilt in the foreground, voids the running merge */
+    long generation;
+
+    public UpdatableSpatialIndexFeatureCollection(SimpleFeatureType schema) {
+        this.schema = schema;
+    }
+
+    public UpdatableSpatialIndexFeatureCollection(SimpleFeatureCollection copy) {
+        this(copy.getSchema());
+        Map<String, SimpleFeature> content = new LinkedHashMap<>();
+        try (SimpleFeatureIterator it = copy.features()) {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                content.put(feature.getID(), feature);
+            }
+        }
+        features.putAll(content);
+        snapshot = new Snapshot(content.values().toArray(new SimpleFeature[content.size()]));
+    }
+
+    //
+    // Modifications
+    //
+
+    /** Adds the feature, replacing the one with the same id if any */
+    public boolean add(SimpleFeature feature) {
+        return addAll(Collections.singletonList(feature));
+    }
+
+    /** Adds the features, replacing the ones with the same ids if any */
+    public boolean addAll(Collection<? extends SimpleFeature> collection) {
+        if (collection.isEmpty()) {
+            return false;
+        }
+        Map<String, SimpleFeature> added = new LinkedHashMap<>();
+        for (SimpleFeature feature : collection) {
+            added.put(feature.getID(), feature);
+        }
+        change(new Change(added.values(), added.keySet()));
+        return true;
+    }
+
+    /** Adds the features of the collection, replacing the ones with the same ids if any */
+    public boolean addAll(SimpleFeatureCollection collection) {
+        List<SimpleFeature> list = new ArrayList<>();
+        try (SimpleFeatureIterator it = collection.features()) {
+            while (it.hasNext()) {
+                list.add(it.next());
+            }
+        }
+        return addAll(list);
+    }
+
+    /** Removes the feature with the same id as the one provided */
+    public boolean remove(Object o) {
+        return removeAll(Collections.singletonList(o));
+    }
+
+    /** Removes the features with the same ids as the ones provided */
+    public boolean removeAll(Collection<?> c) {
+        Set<String> ids = new HashSet<>();
+        for (Object o : c) {
+            if (o instanceof SimpleFeature) {
+                ids.add(((SimpleFeature) o).getID());
+            }
+        }
+        return removeIds(ids);
+    }
+
+    /** Removes the features that are not in the provided collection */
+    public synchronized boolean retainAll(Collection<?> c) {
+        Set<String> retained = new HashSet<>();
+        for (Object o : c) {
+            if (o instanceof SimpleFeature) {
+                retained.add(((SimpleFeature) o).getID());
+            }
+        }
+        Set<String> ids = new HashSet<>(features.keySet());
+        ids.removeAll(retained);
+        return removeIds(ids);
+    }
+
+    private synchronized boolean removeIds(Set<String> ids) {
+        ids.retainAll(features.keySet());
+        if (ids.isEmpty()) {
+            return false;
+        }
+        change(new Change(Collections.<SimpleFeature>emptyList(), ids));
+        return true;
+    }
+
+    public synchronized void clear() {
+        features.clear();
+        snapshot = new Snapshot(new SimpleFeature[0]);
+        generation++;
+        pending = null;
+    }
+
+    /** Rebuilds the spatial index with the current content, in the calling thread */
+    public synchronized void merge() {
+        snapshot = new Snapshot(snapshot.toArray());
+        generation++;
+        pending = null;
+    }
+
+    private synchronized void change(Change change) {
+        boolean additionsOnly = true;
+        for (String id : change.removed) {
+            additionsOnly &= features.remove(id) == null;
+        }
+        change.additionsOnly = additionsOnly;
+        for (SimpleFeature feature : change.added) {
+            features.put(feature.getID(), feature);
+        }
+        Snapshot current = snapshot.apply(change);
+        snapshot = current;
+        if (pending != null) {
+            pending.add(change);
+        } else if (current.deltaSize() > Math.max(MIN_MERGE_SIZE, current.base.length / 4)) {
+            startMerge(current);
+        }
+    }
+
+    private void startMerge(Snapshot source) {
+        final long startGeneration = generation;
+        pending = new ArrayList<>();
+        MERGER.execute(
+                () -> {
+                    Snapshot merged = null;
+                    try {
+                        merged = new Snapshot(source.toArray());
+                    } catch (Throwable t) {
+                        LOGGER.log(Level.WARNING, "Failed to rebuild the spatial index", t);
+                    }
+                    synchronized (UpdatableSpatialIndexFeatureCollection.this) {
+                        if (generation != startGeneration) {
+                            // content rebuilt in the meantime
+                            return;
+                        }
+                        if (merged != null) {
+                            // replay what happened while the tree was being built
+                            for (Change change : pending) {
+                                merged = merged.apply(change);
+                            }
+                            snapshot = merged;
+                        }
+                        pending = null;
+                    }
+                });
+    }
+
+    //
+    // Access
+    //
+
+    public SimpleFeatureType getSchema() {
+        return schema;
+    }
+
+    public String getID() {
+        return null;
+    }
+
+    public SimpleFeatureIterator features() {
+        final Iterator<SimpleFeature> iterator = Arrays.asList(snapshot.toArray()).iterator();
+        return new SimpleFeatureIterator() {
+            public SimpleFeature next() throws NoSuchElementException {
+                return iterator.next();
+            }
+
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            public void close() {}
+        };
+    }
+
+    /**
+     * Returns the features matching the filter, located with the spatial index when the filter
+     * has a bounding box. The result is a copy, not affected by later changes.
+     */
+    public SimpleFeatureCollection subCollection(Filter filter) {
+        Envelope envelope =
+                (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, new Envelope());
+        List<SimpleFeature> result = new ArrayList<>();
+        snapshot.query(
+                envelope,
+                f -> {
+                    if (filter.evaluate(f)) {
+                        result.add(f);
+                    }
+                });
+        return new ListFeatureCollection(schema, result);
+    }
+
+    public SimpleFeatureCollection sort(SortBy order) {
+        return new SortedSimpleFeatureCollection(this, new SortBy[] {order});
+    }
+
+    @Override
+    public void accepts(FeatureVisitor visitor, ProgressListener listener) throws IOException {
+        final ProgressListener progress = listener != null ? listener : new NullProgressListener();
+        progress.started();
+        SimpleFeature[] content = snapshot.toArray();
+        for (int i = 0; i < content.length; i++) {
+            if (progress.isCanceled()) {
+                break;
+            }
+            try {
+                visitor.visit(content[i]);
+            } catch (Throwable t) {
+                progress.exceptionOccurred(t);
+                throw new IOException("Problem visiting " + content[i].getID() + ":" + t, t);
+            } finally {
+                progress.progress(100f * i / content.length);
+            }
+        }
+        progress.complete();
+    }
+
+    public ReferencedEnvelope getBounds() {
+        return new ReferencedEnvelope(snapshot.getBounds(), schema.getCoordinateReferenceSystem());
+    }
+
+    public int size() {
+        return features.size();
+    }
+
+    public boolean isEmpty() {
+        return features.isEmpty();
+    }
+
+    public boolean contains(Object obj) {
+        if (obj instanceof SimpleFeature) {
+            SimpleFeature feature = (SimpleFeature) obj;
+            return feature.equals(features.get(feature.getID()));
+        }
+        return false;
+    }
+
+    public boolean containsAll(Collection<?> collection) {
+        for (Object obj : collection) {
+            if (!contains(obj)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Object[] toArray() {
+        return snapshot.toArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <O> O[] toArray(O[] array) {
+        SimpleFeature[] content = snapshot.toArray();
+        if (array.length < content.length) {
+            array =
+                    (O[])
+                            java.lang.reflect.Array.newInstance(
+                                    array.getClass().getComponentType(), content.length);
+        }
+        System.arraycopy(content, 0, array, 0, content.length);
+        if (array.length > content.length) {
+            array[content.length] = null;
+        }
+        return array;
+    }
+
+    /** A set of features added (or replaced) and removed, by id */
+    static final class Change {
+        final Collection<SimpleFeature> added;
+
+        final Collection<String> removed;
+
+        /**
+         * True if the change only adds new features, neither removing nor replacing existing ones.
+         * Set when the change is applied to the collection.
+         */
+        boolean additionsOnly;
+
+        Change(Collection<SimpleFeature> added, Collection<String> removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+
+    /**
+     * Append-only log of the features added and removed since a tree was built, shared by all the
+     * snapshots using that tree. Each snapshot sees the entries that existed when it was created,
+     * entries are never modified once written, so a change costs time proportional to its own
+     * size, regardless of the changes accumulated before. Only written while holding the lock on
+     * the collection.
+     */
+    static final class Log {
+        static final int CHUNK_SHIFT = 10;
+
+        static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+        static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+        /** A block of entries, allocated once and filled as entries are appended */
+        static final class Chunk {
+            final String[] ids = new String[CHUNK_SIZE];
+
+            /** The added features, null for removals */
+            final SimpleFeature[] features = new SimpleFeature[CHUNK_SIZE];
+
+            /** Bounds of the features as minx, miny, maxx, maxy quadruplets, NaN if none */
+            final double[] bounds = new double[CHUNK_SIZE * 4];
+
+            /** Position of the previous entry with the same id, or -1 */
+            final int[] previous = new int[CHUNK_SIZE];
+        }
+
+        volatile Chunk[] chunks = new Chunk[0];
+
+        /** Position of the latest entry for each id */
+        final Map<String, Integer> latest = new ConcurrentHashMap<>();
+
+        int size;
+
+        void append(String id, SimpleFeature feature) {
+            Chunk[] current = chunks;
+            int c = size >> CHUNK_SHIFT;
+            if (c == current.length) {
+                // copies the directory only, once every CHUNK_SIZE entries
+                current = Arrays.copyOf(current, c + 1);
+                current[c] = new Chunk();
+                chunks = current;
+            }
+            Chunk chunk = current[c];
+            int i = size & CHUNK_MASK;
+            chunk.ids[i] = id;
+            chunk.features[i] = feature;
+            Envelope e = feature == null ? null : ReferencedEnvelope.reference(feature.getBounds());
+            if (e != null && !e.isNull()) {
+                Snapshot.setBounds(chunk.bounds, i, e);
+            } else {
+                Arrays.fill(chunk.bounds, i * 4, i * 4 + 4, Double.NaN);
+            }
+            Integer previous = latest.get(id);
+            chunk.previous[i] = previous == null ? -1 : previous;
+            // publish the entry only once fully written, readers may follow it right away
+            latest.put(id, size);
+            size++;
+        }
+
+        /**
+         * Returns the position of the latest entry for the id among the first {@code length}
+         * ones, or -1 if none
+         */
+        int latestBefore(String id, int length) {
+            Integer latest = this.latest.get(id);
+            int position = latest == null ? -1 : latest;
+            while (position >= length) {
+                position = chunks[position >> CHUNK_SHIFT].previous[position & CHUNK_MASK];
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Immutable state of the collection: the features indexed in the packed tree, and the first
+     * entries of the log of the features added and removed since.
+     */
+    static final class Snapshot {
+        final SimpleFeature[] base;
+
+        final PackedSTRIndex index;
+
+        /** Bounds of the base features */
+        final Envelope baseBounds;
+
+        final Log log;
+
+        /** The number of log entries part of this snapshot */
+        final int length;
+
+        /** True if the log entries only add new features */
+        final boolean additionsOnly;
+
+        volatile Envelope bounds;
+
+        Snapshot(SimpleFeature[] base) {
+            this.base = base;
+            this.log = new Log();
+            this.length = 0;
+            this.additionsOnly = true;
+            this.baseBounds = new Envelope();
+            int[] items = new int[base.length];
+            double[] boxes = new double[base.length * 4];
+            int count = 0;
+            for (int i = 0; i < base.length; i++) {
+                Envelope e = ReferencedEnvelope.reference(base[i].getBounds());
+                if (e != null && !e.isNull()) {
+                    items[count] = i;
+                    setBounds(boxes, count, e);
+                    baseBounds.expandToInclude(e);
+                    count++;
+                }
+            }
+            this.index = new PackedSTRIndex(items, boxes, count);
+        }
+
+        private Snapshot(Snapshot previous, boolean additionsOnly) {
+            this.base = previous.base;
+            this.index = previous.index;
+            this.baseBounds = previous.baseBounds;
+            this.log = previous.log;
+            this.length = log.size;
+            this.additionsOnly = additionsOnly;
+        }
+
+        static void setBounds(double[] boxes, int i, Envelope e) {
+            boxes[i * 4] = e.getMinX();
+            boxes[i * 4 + 1] = e.getMinY();
+            boxes[i * 4 + 2] = e.getMaxX();
+            boxes[i * 4 + 3] = e.getMaxY();
+        }
+
+        /** The number of changes since the tree was built */
+        int deltaSize() {
+            return length;
+        }
+
+        /**
+         * Returns a new snapshot with the change applied. Must be invoked on the latest snapshot
+         * sharing the log.
+         */
+        Snapshot apply(Change change) {
+            assert length == log.size : "Not the latest snapshot";
+            Set<String> added = new HashSet<>();
+            for (SimpleFeature feature : change.added) {
+                added.add(feature.getID());
+            }
+            for (String id : change.removed) {
+                // replaced features are hidden by their replacement
+                if (!added.contains(id)) {
+                    log.append(id, null);
+                }
+            }
+            for (SimpleFeature feature : change.added) {
+                log.append(feature.getID(), feature);
+            }
+            return new Snapshot(this, additionsOnly && change.additionsOnly);
+        }
+
+        /** True if the base feature has been removed or replaced */
+        private boolean isHidden(SimpleFeature feature) {
+            return !additionsOnly && log.latestBefore(feature.getID(), length) >= 0;
+        }
+
+        /** Returns the feature added by the log entry, or null if removed or replaced since */
+        private SimpleFeature getLive(Log.Chunk chunk, int i, int position) {
+            SimpleFeature feature = chunk.features[i];
+            if (feature == null
+                    || (!additionsOnly && log.latestBefore(chunk.ids[i], length) != position)) {
+                return null;
+            }
+            return feature;
+        }
+
+        /**
+         * Passes to the consumer the features whose bounds intersect the envelope, or all of them
+         * if the envelope is infinite
+         */
+        void query(Envelope envelope, Consumer<SimpleFeature> consumer) {
+            if (envelope == null
+                    || Double.isInfinite(envelope.getWidth())
+                    || Double.isInfinite(envelope.getHeight())) {
+                for (SimpleFeature feature : toArray()) {
+                    consumer.accept(feature);
+                }
+                return;
+            }
+            index.query(
+                    envelope,
+                    i -> {
+                        SimpleFeature feature = base[i];
+                        if (!isHidden(feature)) {
+                            consumer.accept(feature);
+                        }
+                    });
+            Log.Chunk[] chunks = log.chunks;
+            for (int position = 0; position < length; position++) {
+                Log.Chunk chunk = chunks[position >> Log.CHUNK_SHIFT];
+                int i = position & Log.CHUNK_MASK;
+                int b = i * 4;
+                // NaN bounds never intersect
+                if (chunk.bounds[b] <= envelope.getMaxX()
+                        && chunk.bounds[b + 1] <= envelope.getMaxY()
+                        && chunk.bounds[b + 2] >= envelope.getMinX()
+                        && chunk.bounds[b + 3] >= envelope.getMinY()) {
+                    SimpleFeature feature = getLive(chunk, i, position);
+                    if (feature != null) {
+                        consumer.accept(feature);
+                    }
+                }
+            }
+        }
+
+        /** All the features, in the order they were added */
+        SimpleFeature[] toArray() {
+            if (length == 0) {
+                return base.clone();
+            }
+            List<SimpleFeature> result = new ArrayList<>(base.length + length);
+            for (SimpleFeature feature : base) {
+                if (!isHidden(feature)) {
+                    result.add(feature);
+                }
+            }
+            forEachAdded(result::add);
+            return result.toArray(new SimpleFeature[result.size()]);
+        }
+
+        /** Passes to the consumer the live features added by the log */
+        private void forEachAdded(Consumer<SimpleFeature> consumer) {
+            Log.Chunk[] chunks = log.chunks;
+            for (int position = 0; position < length; position++) {
+                Log.Chunk chunk = chunks[position >> Log.CHUNK_SHIFT];
+                SimpleFeature feature = getLive(chunk, position & Log.CHUNK_MASK, position);
+                if (feature != null) {
+                    consumer.accept(feature);
+                }
+            }
+        }
+
+        Envelope getBounds() {
+            Envelope result = bounds;
+            if (result == null) {
+                if (additionsOnly) {
+                    Envelope added = new Envelope(baseBounds);
+                    forEachAdded(f -> include(added, f));
+                    result = added;
+                } else {
+                    result = new Envelope();
+                    for (SimpleFeature feature : toArray()) {
+                        include(result, feature);
+                    }
+                }
+                bounds = result;
+            }
+            return result;
+        }
+
+        private static void include(Envelope bounds, SimpleFeature feature) {
+            Envelope e = ReferencedEnvelope.reference(feature.getBounds());
+            if (e != null && !e.isNull()) {
+                bounds.expandToInclude(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+/**
+ * Immutable storage for the values of one attribute in a {@link ColumnarBatch}. Numbers, booleans
+ * and dates are kept in primitive arrays, strings are dictionary encoded, geometries are stored in
+ * a {@link GeometryColumn}. Values whose class does not match one of the primitive columns exactly
+ * are kept as is.
+ */
+abstract class Column {
+
+    /** Rows holding a null value, or null if there is none */
+    final BitSet nulls;
+
+    Column(BitSet nulls) {
+        this.nulls = nulls;
+    }
+
+    /** Returns the value of the given row */
+    final Object get(int row) {
+        if (nulls != null && nulls.get(row)) {
+            return null;
+        }
+        return getValue(row);
+    }
+
+    /** Returns the value of a row not holding null */
+    abstract Object getValue(int row);
+
+    /**
+     * Builds the column storing the values
+     *
+     * @param values The values, one per row, might contain nulls
+     * @param factory The factory used to build back the geometries
+     */
+    static Column build(Object[] values, GeometryFactory factory) {
+        BitSet nulls = null;
+        Class<?> type = null;
+        boolean mixed = false;
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                if (nulls == null) {
+                    nulls = new BitSet(values.length);
+                }
+                nulls.set(i);
+            } else if (type == null) {
+                type = value.getClass();
+            } else if (type != value.getClass()) {
+                mixed = true;
+            }
+        }
+
+        if (type == null) {
+            return new ObjectColumn(nulls, values);
+        } else if (mixed) {
+            // geometries of different types still go in the same geometry column
+            return isGeometries(values)
+                    ? new GeometryColumn(nulls, values, factory)
+                    : new ObjectColumn(nulls, values);
+        } else if (type == Integer.class || type == Short.class || type == Byte.class) {
+            return new IntColumn(nulls, values, type);
+        } else if (type == Long.class) {
+            return new LongColumn(nulls, values);
+        } else if (type == Double.class) {
+            return new DoubleColumn(nulls, values);
+        } else if (type == Float.class) {
+            return new FloatColumn(nulls, values);
+        } else if (type == Boolean.class) {
+            return new BooleanColumn(nulls, values);
+        } else if (type == String.class) {
+            return new StringColumn(nulls, values);
+        } else if (type == Date.class
+                || type == java.sql.Date.class
+                || type == java.sql.Time.class) {
+            return new DateColumn(nulls, values, type);
+        } else if (Geometry.class.isAssignableFrom(type)) {
+            return new GeometryColumn(nulls, values, factory);
+        }
+        return new ObjectColumn(nulls, values);
+    }
+
+    private static boolean isGeometries(Object[] values) {
+        for (Object value : values) {
+            if (value != null && !(value instanceof Geometry)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Integers, shorts and bytes, stored as int */
+    static final class IntColumn extends Column {
+        final int[] data;
+
+        final Class<?> type;
+
+        IntColumn(BitSet nulls, Object[] values, Class<?> type) {
+            super(nulls);
+            this.type = type;
+            this.data = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    data[i] = ((Number) values[i]).intValue();
+                }
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            int value = data[row];
+            if (type == Short.class) {
+                return (short) value;
+            } else if (type == Byte.class) {
+                return (byte) value;
+            }
+            return value;
+        }
+    }
+
+    static final class LongColumn extends Column {
+        final long[] data;
+
+        LongColumn(BitSet nulls, Object[] values) {
+            super(nulls);
+            this.data = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    data[i] = (Long) values[i];
+                }
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return data[row];
+        }
+    }
+
+    static final class DoubleColumn extends Column {
+        final double[] data;
+
+        DoubleColumn(BitSet nulls, Object[] values) {
+            super(nulls);
+            this.data = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    data[i] = (Double) values[i];
+                }
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return data[row];
+        }
+    }
+
+    static final class FloatColumn extends Column {
+        final float[] data;
+
+        FloatColumn(BitSet nulls, Object[] values) {
+            super(nulls);
+            this.data = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    data[i] = (Float) values[i];
+                }
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return data[row];
+        }
+    }
+
+    static final class BooleanColumn extends Column {
+        final BitSet data;
+
+        BooleanColumn(BitSet nulls, Object[] values) {
+            super(nulls);
+            this.data = new BitSet(values.length);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null && (Boolean) values[i]) {
+                    data.set(i);
+                }
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return data.get(row);
+        }
+    }
+
+    /** Dates without sub-millisecond precision, stored as their epoch time */
+    static final class DateColumn extends Column {
+        final long[] data;
+
+        final Class<?> type;
+
+        DateColumn(BitSet nulls, Object[] values, Class<?> type) {
+            super(nulls);
+            this.type = type;
+            this.data = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    data[i] = ((Date) values[i]).getTime();
+                }
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            // dates are mutable, a new one is returned each time
+            long time = data[row];
+            if (type == java.sql.Date.class) {
+                return new java.sql.Date(time);
+            } else if (type == java.sql.Time.class) {
+                return new java.sql.Time(time);
+            }
+            return new Date(time);
+        }
+    }
+
+    /** Dictionary encoded strings, each distinct value is stored once */
+    static final class StringColumn extends Column {
+        final String[] dictionary;
+
+        final int[] codes;
+
+        StringColumn(BitSet nulls, Object[] values) {
+            super(nulls);
+            this.codes = new int[values.length];
+            Map<String, Integer> lookup = new HashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                String value = (String) values[i];
+                if (value != null) {
+                    Integer code = lookup.get(value);
+                    if (code == null) {
+                        code = lookup.size();
+                        lookup.put(value, code);
+                    }
+                    codes[i] = code;
+                }
+            }
+            this.dictionary = new String[lookup.size()];
+            for (Map.Entry<String, Integer> entry : lookup.entrySet()) {
+                dictionary[entry.getValue()] = entry.getKey();
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return dictionary[codes[row]];
+        }
+    }
+
+    /** Values that cannot be stored as primitives, kept as they are */
+    static final class ObjectColumn extends Column {
+        final Object[] data;
+
+        ObjectColumn(BitSet nulls, Object[] values) {
+            super(nulls);
+            this.data = values;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return data[row];
+        }
+    }
+}
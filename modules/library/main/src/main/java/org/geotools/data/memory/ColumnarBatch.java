@@ -0,0 +1,102 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.List;
+import org.geotools.data.util.PackedSTRIndex;
+import org.geotools.feature.simple.SimpleFeatureImpl;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+
+/**
+ * An immutable block of features stored column by column, along with a packed spatial index on the
+ * default geometry. Batches are never modified once built, changes to the content of a {@link
+ * ColumnarDataStore} replace them with new ones, so they can be read without any locking.
+ */
+final class ColumnarBatch {
+
+    final SimpleFeatureType schema;
+
+    final String[] fids;
+
+    final Column[] columns;
+
+    /** Index of the default geometry column, or -1 */
+    final int geometryIndex;
+
+    /** Spatial index of the rows with a non empty default geometry, or null */
+    final PackedSTRIndex index;
+
+    /** Bounds of the default geometries */
+    final Envelope bounds = new Envelope();
+
+    ColumnarBatch(SimpleFeatureType schema, List<SimpleFeature> features, GeometryFactory factory) {
+        this.schema = schema;
+        final int size = features.size();
+        final int attributeCount = schema.getAttributeCount();
+        this.fids = new String[size];
+        for (int row = 0; row < size; row++) {
+            fids[row] = features.get(row).getID();
+        }
+        this.columns = new Column[attributeCount];
+        for (int i = 0; i < attributeCount; i++) {
+            Object[] values = new Object[size];
+            for (int row = 0; row < size; row++) {
+                values[row] = features.get(row).getAttribute(i);
+            }
+            columns[i] = Column.build(values, factory);
+        }
+
+        GeometryDescriptor gd = schema.getGeometryDescriptor();
+        this.geometryIndex = gd == null ? -1 : schema.indexOf(gd.getLocalName());
+        if (geometryIndex >= 0 && columns[geometryIndex] instanceof GeometryColumn) {
+            GeometryColumn geometries = (GeometryColumn) columns[geometryIndex];
+            int[] rows = new int[size];
+            double[] boxes = new double[size * 4];
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                if (geometries.hasBounds(row)) {
+                    rows[count] = row;
+                    System.arraycopy(geometries.bounds, row * 4, boxes, count * 4, 4);
+                    bounds.expandToInclude(boxes[count * 4], boxes[count * 4 + 1]);
+                    bounds.expandToInclude(boxes[count * 4 + 2], boxes[count * 4 + 3]);
+                    count++;
+                }
+            }
+            this.index = new PackedSTRIndex(rows, boxes, count);
+        } else {
+            this.index = null;
+        }
+    }
+
+    int size() {
+        return fids.length;
+    }
+
+    /** Builds a new feature out of the given row */
+    SimpleFeature getFeature(int row) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columns[i].get(row);
+        }
+        return new SimpleFeatureImpl(values, schema, new FeatureIdImpl(fids[row]), false);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.store.ContentDataStore;
+import org.geotools.data.store.ContentEntry;
+import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.feature.FeatureTypes;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+
+/**
+ * Read only in-memory DataStore keeping the features in a compact, columnar form.
+ *
+ * <p>Compared to {@link MemoryDataStore}, which keeps every feature as an object with boxed
+ * attribute values, the features are stored in batches of up to 64k, each attribute as a primitive
+ * column (numbers, booleans and dates in primitive arrays, strings dictionary encoded, geometries
+ * as packed ordinate arrays), with a packed STR tree on the default geometry. Features are rebuilt
+ * on read.
+ *
+ * <p>Batches are immutable and replaced on change, so reads do not take any lock and see a
+ * consistent snapshot of the content, while changes are serialized per feature type. This makes
+ * the store suitable to cache the content of slower stores:
+ *
+ * <pre><code>
+ * ColumnarDataStore cache = new ColumnarDataStore();
+ * cache.addFeatures(slowStore.getFeatureSource("roads").getFeatures());
+ * SimpleFeatureSource roads = cache.getFeatureSource("roads");
+ * </code></pre>
+ *
+ * Content is managed with {@link #addFeatures}, {@link #setFeatures} and {@link #removeFeatures},
+ * the feature sources do not support writing.
+ *
+ * @since 21
+ */
+public class ColumnarDataStore extends ContentDataStore {
+
+    public ColumnarDataStore() {
+        super();
+    }
+
+    public ColumnarDataStore(SimpleFeatureCollection collection) throws IOException {
+        addFeatures(collection);
+    }
+
+    /**
+     * Appends the features of the collection, creating their feature type if needed
+     *
+     * @throws IOException If the feature type is already present with a different schema
+     */
+    public void addFeatures(SimpleFeatureCollection collection) throws IOException {
+        ColumnarEntry entry = entry(collection.getSchema());
+        try (SimpleFeatureIterator it = collection.features()) {
+            entry.append(iterator(it));
+        }
+    }
+
+    /**
+     * Appends the features, grouping them by feature type and creating the feature types if needed
+     *
+     * @throws IOException If a feature type is already present with a different schema
+     */
+    public void addFeatures(Collection<SimpleFeature> features) throws IOException {
+        Map<SimpleFeatureType, List<SimpleFeature>> byType = new LinkedHashMap<>();
+        for (SimpleFeature feature : features) {
+            byType.computeIfAbsent(feature.getFeatureType(), k -> new ArrayList<>()).add(feature);
+        }
+        for (Map.Entry<SimpleFeatureType, List<SimpleFeature>> e : byType.entrySet()) {
+            entry(e.getKey()).append(e.getValue().iterator());
+        }
+    }
+
+    /**
+     * Replaces the content of the feature type with the features of the collection, creating the
+     * feature type if needed. Readers opened before the call keep on reading the old content.
+     *
+     * @throws IOException If the feature type is already present with a different schema
+     */
+    public void setFeatures(SimpleFeatureCollection collection) throws IOException {
+        ColumnarEntry entry = entry(collection.getSchema());
+        try (SimpleFeatureIterator it = collection.features()) {
+            entry.replace(iterator(it));
+        }
+    }
+
+    /**
+     * Removes the features matching the filter
+     *
+     * @return The number of features removed
+     * @throws IOException If the feature type cannot be found
+     */
+    public int removeFeatures(String typeName, Filter filter) throws IOException {
+        return ((ColumnarEntry) ensureEntry(name(typeName))).remove(filter);
+    }
+
+    private static Iterator<SimpleFeature> iterator(SimpleFeatureIterator it) {
+        return new Iterator<SimpleFeature>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public SimpleFeature next() {
+                return it.next();
+            }
+        };
+    }
+
+    /** Returns the entry for the schema, creating it if needed */
+    private ColumnarEntry entry(SimpleFeatureType schema) throws IOException {
+        Name typeName = schema.getName();
+        synchronized (entries) {
+            ColumnarEntry entry = (ColumnarEntry) entries.get(typeName);
+            if (entry == null) {
+                entry = new ColumnarEntry(this, schema);
+                entries.put(typeName, entry);
+            } else if (!FeatureTypes.equals(entry.schema, schema)) {
+                throw new IOException(
+                        "Entry "
+                                + typeName
+                                + " schema "
+                                + entry.schema
+                                + " incompatible with provided "
+                                + schema);
+            }
+            return entry;
+        }
+    }
+
+    @Override
+    public void createSchema(SimpleFeatureType featureType) throws IOException {
+        Name typeName = featureType.getName();
+        synchronized (entries) {
+            if (entries.containsKey(typeName)) {
+                throw new IOException(typeName + " already exists");
+            }
+            entries.put(typeName, new ColumnarEntry(this, featureType));
+        }
+    }
+
+    @Override
+    public void removeSchema(String typeName) throws IOException {
+        for (Name name : entries.keySet()) {
+            if (name.getLocalPart().equals(typeName)) {
+                removeSchema(name);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void removeSchema(Name typeName) throws IOException {
+        if (typeName != null) {
+            synchronized (entries) {
+                entries.remove(typeName);
+            }
+        }
+    }
+
+    @Override
+    protected List<Name> createTypeNames() throws IOException {
+        List<Name> names;
+        synchronized (entries) {
+            names = new ArrayList<>(entries.keySet());
+        }
+        Collections.sort(names, (n1, n2) -> n1.toString().compareTo(n2.toString()));
+        return names;
+    }
+
+    @Override
+    protected ContentFeatureSource createFeatureSource(ContentEntry entry) throws IOException {
+        return new ColumnarFeatureSource(entry, Query.ALL);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.geotools.data.store.ContentEntry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+/**
+ * Entry holding the features of a single type in a {@link ColumnarDataStore}, as an array of
+ * immutable {@link ColumnarBatch}es.
+ *
+ * <p>The array is copied on write: readers take the current array as a snapshot, without locking,
+ * while modifications are serialized on the entry and publish a new array once done.
+ */
+class ColumnarEntry extends ContentEntry {
+
+    /** Maximum number of features in a batch */
+    static final int BATCH_SIZE = 64 * 1024;
+
+    final SimpleFeatureType schema;
+
+    volatile ColumnarBatch[] batches = new ColumnarBatch[0];
+
+    ColumnarEntry(ColumnarDataStore store, SimpleFeatureType schema) {
+        super(store, schema.getName());
+        this.schema = schema;
+    }
+
+    /** The current content, never modified once returned */
+    ColumnarBatch[] getBatches() {
+        return batches;
+    }
+
+    /**
+     * Appends the features. The last batch, if not full, is rebuilt along with the new features, so
+     * that many small additions do not result in many small batches.
+     */
+    synchronized void append(Iterator<SimpleFeature> features) {
+        batches = build(batches, features);
+    }
+
+    /**
+     * Replaces the whole content with the features. The new content is published only once fully
+     * built, readers keep on seeing the previous one meanwhile, and if reading the features fails
+     * the content is left untouched.
+     */
+    synchronized void replace(Iterator<SimpleFeature> features) {
+        batches = build(new ColumnarBatch[0], features);
+    }
+
+    /** Builds the given batches followed by the features, without modifying the entry */
+    private ColumnarBatch[] build(ColumnarBatch[] base, Iterator<SimpleFeature> features) {
+        List<ColumnarBatch> result = new ArrayList<>(Arrays.asList(base));
+        List<SimpleFeature> pending = new ArrayList<>();
+        if (!result.isEmpty() && result.get(result.size() - 1).size() < BATCH_SIZE) {
+            ColumnarBatch last = result.remove(result.size() - 1);
+            for (int row = 0; row < last.size(); row++) {
+                pending.add(last.getFeature(row));
+            }
+        }
+        GeometryFactory factory = getGeometryFactory();
+        while (features.hasNext()) {
+            pending.add(features.next());
+            if (pending.size() == BATCH_SIZE) {
+                result.add(new ColumnarBatch(schema, pending, factory));
+                pending.clear();
+            }
+        }
+        if (!pending.isEmpty()) {
+            result.add(new ColumnarBatch(schema, pending, factory));
+        }
+        return result.toArray(new ColumnarBatch[result.size()]);
+    }
+
+    /**
+     * Removes the features matching the filter, rebuilding only the batches containing some of
+     * them.
+     *
+     * @return The number of removed features
+     */
+    synchronized int remove(Filter filter) {
+        List<ColumnarBatch> result = new ArrayList<>();
+        GeometryFactory factory = getGeometryFactory();
+        int removed = 0;
+        for (ColumnarBatch batch : batches) {
+            List<SimpleFeature> kept = new ArrayList<>();
+            for (int row = 0; row < batch.size(); row++) {
+                SimpleFeature feature = batch.getFeature(row);
+                if (!filter.evaluate(feature)) {
+                    kept.add(feature);
+                }
+            }
+            if (kept.size() == batch.size()) {
+                result.add(batch);
+            } else {
+                removed += batch.size() - kept.size();
+                if (!kept.isEmpty()) {
+                    result.add(new ColumnarBatch(schema, kept, factory));
+                }
+            }
+        }
+        batches = result.toArray(new ColumnarBatch[result.size()]);
+        return removed;
+    }
+
+    private GeometryFactory getGeometryFactory() {
+        GeometryFactory factory = getDataStore().getGeometryFactory();
+        return factory != null ? factory : new GeometryFactory();
+    }
+}
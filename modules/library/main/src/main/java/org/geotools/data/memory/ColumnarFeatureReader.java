@@ -0,0 +1,158 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.geotools.data.simple.SimpleFeatureReader;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+
+/**
+ * Reads a snapshot of the {@link ColumnarBatch}es of a {@link ColumnarEntry}, evaluating the
+ * filter on each feature. When the filter has a bounding box the rows are first located through
+ * the spatial index of each batch, and batches whose bounds do not intersect it are skipped.
+ */
+class ColumnarFeatureReader implements SimpleFeatureReader {
+
+    final SimpleFeatureType featureType;
+
+    final ColumnarBatch[] batches;
+
+    final Filter filter;
+
+    /** The bounding box used to locate the rows through the index, or null for a full scan */
+    final Envelope bbox;
+
+    int batchIndex = -1;
+
+    /** The rows to be read in the current batch, null if all of them have to be read */
+    int[] rows;
+
+    int rowCount;
+
+    int position;
+
+    SimpleFeature next;
+
+    ColumnarFeatureReader(SimpleFeatureType featureType, ColumnarBatch[] batches, Filter filter) {
+        this.featureType = featureType;
+        this.batches = batches;
+        this.filter = filter == null ? Filter.INCLUDE : filter;
+        this.bbox = getIndexBounds(featureType, this.filter);
+    }
+
+    /**
+     * Returns the bounds of the filter, if they can be looked up in the index. The bounds are
+     * extracted regardless of the geometry property, so the index is only used if the schema has
+     * a single geometry.
+     */
+    static Envelope getIndexBounds(SimpleFeatureType featureType, Filter filter) {
+        if (filter == Filter.INCLUDE) {
+            return null;
+        }
+        int geometries = 0;
+        for (AttributeDescriptor ad : featureType.getAttributeDescriptors()) {
+            if (ad instanceof GeometryDescriptor) {
+                geometries++;
+            }
+        }
+        if (geometries != 1) {
+            return null;
+        }
+        Envelope bbox = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+        if (bbox == null
+                || bbox.isNull()
+                || Double.isInfinite(bbox.getWidth())
+                || Double.isInfinite(bbox.getHeight())) {
+            return null;
+        }
+        return bbox;
+    }
+
+    @Override
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        while (next == null) {
+            if (position < rowCount) {
+                int row = rows == null ? position : rows[position];
+                position++;
+                SimpleFeature feature = batches[batchIndex].getFeature(row);
+                if (filter == Filter.INCLUDE || filter.evaluate(feature)) {
+                    next = feature;
+                }
+            } else if (!nextBatch()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Moves to the next batch with candidate rows, returns false if there is none left */
+    private boolean nextBatch() {
+        while (++batchIndex < batches.length) {
+            ColumnarBatch batch = batches[batchIndex];
+            position = 0;
+            if (bbox == null || batch.index == null) {
+                rows = null;
+                rowCount = batch.size();
+            } else if (!bbox.intersects(batch.bounds)) {
+                continue;
+            } else {
+                if (rows == null || rows.length < batch.index.size()) {
+                    rows = new int[batch.index.size()];
+                }
+                rowCount = 0;
+                batch.index.query(bbox, row -> rows[rowCount++] = row);
+                // return the features in their natural order
+                Arrays.sort(rows, 0, rowCount);
+            }
+            if (rowCount > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public SimpleFeature next() throws IOException, NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("There are no more features");
+        }
+        SimpleFeature result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        next = null;
+        rows = null;
+        rowCount = 0;
+        batchIndex = batches.length;
+    }
+}
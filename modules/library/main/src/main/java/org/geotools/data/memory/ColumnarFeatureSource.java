@@ -0,0 +1,93 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.io.IOException;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.store.ContentEntry;
+import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+/**
+ * Read access to the features of a {@link ColumnarDataStore}. Filters are evaluated natively,
+ * using the spatial index of the batches when they contain a bounding box.
+ */
+public class ColumnarFeatureSource extends ContentFeatureSource {
+
+    public ColumnarFeatureSource(ContentEntry entry, Query query) {
+        super(entry, query);
+    }
+
+    @Override
+    public ColumnarDataStore getDataStore() {
+        return (ColumnarDataStore) super.getDataStore();
+    }
+
+    ColumnarEntry getColumnarEntry() {
+        return (ColumnarEntry) super.getEntry();
+    }
+
+    @Override
+    protected SimpleFeatureType buildFeatureType() {
+        return getColumnarEntry().schema;
+    }
+
+    @Override
+    protected ReferencedEnvelope getBoundsInternal(Query query) throws IOException {
+        if (query.getFilter() == Filter.INCLUDE) {
+            ReferencedEnvelope bounds =
+                    ReferencedEnvelope.create(getSchema().getCoordinateReferenceSystem());
+            for (ColumnarBatch batch : getColumnarEntry().getBatches()) {
+                if (!batch.bounds.isNull()) {
+                    bounds.expandToInclude(batch.bounds);
+                }
+            }
+            return bounds;
+        }
+        // scan required
+        return null;
+    }
+
+    @Override
+    protected int getCountInternal(Query query) throws IOException {
+        if (query.getFilter() == Filter.INCLUDE) {
+            int count = 0;
+            for (ColumnarBatch batch : getColumnarEntry().getBatches()) {
+                count += batch.size();
+            }
+            return count;
+        }
+        // scan required
+        return -1;
+    }
+
+    @Override
+    protected FeatureReader<SimpleFeatureType, SimpleFeature> getReaderInternal(Query query)
+            throws IOException {
+        return new ColumnarFeatureReader(
+                getSchema(), getColumnarEntry().getBatches(), query.getFilter());
+    }
+
+    @Override
+    protected boolean canFilter() {
+        return true;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import org.geotools.geometry.jts.JTS;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Stores the geometries of a column as two flat arrays, the ordinates of all the geometries in a
+ * single <code>double[]</code> and their structure in a single <code>int[]</code>. Each geometry
+ * is rebuilt on access, with a fresh copy of its ordinates.
+ *
+ * <p>The structure of a geometry is its SRID followed by its tree of components: simple
+ * components are encoded as type, dimension, measures, number of points and position of the first
+ * ordinate; polygons as type and number of rings, followed by the rings; collections as type and
+ * number of members, followed by the members.
+ */
+final class GeometryColumn extends Column {
+
+    static final int POINT = 0;
+
+    static final int LINESTRING = 1;
+
+    static final int LINEARRING = 2;
+
+    static final int POLYGON = 3;
+
+    static final int MULTIPOINT = 4;
+
+    static final int MULTILINESTRING = 5;
+
+    static final int MULTIPOLYGON = 6;
+
+    static final int COLLECTION = 7;
+
+    final GeometryFactory factory;
+
+    /** Position in {@link #structure} of each geometry */
+    final int[] offsets;
+
+    final int[] structure;
+
+    final double[] ordinates;
+
+    /** minx, miny, maxx, maxy of each row, NaN for null and empty geometries */
+    final double[] bounds;
+
+    GeometryColumn(BitSet nulls, Object[] values, GeometryFactory factory) {
+        super(nulls);
+        this.factory = factory;
+        this.offsets = new int[values.length];
+        this.bounds = new double[values.length * 4];
+        Arrays.fill(bounds, Double.NaN);
+        Encoder encoder = new Encoder();
+        for (int i = 0; i < values.length; i++) {
+            Geometry geometry = (Geometry) values[i];
+            if (geometry == null) {
+                continue;
+            }
+            offsets[i] = encoder.structureSize;
+            encoder.add(geometry.getSRID());
+            encoder.encode(geometry);
+            Envelope envelope = geometry.getEnvelopeInternal();
+            if (!envelope.isNull()) {
+                bounds[i * 4] = envelope.getMinX();
+                bounds[i * 4 + 1] = envelope.getMinY();
+                bounds[i * 4 + 2] = envelope.getMaxX();
+                bounds[i * 4 + 3] = envelope.getMaxY();
+            }
+        }
+        this.structure = Arrays.copyOf(encoder.structure, encoder.structureSize);
+        this.ordinates = Arrays.copyOf(encoder.ordinates, encoder.ordinatesSize);
+    }
+
+    @Override
+    Object getValue(int row) {
+        Decoder decoder = new Decoder(offsets[row]);
+        int srid = structure[decoder.position++];
+        Geometry geometry = decoder.decode();
+        geometry.setSRID(srid);
+        return geometry;
+    }
+
+    /** Returns true if the geometry of the row is not null nor empty */
+    boolean hasBounds(int row) {
+        return !Double.isNaN(bounds[row * 4]);
+    }
+
+    /** Appends geometries to growing structure and ordinate arrays */
+    private static final class Encoder {
+        int[] structure = new int[1024];
+
+        int structureSize;
+
+        double[] ordinates = new double[4096];
+
+        int ordinatesSize;
+
+        void add(int value) {
+            if (structureSize == structure.length) {
+                structure = Arrays.copyOf(structure, structure.length * 2);
+            }
+            structure[structureSize++] = value;
+        }
+
+        void encode(Geometry geometry) {
+            if (geometry instanceof Point) {
+                encode(POINT, ((Point) geometry).getCoordinateSequence());
+            } else if (geometry instanceof LinearRing) {
+                encode(LINEARRING, ((LinearRing) geometry).getCoordinateSequence());
+            } else if (geometry instanceof LineString) {
+                encode(LINESTRING, ((LineString) geometry).getCoordinateSequence());
+            } else if (geometry instanceof Polygon) {
+                Polygon polygon = (Polygon) geometry;
+                add(POLYGON);
+                if (polygon.isEmpty()) {
+                    add(0);
+                } else {
+                    add(polygon.getNumInteriorRing() + 1);
+                    encode(polygon.getExteriorRing());
+                    for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                        encode(polygon.getInteriorRingN(i));
+                    }
+                }
+            } else {
+                if (geometry instanceof MultiPoint) {
+                    add(MULTIPOINT);
+                } else if (geometry instanceof MultiLineString) {
+                    add(MULTILINESTRING);
+                } else if (geometry instanceof MultiPolygon) {
+                    add(MULTIPOLYGON);
+                } else if (geometry instanceof GeometryCollection) {
+                    add(COLLECTION);
+                } else {
+                    throw new IllegalArgumentException(
+                            "Unsupported geometry type " + geometry.getGeometryType());
+                }
+                add(geometry.getNumGeometries());
+                for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                    encode(geometry.getGeometryN(i));
+                }
+            }
+        }
+
+        void encode(int type, CoordinateSequence cs) {
+            int dimension = cs.getDimension();
+            int size = cs.size();
+            add(type);
+            add(dimension);
+            add(cs.getMeasures());
+            add(size);
+            add(ordinatesSize);
+            int required = ordinatesSize + size * dimension;
+            if (required > ordinates.length) {
+                ordinates = Arrays.copyOf(ordinates, Math.max(required, ordinates.length * 2));
+            }
+            for (int p = 0; p < size; p++) {
+                for (int d = 0; d < dimension; d++) {
+                    ordinates[ordinatesSize++] = cs.getOrdinate(p, d);
+                }
+            }
+        }
+    }
+
+    /** Rebuilds a geometry walking its structure */
+    private final class Decoder {
+        int position;
+
+        Decoder(int position) {
+            this.position = position;
+        }
+
+        Geometry decode() {
+            int type = structure[position++];
+            switch (type) {
+                case POINT:
+                    return factory.createPoint(readSequence());
+                case LINESTRING:
+                    return factory.createLineString(readSequence());
+                case LINEARRING:
+                    return factory.createLinearRing(readSequence());
+                case POLYGON:
+                    int numRings = structure[position++];
+                    if (numRings == 0) {
+                        return factory.createPolygon((LinearRing) null);
+                    }
+                    LinearRing shell = (LinearRing) decode();
+                    LinearRing[] holes = new LinearRing[numRings - 1];
+                    for (int i = 0; i < holes.length; i++) {
+                        holes[i] = (LinearRing) decode();
+                    }
+                    return factory.createPolygon(shell, holes);
+                default:
+                    Geometry[] members = new Geometry[structure[position++]];
+                    for (int i = 0; i < members.length; i++) {
+                        members[i] = decode();
+                    }
+                    if (type == MULTIPOINT) {
+                        return factory.createMultiPoint(copy(members, new Point[members.length]));
+                    } else if (type == MULTILINESTRING) {
+                        return factory.createMultiLineString(
+                                copy(members, new LineString[members.length]));
+                    } else if (type == MULTIPOLYGON) {
+                        return factory.createMultiPolygon(
+                                copy(members, new Polygon[members.length]));
+                    }
+                    return factory.createGeometryCollection(members);
+            }
+        }
+
+        private <T> T[] copy(Geometry[] members, T[] target) {
+            System.arraycopy(members, 0, target, 0, members.length);
+            return target;
+        }
+
+        private CoordinateSequence readSequence() {
+            int dimension = structure[position++];
+            int measures = structure[position++];
+            int size = structure[position++];
+            int start = structure[position++];
+            double[] packed = Arrays.copyOfRange(ordinates, start, start + size * dimension);
+            return JTS.createCS(
+                    factory.getCoordinateSequenceFactory(), packed, dimension, measures);
+        }
+    }
+}
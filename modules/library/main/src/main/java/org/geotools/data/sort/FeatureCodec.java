@@ -0,0 +1,321 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ArrayWKBReader;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKBWriter;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+/**
+ * Compact binary encoding of the features of a given schema, used to spill the sorted runs to disk.
+ * No type metadata is written, each attribute is encoded according to its binding: primitives and
+ * dates as their binary value, strings in UTF-8, geometries as WKB. Other attribute types are
+ * written using Java serialization, the schema cannot be encoded if any of them is not {@link
+ * Serializable}.
+ *
+ * <p>Instances are not thread safe, each thread should use its own.
+ */
+class FeatureCodec {
+
+    static final int BOOLEAN = 0;
+
+    static final int BYTE = 1;
+
+    static final int SHORT = 2;
+
+    static final int INTEGER = 3;
+
+    static final int LONG = 4;
+
+    static final int FLOAT = 5;
+
+    static final int DOUBLE = 6;
+
+    static final int STRING = 7;
+
+    static final int SQL_DATE = 8;
+
+    static final int SQL_TIME = 9;
+
+    static final int SQL_TIMESTAMP = 10;
+
+    static final int DATE = 11;
+
+    static final int GEOMETRY = 12;
+
+    static final int SERIALIZED = 13;
+
+    static final int UNSUPPORTED = -1;
+
+    final SimpleFeatureType schema;
+
+    final int[] types;
+
+    SimpleFeatureBuilder builder;
+
+    ArrayWKBReader wkbReader;
+
+    WKBWriter wkbWriter2D;
+
+    WKBWriter wkbWriter3D;
+
+    byte[] buffer = new byte[1024];
+
+    FeatureCodec(SimpleFeatureType schema) {
+        this.schema = schema;
+        List<AttributeDescriptor> descriptors = schema.getAttributeDescriptors();
+        this.types = new int[descriptors.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = getType(descriptors.get(i).getType().getBinding());
+        }
+    }
+
+    /** Returns true if all the attributes of the schema can be encoded */
+    static boolean canEncode(SimpleFeatureType schema) {
+        for (AttributeDescriptor ad : schema.getAttributeDescriptors()) {
+            if (getType(ad.getType().getBinding()) == UNSUPPORTED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps the binding to its encoding. Exact class matches are required for the values encoded
+     * without type metadata, so that they read back as the very same class.
+     */
+    static int getType(Class<?> binding) {
+        if (binding == Boolean.class || binding == boolean.class) {
+            return BOOLEAN;
+        } else if (binding == Byte.class || binding == byte.class) {
+            return BYTE;
+        } else if (binding == Short.class || binding == short.class) {
+            return SHORT;
+        } else if (binding == Integer.class || binding == int.class) {
+            return INTEGER;
+        } else if (binding == Long.class || binding == long.class) {
+            return LONG;
+        } else if (binding == Float.class || binding == float.class) {
+            return FLOAT;
+        } else if (binding == Double.class || binding == double.class) {
+            return DOUBLE;
+        } else if (binding == String.class) {
+            return STRING;
+        } else if (binding == java.sql.Date.class) {
+            return SQL_DATE;
+        } else if (binding == java.sql.Time.class) {
+            return SQL_TIME;
+        } else if (binding == java.sql.Timestamp.class) {
+            return SQL_TIMESTAMP;
+        } else if (binding == java.util.Date.class) {
+            return DATE;
+        } else if (Geometry.class.isAssignableFrom(binding)) {
+            return GEOMETRY;
+        } else if (Serializable.class.isAssignableFrom(binding)) {
+            return SERIALIZED;
+        }
+        return UNSUPPORTED;
+    }
+
+    void write(SimpleFeature feature, DataOutputStream out) throws IOException {
+        writeString(feature.getID(), out);
+        for (int i = 0; i < types.length; i++) {
+            Object value = feature.getAttribute(i);
+            if (value == null) {
+                out.writeBoolean(true);
+                continue;
+            }
+            out.writeBoolean(false);
+            switch (types[i]) {
+                case BOOLEAN:
+                    out.writeBoolean((Boolean) value);
+                    break;
+                case BYTE:
+                    out.writeByte((Byte) value);
+                    break;
+                case SHORT:
+                    out.writeShort((Short) value);
+                    break;
+                case INTEGER:
+                    out.writeInt((Integer) value);
+                    break;
+                case LONG:
+                    out.writeLong((Long) value);
+                    break;
+                case FLOAT:
+                    out.writeFloat((Float) value);
+                    break;
+                case DOUBLE:
+                    out.writeDouble((Double) value);
+                    break;
+                case STRING:
+                    writeString((String) value, out);
+                    break;
+                case SQL_DATE:
+                case SQL_TIME:
+                case DATE:
+                    out.writeLong(((Date) value).getTime());
+                    break;
+                case SQL_TIMESTAMP:
+                    java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+                    out.writeLong(timestamp.getTime());
+                    out.writeInt(timestamp.getNanos());
+                    break;
+                case GEOMETRY:
+                    writeBytes(getWKBWriter((Geometry) value).write((Geometry) value), out);
+                    break;
+                default:
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                        oos.writeObject(value);
+                    }
+                    writeBytes(bos.toByteArray(), out);
+            }
+        }
+    }
+
+    /** Picks a writer preserving the Z ordinate, if any */
+    private WKBWriter getWKBWriter(Geometry geometry) {
+        Coordinate c = geometry.getCoordinate();
+        if (c != null && !Double.isNaN(c.getZ())) {
+            if (wkbWriter3D == null) {
+                wkbWriter3D = new WKBWriter(3);
+            }
+            return wkbWriter3D;
+        }
+        if (wkbWriter2D == null) {
+            wkbWriter2D = new WKBWriter(2);
+        }
+        return wkbWriter2D;
+    }
+
+    SimpleFeature read(DataInputStream in) throws IOException {
+        if (builder == null) {
+            builder = new SimpleFeatureBuilder(schema);
+        }
+        String fid = readString(in);
+        for (int i = 0; i < types.length; i++) {
+            if (in.readBoolean()) {
+                builder.add(null);
+                continue;
+            }
+            switch (types[i]) {
+                case BOOLEAN:
+                    builder.add(in.readBoolean());
+                    break;
+                case BYTE:
+                    builder.add(in.readByte());
+                    break;
+                case SHORT:
+                    builder.add(in.readShort());
+                    break;
+                case INTEGER:
+                    builder.add(in.readInt());
+                    break;
+                case LONG:
+                    builder.add(in.readLong());
+                    break;
+                case FLOAT:
+                    builder.add(in.readFloat());
+                    break;
+                case DOUBLE:
+                    builder.add(in.readDouble());
+                    break;
+                case STRING:
+                    builder.add(readString(in));
+                    break;
+                case SQL_DATE:
+                    builder.add(new java.sql.Date(in.readLong()));
+                    break;
+                case SQL_TIME:
+                    builder.add(new java.sql.Time(in.readLong()));
+                    break;
+                case SQL_TIMESTAMP:
+                    java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+                    timestamp.setNanos(in.readInt());
+                    builder.add(timestamp);
+                    break;
+                case DATE:
+                    builder.add(new java.util.Date(in.readLong()));
+                    break;
+                case GEOMETRY:
+                    if (wkbReader == null) {
+                        wkbReader = new ArrayWKBReader(new GeometryFactory());
+                    }
+                    // WKB is self delimiting, the rest of the shared buffer is ignored
+                    readBytes(in);
+                    builder.add(wkbReader.read(buffer, 0));
+                    break;
+                default:
+                    builder.add(readObject(in));
+            }
+        }
+        return builder.buildFeature(fid);
+    }
+
+    private Object readObject(DataInputStream in) throws IOException {
+        int length = readBytes(in);
+        ByteArrayInputStream bis = new ByteArrayInputStream(buffer, 0, length);
+        try (ObjectInputStream ois = new ObjectInputStream(bis)) {
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not read back object", e);
+        }
+    }
+
+    /** Strings are written as UTF-8 bytes, DataOutput.writeUTF is limited to 64KB */
+    private void writeString(String value, DataOutputStream out) throws IOException {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8), out);
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        int length = readBytes(in);
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void writeBytes(byte[] bytes, DataOutputStream out) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Reads a length prefixed byte sequence into the shared buffer, returns its length */
+    private int readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        in.readFully(buffer, 0, length);
+        return length;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.geotools.data.simple.SimpleFeatureReader;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/** A sorted sequence of features spilled to a temporary file by the merge sort */
+class FeatureRun {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    final File file;
+
+    final long count;
+
+    private FeatureRun(File file, long count) {
+        this.file = file;
+        this.count = count;
+    }
+
+    /**
+     * Writes the features to a new temporary file
+     *
+     * @param features The features, already sorted
+     * @param codec The codec used to encode the features
+     */
+    static FeatureRun write(Iterable<SimpleFeature> features, FeatureCodec codec)
+            throws IOException {
+        return write(
+                out -> {
+                    long count = 0;
+                    for (SimpleFeature feature : features) {
+                        codec.write(feature, out);
+                        count++;
+                    }
+                    return count;
+                });
+    }
+
+    /**
+     * Writes the features of the reader to a new temporary file, without closing it
+     *
+     * @param reader The reader, returning sorted features
+     * @param codec The codec used to encode the features
+     */
+    static FeatureRun write(SimpleFeatureReader reader, FeatureCodec codec) throws IOException {
+        return write(
+                out -> {
+                    long count = 0;
+                    while (reader.hasNext()) {
+                        codec.write(reader.next(), out);
+                        count++;
+                    }
+                    return count;
+                });
+    }
+
+    private static FeatureRun write(Encoder encoder) throws IOException {
+        File file = File.createTempFile("sorted", ".features");
+        boolean success = false;
+        try (DataOutputStream out =
+                new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+            long count = encoder.encode(out);
+            success = true;
+            return new FeatureRun(file, count);
+        } finally {
+            if (!success) {
+                file.delete();
+            }
+        }
+    }
+
+    /** Writes features to the stream, returns their number */
+    private interface Encoder {
+        long encode(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Opens a cursor over the features of the run
+     *
+     * @param order The position of the run in the sort input, used to keep the sort stable
+     */
+    Cursor open(SimpleFeatureType schema, int order) throws IOException {
+        return new Cursor(schema, order);
+    }
+
+    void delete() {
+        file.delete();
+    }
+
+    /** Reads the features of the run sequentially */
+    class Cursor {
+
+        final DataInputStream in;
+
+        final FeatureCodec codec;
+
+        final int order;
+
+        long remaining = count;
+
+        SimpleFeature current;
+
+        Cursor(SimpleFeatureType schema, int order) throws IOException {
+            this.order = order;
+            this.in =
+                    new DataInputStream(
+                            new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+            this.codec = new FeatureCodec(schema);
+        }
+
+        /** Moves to the next feature, returns false if the run is over */
+        boolean advance() throws IOException {
+            if (remaining <= 0) {
+                current = null;
+                return false;
+            }
+            current = codec.read(in);
+            remaining--;
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -16,42 +16,78 @@
  */
 package org.geotools.data.sort;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.geotools.data.Query;
 import org.geotools.data.collection.ListFeatureCollection;
 import org.geotools.data.simple.DelegateSimpleFeatureReader;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureReader;
 import org.geotools.util.factory.Hints;
+import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Geometry;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.filter.sort.SortBy;
 
+/**
+ * External merge sort of the features of a reader. Features are accumulated in memory up to a
+ * budget, in bytes or in number of features, then each batch is sorted and spilled to disk as a
+ * {@link FeatureRun} in a background thread while the next one is being read. The runs are finally
+ * merged by a {@link MergeSortReader}, in multiple passes if there are too many of them.
+ */
 class MergeSortDumper {
 
+    static final Logger LOGGER = Logging.getLogger(MergeSortDumper.class);
+
+    /** The default number of features kept in memory, when sorting by feature count */
+    static final int DEFAULT_MAX_FEATURES = 1000;
+
+    /** The default memory used by a sort, when sorting by byte size */
+    static final long DEFAULT_MAX_MEMORY =
+            Math.min(64 * 1024 * 1024, Runtime.getRuntime().maxMemory() / 16);
+
+    /** The number of runs sorted and written in parallel by a single sort */
+    static final int PARALLELISM =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    /** The maximum number of runs merged at once, more runs require multiple merge passes */
+    static final int MAX_MERGE_FAN_IN = 64;
+
+    static final ExecutorService EXECUTOR =
+            Executors.newCachedThreadPool(
+                    new ThreadFactory() {
+                        final AtomicInteger count = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "gt-sort-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+
     static final boolean canSort(SimpleFeatureType schema, SortBy[] sortBy) {
         if (sortBy == SortBy.UNSORTED) {
             return true;
         }
 
-        // check all attributes are serializable
-        for (AttributeDescriptor ad : schema.getAttributeDescriptors()) {
-            Class<?> binding = ad.getType().getBinding();
-            if (!Serializable.class.isAssignableFrom(binding)) {
-                return false;
-            }
-        }
-
-        // check all sorting attributes are comparable
+        // check all sorting attributes are comparable. Attributes that cannot be written to
+        // disk just force an in memory sort
         for (SortBy sb : sortBy) {
             if (sb != SortBy.NATURAL_ORDER && sb != SortBy.REVERSE_ORDER) {
                 AttributeDescriptor ad =
@@ -72,9 +108,12 @@ class MergeSortDumper {
 
     static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, Query query)
             throws IOException {
-        int maxFeatures = getMaxFeatures(query);
-
-        return getDelegateReader(reader, query.getSortBy(), maxFeatures);
+        // a feature count limit, if explicitly set, wins over the memory budget
+        Integer maxFeatures = getMaxFeaturesHint(query);
+        if (maxFeatures != null) {
+            return getDelegateReader(reader, query.getSortBy(), maxFeatures, Long.MAX_VALUE);
+        }
+        return getDelegateReader(reader, query.getSortBy(), Integer.MAX_VALUE, getMaxMemory(query));
     }
 
     /**
@@ -84,24 +123,58 @@ class MergeSortDumper {
      * @return
      */
     static int getMaxFeatures(Query query) {
+        Integer maxFeatures = getMaxFeaturesHint(query);
+        return maxFeatures != null ? maxFeatures : DEFAULT_MAX_FEATURES;
+    }
+
+    private static Integer getMaxFeaturesHint(Query query) {
         Hints hints = null;
         if (query != null) {
             hints = query.getHints();
         }
-        int maxFeatures = 1000;
         if (hints != null && hints.get(Hints.MAX_MEMORY_SORT) != null) {
-            maxFeatures = (Integer) hints.get(Hints.MAX_MEMORY_SORT);
-        } else if (Hints.getSystemDefault(Hints.MAX_MEMORY_SORT) != null) {
-            maxFeatures = (Integer) Hints.getSystemDefault(Hints.MAX_MEMORY_SORT);
+            return (Integer) hints.get(Hints.MAX_MEMORY_SORT);
         }
-        return maxFeatures;
+        return (Integer) Hints.getSystemDefault(Hints.MAX_MEMORY_SORT);
+    }
+
+    /**
+     * Gets the max amount of memory, in bytes, used to keep features in memory from the query and
+     * system hints
+     */
+    static long getMaxMemory(Query query) {
+        Hints hints = null;
+        if (query != null) {
+            hints = query.getHints();
+        }
+        Object maxMemory = null;
+        if (hints != null && hints.get(Hints.MAX_MEMORY_SORT_SIZE) != null) {
+            maxMemory = hints.get(Hints.MAX_MEMORY_SORT_SIZE);
+        } else {
+            maxMemory = Hints.getSystemDefault(Hints.MAX_MEMORY_SORT_SIZE);
+        }
+        return maxMemory != null ? ((Number) maxMemory).longValue() : DEFAULT_MAX_MEMORY;
     }
 
     static SimpleFeatureReader getDelegateReader(
             SimpleFeatureReader reader, SortBy[] sortBy, int maxFeatures) throws IOException {
         if (maxFeatures < 0) {
-            maxFeatures = getMaxFeatures(Query.ALL);
+            return getDelegateReader(reader, sortBy, Integer.MAX_VALUE, getMaxMemory(Query.ALL));
         }
+        return getDelegateReader(reader, sortBy, maxFeatures, Long.MAX_VALUE);
+    }
+
+    /**
+     * Sorts the reader contents
+     *
+     * @param maxFeatures The maximum number of features kept in memory, shared among the runs in
+     *     flight
+     * @param maxMemory The maximum amount of memory used to keep features in memory, in bytes,
+     *     shared among the runs in flight
+     */
+    static SimpleFeatureReader getDelegateReader(
+            SimpleFeatureReader reader, SortBy[] sortBy, int maxFeatures, long maxMemory)
+            throws IOException {
         Comparator<SimpleFeature> comparator = SortedFeatureReader.getComparator(sortBy);
 
         // easy case, no sorting needed
@@ -113,50 +186,61 @@ class MergeSortDumper {
         SimpleFeatureType schema = reader.getFeatureType();
         if (!canSort(schema, sortBy)) {
             throw new IllegalArgumentException(
-                    "The specified reader cannot be sorted, either the "
-                            + "sorting properties are not comparable or the attributes are not serializable: "
+                    "The specified reader cannot be sorted, the sorting properties are not "
+                            + "comparable: "
                             + reader.getFeatureType().getTypeName()
                             + "\n "
                             + Arrays.toString(sortBy));
         }
 
-        int count = 0;
-        File file = null;
-        SimpleFeatureIO io = null;
+        boolean canSpill = FeatureCodec.canEncode(schema);
+        if (!canSpill && LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(
+                    "Sorting "
+                            + schema.getTypeName()
+                            + " in memory, some attributes cannot be written to disk");
+        }
+        // the budgets are shared among the batch being read and the ones being written
+        final int runFeatures =
+                maxFeatures == Integer.MAX_VALUE
+                        ? Integer.MAX_VALUE
+                        : Math.max(1, maxFeatures / (PARALLELISM + 1));
+        final long runMemory =
+                maxMemory == Long.MAX_VALUE ? Long.MAX_VALUE : maxMemory / (PARALLELISM + 1);
         List<SimpleFeature> features = new ArrayList<SimpleFeature>();
-        List<FeatureBlockReader> readers = new ArrayList<FeatureBlockReader>();
-        boolean cleanFile = true;
+        long memory = 0;
+        RunWriter writer = null;
+        boolean cleanRuns = true;
         try {
             // read and store into files as necessary
             while (reader.hasNext()) {
                 SimpleFeature f = reader.next();
                 features.add(f);
-                count++;
-
-                if (count > maxFeatures) {
-                    Collections.sort(features, comparator);
-                    if (io == null) {
-                        file = File.createTempFile("sorted", ".features");
-                        file.delete();
-                        io = new SimpleFeatureIO(file, schema);
+                if (maxMemory != Long.MAX_VALUE) {
+                    memory += estimateSize(f);
+                }
+
+                if (!canSpill) {
+                    // nowhere to spill to, fail instead of exhausting the heap
+                    if (features.size() > maxFeatures || memory > maxMemory) {
+                        throw new IOException(
+                                "Cannot sort "
+                                        + schema.getTypeName()
+                                        + ", the features exceed the in memory sort limits and "
+                                        + "some attributes cannot be written to disk");
+                    }
+                } else if (features.size() > runFeatures || memory > runMemory) {
+                    if (writer == null) {
+                        writer = new RunWriter(schema, comparator);
                     }
-                    FeatureBlockReader fbr = storeToFile(io, features);
-                    readers.add(fbr);
-                    count = 0;
-                    features.clear();
+                    writer.write(features);
+                    features = new ArrayList<SimpleFeature>();
+                    memory = 0;
                 }
             }
-            // if we got to file storing, store residual features to file too
-            if (count > 0 && io != null) {
-                Collections.sort(features, comparator);
-                file = File.createTempFile("sorted", ".features");
-                file.delete();
-                FeatureBlockReader fbr = storeToFile(io, features);
-                readers.add(fbr);
-            }
 
             // return the appropriate reader
-            if (io == null) {
+            if (writer == null) {
                 // simple case, we managed to keep everything in memory, sort and return a
                 // reader based on the collection contents
                 Collections.sort(features, comparator);
@@ -164,15 +248,20 @@ class MergeSortDumper {
                 SimpleFeatureIterator fi = new ListFeatureCollection(schema, features).features();
                 return new DelegateSimpleFeatureReader(schema, fi);
             } else {
+                // if we got to file storing, store residual features to file too
+                if (!features.isEmpty()) {
+                    writer.write(features);
+                }
+                List<FeatureRun> runs = writer.getRuns();
+                runs = reduce(schema, runs, comparator);
+
                 // go merge-sort
-                cleanFile = false;
-                return new MergeSortReader(schema, io, readers, comparator);
+                cleanRuns = false;
+                return new MergeSortReader(schema, runs, comparator);
             }
-
         } finally {
-            if (cleanFile && io != null) {
-                io.close(true);
-                file.delete();
+            if (cleanRuns && writer != null) {
+                writer.dispose();
             }
 
             reader.close();
@@ -180,21 +269,137 @@ class MergeSortDumper {
     }
 
     /**
-     * Writes the feature attributes to a binary file
-     *
-     * @param features
-     * @return
-     * @throws IOException
+     * Merges groups of consecutive runs until they are few enough to be merged at once. Merging
+     * consecutive runs keeps the sort stable.
      */
-    static FeatureBlockReader storeToFile(SimpleFeatureIO io, List<SimpleFeature> features)
+    static List<FeatureRun> reduce(
+            SimpleFeatureType schema, List<FeatureRun> runs, Comparator<SimpleFeature> comparator)
             throws IOException {
-        long start = io.getOffset();
+        while (runs.size() > MAX_MERGE_FAN_IN) {
+            List<FeatureRun> merged = new ArrayList<>();
+            try {
+                for (int i = 0; i < runs.size(); i += MAX_MERGE_FAN_IN) {
+                    List<FeatureRun> group =
+                            new ArrayList<>(
+                                    runs.subList(i, Math.min(i + MAX_MERGE_FAN_IN, runs.size())));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    // closing the reader deletes the merged runs
+                    try (MergeSortReader reader = new MergeSortReader(schema, group, comparator)) {
+                        merged.add(FeatureRun.write(reader, new FeatureCodec(schema)));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                for (FeatureRun run : runs) {
+                    run.delete();
+                }
+                for (FeatureRun run : merged) {
+                    run.delete();
+                }
+                throw e;
+            }
+            runs = merged;
+        }
+        return runs;
+    }
 
-        // write each attribute in the random access file
-        for (SimpleFeature sf : features) {
-            io.write(sf);
+    /** Roughly estimates the memory used by a feature, in bytes */
+    static long estimateSize(SimpleFeature feature) {
+        long size = 64 + 2 * feature.getID().length();
+        for (int i = 0; i < feature.getAttributeCount(); i++) {
+            Object value = feature.getAttribute(i);
+            if (value == null) {
+                size += 8;
+            } else if (value instanceof String) {
+                size += 40 + 2 * ((String) value).length();
+            } else if (value instanceof Geometry) {
+                // assuming an object per coordinate
+                size += 64 + 48 * ((Geometry) value).getNumPoints();
+            } else {
+                size += 24;
+            }
         }
+        return size;
+    }
+
+    /**
+     * Sorts and writes the runs in background threads, blocking the caller when too many runs are
+     * in progress, so that the memory used stays within the budget
+     */
+    static class RunWriter {
 
-        return new FeatureBlockReader(io, start, features.size());
+        final SimpleFeatureType schema;
+
+        final Comparator<SimpleFeature> comparator;
+
+        final Semaphore permits = new Semaphore(PARALLELISM);
+
+        final List<Future<FeatureRun>> futures = new ArrayList<>();
+
+        RunWriter(SimpleFeatureType schema, Comparator<SimpleFeature> comparator) {
+            this.schema = schema;
+            this.comparator = comparator;
+        }
+
+        void write(List<SimpleFeature> features) throws IOException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sorting features", e);
+            }
+            try {
+                futures.add(
+                        EXECUTOR.submit(
+                                () -> {
+                                    try {
+                                        Collections.sort(features, comparator);
+                                        return FeatureRun.write(features, new FeatureCodec(schema));
+                                    } finally {
+                                        permits.release();
+                                    }
+                                }));
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        /** Waits for all the runs to be written, and returns them in input order */
+        List<FeatureRun> getRuns() throws IOException {
+            List<FeatureRun> runs = new ArrayList<>();
+            for (Future<FeatureRun> future : futures) {
+                try {
+                    runs.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while sorting features", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IOException("Failed to sort features", cause);
+                }
+            }
+            return runs;
+        }
+
+        /** Waits for the runs in progress, and deletes all of them */
+        void dispose() {
+            for (Future<FeatureRun> future : futures) {
+                try {
+                    future.get().delete();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // the run file has been removed already
+                }
+            }
+        }
     }
 }
@@ -17,39 +17,56 @@
 package org.geotools.data.sort;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import org.geotools.data.simple.SimpleFeatureReader;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
 /**
- * Reads from a list of {@link FeatureBlockReader} backed by a {@link RandomAccessFile} and performs
- * the classic merge-sort algorithm
+ * Performs a k-way merge of sorted {@link FeatureRun}s, keeping the cursors of the runs in a
+ * priority queue ordered by their current feature. Features comparing equal are returned in run
+ * order, keeping the sort stable. The run files are deleted on close.
  *
  * @author Andrea Aime - GeoSolutions
  */
 class MergeSortReader implements SimpleFeatureReader {
 
-    List<FeatureBlockReader> readers;
+    List<FeatureRun> runs;
 
-    SimpleFeatureIO io;
+    List<FeatureRun.Cursor> cursors = new ArrayList<>();
 
-    SimpleFeatureType schema;
+    PriorityQueue<FeatureRun.Cursor> queue;
 
-    Comparator<SimpleFeature> comparator;
+    SimpleFeatureType schema;
 
     public MergeSortReader(
-            SimpleFeatureType schema,
-            SimpleFeatureIO io,
-            List<FeatureBlockReader> readers,
-            Comparator<SimpleFeature> comparator) {
+            SimpleFeatureType schema, List<FeatureRun> runs, Comparator<SimpleFeature> comparator)
+            throws IOException {
         this.schema = schema;
-        this.comparator = comparator;
-        this.readers = readers;
-        this.io = io;
+        this.runs = runs;
+        this.queue =
+                new PriorityQueue<>(
+                        Math.max(1, runs.size()),
+                        (c1, c2) -> {
+                            int result = comparator.compare(c1.current, c2.current);
+                            return result != 0 ? result : Integer.compare(c1.order, c2.order);
+                        });
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                FeatureRun.Cursor cursor = runs.get(i).open(schema, i);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
     }
 
     public SimpleFeatureType getFeatureType() {
@@ -58,36 +75,33 @@ class MergeSortReader implements SimpleFeatureReader {
 
     public SimpleFeature next()
             throws IOException, IllegalArgumentException, NoSuchElementException {
-        if (readers.size() == 0) {
+        FeatureRun.Cursor cursor = queue.poll();
+        if (cursor == null) {
             throw new NoSuchElementException();
         }
-
-        // find the smallest feature
-        int selected = 0;
-        for (int i = 1; i < readers.size(); i++) {
-            SimpleFeature sf = readers.get(selected).feature();
-            SimpleFeature cf = readers.get(i).feature();
-            if (comparator.compare(sf, cf) > 0) {
-                selected = i;
-            }
-        }
-
-        // move on the reader of the selected feature
-        FeatureBlockReader reader = readers.get(selected);
-        SimpleFeature sf = reader.feature();
-        if (reader.next() == null) {
-            readers.remove(selected);
+        SimpleFeature sf = cursor.current;
+        // move on the cursor, and put it back in the queue at its new position
+        if (cursor.advance()) {
+            queue.add(cursor);
         }
-
-        // return the selected feature
         return sf;
     }
 
     public boolean hasNext() throws IOException {
-        return readers.size() > 0;
+        return !queue.isEmpty();
     }
 
     public void close() throws IOException {
-        io.close(true);
+        queue.clear();
+        try {
+            for (FeatureRun.Cursor cursor : cursors) {
+                cursor.close();
+            }
+        } finally {
+            cursors.clear();
+            for (FeatureRun run : runs) {
+                run.delete();
+            }
+        }
     }
 }
@@ -33,7 +33,10 @@ import org.opengis.filter.sort.SortOrder;
 /**
  * FeatureReader used to sort contents.
  * <p>
- * The implementation makes use of {@link MergeSortDumper).
+ * The implementation makes use of {@link MergeSortDumper), an external merge sort keeping in
+ * memory as many features as allowed by the {@link Hints#MAX_MEMORY_SORT} feature count, or by
+ * the {@link Hints#MAX_MEMORY_SORT_SIZE} memory budget, and spilling the rest to disk in sorted
+ * runs.
  *
  *
  */
@@ -42,8 +45,9 @@ public class SortedFeatureReader implements SimpleFeatureReader {
     SimpleFeatureReader delegate;
 
     /**
-     * Checks if the schema and the sortBy are suitable for merge/sort. All attributes need to be
-     * {@link Serializable}, all sorting attributes need to be {@link Comparable}
+     * Checks if the schema and the sortBy are suitable for merge/sort. All sorting attributes need
+     * to be {@link Comparable}. Features having attributes that are not {@link Serializable} can be
+     * sorted, but only in memory
      *
      * @param schema
      * @param sortBy
@@ -79,7 +83,8 @@ public class SortedFeatureReader implements SimpleFeatureReader {
      *
      * @param reader The reader to be sorted
      * @param sortBy The sorting directives
-     * @param maxFeatures The maximum number of features to keep in memory
+     * @param maxFeatures The maximum number of features to keep in memory, or -1 to use the
+     *     default memory budget
      * @throws IOException
      */
     public SortedFeatureReader(SimpleFeatureReader reader, SortBy[] sortBy, int maxFeatures)
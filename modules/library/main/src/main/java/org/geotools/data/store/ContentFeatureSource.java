@@ -56,6 +56,7 @@ import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.SchemaException;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.feature.visitor.MultiAggregateVisitor;
 import org.geotools.filter.function.Collection_AverageFunction;
 import org.geotools.filter.function.Collection_BoundsFunction;
 import org.geotools.filter.function.Collection_MaxFunction;
@@ -778,6 +779,19 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
             return;
         }
 
+        if (visitor instanceof MultiAggregateVisitor) {
+            // the subclass might be able to handle some of the aggregates on its own
+            MultiAggregateVisitor multi = (MultiAggregateVisitor) visitor;
+            for (FeatureVisitor aggregate : multi.getPendingVisitors()) {
+                if (handleVisitor(query, aggregate)) {
+                    multi.setComputed(aggregate);
+                }
+            }
+            if (multi.getPendingVisitors().isEmpty()) {
+                return;
+            }
+        }
+
         // subclass could not handle, resort to manually walkign through
         FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReader(query);
         try {
@@ -819,6 +833,10 @@ public abstract class ContentFeatureSource implements SimpleFeatureSource {
      * could be handled without iterating over the entire result set of query. An example would be
      * handling visitors that calculate aggregate values.
      *
+     * <p>A {@link MultiAggregateVisitor} that is not fully handled is broken down, and each of its
+     * pending aggregates is offered to this method, the ones still pending after that are computed
+     * in a single pass over the features.
+     *
      * @param query The query being made.
      * @param visitor The visitor to
      * @return true if the visitor can be handled natively, otherwise false.
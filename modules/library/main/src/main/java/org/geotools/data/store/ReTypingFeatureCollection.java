@@ -26,6 +26,7 @@ import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
 import org.geotools.feature.visitor.CountVisitor;
 import org.geotools.feature.visitor.FeatureAttributeVisitor;
+import org.geotools.feature.visitor.MultiAggregateVisitor;
 import org.geotools.filter.FilterAttributeExtractor;
 import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeature;
@@ -98,6 +99,13 @@ public class ReTypingFeatureCollection extends DecoratingSimpleFeatureCollection
             return true;
         } else if (visitor instanceof CountVisitor) {
             return true;
+        } else if (visitor instanceof MultiAggregateVisitor) {
+            for (FeatureVisitor aggregate : ((MultiAggregateVisitor) visitor).getVisitors()) {
+                if (!isTypeCompatible(aggregate, featureType)) {
+                    return false;
+                }
+            }
+            return true;
         }
         return false;
     }
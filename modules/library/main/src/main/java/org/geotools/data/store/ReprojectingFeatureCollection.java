@@ -31,6 +31,7 @@ import org.geotools.feature.SchemaException;
 import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
 import org.geotools.feature.visitor.CountVisitor;
 import org.geotools.feature.visitor.FeatureAttributeVisitor;
+import org.geotools.feature.visitor.MultiAggregateVisitor;
 import org.geotools.filter.FilterAttributeExtractor;
 import org.geotools.filter.spatial.DefaultCRSFilterVisitor;
 import org.geotools.filter.spatial.ReprojectingFilterVisitor;
@@ -260,6 +261,13 @@ public class ReprojectingFeatureCollection extends DecoratingSimpleFeatureCollec
             return true;
         } else if (visitor instanceof CountVisitor) {
             return true;
+        } else if (visitor instanceof MultiAggregateVisitor) {
+            for (FeatureVisitor aggregate : ((MultiAggregateVisitor) visitor).getVisitors()) {
+                if (!isGeometryless(aggregate, schema)) {
+                    return false;
+                }
+            }
+            return true;
         }
         return false;
     }
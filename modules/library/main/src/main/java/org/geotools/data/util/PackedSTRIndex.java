@@ -0,0 +1,167 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * Immutable Sort-Tile-Recursive packed R-tree over integer items, stored in flat primitive arrays.
+ *
+ * <p>The items are sorted in STR order and form the first level of the tree, each upper level is
+ * made of nodes grouping {@link #NODE_SIZE} consecutive entries of the level below. Every entry
+ * has its bounds in a flat array of doubles and, in an array of ints, either the item (first
+ * level) or the position of its first child. There are no node objects, the tree of a million
+ * items takes about 40MB.
+ *
+ * <p>The index cannot be modified once built, queries do not take any lock and can be run
+ * concurrently.
+ *
+ * @since 21
+ */
+public final class PackedSTRIndex {
+
+    /** Number of children of each node */
+    public static final int NODE_SIZE = 16;
+
+    /** minx, miny, maxx, maxy of each entry */
+    private final double[] boxes;
+
+    private final int[] ids;
+
+    /** The position after the last entry of each level, the first level being the items */
+    private final int[] levelEnds;
+
+    /**
+     * Builds the index
+     *
+     * @param items The items to index
+     * @param bounds The bounds of the items, as minx, miny, maxx, maxy quadruplets
+     * @param count The number of items
+     */
+    public PackedSTRIndex(int[] items, double[] bounds, int count) {
+        // compute the size of the levels
+        int[] ends = new int[32];
+        int levels = 0;
+        int total = count;
+        ends[levels++] = count;
+        for (int n = count; n > 1; ) {
+            n = (n + NODE_SIZE - 1) / NODE_SIZE;
+            total += n;
+            ends[levels++] = total;
+        }
+        this.levelEnds = Arrays.copyOf(ends, levels);
+        this.boxes = new double[total * 4];
+        this.ids = new int[total];
+
+        // sort the items in STR order, by x in vertical slices, then by y inside each slice
+        Integer[] order = new Integer[count];
+        double[] cx = new double[count];
+        double[] cy = new double[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            cx[i] = (bounds[i * 4] + bounds[i * 4 + 2]) / 2;
+            cy[i] = (bounds[i * 4 + 1] + bounds[i * 4 + 3]) / 2;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(cx[a], cx[b]));
+        int leaves = (count + NODE_SIZE - 1) / NODE_SIZE;
+        int slices = (int) Math.ceil(Math.sqrt(leaves));
+        int sliceSize = slices == 0 ? count : (int) Math.ceil(leaves / (double) slices) * NODE_SIZE;
+        for (int start = 0; start < count; start += sliceSize) {
+            int end = Math.min(count, start + sliceSize);
+            Arrays.sort(order, start, end, (a, b) -> Double.compare(cy[a], cy[b]));
+        }
+        for (int i = 0; i < count; i++) {
+            int item = order[i];
+            System.arraycopy(bounds, item * 4, boxes, i * 4, 4);
+            ids[i] = items[item];
+        }
+
+        // build the upper levels
+        int pos = count;
+        for (int level = 1; level < levels; level++) {
+            int childEnd = levelEnds[level - 1];
+            for (int child = level == 1 ? 0 : levelEnds[level - 2];
+                    child < childEnd;
+                    child += NODE_SIZE) {
+                double minx = Double.POSITIVE_INFINITY;
+                double miny = Double.POSITIVE_INFINITY;
+                double maxx = Double.NEGATIVE_INFINITY;
+                double maxy = Double.NEGATIVE_INFINITY;
+                for (int c = child, end = Math.min(child + NODE_SIZE, childEnd); c < end; c++) {
+                    minx = Math.min(minx, boxes[c * 4]);
+                    miny = Math.min(miny, boxes[c * 4 + 1]);
+                    maxx = Math.max(maxx, boxes[c * 4 + 2]);
+                    maxy = Math.max(maxy, boxes[c * 4 + 3]);
+                }
+                boxes[pos * 4] = minx;
+                boxes[pos * 4 + 1] = miny;
+                boxes[pos * 4 + 2] = maxx;
+                boxes[pos * 4 + 3] = maxy;
+                ids[pos] = child;
+                pos++;
+            }
+        }
+    }
+
+    /** Number of indexed items */
+    public int size() {
+        return levelEnds[0];
+    }
+
+    /** Passes to the visitor all the items whose bounds intersect the envelope */
+    public void query(Envelope envelope, IntConsumer visitor) {
+        if (levelEnds[0] == 0 || envelope.isNull()) {
+            return;
+        }
+        final double minx = envelope.getMinX();
+        final double miny = envelope.getMinY();
+        final double maxx = envelope.getMaxX();
+        final double maxy = envelope.getMaxY();
+
+        // stack of (first entry, level) pairs still to be visited, starting from the root
+        int[] stack = new int[levelEnds.length * NODE_SIZE * 2];
+        int top = 0;
+        int lastLevel = levelEnds.length - 1;
+        stack[top++] = lastLevel == 0 ? 0 : levelEnds[lastLevel - 1];
+        stack[top++] = lastLevel;
+        while (top > 0) {
+            int level = stack[--top];
+            int start = stack[--top];
+            int end = Math.min(start + NODE_SIZE, levelEnds[level]);
+            for (int pos = start; pos < end; pos++) {
+                int b = pos * 4;
+                if (boxes[b] > maxx
+                        || boxes[b + 1] > maxy
+                        || boxes[b + 2] < minx
+                        || boxes[b + 3] < miny) {
+                    continue;
+                }
+                if (level == 0) {
+                    visitor.accept(ids[pos]);
+                } else {
+                    if (top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = ids[pos];
+                    stack[top++] = level - 1;
+                }
+            }
+        }
+    }
+}
@@ -16,6 +16,11 @@
  */
 package org.geotools.data.util;
 
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import org.geotools.geometry.jts.JTS;
 import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.CoordinateSequenceFactory;
@@ -47,13 +52,27 @@ import org.opengis.referencing.operation.TransformException;
  * When checkAndSet returns false the geometry sits in a pixel that has been already populated and
  * can be skipped.
  *
+ * <p>The bitmap is backed by a <code>long[]</code> taken from a small, shared pool: once the map is
+ * no longer needed calling {@link #release()} returns it to the pool, allowing the next request to
+ * reuse it instead of allocating a new one. The bitmap cells are normally one pixel wide, but can
+ * be made larger or smaller using {@link #setCellSize(double)}, typically to match the
+ * generalization distance used for rendering: data stores can then check the bounds of a record
+ * with {@link #get(double, double, double, double)} and skip it before decoding its geometry.
+ *
  * @author jeichar
  * @author Andrea Aime - OpenGeo
  */
 public class ScreenMap {
+
+    /** Maximum number of bitmaps kept in the pool */
+    static final int POOL_SIZE = Integer.getInteger("org.geotools.screenmap.poolSize", 16);
+
+    /** Pooled bitmaps, all of them are zero filled */
+    static final List<SoftReference<long[]>> POOL = new ArrayList<SoftReference<long[]>>();
+
     double[] point = new double[2];
 
-    int[] pixels;
+    long[] pixels;
 
     int width;
 
@@ -63,6 +82,12 @@ public class ScreenMap {
 
     private int miny;
 
+    double cellSize = 1;
+
+    int cellsX;
+
+    int cellsY;
+
     MathTransform mt;
 
     double spanX;
@@ -74,10 +99,8 @@ public class ScreenMap {
         this.height = height;
         this.minx = x;
         this.miny = y;
-
-        int arraySize = ((width * height) / 32) + 1;
-        pixels = new int[arraySize];
         this.mt = mt;
+        allocate();
     }
 
     public ScreenMap(ScreenMap original, int expandBy) {
@@ -86,6 +109,9 @@ public class ScreenMap {
                 original.miny - expandBy,
                 original.width + expandBy * 2,
                 original.height + expandBy * 2);
+        if (original.cellSize != 1) {
+            setCellSize(original.cellSize);
+        }
     }
 
     public ScreenMap(int x, int y, int width, int height) {
@@ -96,23 +122,124 @@ public class ScreenMap {
         this.mt = mt;
     }
 
+    /** Returns the size of the bitmap cells, in pixels */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Sets the size of the bitmap cells, in pixels. A size below one makes the map track sub-pixel
+     * positions, one above one makes it coarser, skipping more features. Setting the cell size
+     * clears the map contents.
+     *
+     * @param cellSize The cell size, must be positive
+     */
+    public void setCellSize(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive, got " + cellSize);
+        }
+        if (cellSize != this.cellSize || pixels == null) {
+            release();
+            this.cellSize = cellSize;
+            allocate();
+        }
+    }
+
+    /**
+     * Returns the bitmap to the shared pool, cleared. The map cannot be used anymore after this
+     * call, checks will throw an {@link IllegalStateException}.
+     */
+    public void release() {
+        long[] released = pixels;
+        pixels = null;
+        if (released != null) {
+            int words = getWordCount(cellsX, cellsY);
+            Arrays.fill(released, 0, Math.min(words, released.length), 0L);
+            synchronized (POOL) {
+                if (POOL.size() < POOL_SIZE) {
+                    POOL.add(new SoftReference<long[]>(released));
+                }
+            }
+        }
+    }
+
+    private void checkNotReleased() {
+        if (pixels == null) {
+            throw new IllegalStateException("The screen map has been released");
+        }
+    }
+
+    private void allocate() {
+        if (cellSize == 1) {
+            cellsX = width;
+            cellsY = height;
+        } else {
+            cellsX = (int) Math.ceil(width / cellSize);
+            cellsY = (int) Math.ceil(height / cellSize);
+        }
+        pixels = acquire(getWordCount(cellsX, cellsY));
+    }
+
+    private static int getWordCount(int cellsX, int cellsY) {
+        long cells = (long) cellsX * cellsY;
+        if (cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Screen map too large, " + cellsX + "x" + cellsY + " cells");
+        }
+        return (int) (cells >> 6) + 1;
+    }
+
+    /**
+     * Grabs a zero filled bitmap from the pool, or allocates a new one. Pooled bitmaps much larger
+     * than needed are not used, to avoid pinning a big array for a small map.
+     */
+    static long[] acquire(int words) {
+        synchronized (POOL) {
+            for (Iterator<SoftReference<long[]>> it = POOL.iterator(); it.hasNext(); ) {
+                long[] candidate = it.next().get();
+                if (candidate == null) {
+                    it.remove();
+                } else if (candidate.length >= words && candidate.length <= words * 2L) {
+                    it.remove();
+                    return candidate;
+                }
+            }
+        }
+        return new long[words];
+    }
+
     public boolean checkAndSet(Envelope envelope) throws TransformException {
-        if (!canSimplify(envelope)) {
+        return checkAndSet(
+                envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY());
+    }
+
+    /**
+     * Same as {@link #checkAndSet(Envelope)}, but works against the envelope ordinates, allowing
+     * data stores to check a record bounds without allocating an envelope.
+     */
+    public boolean checkAndSet(double minX, double minY, double maxX, double maxY)
+            throws TransformException {
+        if (!canSimplify(minX, minY, maxX, maxY)) {
             return false;
         }
-
-        point[0] = (envelope.getMinX() + envelope.getMaxX()) / 2;
-        point[1] = (envelope.getMinY() + envelope.getMaxY()) / 2;
+        point[0] = (minX + maxX) / 2;
+        point[1] = (minY + maxY) / 2;
         mt.transform(point, 0, point, 0, 1);
-        int r = (int) point[0];
-        int c = (int) point[1];
-        return checkAndSet(r, c);
+        int bit = cellBit(point[0], point[1]);
+        if (bit < 0) {
+            return false;
+        }
+        return checkAndSetBit(bit);
     }
 
     public boolean canSimplify(Envelope envelope) {
         return envelope.getWidth() < spanX && envelope.getHeight() < spanY;
     }
 
+    private boolean canSimplify(double minX, double minY, double maxX, double maxY) {
+        return maxX - minX < spanX && maxY - minY < spanY;
+    }
+
     public void setSpans(double spanX, double spanY) {
         this.spanX = spanX;
         this.spanY = spanY;
@@ -123,15 +250,17 @@ public class ScreenMap {
      * in a pixel that has already been used
      */
     public boolean checkAndSet(int x, int y) {
-        // if it's outside of the screenmap we cannot say whether it's busy or not, and
-        // we cannot skip it because rendering or geometry transformation might put the geometry
-        // right in the map
-        if ((x - minx) < 0 || (x - minx) > width - 1 || (y - miny) < 0 || (y - miny) > height - 1)
+        int bit = cellBit(x, y);
+        if (bit < 0) {
             return false;
-        int bit = bit(x - minx, y - miny);
-        int index = bit / 32;
-        int offset = bit % 32;
-        int mask = 1 << offset;
+        }
+        return checkAndSetBit(bit);
+    }
+
+    private boolean checkAndSetBit(int bit) {
+        checkNotReleased();
+        int index = bit >>> 6;
+        long mask = 1L << (bit & 63);
 
         try {
             if ((pixels[index] & mask) != 0) {
@@ -146,40 +275,74 @@ public class ScreenMap {
     }
 
     public boolean get(Envelope envelope) throws TransformException {
-        if (!canSimplify(envelope)) {
+        return get(envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY());
+    }
+
+    /**
+     * Same as {@link #get(Envelope)}, but works against the envelope ordinates, allowing data
+     * stores to check a record bounds before decoding its geometry, without allocating an
+     * envelope.
+     */
+    public boolean get(double minX, double minY, double maxX, double maxY)
+            throws TransformException {
+        if (!canSimplify(minX, minY, maxX, maxY)) {
             return false;
         }
-
-        point[0] = (envelope.getMinX() + envelope.getMaxX()) / 2;
-        point[1] = (envelope.getMinY() + envelope.getMaxY()) / 2;
+        point[0] = (minX + maxX) / 2;
+        point[1] = (minY + maxY) / 2;
         mt.transform(point, 0, point, 0, 1);
-        int r = (int) point[0];
-        int c = (int) point[1];
-        return get(r, c);
+        int bit = cellBit(point[0], point[1]);
+        if (bit < 0) {
+            return false;
+        }
+        return getBit(bit);
     }
 
     /** Returns true if the pixel at location x,y is set or out of bounds. */
     public boolean get(int x, int y) {
-        // if it's outside of the screenmap we cannot say whether it's busy or not, and
-        // we cannot skip it because rendering or geometry transformation might put the geometry
-        // right in the map
-        if ((x - minx) < 0 || (x - minx) > width - 1 || (y - miny) < 0 || (y - miny) > height - 1)
+        int bit = cellBit(x, y);
+        if (bit < 0) {
             return false;
-        int bit = bit(x - minx, y - miny);
-        int index = bit / 32;
-        int offset = bit % 32;
-        int mask = 1 << offset;
+        }
+        return getBit(bit);
+    }
 
+    private boolean getBit(int bit) {
+        checkNotReleased();
         try {
-            return ((pixels[index] & mask) != 0) ? true : false;
+            return (pixels[bit >>> 6] & (1L << (bit & 63))) != 0;
         } catch (Exception e) {
-
             return true;
         }
     }
 
-    private int bit(int x, int y) {
-        return (width * y) + x;
+    /**
+     * Returns the bit associated to the pixel, or -1 if the pixel is outside of the map: in that
+     * case we cannot say whether it's busy or not, and we cannot skip it because rendering or
+     * geometry transformation might put the geometry right in the map
+     */
+    private int cellBit(int x, int y) {
+        if ((x - minx) < 0 || (x - minx) > width - 1 || (y - miny) < 0 || (y - miny) > height - 1)
+            return -1;
+        if (cellSize == 1) {
+            return (width * (y - miny)) + (x - minx);
+        }
+        return cellBit((double) x, (double) y);
+    }
+
+    /** Same as {@link #cellBit(int, int)}, for a screen position with sub-pixel precision */
+    private int cellBit(double x, double y) {
+        if (cellSize == 1) {
+            return cellBit((int) x, (int) y);
+        }
+        double dx = x - minx;
+        double dy = y - miny;
+        if (!(dx >= 0) || dx >= width || !(dy >= 0) || dy >= height) {
+            return -1;
+        }
+        int cx = Math.min((int) (dx / cellSize), cellsX - 1);
+        int cy = Math.min((int) (dy / cellSize), cellsY - 1);
+        return (cellsX * cy) + cx;
     }
 
     /**
@@ -280,22 +443,18 @@ public class ScreenMap {
 
     /** Sets location at position x,y to the value. */
     public void set(int x, int y, boolean value) {
-        if ((x - minx) < 0 || (x - minx) > width - 1 || (y - miny) < 0 || (y - miny) > height - 1)
+        checkNotReleased();
+        int bit = cellBit(x, y);
+        if (bit < 0) {
             return;
-        int bit = bit(x - minx, y - miny);
-        int index = bit / 32;
-        int offset = bit % 32;
-        int mask = 1;
-        mask = mask << offset;
+        }
+        int index = bit >>> 6;
+        long mask = 1L << (bit & 63);
 
         if (value) {
             pixels[index] = pixels[index] | mask;
         } else {
-            int tmp = pixels[index];
-            tmp = ~tmp;
-            tmp = (tmp | mask);
-            tmp = ~tmp;
-            pixels[index] = tmp;
+            pixels[index] = pixels[index] & ~mask;
         }
     }
 }
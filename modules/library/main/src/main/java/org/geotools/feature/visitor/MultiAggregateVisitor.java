@@ -0,0 +1,190 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureVisitor;
+
+/**
+ * Computes several aggregates at once, passing each feature to all the aggregate visitors, so that
+ * a collection is scanned only once.
+ *
+ * <p>Stores able to compute some of the aggregates natively (e.g., a single SQL query with many
+ * aggregate functions) set the values straight into the aggregate visitors, and mark them as
+ * {@link #setComputed(FeatureVisitor) computed}: the features visited later are passed only to the
+ * visitors still pending.
+ *
+ * <p>The results of the aggregates are collected by the aggregate visitors themselves, {@link
+ * #getResult()} returns them all, in the same order as the visitors.
+ */
+public class MultiAggregateVisitor implements FeatureCalc {
+
+    final List<FeatureVisitor> visitors;
+
+    final boolean[] computed;
+
+    public MultiAggregateVisitor(FeatureVisitor... visitors) {
+        this(Arrays.asList(visitors));
+    }
+
+    public MultiAggregateVisitor(List<? extends FeatureVisitor> visitors) {
+        this.visitors = Collections.unmodifiableList(new ArrayList<>(visitors));
+        this.computed = new boolean[visitors.size()];
+    }
+
+    /** Returns the aggregate visitors */
+    public List<FeatureVisitor> getVisitors() {
+        return visitors;
+    }
+
+    /** Returns the aggregate visitors whose value has not been computed natively by the store */
+    public List<FeatureVisitor> getPendingVisitors() {
+        List<FeatureVisitor> pending = new ArrayList<>();
+        for (int i = 0; i < computed.length; i++) {
+            if (!computed[i]) {
+                pending.add(visitors.get(i));
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Marks the aggregate visitor as computed, the features visited afterwards won't be passed to
+     * it
+     *
+     * @throws IllegalArgumentException If the visitor is not one of the aggregate visitors
+     */
+    public void setComputed(FeatureVisitor visitor) {
+        computed[indexOf(visitor)] = true;
+    }
+
+    /** Returns true if the aggregate visitor value has been computed natively by the store */
+    public boolean isComputed(FeatureVisitor visitor) {
+        return computed[indexOf(visitor)];
+    }
+
+    private int indexOf(FeatureVisitor visitor) {
+        // identity matters, not equality
+        for (int i = 0; i < visitors.size(); i++) {
+            if (visitors.get(i) == visitor) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(visitor + " is not one of the aggregate visitors");
+    }
+
+    @Override
+    public void visit(Feature feature) {
+        for (int i = 0; i < computed.length; i++) {
+            if (!computed[i]) {
+                visitors.get(i).visit(feature);
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link MultiAggregateResult}, holding the results of the aggregate visitors. The
+     * visitors that are not a {@link FeatureCalc} have a {@link CalcResult#NULL_RESULT}.
+     */
+    @Override
+    public CalcResult getResult() {
+        List<CalcResult> results = new ArrayList<>(visitors.size());
+        for (FeatureVisitor visitor : visitors) {
+            if (visitor instanceof FeatureCalc) {
+                results.add(((FeatureCalc) visitor).getResult());
+            } else {
+                results.add(CalcResult.NULL_RESULT);
+            }
+        }
+        return new MultiAggregateResult(results);
+    }
+
+    /** The results of a {@link MultiAggregateVisitor}, one per aggregate visitor */
+    public static class MultiAggregateResult extends AbstractCalcResult {
+
+        final List<CalcResult> results;
+
+        public MultiAggregateResult(List<CalcResult> results) {
+            this.results = Collections.unmodifiableList(results);
+        }
+
+        /** Returns the results of the aggregate visitors */
+        public List<CalcResult> getResults() {
+            return results;
+        }
+
+        /** Returns the list of the aggregate values, null for the empty aggregates */
+        @Override
+        public Object getValue() {
+            List<Object> values = new ArrayList<>(results.size());
+            for (CalcResult result : results) {
+                values.add(result.getValue());
+            }
+            return values;
+        }
+
+        @Override
+        public boolean isCompatible(CalcResult targetResults) {
+            if (targetResults == CalcResult.NULL_RESULT) {
+                return true;
+            }
+            if (!(targetResults instanceof MultiAggregateResult)) {
+                return false;
+            }
+            List<CalcResult> others = ((MultiAggregateResult) targetResults).results;
+            if (others.size() != results.size()) {
+                return false;
+            }
+            for (int i = 0; i < results.size(); i++) {
+                CalcResult result = results.get(i);
+                CalcResult other = others.get(i);
+                if (result != CalcResult.NULL_RESULT
+                        && other != CalcResult.NULL_RESULT
+                        && !result.isCompatible(other)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public CalcResult merge(CalcResult resultsToAdd) {
+            if (!isCompatible(resultsToAdd)) {
+                throw new IllegalArgumentException("Parameter is not a compatible type");
+            }
+            if (resultsToAdd == CalcResult.NULL_RESULT) {
+                return this;
+            }
+            List<CalcResult> others = ((MultiAggregateResult) resultsToAdd).results;
+            List<CalcResult> merged = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                CalcResult result = results.get(i);
+                CalcResult other = others.get(i);
+                if (result == CalcResult.NULL_RESULT) {
+                    merged.add(other);
+                } else {
+                    merged.add(result.merge(other));
+                }
+            }
+            return new MultiAggregateResult(merged);
+        }
+    }
+}
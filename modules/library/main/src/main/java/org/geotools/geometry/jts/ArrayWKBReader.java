@@ -0,0 +1,316 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geometry.jts;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * Reads a {@link Geometry} from its Well Known Binary representation held in a byte array, as found
+ * in the BLOBs of the SQLite and H2 based stores. Both the ISO (type codes 1000, 2000, 3000) and
+ * the PostGIS extended (dimension and SRID flags) variants are supported.
+ *
+ * <p>Compared to the JTS {@link org.locationtech.jts.io.WKBReader} this reader works directly off
+ * the array, starting at any offset, so that wrappers such as the GeoPackage geometry header can be
+ * skipped without copying the bytes. When the geometry factory uses a {@link
+ * LiteCoordinateSequenceFactory} or a double {@link PackedCoordinateSequenceFactory} the ordinates
+ * are decoded straight into the packed arrays backing the coordinate sequences, without
+ * intermediate coordinate objects. {@link #readEnvelope(byte[], int)} computes the bounds of the
+ * geometry without building it at all.
+ *
+ * <p>This class is designed to support reuse of a single instance to read multiple geometries. This
+ * class is not thread-safe; each thread should create its own instance.
+ */
+public class ArrayWKBReader {
+
+    static final int POINT = 1;
+
+    static final int LINESTRING = 2;
+
+    static final int POLYGON = 3;
+
+    static final int MULTIPOINT = 4;
+
+    static final int MULTILINESTRING = 5;
+
+    static final int MULTIPOLYGON = 6;
+
+    static final int GEOMETRYCOLLECTION = 7;
+
+    /** The minimum size of a multi geometry member, its byte order and type */
+    static final int MIN_MEMBER_BYTES = 5;
+
+    static final int EWKB_Z_FLAG = 0x80000000;
+
+    static final int EWKB_M_FLAG = 0x40000000;
+
+    static final int EWKB_SRID_FLAG = 0x20000000;
+
+    GeometryFactory factory;
+
+    ByteBuffer buffer;
+
+    /** The number of dimensions of the geometry being read, including the measures */
+    int dimension;
+
+    int measures;
+
+    /** The bounds accumulated by {@link #readEnvelope}, null when reading geometries */
+    Envelope envelope;
+
+    public ArrayWKBReader(GeometryFactory factory) {
+        this.factory = factory;
+    }
+
+    public void setGeometryFactory(GeometryFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Reads a single geometry
+     *
+     * @param bytes The WKB encoded geometry
+     * @return The geometry
+     * @throws IOException If the bytes are not a valid WKB geometry
+     */
+    public Geometry read(byte[] bytes) throws IOException {
+        return read(bytes, 0);
+    }
+
+    /**
+     * Reads a single geometry starting at the given position of the array
+     *
+     * @param bytes The array containing the WKB encoded geometry
+     * @param offset The position of the first byte of the geometry
+     * @return The geometry
+     * @throws IOException If the bytes are not a valid WKB geometry
+     */
+    public Geometry read(byte[] bytes, int offset) throws IOException {
+        buffer = ByteBuffer.wrap(bytes);
+        buffer.position(offset);
+        try {
+            return readGeometry();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Unexpected end of the WKB geometry", e);
+        } finally {
+            buffer = null;
+        }
+    }
+
+    /**
+     * Computes the bounds of the geometry starting at the given position of the array, without
+     * building it
+     *
+     * @param bytes The array containing the WKB encoded geometry
+     * @param offset The position of the first byte of the geometry
+     * @return The geometry bounds, a null envelope if the geometry is empty
+     * @throws IOException If the bytes are not a valid WKB geometry
+     */
+    public Envelope readEnvelope(byte[] bytes, int offset) throws IOException {
+        Envelope result = new Envelope();
+        envelope = result;
+        try {
+            read(bytes, offset);
+        } finally {
+            envelope = null;
+        }
+        return result;
+    }
+
+    private Geometry readGeometry() throws IOException {
+        buffer.order(buffer.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        final int typeInt = buffer.getInt();
+        // ISO codes the dimensions in the thousands, EWKB with flags in the high bits
+        final int isoType = typeInt & 0xFFFF;
+        final int type = isoType % 1000;
+        final int isoDimensions = isoType / 1000;
+        boolean hasZ = (typeInt & EWKB_Z_FLAG) != 0 || isoDimensions == 1 || isoDimensions == 3;
+        boolean hasM = (typeInt & EWKB_M_FLAG) != 0 || isoDimensions == 2 || isoDimensions == 3;
+        int srid = (typeInt & EWKB_SRID_FLAG) != 0 ? buffer.getInt() : 0;
+
+        dimension = 2 + (hasZ ? 1 : 0) + (hasM ? 1 : 0);
+        measures = hasM ? 1 : 0;
+
+        Geometry geometry;
+        switch (type) {
+            case POINT:
+                geometry = readPoint();
+                break;
+            case LINESTRING:
+                geometry = readLineString();
+                break;
+            case POLYGON:
+                geometry = readPolygon();
+                break;
+            case MULTIPOINT:
+                {
+                    Point[] points = new Point[readCount(MIN_MEMBER_BYTES)];
+                    for (int i = 0; i < points.length; i++) {
+                        points[i] = (Point) readMember(Point.class);
+                    }
+                    geometry = envelope == null ? factory.createMultiPoint(points) : null;
+                    break;
+                }
+            case MULTILINESTRING:
+                {
+                    LineString[] lines = new LineString[readCount(MIN_MEMBER_BYTES)];
+                    for (int i = 0; i < lines.length; i++) {
+                        lines[i] = (LineString) readMember(LineString.class);
+                    }
+                    geometry = envelope == null ? factory.createMultiLineString(lines) : null;
+                    break;
+                }
+            case MULTIPOLYGON:
+                {
+                    Polygon[] polygons = new Polygon[readCount(MIN_MEMBER_BYTES)];
+                    for (int i = 0; i < polygons.length; i++) {
+                        polygons[i] = (Polygon) readMember(Polygon.class);
+                    }
+                    geometry = envelope == null ? factory.createMultiPolygon(polygons) : null;
+                    break;
+                }
+            case GEOMETRYCOLLECTION:
+                {
+                    Geometry[] geometries = new Geometry[readCount(MIN_MEMBER_BYTES)];
+                    for (int i = 0; i < geometries.length; i++) {
+                        geometries[i] = readGeometry();
+                    }
+                    geometry =
+                            envelope == null ? factory.createGeometryCollection(geometries) : null;
+                    break;
+                }
+            default:
+                throw new IOException("Unknown WKB geometry type: " + typeInt);
+        }
+        if (geometry != null && srid != 0) {
+            geometry.setSRID(srid);
+        }
+        return geometry;
+    }
+
+    /** Reads a member of a multi geometry, each member has its own byte order and type */
+    private Geometry readMember(Class<? extends Geometry> expected) throws IOException {
+        Geometry member = readGeometry();
+        if (member != null && !expected.isInstance(member)) {
+            throw new IOException(
+                    "Invalid WKB multi geometry, found a "
+                            + member.getGeometryType()
+                            + " member instead of a "
+                            + expected.getSimpleName());
+        }
+        return member;
+    }
+
+    /**
+     * Reads a count of items, each one taking at least the given number of bytes, checking it
+     * against the bytes left so that a corrupt count cannot trigger a huge allocation
+     */
+    private int readCount(int minItemBytes) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * minItemBytes > buffer.remaining()) {
+            throw new IOException("Invalid WKB count: " + count);
+        }
+        return count;
+    }
+
+    private Point readPoint() {
+        double[] ordinates = readOrdinates(1);
+        if (envelope != null) {
+            return null;
+        }
+        // empty points are encoded with NaN ordinates
+        boolean empty = true;
+        for (int i = 0; i < ordinates.length && empty; i++) {
+            empty = Double.isNaN(ordinates[i]);
+        }
+        if (empty) {
+            return factory.createPoint((CoordinateSequence) null);
+        }
+        return factory.createPoint(createSequence(ordinates));
+    }
+
+    private LineString readLineString() throws IOException {
+        CoordinateSequence cs = readCoordinates(readCount(dimension * 8));
+        return envelope == null ? factory.createLineString(cs) : null;
+    }
+
+    private Polygon readPolygon() throws IOException {
+        // each ring holds at least its point count
+        final int numRings = readCount(4);
+        if (numRings == 0) {
+            return envelope == null ? factory.createPolygon((CoordinateSequence) null) : null;
+        }
+        LinearRing shell = readRing();
+        LinearRing[] holes = new LinearRing[numRings - 1];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = readRing();
+        }
+        return envelope == null ? factory.createPolygon(shell, holes) : null;
+    }
+
+    private LinearRing readRing() throws IOException {
+        CoordinateSequence cs = readCoordinates(readCount(dimension * 8));
+        return envelope == null ? factory.createLinearRing(cs) : null;
+    }
+
+    private CoordinateSequence readCoordinates(int numPoints) {
+        double[] ordinates = readOrdinates(numPoints);
+        return envelope == null ? createSequence(ordinates) : null;
+    }
+
+    /**
+     * Reads the ordinates of the given number of points, or just updates the envelope with them if
+     * computing the bounds
+     */
+    private double[] readOrdinates(int numPoints) {
+        if (envelope != null) {
+            for (int p = 0; p < numPoints; p++) {
+                int start = buffer.position();
+                if (start + dimension * 8 > buffer.limit()) {
+                    throw new BufferUnderflowException();
+                }
+                double x = buffer.getDouble(start);
+                double y = buffer.getDouble(start + 8);
+                // empty points are encoded with NaN ordinates
+                if (!Double.isNaN(x) && !Double.isNaN(y)) {
+                    envelope.expandToInclude(x, y);
+                }
+                buffer.position(start + dimension * 8);
+            }
+            return null;
+        }
+        double[] ordinates = new double[numPoints * dimension];
+        buffer.asDoubleBuffer().get(ordinates);
+        buffer.position(buffer.position() + ordinates.length * 8);
+        return ordinates;
+    }
+
+    private CoordinateSequence createSequence(double[] ordinates) {
+        return JTS.createCS(factory.getCoordinateSequenceFactory(), ordinates, dimension, measures);
+    }
+}
@@ -54,6 +54,7 @@ import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.geom.impl.CoordinateArraySequence;
 import org.locationtech.jts.geom.impl.CoordinateArraySequenceFactory;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
 import org.locationtech.jts.geom.util.AffineTransformation;
 import org.locationtech.jts.operation.polygonize.Polygonizer;
 import org.opengis.geometry.BoundingBox;
@@ -1397,6 +1398,39 @@ public final class JTS {
         return cs;
     }
 
+    /**
+     * Creates a {@link CoordinateSequence} holding the given packed ordinates, using the provided
+     * factory. The {@link LiteCoordinateSequenceFactory} and double {@link
+     * PackedCoordinateSequenceFactory} sequences use the array directly, without copying it, other
+     * factories get the ordinates copied, dropping the dimensions they cannot hold.
+     *
+     * @param ordinates the ordinates, {@code dimension} values for each coordinate
+     * @param dimension the dimension of the coordinates, including the measures
+     * @param measures the measures of the coordinates
+     * @since 21
+     */
+    public static CoordinateSequence createCS(
+            CoordinateSequenceFactory csFactory, double[] ordinates, int dimension, int measures) {
+        if (csFactory instanceof LiteCoordinateSequenceFactory) {
+            return new LiteCoordinateSequence(ordinates, dimension, measures);
+        } else if (csFactory instanceof PackedCoordinateSequenceFactory
+                && ((PackedCoordinateSequenceFactory) csFactory).getType()
+                        == PackedCoordinateSequenceFactory.DOUBLE) {
+            return ((PackedCoordinateSequenceFactory) csFactory)
+                    .create(ordinates, dimension, measures);
+        }
+        final int size = ordinates.length / dimension;
+        CoordinateSequence cs = csFactory.create(size, dimension, measures);
+        // the sequence might have been created with less dimensions than requested
+        final int csDimension = Math.min(cs.getDimension(), dimension);
+        for (int p = 0, k = 0; p < size; p++, k += dimension) {
+            for (int d = 0; d < csDimension; d++) {
+                cs.setOrdinate(p, d, ordinates[k + d]);
+            }
+        }
+        return cs;
+    }
+
     /**
      * Replacement for geometry.getEnvelopeInternal() that returns ReferencedEnvelope or
      * ReferencedEnvelope3D as appropriate for the provided CRS.
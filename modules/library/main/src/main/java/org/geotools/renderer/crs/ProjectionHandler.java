@@ -30,6 +30,7 @@ import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.referencing.operation.transform.ConcatenatedTransform;
 import org.geotools.referencing.operation.transform.GeocentricTransform;
+import org.geotools.referencing.operation.transform.GridApproximatedTransform;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
@@ -50,6 +51,7 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.crs.GeographicCRS;
 import org.opengis.referencing.crs.SingleCRS;
 import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.TransformException;
 
 /**
@@ -759,6 +761,35 @@ public class ProjectionHandler {
         }
     }
 
+    /**
+     * Returns the {@link #getRenderingTransform(MathTransform) rendering transform}, approximated
+     * on a grid covering the query area so that transforming a point costs about as much as an
+     * affine transform. The rendering transform is returned as is if it cannot be approximated, or
+     * if the query spans more than one envelope (e.g., across the dateline).
+     *
+     * @param tolerance The maximum error of the approximation, in rendering CRS units
+     * @since 21
+     */
+    public MathTransform getApproximatedRenderingTransform(MathTransform mt, double tolerance)
+            throws FactoryException {
+        MathTransform rendering = getRenderingTransform(mt);
+        if (!(rendering instanceof MathTransform2D) || noReprojection) {
+            return rendering;
+        }
+        List<ReferencedEnvelope> envelopes;
+        try {
+            envelopes = getQueryEnvelopes();
+        } catch (TransformException e) {
+            LOGGER.log(Level.FINE, "Could not compute the approximation domain", e);
+            return rendering;
+        }
+        if (envelopes.size() != 1) {
+            return rendering;
+        }
+        return GridApproximatedTransform.create(
+                (MathTransform2D) rendering, envelopes.get(0), tolerance);
+    }
+
     protected MathTransform concatenateTransforms(List<MathTransform> datumShiftChain) {
         if (datumShiftChain.size() == 1) {
             return datumShiftChain.get(0);
@@ -0,0 +1,285 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.store.FeatureCollectionWrapperTestSupport;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class UpdatableSpatialIndexFeatureCollectionTest
+        extends FeatureCollectionWrapperTestSupport {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+
+    GeometryFactory gf = new GeometryFactory();
+
+    /** A filter picking the point at -140,45 out of the 5 points of the delegate */
+    Filter firstPoint() {
+        return bbox(-145, -139.5, 44, 45.5);
+    }
+
+    Filter bbox(double minx, double maxx, double miny, double maxy) {
+        return ff.bbox(
+                ff.property("defaultGeom"), new ReferencedEnvelope(minx, maxx, miny, maxy, crs));
+    }
+
+    SimpleFeature feature(String id, double x, double y, int value) {
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(delegate.getSchema());
+        fb.add(gf.createPoint(new Coordinate(x, y)));
+        fb.add(value);
+        fb.add(null);
+        return fb.buildFeature(id);
+    }
+
+    @Test
+    public void testSubCollection() throws Exception {
+        UpdatableSpatialIndexFeatureCollection collection =
+                new UpdatableSpatialIndexFeatureCollection(delegate);
+        assertEquals(6, collection.size());
+        assertEquals(1, collection.subCollection(firstPoint()).size());
+        // the other geometry is indexed too
+        Filter lines =
+                ff.bbox(
+                        ff.property("otherGeom"),
+                        new ReferencedEnvelope(-145, -139.5, 44, 47, crs));
+        assertEquals(1, collection.subCollection(lines).size());
+        // non spatial filters scan everything
+        Filter between = ff.between(ff.property("someAtt"), ff.literal(2), ff.literal(4));
+        assertEquals(3, collection.subCollection(between).size());
+    }
+
+    @Test
+    public void testReplaceAndRemove() throws Exception {
+        UpdatableSpatialIndexFeatureCollection collection =
+                new UpdatableSpatialIndexFeatureCollection(delegate);
+        // move the first point away
+        collection.add(feature("0", 100, 10, 0));
+        assertEquals(6, collection.size());
+        assertEquals(0, collection.subCollection(firstPoint()).size());
+        Filter moved = bbox(99, 101, 9, 11);
+        assertEquals(1, collection.subCollection(moved).size());
+
+        // move it back, then remove it
+        collection.add(feature("0", -140, 45, 0));
+        assertEquals(0, collection.subCollection(moved).size());
+        assertEquals(1, collection.subCollection(firstPoint()).size());
+        assertTrue(collection.remove(feature("0", -140, 45, 0)));
+        assertFalse(collection.remove(feature("0", -140, 45, 0)));
+        assertEquals(5, collection.size());
+        assertEquals(0, collection.subCollection(firstPoint()).size());
+        assertEquals(5, collection.toArray().length);
+
+        // after a merge the content is the same
+        collection.merge();
+        assertEquals(0, collection.snapshot.deltaSize());
+        assertEquals(5, collection.toArray().length);
+        assertEquals(0, collection.subCollection(firstPoint()).size());
+    }
+
+    @Test
+    public void testSnapshotIsolation() throws Exception {
+        UpdatableSpatialIndexFeatureCollection collection =
+                new UpdatableSpatialIndexFeatureCollection(delegate);
+        collection.add(feature("v", 10, 10, 0));
+        UpdatableSpatialIndexFeatureCollection.Snapshot before = collection.snapshot;
+
+        // single feature updates append to the log shared with the previous snapshots
+        for (int i = 1; i <= 100; i++) {
+            collection.add(feature("v", 10 + i, 10, i));
+        }
+        collection.remove(feature("0", -140, 45, 0));
+        assertSame(before.log, collection.snapshot.log);
+        assertEquals(102, collection.snapshot.deltaSize());
+
+        // the previous snapshot still sees the content it was created with
+        assertEquals(7, before.toArray().length);
+        List<SimpleFeature> found = new ArrayList<>();
+        before.query(new Envelope(9, 11, 9, 11), found::add);
+        assertEquals(1, found.size());
+        assertEquals(0, found.get(0).getAttribute("someAtt"));
+        found.clear();
+        before.query(new Envelope(-145, -139.5, 44, 45.5), found::add);
+        assertEquals(1, found.size());
+
+        // the latest one only sees the latest position, and no removed feature
+        assertEquals(6, collection.toArray().length);
+        assertEquals(0, collection.subCollection(bbox(9, 11, 9, 11)).size());
+        assertEquals(1, collection.subCollection(bbox(109, 111, 9, 11)).size());
+        assertEquals(0, collection.subCollection(firstPoint()).size());
+    }
+
+    @Test
+    public void testBackgroundMerge() throws Exception {
+        UpdatableSpatialIndexFeatureCollection collection =
+                new UpdatableSpatialIndexFeatureCollection(delegate.getSchema());
+        int count = UpdatableSpatialIndexFeatureCollection.MIN_MERGE_SIZE * 2;
+        for (int i = 0; i < count; i++) {
+            collection.add(feature("v" + i, i % 100, i / 100, i));
+        }
+        long start = System.currentTimeMillis();
+        while (collection.snapshot.base.length == 0
+                && System.currentTimeMillis() - start < 10000) {
+            Thread.sleep(10);
+        }
+        assertTrue(collection.snapshot.base.length > 0);
+        assertEquals(count, collection.size());
+        assertEquals(count, collection.toArray().length);
+        Filter filter = bbox(-1, 9.5, -1, 4.5);
+        assertEquals(50, collection.subCollection(filter).size());
+        assertEquals(new ReferencedEnvelope(0, 99, 0, 20, crs), collection.getBounds());
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        UpdatableSpatialIndexFeatureCollection collection =
+                new UpdatableSpatialIndexFeatureCollection(delegate.getSchema());
+        int vehicles = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            // one writer moving the vehicles around
+            futures.add(
+                    executor.submit(
+                            () -> {
+                                for (int round = 0; round < 20; round++) {
+                                    List<SimpleFeature> positions = new ArrayList<>();
+                                    for (int i = 0; i < vehicles; i++) {
+                                        positions.add(feature("v" + i, round, i, i));
+                                    }
+                                    collection.addAll(positions);
+                                }
+                                return null;
+                            }));
+            // readers, each vehicle is either there once, or not yet there
+            for (int r = 0; r < 3; r++) {
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    for (int i = 0; i < 200; i++) {
+                                        SimpleFeatureCollection all =
+                                                collection.subCollection(Filter.INCLUDE);
+                                        int size = all.size();
+                                        assertTrue(size == 0 || size == vehicles);
+                                    }
+                                    return null;
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(vehicles, collection.size());
+        Filter lastRound = bbox(18.5, 19.5, -1, vehicles);
+        assertEquals(vehicles, collection.subCollection(lastRound).size());
+    }
+
+    @Test
+    public void testReadWhileUpdating() throws Exception {
+        UpdatableSpatialIndexFeatureCollection collection =
+                new UpdatableSpatialIndexFeatureCollection(delegate);
+        for (int i = 0; i < 10; i++) {
+            collection.add(feature("v" + i, i, 0, i));
+        }
+        int expected = collection.size();
+        SimpleFeature[] base = delegate.toArray(new SimpleFeature[0]);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            // one writer replacing both base and logged features, one at a time
+            futures.add(
+                    executor.submit(
+                            () -> {
+                                try {
+                                    for (int round = 0; round < 2000; round++) {
+                                        for (SimpleFeature f : base) {
+                                            collection.add(f);
+                                        }
+                                        for (int i = 0; i < 10; i++) {
+                                            collection.add(feature("v" + i, i, round, i));
+                                        }
+                                    }
+                                } finally {
+                                    done.set(true);
+                                }
+                                return null;
+                            }));
+            // readers, every snapshot holds each feature exactly once
+            for (int r = 0; r < 3; r++) {
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    while (!done.get()) {
+                                        SimpleFeature[] features = collection.snapshot.toArray();
+                                        Set<String> ids = new HashSet<>();
+                                        for (SimpleFeature f : features) {
+                                            ids.add(f.getID());
+                                        }
+                                        assertEquals(expected, features.length);
+                                        assertEquals(expected, ids.size());
+                                    }
+                                    return null;
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(expected, collection.toArray().length);
+    }
+
+    @Test
+    public void testCollectionFeatureSource() throws Exception {
+        UpdatableSpatialIndexFeatureCollection collection =
+                new UpdatableSpatialIndexFeatureCollection(delegate);
+        CollectionFeatureSource source = new CollectionFeatureSource(collection);
+        assertEquals(1, source.getCount(new Query("test", firstPoint())));
+        collection.add(feature("10", -140.5, 44.5, 10));
+        int count = 0;
+        try (SimpleFeatureIterator it = source.getFeatures(firstPoint()).features()) {
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+        }
+        assertEquals(2, count);
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.geotools.data.DataTestCase;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.util.PackedSTRIndex;
+import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
+import org.geotools.feature.collection.DecoratingSimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+public class ColumnarDataStoreTest extends DataTestCase {
+
+    ColumnarDataStore data;
+
+    public ColumnarDataStoreTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        data = new ColumnarDataStore();
+        data.addFeatures(DataUtilities.collection(roadFeatures));
+        data.addFeatures(Arrays.asList(riverFeatures));
+    }
+
+    public void testTypeNames() throws Exception {
+        assertEquals(Arrays.asList("river", "road"), Arrays.asList(data.getTypeNames()));
+        assertEquals(roadType, data.getSchema("road"));
+    }
+
+    public void testRoundTrip() throws Exception {
+        assertSameFeatures(roadFeatures, data.getFeatureSource("road").getFeatures());
+        assertSameFeatures(riverFeatures, data.getFeatureSource("river").getFeatures());
+    }
+
+    public void testCountAndBounds() throws Exception {
+        SimpleFeatureSource roads = data.getFeatureSource("road");
+        assertEquals(3, roads.getCount(Query.ALL));
+        assertEquals(roadBounds, roads.getBounds());
+        assertEquals(1, roads.getCount(new Query("road", rd1Filter)));
+    }
+
+    public void testBBoxFilter() throws Exception {
+        Filter bbox = ff.bbox("geom", 3.5, 2.5, 6, 4, null);
+        SimpleFeatureCollection fc = data.getFeatureSource("road").getFeatures(bbox);
+        List<String> fids = new ArrayList<>();
+        try (SimpleFeatureIterator it = fc.features()) {
+            while (it.hasNext()) {
+                fids.add(it.next().getID());
+            }
+        }
+        assertEquals(Arrays.asList("road.rd3"), fids);
+    }
+
+    public void testSnapshotRead() throws Exception {
+        SimpleFeatureSource roads = data.getFeatureSource("road");
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                data.getFeatureReader(new Query("road"), Transaction.AUTO_COMMIT)) {
+            assertTrue(reader.hasNext());
+            reader.next();
+            // replace the content while the reader is open
+            data.setFeatures(DataUtilities.collection(newRoad));
+            assertEquals(1, roads.getCount(Query.ALL));
+            int count = 1;
+            while (reader.hasNext()) {
+                reader.next();
+                count++;
+            }
+            assertEquals(3, count);
+        }
+    }
+
+    public void testReadDuringReplace() throws Exception {
+        SimpleFeatureSource roads = data.getFeatureSource("road");
+        List<Integer> counts = new ArrayList<>();
+        // count the features while the replacement is being read
+        data.setFeatures(
+                watch(
+                        DataUtilities.collection(new SimpleFeature[] {newRoad, roadFeatures[0]}),
+                        () -> {
+                            try {
+                                counts.add(roads.getCount(Query.ALL));
+                            } catch (java.io.IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }));
+        assertEquals(Arrays.asList(3, 3), counts);
+        assertEquals(2, roads.getCount(Query.ALL));
+    }
+
+    public void testFailedReplace() throws Exception {
+        try {
+            data.setFeatures(
+                    watch(
+                            DataUtilities.collection(new SimpleFeature[] {newRoad}),
+                            () -> {
+                                throw new IllegalStateException("Source failure");
+                            }));
+            fail("Should have failed");
+        } catch (IllegalStateException e) {
+            assertEquals("Source failure", e.getMessage());
+        }
+        assertSameFeatures(roadFeatures, data.getFeatureSource("road").getFeatures());
+    }
+
+    /** Wraps the collection so that the action is run each time a feature is read */
+    private SimpleFeatureCollection watch(SimpleFeatureCollection collection, Runnable action) {
+        return new DecoratingSimpleFeatureCollection(collection) {
+            @Override
+            public SimpleFeatureIterator features() {
+                return new DecoratingSimpleFeatureIterator(super.features()) {
+                    @Override
+                    public SimpleFeature next() {
+                        action.run();
+                        return super.next();
+                    }
+                };
+            }
+        };
+    }
+
+    public void testRemoveFeatures() throws Exception {
+        assertEquals(2, data.removeFeatures("road", rd12Filter));
+        SimpleFeatureSource roads = data.getFeatureSource("road");
+        assertEquals(1, roads.getCount(Query.ALL));
+        assertSameFeatures(
+                new SimpleFeature[] {roadFeatures[2]}, roads.getFeatures(Filter.INCLUDE));
+    }
+
+    public void testIncompatibleSchema() throws Exception {
+        SimpleFeatureType other = DataUtilities.createType(getName() + ".road", "id:0");
+        try {
+            data.addFeatures(
+                    DataUtilities.collection(
+                            SimpleFeatureBuilder.build(other, new Object[] {1}, "road.x")));
+            fail("Should have failed, the schema is different");
+        } catch (java.io.IOException e) {
+            // fine
+        }
+    }
+
+    public void testManyBatches() throws Exception {
+        SimpleFeatureType type =
+                DataUtilities.createType(
+                        "points", "geom:Point,name:String,value:Double,count:Integer,date:Date");
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        List<SimpleFeature> features = new ArrayList<>();
+        int total = ColumnarEntry.BATCH_SIZE + 1000;
+        for (int i = 0; i < total; i++) {
+            fb.add(gf.createPoint(new Coordinate(i % 1000, i / 1000)));
+            fb.add(i % 3 == 0 ? null : "name" + (i % 10));
+            fb.add(i / 2d);
+            fb.add(i);
+            fb.add(new Date(i * 1000L));
+            features.add(fb.buildFeature("points." + i));
+        }
+        // add in two steps, the second fills the first batch
+        data.addFeatures(features.subList(0, 1000));
+        data.addFeatures(features.subList(1000, total));
+        ColumnarEntry entry = (ColumnarEntry) data.getEntry(type.getName());
+        assertEquals(2, entry.getBatches().length);
+        assertEquals(ColumnarEntry.BATCH_SIZE, entry.getBatches()[0].size());
+
+        SimpleFeatureSource points = data.getFeatureSource("points");
+        assertEquals(total, points.getCount(Query.ALL));
+
+        Filter filter =
+                ff.and(
+                        ff.bbox("geom", 10, 10, 20, 66, null),
+                        ff.equals(ff.property("name"), ff.literal("name1")));
+        Map<String, SimpleFeature> expected = new HashMap<>();
+        for (SimpleFeature f : features) {
+            if (filter.evaluate(f)) {
+                expected.put(f.getID(), f);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        int count = 0;
+        try (SimpleFeatureIterator it = points.getFeatures(filter).features()) {
+            while (it.hasNext()) {
+                SimpleFeature actual = it.next();
+                assertEquals(expected.get(actual.getID()).getAttributes(), actual.getAttributes());
+                count++;
+            }
+        }
+        assertEquals(expected.size(), count);
+    }
+
+    public void testGeometryColumn() throws Exception {
+        WKTReader reader = new WKTReader();
+        Object[] values = {
+            reader.read("POINT (1 2)"),
+            null,
+            reader.read("LINESTRING (0 0 1, 10 10 2)"),
+            reader.read("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (1 1, 2 1, 2 2, 1 1))"),
+            reader.read("MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))"),
+            reader.read("GEOMETRYCOLLECTION (POINT (1 2), LINESTRING (0 0, 1 1))"),
+            reader.read("POLYGON EMPTY")
+        };
+        ((Geometry) values[0]).setSRID(4326);
+        Column column = Column.build(values.clone(), gf);
+        assertTrue(column instanceof GeometryColumn);
+        for (int i = 0; i < values.length; i++) {
+            Geometry expected = (Geometry) values[i];
+            Geometry actual = (Geometry) column.get(i);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                assertTrue(expected.equalsExact(actual));
+                assertEquals(expected.getSRID(), actual.getSRID());
+            }
+        }
+        assertEquals(2, ((Geometry) column.get(2)).getCoordinates()[1].getZ(), 0d);
+        assertFalse(((GeometryColumn) column).hasBounds(6));
+    }
+
+    public void testColumnTypes() throws Exception {
+        assertColumn(Column.IntColumn.class, 1, null, 3);
+        assertColumn(Column.IntColumn.class, (short) 1, (short) 2);
+        assertColumn(Column.LongColumn.class, 1L, 2L);
+        assertColumn(Column.DoubleColumn.class, 1d, null);
+        assertColumn(Column.FloatColumn.class, 1f, 2f);
+        assertColumn(Column.BooleanColumn.class, true, false, null);
+        assertColumn(Column.StringColumn.class, "a", "b", "a", null);
+        assertColumn(Column.DateColumn.class, new java.sql.Date(1000), new java.sql.Date(2000));
+        assertColumn(Column.ObjectColumn.class, 1, 2L);
+        assertColumn(Column.ObjectColumn.class, null, null);
+    }
+
+    private void assertColumn(Class<?> columnClass, Object... values) {
+        Column column = Column.build(values.clone(), gf);
+        assertEquals(columnClass, column.getClass());
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], column.get(i));
+            if (values[i] != null) {
+                assertEquals(values[i].getClass(), column.get(i).getClass());
+            }
+        }
+    }
+
+    public void testSpatialIndex() throws Exception {
+        int count = 1000;
+        int[] items = new int[count];
+        double[] bounds = new double[count * 4];
+        for (int i = 0; i < count; i++) {
+            items[i] = i;
+            double x = (i * 37) % 100;
+            double y = (i * 53) % 100;
+            bounds[i * 4] = x;
+            bounds[i * 4 + 1] = y;
+            bounds[i * 4 + 2] = x + 2;
+            bounds[i * 4 + 3] = y + 2;
+        }
+        PackedSTRIndex index = new PackedSTRIndex(items, bounds, count);
+        Envelope search = new Envelope(20, 30, 40, 45);
+        List<Integer> found = new ArrayList<>();
+        index.query(search, found::add);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Envelope e =
+                    new Envelope(
+                            bounds[i * 4], bounds[i * 4 + 2], bounds[i * 4 + 1], bounds[i * 4 + 3]);
+            if (e.intersects(search)) {
+                expected.add(i);
+            }
+        }
+        found.sort(null);
+        assertEquals(expected, found);
+    }
+
+    private void assertSameFeatures(SimpleFeature[] expected, SimpleFeatureCollection actual) {
+        try (SimpleFeatureIterator it = actual.features()) {
+            for (SimpleFeature feature : expected) {
+                assertTrue(it.hasNext());
+                SimpleFeature f = it.next();
+                assertEquals(feature.getID(), f.getID());
+                for (int i = 0; i < feature.getAttributeCount(); i++) {
+                    Object value = feature.getAttribute(i);
+                    if (value instanceof Geometry) {
+                        assertTrue(((Geometry) value).equalsExact((Geometry) f.getAttribute(i)));
+                    } else {
+                        assertEquals(value, f.getAttribute(i));
+                    }
+                }
+            }
+            assertFalse(it.hasNext());
+        }
+    }
+}
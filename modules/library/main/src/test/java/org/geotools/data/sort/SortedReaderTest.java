@@ -3,10 +3,13 @@ package org.geotools.data.sort;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.NoSuchElementException;
+import org.geotools.data.DataUtilities;
 import org.geotools.data.simple.DelegateSimpleFeatureReader;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureReader;
@@ -168,8 +171,9 @@ public class SortedReaderTest {
         // make it so that we are going to hit the disk
         SimpleFeatureReader sr = null;
         try {
+            // more runs than can be merged at once
             sr = new SortedFeatureReader(fr, peopleAsc, 5);
-            assertSortedOnPeopleAsc(sr);
+            assertEquals(fc.size(), assertSortedOnPeopleAsc(sr));
         } finally {
             if (sr != null) {
                 sr.close();
@@ -177,6 +181,95 @@ public class SortedReaderTest {
         }
     }
 
+    @Test
+    public void testFileSortMemoryBudget() throws IOException {
+        // a budget small enough to hit the disk several times
+        SimpleFeatureReader sr = null;
+        try {
+            sr = MergeSortDumper.getDelegateReader(fr, peopleAsc, Integer.MAX_VALUE, 20000);
+            assertTrue(sr instanceof MergeSortReader);
+            assertEquals(fc.size(), assertSortedOnPeopleAsc(sr));
+        } finally {
+            if (sr != null) {
+                sr.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFileSortRoundTrip() throws Exception {
+        SimpleFeatureType type =
+                DataUtilities.createType(
+                        "test", "id:Integer,name:String,ts:java.sql.Timestamp,geom:LineString");
+        char[] chars = new char[70000];
+        Arrays.fill(chars, '\u00e8');
+        String longName = new String(chars);
+        java.sql.Timestamp ts = new java.sql.Timestamp(1000);
+        ts.setNanos(123456789);
+        SimpleFeature[] features = new SimpleFeature[10];
+        for (int i = 0; i < features.length; i++) {
+            features[i] =
+                    DataUtilities.createFeature(
+                            type, "f." + i + "=" + (9 - i) + "|||LINESTRING(0 0 1, 1 1 2)");
+            features[i].setAttribute("name", longName);
+            features[i].setAttribute("ts", ts);
+        }
+        SortBy[] idAsc = {ff.sort("id", SortOrder.ASCENDING)};
+        try (SimpleFeatureReader sr =
+                new SortedFeatureReader(
+                        new DelegateSimpleFeatureReader(
+                                type, DataUtilities.collection(features).features()),
+                        idAsc,
+                        2)) {
+            for (int i = 0; i < features.length; i++) {
+                SimpleFeature f = sr.next();
+                assertEquals(i, f.getAttribute("id"));
+                assertEquals("f." + (9 - i), f.getID());
+                assertEquals(longName, f.getAttribute("name"));
+                assertEquals(ts, f.getAttribute("ts"));
+                LineString line = (LineString) f.getAttribute("geom");
+                assertEquals(2, line.getCoordinateN(1).getZ(), 0d);
+            }
+            assertFalse(sr.hasNext());
+        }
+    }
+
+    @Test
+    public void testSortNotSerializable() throws Exception {
+        SimpleFeatureType type =
+                DataUtilities.createType("test", "id:Integer,value:java.lang.Object");
+        SimpleFeature[] features = new SimpleFeature[10];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = DataUtilities.createFeature(type, "f." + i + "=" + (9 - i) + "|");
+            features[i].setAttribute("value", new Object());
+        }
+        SortBy[] idAsc = {ff.sort("id", SortOrder.ASCENDING)};
+        assertTrue(SortedFeatureReader.canSort(type, idAsc));
+        // cannot be written to disk, sorted in memory within the limit
+        try (SimpleFeatureReader sr =
+                new SortedFeatureReader(
+                        new DelegateSimpleFeatureReader(
+                                type, DataUtilities.collection(features).features()),
+                        idAsc,
+                        features.length)) {
+            for (int i = 0; i < features.length; i++) {
+                assertEquals(i, sr.next().getAttribute("id"));
+            }
+            assertFalse(sr.hasNext());
+        }
+        // and rejected past it
+        try (SimpleFeatureReader sr =
+                new SortedFeatureReader(
+                        new DelegateSimpleFeatureReader(
+                                type, DataUtilities.collection(features).features()),
+                        idAsc,
+                        2)) {
+            fail("Should have failed, the features exceed the limit and cannot be spilled");
+        } catch (IOException e) {
+            // fine
+        }
+    }
+
     @Test
     public void testIteratorSortReduce() throws IOException {
         // make it so that we are not going to hit the disk
@@ -263,9 +356,10 @@ public class SortedReaderTest {
         }
     }
 
-    private void assertSortedOnPeopleAsc(SimpleFeatureReader fr)
+    private int assertSortedOnPeopleAsc(SimpleFeatureReader fr)
             throws IllegalArgumentException, NoSuchElementException, IOException {
         double prev = -1;
+        int count = 0;
         while (fr.hasNext()) {
             SimpleFeature f = fr.next();
             int curr = (Integer) f.getAttribute("PERSONS");
@@ -273,7 +367,9 @@ public class SortedReaderTest {
                 assertTrue(curr >= prev);
             }
             prev = curr;
+            count++;
         }
+        return count;
     }
 
     private void assertSortedOnDateAsc(SimpleFeatureReader fr)
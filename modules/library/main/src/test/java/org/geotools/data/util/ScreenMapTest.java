@@ -16,7 +16,10 @@
  */
 package org.geotools.data.util;
 
+import java.awt.geom.AffineTransform;
 import junit.framework.TestCase;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.locationtech.jts.geom.Envelope;
 
 public class ScreenMapTest extends TestCase {
     private int xmin;
@@ -150,4 +153,72 @@ public class ScreenMapTest extends TestCase {
         assertTrue(map.checkAndSet(0, 0));
         assertTrue(map.get(0, 0));
     }
+
+    public void testSubPixelCells() throws Exception {
+        ScreenMap map = new ScreenMap(0, 0, 10, 10, new AffineTransform2D(new AffineTransform()));
+        map.setSpans(1, 1);
+        map.setCellSize(0.5);
+
+        // same pixel, different sub-pixel cells
+        assertFalse(map.checkAndSet(new Envelope(2.1, 2.1, 3.1, 3.1)));
+        assertFalse(map.checkAndSet(new Envelope(2.6, 2.6, 3.1, 3.1)));
+        assertTrue(map.checkAndSet(new Envelope(2.7, 2.7, 3.2, 3.2)));
+        assertTrue(map.get(2.2, 3.2, 2.2, 3.2));
+        assertFalse(map.get(2.2, 3.7, 2.2, 3.7));
+        // larger than the spans, cannot be skipped
+        assertFalse(map.get(2, 3, 3.5, 3.5));
+
+        // outside
+        assertFalse(map.get(-0.1, 1, -0.1, 1));
+        assertFalse(map.checkAndSet(10.1, 1, 10.1, 1));
+    }
+
+    public void testCoarseCells() throws Exception {
+        ScreenMap map = new ScreenMap(0, 0, 10, 10, new AffineTransform2D(new AffineTransform()));
+        map.setSpans(3, 3);
+        map.setCellSize(3);
+
+        assertFalse(map.checkAndSet(1, 1));
+        assertTrue(map.checkAndSet(2, 0));
+        assertTrue(map.get(0, 2));
+        assertFalse(map.get(3, 3));
+        // the last, partial cell
+        assertFalse(map.checkAndSet(9, 9));
+        assertTrue(map.checkAndSet(9.9, 9.9, 9.9, 9.9));
+    }
+
+    public void testReleaseAndReuse() throws Exception {
+        ScreenMap map = new ScreenMap(0, 0, 100, 100);
+        long[] pixels = map.pixels;
+        setOneAndRelease(map);
+        // released maps cannot be used anymore
+        try {
+            map.get(50, 50);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // fine
+        }
+        try {
+            map.checkAndSet(50, 50);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // fine
+        }
+
+        ScreenMap reused = new ScreenMap(0, 0, 100, 100);
+        assertSame(pixels, reused.pixels);
+        // and it has been cleared
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 100; y++) {
+                assertFalse(reused.get(x, y));
+            }
+        }
+        reused.release();
+    }
+
+    private void setOneAndRelease(ScreenMap map) {
+        map.set(10, 10, true);
+        assertTrue(map.get(10, 10));
+        map.release();
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class MultiAggregateVisitorTest {
+
+    SimpleFeatureType featureType;
+
+    ListFeatureCollection featureCollection;
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureTypeBuilder ftb = new SimpleFeatureTypeBuilder();
+        ftb.setName("test");
+        ftb.add("val", Double.class);
+        featureType = ftb.buildFeatureType();
+        featureCollection = new ListFeatureCollection(featureType);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(featureType);
+        double[] values = {-2.5, 0, 1, 15.5};
+        for (int i = 0; i < values.length; i++) {
+            featureCollection.add(fb.buildFeature("f" + i, new Object[] {values[i]}));
+        }
+    }
+
+    @Test
+    public void testSingleScan() throws Exception {
+        MinVisitor min = new MinVisitor(0, featureType);
+        MaxVisitor max = new MaxVisitor(0, featureType);
+        CountVisitor count = new CountVisitor();
+        AverageVisitor avg = new AverageVisitor(0, featureType);
+        MultiAggregateVisitor visitor = new MultiAggregateVisitor(min, max, count, avg);
+        featureCollection.accepts(visitor, null);
+
+        assertEquals(-2.5, min.getResult().toDouble(), 0d);
+        assertEquals(15.5, max.getResult().toDouble(), 0d);
+        assertEquals(4, count.getResult().toInt());
+        assertEquals(3.5, avg.getResult().toDouble(), 0d);
+        assertEquals(Arrays.asList(-2.5, 15.5, 4, 3.5), visitor.getResult().getValue());
+    }
+
+    @Test
+    public void testComputedSkipped() throws Exception {
+        MinVisitor min = new MinVisitor(0, featureType);
+        CountVisitor count = new CountVisitor();
+        MultiAggregateVisitor visitor = new MultiAggregateVisitor(min, count);
+        // as if the store computed it
+        count.setValue(10);
+        visitor.setComputed(count);
+        assertTrue(visitor.isComputed(count));
+        assertFalse(visitor.isComputed(min));
+        assertEquals(Arrays.asList(min), visitor.getPendingVisitors());
+
+        featureCollection.accepts(visitor, null);
+        assertEquals(-2.5, min.getResult().toDouble(), 0d);
+        assertEquals(10, count.getResult().toInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testComputedNotChild() throws Exception {
+        MultiAggregateVisitor visitor = new MultiAggregateVisitor(new CountVisitor());
+        visitor.setComputed(new CountVisitor());
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        MinVisitor min1 = new MinVisitor(0, featureType);
+        CountVisitor count1 = new CountVisitor();
+        MultiAggregateVisitor visitor1 = new MultiAggregateVisitor(min1, count1);
+        featureCollection.accepts(visitor1, null);
+
+        MinVisitor min2 = new MinVisitor(0, featureType);
+        CountVisitor count2 = new CountVisitor();
+        MultiAggregateVisitor visitor2 = new MultiAggregateVisitor(min2, count2);
+        min2.setValue(-10d);
+        count2.setValue(3);
+
+        CalcResult merged = visitor1.getResult().merge(visitor2.getResult());
+        List values = (List) merged.getValue();
+        assertEquals(-10d, ((Number) values.get(0)).doubleValue(), 0d);
+        assertEquals(7, ((Number) values.get(1)).intValue());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geometry.jts;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+
+public class ArrayWKBReaderTest {
+
+    static final String[] WKTS = {
+        "POINT (1 2)",
+        "LINESTRING (0 0, 10 10, 20 0)",
+        "POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (1 1, 2 1, 2 2, 1 1))",
+        "MULTIPOINT ((1 1), (2 2))",
+        "MULTILINESTRING ((0 0, 1 1), (2 2, 3 3))",
+        "MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))",
+        "GEOMETRYCOLLECTION (POINT (1 2), LINESTRING (0 0, 1 1))",
+        "LINESTRING EMPTY",
+        "POLYGON EMPTY"
+    };
+
+    @Test
+    public void testReadAllTypes() throws Exception {
+        WKTReader wktReader = new WKTReader();
+        ArrayWKBReader reader = new ArrayWKBReader(new GeometryFactory());
+        for (int order : new int[] {ByteOrderValues.BIG_ENDIAN, ByteOrderValues.LITTLE_ENDIAN}) {
+            for (String wkt : WKTS) {
+                Geometry expected = wktReader.read(wkt);
+                byte[] wkb = new WKBWriter(2, order).write(expected);
+                Geometry actual = reader.read(wkb);
+                assertTrue(wkt, expected.equalsExact(actual));
+            }
+        }
+    }
+
+    @Test
+    public void testLiteSequence() throws Exception {
+        Geometry expected = new WKTReader().read("LINESTRING (0 0, 10 10, 20 0)");
+        byte[] wkb = new WKBWriter().write(expected);
+        GeometryFactory factory = new GeometryFactory(new LiteCoordinateSequenceFactory());
+        LineString ls = (LineString) new ArrayWKBReader(factory).read(wkb);
+        assertTrue(ls.getCoordinateSequence() instanceof LiteCoordinateSequence);
+        assertArrayEquals(
+                new double[] {0, 0, 10, 10, 20, 0},
+                ((LiteCoordinateSequence) ls.getCoordinateSequence()).getArray(),
+                0d);
+    }
+
+    @Test
+    public void testPackedSequence() throws Exception {
+        Geometry expected = new WKTReader().read("LINESTRING (0 0 1, 10 10 2)");
+        byte[] wkb = new WKBWriter(3).write(expected);
+        GeometryFactory factory =
+                new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+        LineString ls = (LineString) new ArrayWKBReader(factory).read(wkb);
+        assertTrue(ls.getCoordinateSequence() instanceof PackedCoordinateSequence.Double);
+        assertEquals(3, ls.getCoordinateSequence().getDimension());
+        assertEquals(2, ls.getCoordinateN(1).getZ(), 0d);
+    }
+
+    @Test
+    public void testOffsetAndSRID() throws Exception {
+        Geometry expected = new WKTReader().read("POINT (1 2)");
+        expected.setSRID(4326);
+        byte[] wkb = new WKBWriter(2, true).write(expected);
+        // a header in front of the geometry
+        byte[] wrapped = new byte[wkb.length + 5];
+        System.arraycopy(wkb, 0, wrapped, 5, wkb.length);
+        Point point = (Point) new ArrayWKBReader(new GeometryFactory()).read(wrapped, 5);
+        assertEquals(4326, point.getSRID());
+        assertEquals(1, point.getX(), 0d);
+        assertEquals(2, point.getY(), 0d);
+    }
+
+    @Test
+    public void testISODimensions() throws Exception {
+        // POINT ZM (1 2 3 4), ISO type 3001, big endian
+        byte[] wkb = new byte[1 + 4 + 4 * 8];
+        ByteBuffer.wrap(wkb)
+                .put((byte) 0)
+                .putInt(3001)
+                .putDouble(1)
+                .putDouble(2)
+                .putDouble(3)
+                .putDouble(4);
+        Point point = (Point) new ArrayWKBReader(new GeometryFactory()).read(wkb);
+        assertEquals(4, point.getCoordinateSequence().getDimension());
+        assertEquals(1, point.getCoordinateSequence().getMeasures());
+        assertEquals(3, point.getCoordinateSequence().getZ(0), 0d);
+        assertEquals(4, point.getCoordinateSequence().getM(0), 0d);
+    }
+
+    @Test
+    public void testEnvelope() throws Exception {
+        Geometry geometry =
+                new WKTReader()
+                        .read("MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 7, 5 5)))");
+        byte[] wkb = new WKBWriter().write(geometry);
+        Envelope envelope = new ArrayWKBReader(new GeometryFactory()).readEnvelope(wkb, 0);
+        assertEquals(geometry.getEnvelopeInternal(), envelope);
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        byte[] wkb = new WKBWriter().write(new WKTReader().read("LINESTRING (0 0, 10 10)"));
+        try {
+            new ArrayWKBReader(new GeometryFactory()).read(Arrays.copyOf(wkb, wkb.length - 4));
+            fail("Should have failed on the truncated geometry");
+        } catch (IOException e) {
+            // fine
+        }
+    }
+
+    @Test
+    public void testCorruptCounts() throws Exception {
+        WKTReader reader = new WKTReader();
+        for (String wkt : new String[] {"LINESTRING (0 0, 10 10)", "MULTIPOINT ((1 1), (2 2))"}) {
+            byte[] wkb = new WKBWriter().write(reader.read(wkt));
+            for (int count : new int[] {-1, Integer.MAX_VALUE, 3}) {
+                // big endian, the count follows the byte order and the type
+                ByteBuffer.wrap(wkb).putInt(5, count);
+                try {
+                    new ArrayWKBReader(new GeometryFactory()).read(wkb);
+                    fail("Should have failed on count " + count + " for " + wkt);
+                } catch (IOException e) {
+                    // fine
+                }
+            }
+        }
+    }
+}
@@ -37,6 +37,7 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.referencing.operation.projection.PolarStereographic;
+import org.geotools.referencing.operation.transform.GridApproximatedTransform;
 import org.geotools.referencing.operation.transform.IdentityTransform;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -379,6 +380,37 @@ public class ProjectionHandlerTest {
         assertEquals(-160.0, reAdded.getMaxX(), EPS);
     }
 
+    @Test
+    public void testApproximatedRenderingTransformUTM() throws Exception {
+        ReferencedEnvelope wgs84Envelope = new ReferencedEnvelope(8, 10, 40, 45, WGS84);
+        ReferencedEnvelope utmEnvelope = wgs84Envelope.transform(UTM32N, true);
+        ProjectionHandler handler = ProjectionHandlerFinder.getHandler(utmEnvelope, WGS84, true);
+
+        // half a meter tolerance
+        MathTransform mt = CRS.findMathTransform(WGS84, UTM32N, true);
+        MathTransform approximated = handler.getApproximatedRenderingTransform(mt, 0.5);
+        assertThat(approximated, instanceOf(GridApproximatedTransform.class));
+        double[] points = new double[200];
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] = 8 + 2 * ((i * 37) % 100) / 100d;
+            points[i + 1] = 40 + 5 * ((i * 53) % 100) / 100d;
+        }
+        double[] exact = new double[points.length];
+        double[] approx = new double[points.length];
+        mt.transform(points, 0, exact, 0, 100);
+        approximated.transform(points, 0, approx, 0, 100);
+        for (int i = 0; i < points.length; i += 2) {
+            double dx = exact[i] - approx[i];
+            double dy = exact[i + 1] - approx[i + 1];
+            assertTrue(Math.sqrt(dx * dx + dy * dy) < 1);
+        }
+
+        // nothing to approximate without reprojection
+        handler = ProjectionHandlerFinder.getHandler(wgs84Envelope, WGS84, true);
+        MathTransform identity = CRS.findMathTransform(WGS84, WGS84);
+        assertTrue(handler.getApproximatedRenderingTransform(identity, 0.5).isIdentity());
+    }
+
     @Test
     public void testValidAreaUTM() throws Exception {
         ReferencedEnvelope wgs84Envelope = new ReferencedEnvelope(8, 10, 40, 45, WGS84);
@@ -619,12 +619,22 @@ public class Hints extends RenderingHints {
     /**
      * Key to control the maximum number of features that will be kept in memory when performing a
      * fallback merge-sort (used when the datastore does not have native means to handle feature
-     * sorting)
+     * sorting). The limit is shared among the batch being read and the runs being written to disk
+     * in parallel, so each of them holds a fraction of it.
      *
      * @since 2.7.3
      */
     public static final Key MAX_MEMORY_SORT = new Key(Integer.class);
 
+    /**
+     * Key to control the maximum amount of memory, in bytes, used to keep features in memory when
+     * performing a fallback merge-sort. Used only if {@link #MAX_MEMORY_SORT} is not set. As for
+     * {@link #MAX_MEMORY_SORT}, the budget is shared among the batches sorted in parallel.
+     *
+     * @since 21
+     */
+    public static final Key MAX_MEMORY_SORT_SIZE = new Key(Long.class);
+
     /**
      * Asks a datastore having a vector pyramid (pre-generalized geometries) to return the geometry
      * version whose points have been generalized less than the specified distance (further
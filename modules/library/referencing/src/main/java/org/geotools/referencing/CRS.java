@@ -173,13 +173,13 @@ public final class CRS {
      * A factory for CRS creation with (<var>latitude</var>, <var>longitude</var>) axis order
      * (unless otherwise specified in system property). Will be created only when first needed.
      */
-    private static CRSAuthorityFactory defaultFactory;
+    private static volatile CRSAuthorityFactory defaultFactory;
 
     /**
      * A factory for CRS creation with (<var>longitude</var>, <var>latitude</var>) axis order. Will
      * be created only when first needed.
      */
-    private static CRSAuthorityFactory xyFactory;
+    private static volatile CRSAuthorityFactory xyFactory;
 
     /** A factory for default (non-lenient) operations. */
     private static volatile CoordinateOperationFactory strictFactory;
@@ -187,6 +187,20 @@ public final class CRS {
     /** A factory for default lenient operations. */
     private static volatile CoordinateOperationFactory lenientFactory;
 
+    /**
+     * System property setting the maximum number of entries in the {@link #getDecodeCache() decode}
+     * and {@link #getTransformCache() transform} caches, zero disables them.
+     */
+    public static final String CACHE_SIZE_KEY = "org.geotools.referencing.crsCacheSize";
+
+    /** The {@link #decode(String, boolean)} results, by code and axis order flag. */
+    private static final ComputeOnceCache<DecodeKey, CoordinateReferenceSystem> DECODE_CACHE =
+            new ComputeOnceCache<>(getCacheSize());
+
+    /** The {@link #findMathTransform} results, by source and target CRS and leniency. */
+    private static final ComputeOnceCache<TransformKey, MathTransform> TRANSFORM_CACHE =
+            new ComputeOnceCache<>(getCacheSize());
+
     /** Registers a listener automatically invoked when the system-wide configuration changed. */
     static {
         GeoTools.addChangeListener(
@@ -198,6 +212,7 @@ public final class CRS {
                             strictFactory = null;
                             lenientFactory = null;
                         }
+                        clearCaches();
                     }
                 });
     }
@@ -205,6 +220,109 @@ public final class CRS {
     /** Do not allow instantiation of this class. */
     private CRS() {}
 
+    /** Key of the {@link #DECODE_CACHE}. */
+    private static final class DecodeKey {
+        final String code;
+
+        final boolean longitudeFirst;
+
+        DecodeKey(final String code, final boolean longitudeFirst) {
+            this.code = code;
+            this.longitudeFirst = longitudeFirst;
+        }
+
+        @Override
+        public int hashCode() {
+            return longitudeFirst ? ~code.hashCode() : code.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (object instanceof DecodeKey) {
+                final DecodeKey that = (DecodeKey) object;
+                return longitudeFirst == that.longitudeFirst && code.equals(that.code);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Key of the {@link #TRANSFORM_CACHE}. The CRS are compared including metadata, like {@link
+     * org.geotools.referencing.operation.BufferedCoordinateOperationFactory} does.
+     */
+    private static final class TransformKey {
+        final CoordinateReferenceSystem sourceCRS, targetCRS;
+
+        final boolean lenient;
+
+        /** The hash code value, computed once for ever at construction time. */
+        private final int hash;
+
+        TransformKey(
+                final CoordinateReferenceSystem sourceCRS,
+                final CoordinateReferenceSystem targetCRS,
+                final boolean lenient) {
+            this.sourceCRS = sourceCRS;
+            this.targetCRS = targetCRS;
+            this.lenient = lenient;
+            final int hash = 37 * sourceCRS.hashCode() + targetCRS.hashCode();
+            this.hash = lenient ? ~hash : hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (object instanceof TransformKey) {
+                final TransformKey that = (TransformKey) object;
+                return lenient == that.lenient
+                        && sourceCRS.equals(that.sourceCRS)
+                        && targetCRS.equals(that.targetCRS);
+            }
+            return false;
+        }
+    }
+
+    /** Returns the maximum size of the caches, from the {@value #CACHE_SIZE_KEY} property. */
+    private static int getCacheSize() {
+        try {
+            return Math.max(0, Integer.getInteger(CACHE_SIZE_KEY, 1000));
+        } catch (SecurityException e) {
+            return 1000;
+        }
+    }
+
+    /** Clears the decode and transform caches. */
+    private static void clearCaches() {
+        DECODE_CACHE.clear();
+        TRANSFORM_CACHE.clear();
+    }
+
+    /**
+     * Returns the cache of the {@link #decode(String, boolean) decode} methods, mostly for
+     * monitoring its hit and miss counts. Concurrent decodes of the same code share a single
+     * creation, and do not go through the authority factory locks once cached.
+     *
+     * @since 21
+     */
+    public static ComputeOnceCache<?, CoordinateReferenceSystem> getDecodeCache() {
+        return DECODE_CACHE;
+    }
+
+    /**
+     * Returns the cache of the {@link #findMathTransform(CoordinateReferenceSystem,
+     * CoordinateReferenceSystem, boolean) findMathTransform} methods, mostly for monitoring its hit
+     * and miss counts.
+     *
+     * @since 21
+     */
+    public static ComputeOnceCache<?, MathTransform> getTransformCache() {
+        return TRANSFORM_CACHE;
+    }
+
     //////////////////////////////////////////////////////////////
     ////                                                      ////
     ////        FACTORIES, CRS CREATION AND INSPECTION        ////
@@ -232,7 +350,19 @@ public final class CRS {
      * @throws FactoryRegistryException if the factory can't be created.
      * @since 2.3
      */
-    public static synchronized CRSAuthorityFactory getAuthorityFactory(final boolean longitudeFirst)
+    public static CRSAuthorityFactory getAuthorityFactory(final boolean longitudeFirst)
+            throws FactoryRegistryException {
+        final CRSAuthorityFactory factory = (longitudeFirst) ? xyFactory : defaultFactory;
+        if (factory != null) {
+            return factory;
+        }
+        synchronized (CRS.class) {
+            return createAuthorityFactory(longitudeFirst);
+        }
+    }
+
+    /** Creates the authority factory if needed, invoked while holding the lock. */
+    private static CRSAuthorityFactory createAuthorityFactory(final boolean longitudeFirst)
             throws FactoryRegistryException {
         CRSAuthorityFactory factory = (longitudeFirst) ? xyFactory : defaultFactory;
         if (factory == null)
@@ -510,7 +640,9 @@ public final class CRS {
         // @deprecated: 'toUpperCase()' is required only for epsg-wkt.
         // Remove after we deleted the epsg-wkt module.
         code = code.trim().toUpperCase();
-        return getAuthorityFactory(longitudeFirst).createCoordinateReferenceSystem(code);
+        return DECODE_CACHE.get(
+                new DecodeKey(code, longitudeFirst),
+                k -> getAuthorityFactory(k.longitudeFirst).createCoordinateReferenceSystem(k.code));
     }
 
     /**
@@ -1252,8 +1384,12 @@ public final class CRS {
             // engine.
             return IdentityTransform.create(sourceCRS.getCoordinateSystem().getDimension());
         }
-        CoordinateOperationFactory operationFactory = getCoordinateOperationFactory(lenient);
-        return operationFactory.createOperation(sourceCRS, targetCRS).getMathTransform();
+        return TRANSFORM_CACHE.get(
+                new TransformKey(sourceCRS, targetCRS, lenient),
+                k ->
+                        getCoordinateOperationFactory(k.lenient)
+                                .createOperation(k.sourceCRS, k.targetCRS)
+                                .getMathTransform());
     }
 
     /**
@@ -2110,6 +2246,7 @@ public final class CRS {
         xyFactory = null;
         strictFactory = null;
         lenientFactory = null;
+        clearCaches();
     }
 
     /**
@@ -0,0 +1,241 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.opengis.referencing.FactoryException;
+
+/**
+ * A bounded cache computing each value at most once, without any global lock. Threads asking for a
+ * value being computed wait for that computation rather than starting their own, threads asking
+ * for other keys are not blocked. Failed computations are not cached.
+ *
+ * <p>When the cache grows past its maximum size, entries which have not been used since the
+ * previous eviction are removed (a "second chance" policy). The number of hits and misses is
+ * tracked for monitoring purposes.
+ *
+ * @param <K> The type of keys.
+ * @param <V> The type of values.
+ * @since 21
+ * @see CRS#getDecodeCache()
+ * @see CRS#getTransformCache()
+ */
+public final class ComputeOnceCache<K, V> {
+
+    /** Computes the value associated to a key. */
+    public interface Loader<K, V> {
+        /** Computes the value for the given key, never {@code null}. */
+        V load(K key) throws FactoryException;
+    }
+
+    /** A value, being computed or done, flagged when used. */
+    private static final class Entry<V> extends FutureTask<V> {
+        /** {@code true} if used since the last eviction. */
+        volatile boolean used = true;
+
+        /** The thread computing the value, {@code null} once done. */
+        volatile Thread runner;
+
+        Entry(Callable<V> callable) {
+            super(callable);
+        }
+
+        @Override
+        public void run() {
+            runner = Thread.currentThread();
+            try {
+                super.run();
+            } finally {
+                runner = null;
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final int maximumSize;
+
+    /** Ensures a single thread evicts at a given time, without blocking the others. */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache holding at most the given number of values. A size of zero disables caching,
+     * values being computed on each call.
+     */
+    public ComputeOnceCache(final int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Negative maximum size: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the value for the given key, computing it with the given loader if not cached. When
+     * many threads ask for the same missing key, only one of them runs the loader.
+     *
+     * @param key The key.
+     * @param loader Computes the value if not cached.
+     * @return The cached or computed value.
+     * @throws FactoryException if the loader failed.
+     */
+    public V get(final K key, final Loader<? super K, ? extends V> loader)
+            throws FactoryException {
+        if (maximumSize == 0) {
+            misses.increment();
+            return loader.load(key);
+        }
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            final Entry<V> created = new Entry<>(() -> loader.load(key));
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                misses.increment();
+                entry = created;
+                entry.run();
+                if (entries.size() > maximumSize) {
+                    evict();
+                }
+            } else {
+                hits.increment();
+            }
+        } else {
+            if (entry.runner == Thread.currentThread()) {
+                // recursive request for the key being computed, waiting would never end
+                misses.increment();
+                return loader.load(key);
+            }
+            hits.increment();
+        }
+        entry.used = true;
+        return getValue(key, entry);
+    }
+
+    /** Waits for the value of the given entry, removing the entry if the computation failed. */
+    private V getValue(final K key, final Entry<V> entry) throws FactoryException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return entry.get();
+                } catch (InterruptedException e) {
+                    // the computation is shared, keep waiting and restore the flag afterwards
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    entries.remove(key, entry);
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof FactoryException) {
+                        throw (FactoryException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new FactoryException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Removes the completed entries not used since the previous eviction, until the size is back
+     * to the maximum. Does nothing if another thread is already evicting.
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // two passes at most, the first one may only clear the flags
+            for (int pass = 0; pass < 2 && entries.size() > maximumSize; pass++) {
+                final Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+                while (it.hasNext() && entries.size() > maximumSize) {
+                    final Entry<V> entry = it.next().getValue();
+                    if (!entry.isDone()) {
+                        continue;
+                    }
+                    if (entry.used) {
+                        entry.used = false;
+                    } else {
+                        it.remove();
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /** Removes all the cached values. Computations in progress are not affected. */
+    public void clear() {
+        entries.clear();
+    }
+
+    /** Returns the number of cached values, including the ones being computed. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Returns the maximum number of cached values. */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /** Returns the number of requests served by a cached or in-flight value. */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** Returns the number of requests which computed a value. */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** Resets the hit and miss counts. */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "[size="
+                + size()
+                + ", maximumSize="
+                + maximumSize
+                + ", hits="
+                + getHitCount()
+                + ", misses="
+                + getMissCount()
+                + "]";
+    }
+}
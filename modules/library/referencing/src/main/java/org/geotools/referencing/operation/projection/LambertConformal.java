@@ -266,6 +266,88 @@ public abstract class LambertConformal extends MapProjection {
         return new Point2D.Double(x, y);
     }
 
+    /** Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates. */
+    @Override
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException {
+        ProjectionException firstException = null;
+        final int upper = offset + 2 * numPts;
+        for (int i = offset; i < upper; i += 2) {
+            double x = pts[i];
+            final double y = pts[i + 1];
+            final double rho;
+            if (abs(abs(y) - PI / 2) < EPSILON) {
+                if (y * n <= 0) {
+                    pts[i] = Double.NaN;
+                    pts[i + 1] = Double.NaN;
+                    if (firstException == null) {
+                        firstException = new ProjectionException(y);
+                    }
+                    continue;
+                }
+                rho = 0;
+            } else if (isSpherical) {
+                rho = F * pow(tan(PI / 4 + 0.5 * y), -n);
+            } else {
+                rho = F * pow(tsfn(y, sin(y)), n);
+            }
+            x *= n;
+            if (belgium) {
+                x -= BELGE_A;
+            }
+            pts[i] = rho * sin(x);
+            pts[i + 1] = rho0 - rho * cos(x);
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /** Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates. */
+    @Override
+    protected void inverseTransformNormalized(
+            final double[] pts, final int offset, final int numPts) throws ProjectionException {
+        ProjectionException firstException = null;
+        final int upper = offset + 2 * numPts;
+        for (int i = offset; i < upper; i += 2) {
+            double x = pts[i];
+            double y = rho0 - pts[i + 1];
+            double rho = hypot(x, y);
+            if (rho > EPSILON) {
+                if (n < 0) {
+                    rho = -rho;
+                    x = -x;
+                    y = -y;
+                }
+                double theta = atan2(x, y);
+                if (belgium) {
+                    theta += BELGE_A;
+                }
+                x = theta / n;
+                if (isSpherical) {
+                    y = 2.0 * atan(pow(F / rho, 1.0 / n)) - PI / 2;
+                } else {
+                    try {
+                        y = cphi2(pow(rho / F, 1.0 / n));
+                    } catch (ProjectionException exception) {
+                        x = y = Double.NaN;
+                        if (firstException == null) {
+                            firstException = exception;
+                        }
+                    }
+                }
+            } else {
+                x = 0.0;
+                y = n < 0 ? -(PI / 2) : (PI / 2);
+            }
+            pts[i] = x;
+            pts[i + 1] = y;
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /** Returns a hash value for this projection. */
     @Override
     public int hashCode() {
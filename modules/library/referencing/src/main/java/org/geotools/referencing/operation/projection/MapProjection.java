@@ -717,6 +717,33 @@ public abstract class MapProjection extends AbstractMathTransform
         return true;
     }
 
+    /**
+     * Checks the reciprocal of every point of an array, see {@link #checkReciprocal(Point2D,
+     * Point2D, boolean)}. The points that could not be transformed are skipped. This method is used
+     * for assertions.
+     */
+    private boolean checkReciprocal(
+            final double[] points,
+            int offset,
+            final double[] targets,
+            int targetOffset,
+            int numPts,
+            final boolean inverse)
+            throws ProjectionException {
+        final Point2D.Double point = new Point2D.Double();
+        final Point2D.Double target = new Point2D.Double();
+        while (--numPts >= 0) {
+            point.x = points[offset++];
+            point.y = points[offset++];
+            target.x = targets[targetOffset++];
+            target.y = targets[targetOffset++];
+            if (!Double.isNaN(point.x) || !Double.isNaN(point.y)) {
+                checkReciprocal(point, target, inverse);
+            }
+        }
+        return true;
+    }
+
     /**
      * Checks if transform using spherical formulas produces the same result than ellipsoidal
      * formulas. This method is invoked during assertions only.
@@ -855,6 +882,121 @@ public abstract class MapProjection extends AbstractMathTransform
     protected abstract Point2D transformNormalized(double lambda, double phi, final Point2D ptDst)
             throws ProjectionException;
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates (units in
+     * radians) into linear distances on a unit sphere. This is the bulk counterpart of {@link
+     * #transformNormalized(double, double, Point2D)}, invoked by {@link #transform(double[], int,
+     * double[], int, int)} once the whole array has been normalized.
+     *
+     * <p>The default implementation invokes the scalar method for each point. Subclasses can
+     * override it with a loop working directly on the array, saving a virtual call and a {@link
+     * Point2D} round trip per point. The override is used only by the class declaring it, so that
+     * subclasses overriding the scalar formulas alone (for example the spherical cases) keep on
+     * using their own formulas.
+     *
+     * @param pts The coordinates to transform in place.
+     * @param offset The index of the first ordinate.
+     * @param numPts The number of points.
+     * @throws ProjectionException if a point can't be transformed. Every point is transformed
+     *     anyway, the ones that can't be transformed are set to {@link Double#NaN}.
+     * @since 21
+     */
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException {
+        transformPointwise(pts, offset, numPts, false);
+    }
+
+    /**
+     * Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates (linear distances on
+     * a unit sphere) into (<var>&lambda;</var>,<var>&phi;</var>) coordinates in radians. This is
+     * the bulk counterpart of {@link #inverseTransformNormalized(double, double, Point2D)}, with
+     * the same contract as {@link #transformNormalized(double[], int, int)}.
+     *
+     * @param pts The coordinates to transform in place.
+     * @param offset The index of the first ordinate.
+     * @param numPts The number of points.
+     * @throws ProjectionException if a point can't be transformed. Every point is transformed
+     *     anyway, the ones that can't be transformed are set to {@link Double#NaN}.
+     * @since 21
+     */
+    protected void inverseTransformNormalized(
+            final double[] pts, final int offset, final int numPts) throws ProjectionException {
+        transformPointwise(pts, offset, numPts, true);
+    }
+
+    /**
+     * Transforms in place an array of normalized coordinates invoking the scalar formulas for each
+     * point.
+     */
+    private void transformPointwise(
+            final double[] pts, final int offset, final int numPts, final boolean inverse)
+            throws ProjectionException {
+        final Point2D.Double point = new Point2D.Double();
+        ProjectionException firstException = null;
+        final int upper = offset + 2 * numPts;
+        for (int i = offset; i < upper; i += 2) {
+            try {
+                final Point2D result =
+                        inverse
+                                ? inverseTransformNormalized(pts[i], pts[i + 1], point)
+                                : transformNormalized(pts[i], pts[i + 1], point);
+                pts[i] = result.getX();
+                pts[i + 1] = result.getY();
+            } catch (ProjectionException exception) {
+                pts[i] = Double.NaN;
+                pts[i + 1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * Tells, for each projection class, if the bulk formulas can be used for the direct and the
+     * inverse transform. They can't when a subclass overrides the scalar formulas without
+     * overriding the bulk ones.
+     */
+    private static final ClassValue<boolean[]> BULK_FORMULAS =
+            new ClassValue<boolean[]>() {
+                @Override
+                protected boolean[] computeValue(Class<?> type) {
+                    return new boolean[] {
+                        isBulkConsistent(type, "transformNormalized"),
+                        isBulkConsistent(type, "inverseTransformNormalized")
+                    };
+                }
+            };
+
+    /**
+     * Returns {@code true} if the bulk method with the given name is declared by the same class
+     * than the scalar one, or not overridden at all.
+     */
+    private static boolean isBulkConsistent(final Class<?> type, final String name) {
+        final Class<?> bulk = getDeclaringClass(type, name, double[].class, int.class, int.class);
+        return bulk == MapProjection.class
+                || bulk == getDeclaringClass(type, name, double.class, double.class, Point2D.class);
+    }
+
+    /** Returns the first class in the hierarchy of {@code type} declaring the given method. */
+    private static Class<?> getDeclaringClass(
+            Class<?> type, final String name, final Class<?>... parameterTypes) {
+        for (; type != null; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod(name, parameterTypes);
+                return type;
+            } catch (NoSuchMethodException e) {
+                // not declared here, check the super class
+            } catch (SecurityException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
     /**
      * Transforms the specified {@code ptSrc} and stores the result in {@code ptDst}.
      *
@@ -920,37 +1062,47 @@ public abstract class MapProjection extends AbstractMathTransform
     public final void transform(
             final double[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts)
             throws ProjectionException {
+        if (numPts <= 0) {
+            return;
+        }
         /*
-         * Vérifie s'il faudra parcourir le tableau en sens inverse.
-         * Ce sera le cas si les tableaux source et destination se
-         * chevauchent et que la destination est après la source.
+         * Works in place on the destination array: normalizes all the points, applies the
+         * projection formulas on the whole array, then applies the scale and false origin.
+         * The copy takes care of overlapping source and destination.
          */
-        final boolean reverse =
-                (srcPts == dstPts && srcOff < dstOff && srcOff + (2 * numPts) > dstOff);
-        if (reverse) {
-            srcOff += 2 * numPts;
-            dstOff += 2 * numPts;
+        System.arraycopy(srcPts, srcOff, dstPts, dstOff, 2 * numPts);
+        final int upper = dstOff + 2 * numPts;
+        boolean verify = verifyCoordinateRanges();
+        for (int i = dstOff; i < upper; i += 2) {
+            final double x = dstPts[i];
+            final double y = dstPts[i + 1];
+            if (verify && verifyGeographicRanges(this, x, y)) {
+                warningLogged();
+                verify = false;
+            }
+            // See transform(Point2D, Point2D) about the longitude rolling
+            dstPts[i] =
+                    centralMeridian != 0
+                            ? rollLongitude(toRadians(x) - centralMeridian)
+                            : toRadians(x);
+            dstPts[i + 1] = toRadians(y);
         }
-        final Point2D.Double point = new Point2D.Double();
         ProjectionException firstException = null;
-        while (--numPts >= 0) {
-            try {
-                point.x = srcPts[srcOff++];
-                point.y = srcPts[srcOff++];
-                transform(point, point);
-                dstPts[dstOff++] = point.x;
-                dstPts[dstOff++] = point.y;
-            } catch (ProjectionException exception) {
-                dstPts[dstOff++] = Double.NaN;
-                dstPts[dstOff++] = Double.NaN;
-                if (firstException == null) {
-                    firstException = exception;
-                }
-            }
-            if (reverse) {
-                srcOff -= 4;
-                dstOff -= 4;
+        try {
+            if (BULK_FORMULAS.get(getClass())[0]) {
+                transformNormalized(dstPts, dstOff, numPts);
+            } else {
+                transformPointwise(dstPts, dstOff, numPts, false);
             }
+        } catch (ProjectionException exception) {
+            firstException = exception;
+        }
+        for (int i = dstOff; i < upper; i += 2) {
+            dstPts[i] = globalScale * dstPts[i] + falseEasting;
+            dstPts[i + 1] = globalScale * dstPts[i + 1] + falseNorthing;
+        }
+        if (invertible && srcPts != dstPts) {
+            assert checkReciprocal(dstPts, dstOff, srcPts, srcOff, numPts, true);
         }
         if (firstException != null) {
             throw firstException;
@@ -1086,38 +1238,44 @@ public abstract class MapProjection extends AbstractMathTransform
         public final void transform(
                 final double[] src, int srcOffset, final double[] dest, int dstOffset, int numPts)
                 throws TransformException {
-            /*
-             * Vérifie s'il faudra parcourir le tableau en sens inverse.
-             * Ce sera le cas si les tableaux source et destination se
-             * chevauchent et que la destination est après la source.
-             */
-            final boolean reverse =
-                    (src == dest && srcOffset < dstOffset && srcOffset + (2 * numPts) > dstOffset);
-            if (reverse) {
-                srcOffset += 2 * numPts;
-                dstOffset += 2 * numPts;
+            if (numPts <= 0) {
+                return;
+            }
+            System.arraycopy(src, srcOffset, dest, dstOffset, 2 * numPts);
+            final int upper = dstOffset + 2 * numPts;
+            for (int i = dstOffset; i < upper; i += 2) {
+                dest[i] = (dest[i] - falseEasting) / globalScale;
+                dest[i + 1] = (dest[i + 1] - falseNorthing) / globalScale;
             }
-            final Point2D.Double point = new Point2D.Double();
             ProjectionException firstException = null;
-            while (--numPts >= 0) {
-                try {
-                    point.x = src[srcOffset++];
-                    point.y = src[srcOffset++];
-                    transform(point, point);
-                    dest[dstOffset++] = point.x;
-                    dest[dstOffset++] = point.y;
-                } catch (ProjectionException exception) {
-                    dest[dstOffset++] = Double.NaN;
-                    dest[dstOffset++] = Double.NaN;
-                    if (firstException == null) {
-                        firstException = exception;
-                    }
+            try {
+                if (BULK_FORMULAS.get(MapProjection.this.getClass())[1]) {
+                    inverseTransformNormalized(dest, dstOffset, numPts);
+                } else {
+                    transformPointwise(dest, dstOffset, numPts, true);
                 }
-                if (reverse) {
-                    srcOffset -= 4;
-                    dstOffset -= 4;
+            } catch (ProjectionException exception) {
+                firstException = exception;
+            }
+            boolean verify = verifyCoordinateRanges();
+            for (int i = dstOffset; i < upper; i += 2) {
+                // See transform(Point2D, Point2D) about the longitude rolling
+                final double x =
+                        toDegrees(
+                                centralMeridian != 0
+                                        ? rollLongitude(dest[i] + centralMeridian)
+                                        : dest[i]);
+                final double y = toDegrees(dest[i + 1]);
+                dest[i] = x;
+                dest[i + 1] = y;
+                if (verify && verifyGeographicRanges(this, x, y)) {
+                    warningLogged();
+                    verify = false;
                 }
             }
+            if (src != dest) {
+                assert checkReciprocal(dest, dstOffset, src, srcOffset, numPts, false);
+            }
             if (firstException != null) {
                 throw firstException;
             }
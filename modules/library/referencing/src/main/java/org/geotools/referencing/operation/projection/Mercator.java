@@ -163,6 +163,51 @@ public abstract class Mercator extends MapProjection {
         return new Point2D.Double(x, y);
     }
 
+    /** Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates. */
+    @Override
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException {
+        ProjectionException firstException = null;
+        final int upper = offset + 2 * numPts;
+        for (int i = offset + 1; i < upper; i += 2) {
+            final double y = pts[i];
+            if (abs(y) > (PI / 2 - EPSILON)) {
+                pts[i - 1] = Double.NaN;
+                pts[i] = Double.NaN;
+                if (firstException == null) {
+                    firstException = new ProjectionException(y);
+                }
+            } else {
+                pts[i] = -log(tsfn(y, sin(y)));
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /** Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates. */
+    @Override
+    protected void inverseTransformNormalized(
+            final double[] pts, final int offset, final int numPts) throws ProjectionException {
+        ProjectionException firstException = null;
+        final int upper = offset + 2 * numPts;
+        for (int i = offset + 1; i < upper; i += 2) {
+            try {
+                pts[i] = cphi2(exp(-pts[i]));
+            } catch (ProjectionException exception) {
+                pts[i - 1] = Double.NaN;
+                pts[i] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
     /**
      * Provides the transform equations for the spherical case of the Mercator projection.
      *
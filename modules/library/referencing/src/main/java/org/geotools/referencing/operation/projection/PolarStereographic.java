@@ -199,30 +199,81 @@ public class PolarStereographic extends Stereographic {
         if (southPole) {
             y = -y;
         }
-        /*
-         * Compute latitude using iterative technique.
-         */
-        final double t = rho / k0;
+        final double phi = latitude(rho / k0);
+        x = (abs(rho) < EPSILON) ? 0.0 : atan2(x, -y);
+        y = (southPole) ? -phi : phi;
+        if (ptDst != null) {
+            ptDst.setLocation(x, y);
+            return ptDst;
+        }
+        return new Point2D.Double(x, y);
+    }
+
+    /** Computes the latitude from the distance to the pole using an iterative technique. */
+    private double latitude(final double t) throws ProjectionException {
         final double halfe = excentricity / 2.0;
         double phi0 = 0;
         for (int i = MAXIMUM_ITERATIONS; ; ) {
             final double esinphi = excentricity * sin(phi0);
             final double phi = (PI / 2) - 2.0 * atan(t * pow((1 - esinphi) / (1 + esinphi), halfe));
             if (abs(phi - phi0) < ITERATION_TOLERANCE) {
-                x = (abs(rho) < EPSILON) ? 0.0 : atan2(x, -y);
-                y = (southPole) ? -phi : phi;
-                break;
+                return phi;
             }
             phi0 = phi;
             if (--i < 0) {
                 throw new ProjectionException(ErrorKeys.NO_CONVERGENCE);
             }
         }
-        if (ptDst != null) {
-            ptDst.setLocation(x, y);
-            return ptDst;
+    }
+
+    /** Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates. */
+    @Override
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException {
+        final int upper = offset + 2 * numPts;
+        for (int i = offset; i < upper; i += 2) {
+            final double x = pts[i];
+            final double y = pts[i + 1];
+            final double sinlat = sin(y);
+            final double coslon = cos(x);
+            final double sinlon = sin(x);
+            if (southPole) {
+                final double rho = k0 * tsfn(-y, -sinlat);
+                pts[i] = rho * sinlon;
+                pts[i + 1] = rho * coslon;
+            } else {
+                final double rho = k0 * tsfn(y, sinlat);
+                pts[i] = rho * sinlon;
+                pts[i + 1] = -rho * coslon;
+            }
+        }
+    }
+
+    /** Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates. */
+    @Override
+    protected void inverseTransformNormalized(
+            final double[] pts, final int offset, final int numPts) throws ProjectionException {
+        ProjectionException firstException = null;
+        final int upper = offset + 2 * numPts;
+        for (int i = offset; i < upper; i += 2) {
+            final double x = pts[i];
+            final double y = southPole ? -pts[i + 1] : pts[i + 1];
+            final double rho = hypot(x, y);
+            try {
+                final double phi = latitude(rho / k0);
+                pts[i] = (abs(rho) < EPSILON) ? 0.0 : atan2(x, -y);
+                pts[i + 1] = (southPole) ? -phi : phi;
+            } catch (ProjectionException exception) {
+                pts[i] = Double.NaN;
+                pts[i + 1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
         }
-        return new Point2D.Double(x, y);
     }
 
     /** {@inheritDoc} */
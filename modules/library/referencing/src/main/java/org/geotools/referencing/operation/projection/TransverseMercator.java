@@ -167,54 +167,8 @@ public class TransverseMercator extends MapProjection {
         double n = esp * cosphi * cosphi;
 
         /* NOTE: meridinal distance at latitudeOfOrigin is always 0 */
-        y =
-                (mlfn(y, sinphi, cosphi)
-                        - ml0
-                        + sinphi
-                                * al
-                                * x
-                                * FC2
-                                * (1.0
-                                        + FC4
-                                                * als
-                                                * (5.0
-                                                        - t
-                                                        + n * (9.0 + 4.0 * n)
-                                                        + FC6
-                                                                * als
-                                                                * (61.0
-                                                                        + t * (t - 58.0)
-                                                                        + n * (270.0 - 330.0 * t)
-                                                                        + FC8
-                                                                                * als
-                                                                                * (1385.0
-                                                                                        + t
-                                                                                                * (t
-                                                                                                                * (543.0
-                                                                                                                        - t)
-                                                                                                        - 3111.0))))));
-
-        x =
-                al
-                        * (FC1
-                                + FC3
-                                        * als
-                                        * (1.0
-                                                - t
-                                                + n
-                                                + FC5
-                                                        * als
-                                                        * (5.0
-                                                                + t * (t - 18.0)
-                                                                + n * (14.0 - 58.0 * t)
-                                                                + FC7
-                                                                        * als
-                                                                        * (61.0
-                                                                                + t
-                                                                                        * (t
-                                                                                                        * (179.0
-                                                                                                                - t)
-                                                                                                - 479.0)))));
+        y = mlfn(y, sinphi, cosphi) - ml0 + sinphi * al * x * FC2 * northingSeries(als, t, n);
+        x = al * eastingSeries(als, t, n);
 
         if (ptDst != null) {
             ptDst.setLocation(x, y);
@@ -245,59 +199,8 @@ public class TransverseMercator extends MapProjection {
             t *= t;
             double ds = d * d;
 
-            y =
-                    phi
-                            - (con * ds / (1.0 - excentricitySquared))
-                                    * FC2
-                                    * (1.0
-                                            - ds
-                                                    * FC4
-                                                    * (5.0
-                                                            + t * (3.0 - 9.0 * n)
-                                                            + n * (1.0 - 4 * n)
-                                                            - ds
-                                                                    * FC6
-                                                                    * (61.0
-                                                                            + t
-                                                                                    * (90.0
-                                                                                            - 252.0
-                                                                                                    * n
-                                                                                            + 45.0
-                                                                                                    * t)
-                                                                            + 46.0 * n
-                                                                            - ds
-                                                                                    * FC8
-                                                                                    * (1385.0
-                                                                                            + t
-                                                                                                    * (3633.0
-                                                                                                            + t
-                                                                                                                    * (4095.0
-                                                                                                                            + 1575.0
-                                                                                                                                    * t))))));
-
-            x =
-                    d
-                            * (FC1
-                                    - ds
-                                            * FC3
-                                            * (1.0
-                                                    + 2.0 * t
-                                                    + n
-                                                    - ds
-                                                            * FC5
-                                                            * (5.0
-                                                                    + t * (28.0 + 24 * t + 8.0 * n)
-                                                                    + 6.0 * n
-                                                                    - ds
-                                                                            * FC7
-                                                                            * (61.0
-                                                                                    + t
-                                                                                            * (662.0
-                                                                                                    + t
-                                                                                                            * (1320.0
-                                                                                                                    + 720.0
-                                                                                                                            * t))))))
-                            / cosphi;
+            y = phi - (con * ds / (1.0 - excentricitySquared)) * FC2 * latitudeSeries(ds, t, n);
+            x = d * longitudeSeries(ds, t, n) / cosphi;
         }
 
         if (ptDst != null) {
@@ -307,6 +210,108 @@ public class TransverseMercator extends MapProjection {
         return new Point2D.Double(x, y);
     }
 
+    /** Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates. */
+    @Override
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException {
+        final int upper = offset + 2 * numPts;
+        for (int i = offset; i < upper; i += 2) {
+            final double x = pts[i];
+            final double y = pts[i + 1];
+            final double sinphi = sin(y);
+            final double cosphi = cos(y);
+            double t = (abs(cosphi) > EPSILON) ? sinphi / cosphi : 0;
+            t *= t;
+            double al = cosphi * x;
+            final double als = al * al;
+            al /= sqrt(1.0 - excentricitySquared * sinphi * sinphi);
+            final double n = esp * cosphi * cosphi;
+            pts[i] = al * eastingSeries(als, t, n);
+            pts[i + 1] =
+                    mlfn(y, sinphi, cosphi)
+                            - ml0
+                            + sinphi * al * x * FC2 * northingSeries(als, t, n);
+        }
+    }
+
+    /** Transforms in place an array of (<var>x</var>,<var>y</var>) coordinates. */
+    @Override
+    protected void inverseTransformNormalized(
+            final double[] pts, final int offset, final int numPts) throws ProjectionException {
+        ProjectionException firstException = null;
+        final int upper = offset + 2 * numPts;
+        for (int i = offset; i < upper; i += 2) {
+            final double x = pts[i];
+            final double y = pts[i + 1];
+            final double phi;
+            try {
+                phi = inv_mlfn(ml0 + y);
+            } catch (ProjectionException exception) {
+                pts[i] = Double.NaN;
+                pts[i + 1] = Double.NaN;
+                if (firstException == null) {
+                    firstException = exception;
+                }
+                continue;
+            }
+            if (abs(phi) >= PI / 2) {
+                pts[i] = 0.0;
+                pts[i + 1] = y < 0.0 ? -(PI / 2) : (PI / 2);
+            } else {
+                final double sinphi = sin(phi);
+                final double cosphi = cos(phi);
+                double t = (abs(cosphi) > EPSILON) ? sinphi / cosphi : 0.0;
+                final double n = esp * cosphi * cosphi;
+                double con = 1.0 - excentricitySquared * sinphi * sinphi;
+                final double d = x * sqrt(con);
+                con *= t;
+                t *= t;
+                final double ds = d * d;
+                pts[i] = d * longitudeSeries(ds, t, n) / cosphi;
+                pts[i + 1] =
+                        phi
+                                - (con * ds / (1.0 - excentricitySquared))
+                                        * FC2
+                                        * latitudeSeries(ds, t, n);
+            }
+        }
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    /** Series expansion of the easting, as a factor of the first term. */
+    private static double eastingSeries(final double als, final double t, final double n) {
+        double s = FC7 * als * (61.0 + t * (t * (179.0 - t) - 479.0));
+        s = FC5 * als * (5.0 + t * (t - 18.0) + n * (14.0 - 58.0 * t) + s);
+        s = FC3 * als * (1.0 - t + n + s);
+        return FC1 + s;
+    }
+
+    /** Series expansion of the northing, as a factor of the second term. */
+    private static double northingSeries(final double als, final double t, final double n) {
+        double s = FC8 * als * (1385.0 + t * (t * (543.0 - t) - 3111.0));
+        s = FC6 * als * (61.0 + t * (t - 58.0) + n * (270.0 - 330.0 * t) + s);
+        s = FC4 * als * (5.0 - t + n * (9.0 + 4.0 * n) + s);
+        return 1.0 + s;
+    }
+
+    /** Series expansion of the inverse longitude, as a factor of the first term. */
+    private static double longitudeSeries(final double ds, final double t, final double n) {
+        double s = ds * FC7 * (61.0 + t * (662.0 + t * (1320.0 + 720.0 * t)));
+        s = ds * FC5 * (5.0 + t * (28.0 + 24 * t + 8.0 * n) + 6.0 * n - s);
+        s = ds * FC3 * (1.0 + 2.0 * t + n - s);
+        return FC1 - s;
+    }
+
+    /** Series expansion of the inverse latitude, as a factor of the second term. */
+    private static double latitudeSeries(final double ds, final double t, final double n) {
+        double s = ds * FC8 * (1385.0 + t * (3633.0 + t * (4095.0 + 1575.0 * t)));
+        s = ds * FC6 * (61.0 + t * (90.0 - 252.0 * n + 45.0 * t) + 46.0 * n - s);
+        s = ds * FC4 * (5.0 + t * (3.0 - 9.0 * n) + n * (1.0 - 4 * n) - s);
+        return 1.0 - s;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected double getToleranceForAssertions(final double longitude, final double latitude) {
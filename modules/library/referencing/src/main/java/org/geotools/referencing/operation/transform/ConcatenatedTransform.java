@@ -59,7 +59,7 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
      * avoid too high values since allocating and initializing the array elements to zero have a
      * cost.
      */
-    private static final int TEMPORARY_ARRAY_LENGTH = 256;
+    static final int TEMPORARY_ARRAY_LENGTH = 256;
 
     /** The first math transform. */
     public final MathTransform transform1;
@@ -74,6 +74,15 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
      */
     private ConcatenatedTransform inverse;
 
+    /**
+     * The steps of this transform flattened and simplified, used for transforming arrays. Computed
+     * when first needed, and {@code null} if the stage by stage execution is as good.
+     */
+    private transient FlattenedTransformChain flattened;
+
+    /** {@code true} once {@link #flattened} has been computed. */
+    private transient volatile boolean flattenedComputed;
+
     /**
      * Constructs a concatenated transform. This constructor is for subclasses only. To create a
      * concatenated transform, use the factory method {@link #create} instead.
@@ -222,7 +231,7 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
      * a single one. If no optimized cases has been found, returns {@code null}. In the later case,
      * the caller will need to create a more heavy {@link ConcatenatedTransform} instance.
      */
-    private static MathTransform createOptimized(final MathTransform tr1, final MathTransform tr2) {
+    static MathTransform createOptimized(final MathTransform tr1, final MathTransform tr2) {
         /*
          * Trivial - but actually essential!! - check for the identity cases.
          */
@@ -385,6 +394,19 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
         return ((ConcatenatedTransform) transform).getStepCount();
     }
 
+    /**
+     * Returns the steps of this transform flattened in a single chain and simplified, or {@code
+     * null} if this transform is better executed stage by stage.
+     */
+    final FlattenedTransformChain getFlattened() {
+        if (!flattenedComputed) {
+            // Concurrent computations are harmless, they give the same result
+            flattened = FlattenedTransformChain.create(this);
+            flattenedComputed = true;
+        }
+        return flattened;
+    }
+
     /** Transforms the specified {@code ptSrc} and stores the result in {@code ptDst}. */
     @Override
     public DirectPosition transform(final DirectPosition ptSrc, final DirectPosition ptDst)
@@ -399,12 +421,18 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
     /**
      * Transforms a list of coordinate point ordinal values. The source points are first transformed
      * by {@link #transform1}, then the intermediate points are transformed by {@link #transform2}.
-     * The transformations are performed without intermediate buffer if it can be avoided.
+     * The transformations are performed without intermediate buffer if it can be avoided. Deep
+     * concatenations are flattened and executed one block of points at a time instead.
      */
     public void transform(
             final double[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts)
             throws TransformException {
         assert isValid();
+        final FlattenedTransformChain chain = getFlattened();
+        if (chain != null) {
+            chain.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+            return;
+        }
         final int intermDim = transform1.getTargetDimensions();
         final int targetDim = getTargetDimensions();
         /*
@@ -457,6 +485,11 @@ public class ConcatenatedTransform extends AbstractMathTransform implements Seri
             final float[] srcPts, int srcOff, final float[] dstPts, int dstOff, int numPts)
             throws TransformException {
         assert isValid();
+        final FlattenedTransformChain chain = getFlattened();
+        if (chain != null) {
+            chain.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+            return;
+        }
         if (numPts <= 0) {
             return;
         }
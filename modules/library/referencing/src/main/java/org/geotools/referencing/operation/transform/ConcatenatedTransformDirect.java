@@ -66,6 +66,11 @@ class ConcatenatedTransformDirect extends ConcatenatedTransform {
             final int numPts)
             throws TransformException {
         assert isValid();
+        final FlattenedTransformChain chain = getFlattened();
+        if (chain != null) {
+            chain.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+            return;
+        }
         transform1.transform(srcPts, srcOff, dstPts, dstOff, numPts);
         transform2.transform(dstPts, dstOff, dstPts, dstOff, numPts);
     }
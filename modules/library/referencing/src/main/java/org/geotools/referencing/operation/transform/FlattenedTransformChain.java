@@ -0,0 +1,232 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.transform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.geotools.referencing.operation.LinearTransform;
+import org.geotools.referencing.operation.matrix.XMatrix;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * The steps of a {@link ConcatenatedTransform} tree, flattened in a single array and simplified,
+ * used to transform arrays of coordinates.
+ *
+ * <p>A concatenated transform is a binary tree, each node transforming the whole array with its
+ * first transform, then the whole array again with the second one. With the deep chains returned
+ * by datum shifts (affine, geographic to geocentric, Helmert, geocentric to geographic, affine,
+ * projection, affine) this means many passes over arrays which may not fit in the CPU caches, plus
+ * intermediate buffers. This class instead runs all the steps on a block of points before moving
+ * to the next block.
+ *
+ * <p>While flattening, adjacent linear steps are merged in a single matrix, identity steps
+ * (including Helmert transforms whose parameters are all zero) are removed, and steps being the
+ * inverse of each other (like a geographic to geocentric conversion followed by its inverse once
+ * the identity datum shift between them has been removed) cancel out.
+ */
+final class FlattenedTransformChain {
+    /** Small number for the identity check of linear steps. */
+    private static final double EPSILON = 1E-10;
+
+    /**
+     * Number of points transformed at once by all the steps. The block buffer should stay small
+     * enough to remain in the CPU cache, 512 points of 3 dimensions being 12 kilobytes.
+     */
+    static final int BLOCK_POINTS = 512;
+
+    /** The steps, none of them being a {@link ConcatenatedTransform}. */
+    final MathTransform[] steps;
+
+    /** The source dimension of the chain. */
+    private final int sourceDim;
+
+    /** The target dimension of the chain. */
+    private final int targetDim;
+
+    /** The largest dimension of the source, intermediate and target points. */
+    private final int maxDim;
+
+    private FlattenedTransformChain(MathTransform[] steps, int sourceDim, int targetDim) {
+        this.steps = steps;
+        this.sourceDim = sourceDim;
+        this.targetDim = targetDim;
+        int max = Math.max(sourceDim, targetDim);
+        for (MathTransform step : steps) {
+            max = Math.max(max, step.getTargetDimensions());
+        }
+        this.maxDim = max;
+    }
+
+    /**
+     * Flattens and simplifies the given transform. Returns {@code null} if this would not be any
+     * better than the stage by stage execution of {@link ConcatenatedTransform}, that is, if the
+     * transform has just two steps which could not be simplified.
+     */
+    static FlattenedTransformChain create(final ConcatenatedTransform transform) {
+        final List<MathTransform> steps = new ArrayList<>();
+        flatten(transform, steps);
+        simplify(steps);
+        final int count = steps.size();
+        if (count == 2 && transform.getStepCount() == 2) {
+            return null;
+        }
+        return new FlattenedTransformChain(
+                steps.toArray(new MathTransform[count]),
+                transform.getSourceDimensions(),
+                transform.getTargetDimensions());
+    }
+
+    /** Adds the leaves of the transform tree to the list, skipping the identity ones. */
+    private static void flatten(final MathTransform transform, final List<MathTransform> steps) {
+        if (transform instanceof ConcatenatedTransform) {
+            final ConcatenatedTransform ct = (ConcatenatedTransform) transform;
+            flatten(ct.transform1, steps);
+            flatten(ct.transform2, steps);
+        } else if (!isIdentity(transform)) {
+            steps.add(transform);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the transform is an identity, or a linear transform close enough to
+     * the identity, like a datum shift with zero parameters.
+     */
+    private static boolean isIdentity(final MathTransform transform) {
+        if (transform.isIdentity()) {
+            return true;
+        }
+        if (transform instanceof LinearTransform
+                && transform.getSourceDimensions() == transform.getTargetDimensions()) {
+            final XMatrix matrix =
+                    AbstractMathTransform.toXMatrix(((LinearTransform) transform).getMatrix());
+            return matrix.isIdentity(EPSILON);
+        }
+        return false;
+    }
+
+    /**
+     * Merges the adjacent steps which can be, using the same rules than {@link
+     * ConcatenatedTransform#create}. After a merge the result is checked again against its
+     * predecessor, so that for example a geocentric conversion and its inverse cancel out once the
+     * identity shift between them has gone.
+     */
+    private static void simplify(final List<MathTransform> steps) {
+        int i = 1;
+        while (i < steps.size()) {
+            final MathTransform merged =
+                    ConcatenatedTransform.createOptimized(steps.get(i - 1), steps.get(i));
+            if (merged == null || merged instanceof ConcatenatedTransform) {
+                i++;
+                continue;
+            }
+            steps.remove(i);
+            if (isIdentity(merged)) {
+                steps.remove(i - 1);
+            } else {
+                steps.set(i - 1, merged);
+            }
+            i = Math.max(1, i - 1);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the source points must be copied before transforming block by block,
+     * because writing the target of a block could overwrite the source of the next blocks.
+     */
+    private boolean overlaps(Object srcPts, int srcOff, Object dstPts, int dstOff, int numPts) {
+        if (srcPts != dstPts) {
+            return false;
+        }
+        if (dstOff <= srcOff && targetDim <= sourceDim) {
+            // the writes stay behind the reads
+            return false;
+        }
+        return srcOff < dstOff + numPts * targetDim && dstOff < srcOff + numPts * sourceDim;
+    }
+
+    /** Transforms the points through all the steps, block by block. */
+    void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts)
+            throws TransformException {
+        if (numPts <= 0) {
+            return;
+        }
+        if (steps.length == 0) {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * sourceDim);
+            return;
+        }
+        if (steps.length == 1) {
+            steps[0].transform(srcPts, srcOff, dstPts, dstOff, numPts);
+            return;
+        }
+        if (overlaps(srcPts, srcOff, dstPts, dstOff, numPts)) {
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts * sourceDim);
+            srcOff = 0;
+        }
+        int n = Math.min(numPts, BLOCK_POINTS);
+        final double[] buffer = new double[n * maxDim];
+        final int last = steps.length - 1;
+        while (numPts > 0) {
+            if (n > numPts) {
+                n = numPts;
+            }
+            steps[0].transform(srcPts, srcOff, buffer, 0, n);
+            for (int i = 1; i < last; i++) {
+                steps[i].transform(buffer, 0, buffer, 0, n);
+            }
+            steps[last].transform(buffer, 0, dstPts, dstOff, n);
+            srcOff += n * sourceDim;
+            dstOff += n * targetDim;
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Transforms the points through all the steps, block by block. The intermediate results are
+     * kept as {@code double} values, to avoid the rounding errors.
+     */
+    void transform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts)
+            throws TransformException {
+        if (numPts <= 0) {
+            return;
+        }
+        if (overlaps(srcPts, srcOff, dstPts, dstOff, numPts)) {
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts * sourceDim);
+            srcOff = 0;
+        }
+        int n = Math.min(numPts, BLOCK_POINTS);
+        final double[] buffer = new double[n * maxDim];
+        while (numPts > 0) {
+            if (n > numPts) {
+                n = numPts;
+            }
+            int length = n * sourceDim;
+            for (int i = 0; i < length; i++) {
+                buffer[i] = srcPts[srcOff++];
+            }
+            for (MathTransform step : steps) {
+                step.transform(buffer, 0, buffer, 0, n);
+            }
+            length = n * targetDim;
+            for (int i = 0; i < length; i++) {
+                dstPts[dstOff++] = (float) buffer[i];
+            }
+            numPts -= n;
+        }
+    }
+}
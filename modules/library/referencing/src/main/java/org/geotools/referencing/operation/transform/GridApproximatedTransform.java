@@ -0,0 +1,258 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.transform;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.referencing.operation.LinearTransform;
+import org.geotools.util.Utilities;
+import org.geotools.util.logging.Logging;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Approximates a {@link MathTransform2D} in a rectangular domain, by sampling it on a regular grid
+ * and interpolating bilinearly inside the grid cells. The grid is the one {@link WarpBuilder} would
+ * use for a raster warp: the domain is recursively split until the transformed edges and diagonals
+ * of each cell stay within the tolerance from the straight lines joining their transformed corners.
+ *
+ * <p>Transforming a point costs a few multiplications, close to an affine transform, which makes it
+ * suitable for reprojecting vector data for display, where the tolerance is a fraction of a pixel.
+ * Points outside of the domain are transformed with the exact transform.
+ *
+ * <p>The {@linkplain #inverse() inverse} and the {@linkplain #derivative(Point2D) derivatives} are
+ * the ones of the exact transform.
+ *
+ * @since 21
+ */
+public final class GridApproximatedTransform extends AbstractMathTransform
+        implements MathTransform2D {
+
+    static final Logger LOGGER = Logging.getLogger(GridApproximatedTransform.class);
+
+    /**
+     * The maximum sum of the row and column subdivision depths, limiting the grid to 1024 cells
+     * and the time spent looking for it on transforms which cannot be approximated.
+     */
+    static final int MAX_DEPTH = 10;
+
+    /** The exact transform */
+    private final MathTransform2D transform;
+
+    /** The domain lower corner */
+    private final double minX, minY;
+
+    /** The domain upper corner */
+    private final double maxX, maxY;
+
+    /** Number of grid cells along the two axes */
+    private final int cols, rows;
+
+    /** Grid cells per source unit along the two axes */
+    private final double scaleX, scaleY;
+
+    /** The transformed grid nodes, row by row, as (x,y) pairs */
+    private final double[] grid;
+
+    private GridApproximatedTransform(
+            MathTransform2D transform,
+            double minX,
+            double minY,
+            double maxX,
+            double maxY,
+            int cols,
+            int rows,
+            double[] grid) {
+        this.transform = transform;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.cols = cols;
+        this.rows = rows;
+        this.scaleX = cols / (maxX - minX);
+        this.scaleY = rows / (maxY - minY);
+        this.grid = grid;
+    }
+
+    /**
+     * Approximates the transform in the given domain. The transform itself is returned if it is
+     * linear, or if it cannot be approximated within the tolerance with a reasonably sized grid
+     * (e.g., because it has discontinuities in the domain).
+     *
+     * @param transform The transform to be approximated
+     * @param domain The area where the approximation is used, in source units
+     * @param tolerance The maximum distance between the exact and the approximated points, in
+     *     target units
+     */
+    public static MathTransform2D create(
+            MathTransform2D transform, Envelope domain, double tolerance) {
+        if (transform instanceof LinearTransform
+                || transform instanceof GridApproximatedTransform
+                || !(tolerance > 0)) {
+            return transform;
+        }
+        final double minX = domain.getMinimum(0);
+        final double minY = domain.getMinimum(1);
+        final double maxX = domain.getMaximum(0);
+        final double maxY = domain.getMaximum(1);
+        if (!(maxX > minX && maxY > minY)
+                || Double.isInfinite(maxX - minX)
+                || Double.isInfinite(maxY - minY)) {
+            return transform;
+        }
+
+        // find the grid size the same way the warp builder does for rasters, but in world units
+        final WarpBuilder builder = new WarpBuilder(tolerance);
+        builder.minCellSize = 0;
+        builder.maxDepth = MAX_DEPTH;
+        final int[] depths;
+        try {
+            depths = builder.computeOptimalDepths(transform, minX, maxX, minY, maxY, 0, 0);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Could not approximate the transform, using it as is", e);
+            return transform;
+        }
+        final int rows = 1 << depths[0];
+        final int cols = 1 << depths[1];
+
+        // sample the transform on the grid nodes
+        final double[] grid = new double[(rows + 1) * (cols + 1) * 2];
+        int idx = 0;
+        for (int r = 0; r <= rows; r++) {
+            final double y = r == rows ? maxY : minY + (maxY - minY) * r / rows;
+            for (int c = 0; c <= cols; c++) {
+                grid[idx++] = c == cols ? maxX : minX + (maxX - minX) * c / cols;
+                grid[idx++] = y;
+            }
+        }
+        try {
+            transform.transform(grid, 0, grid, 0, grid.length / 2);
+        } catch (TransformException e) {
+            LOGGER.log(Level.FINE, "Could not sample the transform, using it as is", e);
+            return transform;
+        }
+        for (double ordinate : grid) {
+            if (Double.isNaN(ordinate) || Double.isInfinite(ordinate)) {
+                return transform;
+            }
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Approximating the transform with a " + cols + " x " + rows + " grid");
+        }
+
+        return new GridApproximatedTransform(transform, minX, minY, maxX, maxY, cols, rows, grid);
+    }
+
+    /** Returns the exact transform */
+    public MathTransform2D getTransform() {
+        return transform;
+    }
+
+    @Override
+    public int getSourceDimensions() {
+        return 2;
+    }
+
+    @Override
+    public int getTargetDimensions() {
+        return 2;
+    }
+
+    @Override
+    public boolean isIdentity() {
+        return false;
+    }
+
+    @Override
+    public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts)
+            throws TransformException {
+        if (srcPts == dstPts && srcOff < dstOff && dstOff < srcOff + numPts * 2) {
+            // the target would overwrite the source points not yet read
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts * 2);
+            srcOff = 0;
+        }
+        final int rowLength = (cols + 1) * 2;
+        while (--numPts >= 0) {
+            final double x = srcPts[srcOff++];
+            final double y = srcPts[srcOff++];
+            final double gx = (x - minX) * scaleX;
+            final double gy = (y - minY) * scaleY;
+            if (gx >= 0 && gx <= cols && gy >= 0 && gy <= rows) {
+                final int col = Math.min((int) gx, cols - 1);
+                final int row = Math.min((int) gy, rows - 1);
+                final double dx = gx - col;
+                final double dy = gy - row;
+                final int p = row * rowLength + col * 2;
+                final int q = p + rowLength;
+                // interpolate along the bottom and top edges of the cell, then between them
+                final double x0 = grid[p] + (grid[p + 2] - grid[p]) * dx;
+                final double y0 = grid[p + 1] + (grid[p + 3] - grid[p + 1]) * dx;
+                final double x1 = grid[q] + (grid[q + 2] - grid[q]) * dx;
+                final double y1 = grid[q + 1] + (grid[q + 3] - grid[q + 1]) * dx;
+                dstPts[dstOff++] = x0 + (x1 - x0) * dy;
+                dstPts[dstOff++] = y0 + (y1 - y0) * dy;
+            } else {
+                // outside of the domain (or NaN), use the exact transform
+                dstPts[dstOff] = x;
+                dstPts[dstOff + 1] = y;
+                transform.transform(dstPts, dstOff, dstPts, dstOff, 1);
+                dstOff += 2;
+            }
+        }
+    }
+
+    @Override
+    public Matrix derivative(Point2D point) throws TransformException {
+        return transform.derivative(point);
+    }
+
+    /** Returns the inverse of the exact transform */
+    @Override
+    public MathTransform2D inverse() throws NoninvertibleTransformException {
+        return transform.inverse();
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() ^ transform.hashCode() ^ Arrays.hashCode(grid);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+        if (super.equals(object)) {
+            final GridApproximatedTransform that = (GridApproximatedTransform) object;
+            return this.cols == that.cols
+                    && this.rows == that.rows
+                    && Double.doubleToLongBits(this.minX) == Double.doubleToLongBits(that.minX)
+                    && Double.doubleToLongBits(this.minY) == Double.doubleToLongBits(that.minY)
+                    && Double.doubleToLongBits(this.maxX) == Double.doubleToLongBits(that.maxX)
+                    && Double.doubleToLongBits(this.maxY) == Double.doubleToLongBits(that.maxY)
+                    && Utilities.equals(this.transform, that.transform)
+                    && Arrays.equals(this.grid, that.grid);
+        }
+        return false;
+    }
+}
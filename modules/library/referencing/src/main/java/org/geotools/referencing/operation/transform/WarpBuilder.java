@@ -64,6 +64,15 @@ public class WarpBuilder {
     /** The maximum number of positions in the warp grid, we don't want too large ones */
     int maxPositions = -1;
 
+    /**
+     * The cell size, in source units, below which the grid subdivision gives up. Pixels for warps,
+     * lowered by {@link GridApproximatedTransform} which works in world units
+     */
+    double minCellSize = 4;
+
+    /** The maximum sum of the row and column subdivision depths */
+    int maxDepth = 20;
+
     /** Creates a new warp builder */
     public WarpBuilder(double tolerance) {
         if (tolerance >= 0) {
@@ -254,9 +263,9 @@ public class WarpBuilder {
             int rowDepth,
             int colDepth)
             throws TransformException {
-        if (maxx - minx < 4 || maxy - miny < 4) {
+        if (maxx - minx < minCellSize || maxy - miny < minCellSize) {
             throw new ExcessiveDepthException("Warp grid getting as dense as the original data");
-        } else if (rowDepth + colDepth > 20) {
+        } else if (rowDepth + colDepth > maxDepth) {
             // this would take 2^(20) points, way too much already
             throw new ExcessiveDepthException(
                     "Warp grid getting too large to fit in memory, bailing out");
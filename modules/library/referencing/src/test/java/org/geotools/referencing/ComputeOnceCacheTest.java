@@ -0,0 +1,169 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+public class ComputeOnceCacheTest {
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        ComputeOnceCache<String, String> cache = new ComputeOnceCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+        ComputeOnceCache.Loader<String, String> loader =
+                k -> {
+                    loads.incrementAndGet();
+                    return k.toUpperCase();
+                };
+        assertEquals("A", cache.get("a", loader));
+        assertEquals("A", cache.get("a", loader));
+        assertEquals("B", cache.get("b", loader));
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.size());
+
+        cache.resetStatistics();
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals("A", cache.get("a", loader));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testFailuresNotCached() throws Exception {
+        ComputeOnceCache<String, String> cache = new ComputeOnceCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+        ComputeOnceCache.Loader<String, String> loader =
+                k -> {
+                    if (loads.incrementAndGet() == 1) {
+                        throw new FactoryException("First attempt fails");
+                    }
+                    return k;
+                };
+        try {
+            cache.get("a", loader);
+            fail("Should have failed");
+        } catch (FactoryException e) {
+            assertEquals("First attempt fails", e.getMessage());
+        }
+        assertEquals(0, cache.size());
+        assertEquals("a", cache.get("a", loader));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        ComputeOnceCache<Integer, Integer> cache = new ComputeOnceCache<>(8);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i * 2), cache.get(i, k -> k * 2));
+            assertTrue(cache.size() <= 8);
+        }
+        assertEquals(100, cache.getMissCount());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        ComputeOnceCache<String, String> cache = new ComputeOnceCache<>(0);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("a", k -> k + loads.incrementAndGet());
+        cache.get("a", k -> k + loads.incrementAndGet());
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRecursive() throws Exception {
+        ComputeOnceCache<String, String> cache = new ComputeOnceCache<>(10);
+        assertEquals(
+                "aa",
+                cache.get("a", k -> k + (k.length() < 2 ? cache.get(k, k2 -> k2) : "")));
+    }
+
+    @Test
+    public void testSharedComputation() throws Exception {
+        final int threads = 8;
+        ComputeOnceCache<String, Object> cache = new ComputeOnceCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(
+                        executor.submit(
+                                () ->
+                                        cache.get(
+                                                "key",
+                                                k -> {
+                                                    loads.incrementAndGet();
+                                                    started.countDown();
+                                                    try {
+                                                        release.await();
+                                                    } catch (InterruptedException e) {
+                                                        throw new FactoryException(e);
+                                                    }
+                                                    return new Object();
+                                                })));
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            // other keys are not blocked by the in-flight computation
+            assertEquals("other", cache.get("other", k -> k));
+            release.countDown();
+            Object first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(threads - 1, cache.getHitCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCRS() throws Exception {
+        CoordinateReferenceSystem utm = CRS.decode("AUTO:42001,3,45");
+        long hits = CRS.getDecodeCache().getHitCount();
+        assertSame(utm, CRS.decode(" auto:42001,3,45"));
+        assertEquals(hits + 1, CRS.getDecodeCache().getHitCount());
+
+        MathTransform mt = CRS.findMathTransform(DefaultGeographicCRS.WGS84, utm);
+        hits = CRS.getTransformCache().getHitCount();
+        assertSame(mt, CRS.findMathTransform(DefaultGeographicCRS.WGS84, utm));
+        assertEquals(hits + 1, CRS.getTransformCache().getHitCount());
+    }
+}
@@ -19,12 +19,15 @@ package org.geotools.referencing.operation.projection;
 import static org.geotools.referencing.operation.projection.MapProjection.AbstractProvider.SEMI_MAJOR;
 import static org.geotools.referencing.operation.projection.MapProjection.AbstractProvider.SEMI_MINOR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.awt.geom.Point2D;
 import org.geotools.referencing.ReferencingFactoryFinder;
 import org.junit.Test;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.MathTransformFactory;
 import org.opengis.referencing.operation.TransformException;
 
@@ -123,4 +126,117 @@ public final class MapProjectionTest {
         Point2D target2 = new Point2D.Double(src.getX(), src.getY() + 0.000000000001);
         assertEquals(1.1117412E-7, mt.orthodromicDistance(src, target2), 1E-12);
     }
+
+    /** Creates an ellipsoidal (WGS84) projection with the given parameters. */
+    private static MapProjection createProjection(String name, Object... parameterValues)
+            throws FactoryException {
+        MathTransformFactory mtFactory = ReferencingFactoryFinder.getMathTransformFactory(null);
+        final ParameterValueGroup parameters = mtFactory.getDefaultParameters(name);
+        parameters.parameter(SEMI_MAJOR.getName().getCode()).setValue(6378137.0);
+        parameters.parameter(SEMI_MINOR.getName().getCode()).setValue(6356752.314245179);
+        for (int i = 0; i < parameterValues.length; i += 2) {
+            parameters.parameter((String) parameterValues[i]).setValue(parameterValues[i + 1]);
+        }
+        return (MapProjection) mtFactory.createParameterizedTransform(parameters);
+    }
+
+    /** Builds a grid of geographic coordinates around the given origin. */
+    private static double[] grid(double centralMeridian, double minLat, double maxLat) {
+        final int size = 10;
+        final double[] points = new double[size * size * 2];
+        int k = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                points[k++] = centralMeridian - 5 + i;
+                points[k++] = minLat + (maxLat - minLat) * j / (size - 1);
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Checks the array transforms of the projection give the same results than the point ones, in
+     * both directions, including when the source and target arrays overlap.
+     */
+    private static void assertBulkConsistent(MapProjection mt, double[] geographic)
+            throws TransformException {
+        final int numPts = geographic.length / 2;
+        final double[] projected = new double[geographic.length];
+        mt.transform(geographic, 0, projected, 0, numPts);
+        final MathTransform2D inverse = mt.inverse();
+        final double[] back = new double[geographic.length + 2];
+        System.arraycopy(projected, 0, back, 0, projected.length);
+        // overlapping arrays, target after the source
+        inverse.transform(back, 0, back, 2, numPts);
+        final Point2D point = new Point2D.Double();
+        for (int i = 0; i < numPts; i++) {
+            point.setLocation(geographic[i * 2], geographic[i * 2 + 1]);
+            mt.transform(point, point);
+            assertEquals(point.getX(), projected[i * 2], 1E-9);
+            assertEquals(point.getY(), projected[i * 2 + 1], 1E-9);
+
+            inverse.transform(point, point);
+            assertEquals(point.getX(), back[i * 2 + 2], 1E-12);
+            assertEquals(point.getY(), back[i * 2 + 3], 1E-12);
+            assertEquals(geographic[i * 2], back[i * 2 + 2], 1E-7);
+            assertEquals(geographic[i * 2 + 1], back[i * 2 + 3], 1E-7);
+        }
+    }
+
+    /** Tests the array formulas of the projections implementing them. */
+    @Test
+    public void testBulkTransform() throws TransformException, FactoryException {
+        assertBulkConsistent(
+                createProjection("Transverse_Mercator", "central_meridian", 9.0), grid(9, 0, 60));
+        assertBulkConsistent(
+                createProjection("Mercator_1SP", "central_meridian", -20.0), grid(-20, -70, 70));
+        assertBulkConsistent(
+                createProjection(
+                        "Lambert_Conformal_Conic_2SP",
+                        "standard_parallel_1",
+                        33.0,
+                        "standard_parallel_2",
+                        45.0,
+                        "latitude_of_origin",
+                        23.0,
+                        "central_meridian",
+                        -96.0),
+                grid(-96, 25, 50));
+        assertBulkConsistent(
+                createProjection(
+                        "Albers_Conic_Equal_Area",
+                        "standard_parallel_1",
+                        29.5,
+                        "standard_parallel_2",
+                        45.5,
+                        "latitude_of_origin",
+                        23.0,
+                        "central_meridian",
+                        -96.0),
+                grid(-96, 25, 50));
+        assertBulkConsistent(
+                createProjection("Polar_Stereographic", "latitude_of_origin", 90.0),
+                grid(0, 60, 89));
+        // spherical formulas are implemented by subclasses, the points are projected one by one
+        assertBulkConsistent(createGoogleMercator(), grid(0, -70, 70));
+    }
+
+    /** Tests the points that cannot be projected are set to NaN, the others being projected. */
+    @Test
+    public void testBulkTransformFailure() throws TransformException, FactoryException {
+        MapProjection mt = createProjection("Mercator_1SP");
+        final double[] points = {10, 45, 10, 90, 20, 30};
+        final double[] projected = new double[points.length];
+        try {
+            mt.transform(points, 0, projected, 0, 3);
+            fail("The pole cannot be projected");
+        } catch (ProjectionException e) {
+            // expected
+        }
+        assertTrue(Double.isNaN(projected[2]));
+        assertTrue(Double.isNaN(projected[3]));
+        final Point2D point = mt.transform(new Point2D.Double(20, 30), null);
+        assertEquals(point.getX(), projected[4], 1E-9);
+        assertEquals(point.getY(), projected[5], 1E-9);
+    }
 }
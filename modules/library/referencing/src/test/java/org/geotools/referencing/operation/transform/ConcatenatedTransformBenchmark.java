@@ -0,0 +1,102 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.transform;
+
+import java.util.Random;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * Compares the throughput of datum shift chains executed stage by stage, each stage going over the
+ * whole array in place as {@link ConcatenatedTransform} used to, with the flattened block by block
+ * execution. Not run as part of the build, launch the main method to get the figures.
+ */
+public class ConcatenatedTransformBenchmark {
+
+    static final String ED50 =
+            "GEOGCS[\"ED50\", DATUM[\"European Datum 1950\", "
+                    + "SPHEROID[\"International 1924\", 6378388.0, 297.0], "
+                    + "TOWGS84[-87.0, -98.0, -121.0, 0.0, 0.0, 0.0, 0.0]], "
+                    + "PRIMEM[\"Greenwich\", 0.0], UNIT[\"degree\", 0.017453292519943295], "
+                    + "AXIS[\"Geodetic latitude\", NORTH], AXIS[\"Geodetic longitude\", EAST]]";
+
+    static final String UTM_31N =
+            "PROJCS[\"WGS 84 / UTM zone 31N\", "
+                    + "GEOGCS[\"WGS 84\", DATUM[\"World Geodetic System 1984\", "
+                    + "SPHEROID[\"WGS 84\", 6378137.0, 298.257223563]], "
+                    + "PRIMEM[\"Greenwich\", 0.0], UNIT[\"degree\", 0.017453292519943295]], "
+                    + "PROJECTION[\"Transverse_Mercator\"], "
+                    + "PARAMETER[\"central_meridian\", 3.0], "
+                    + "PARAMETER[\"latitude_of_origin\", 0.0], "
+                    + "PARAMETER[\"scale_factor\", 0.9996], "
+                    + "PARAMETER[\"false_easting\", 500000.0], "
+                    + "PARAMETER[\"false_northing\", 0.0], "
+                    + "UNIT[\"m\", 1.0], AXIS[\"Easting\", EAST], AXIS[\"Northing\", NORTH]]";
+
+    public static void main(String[] args) throws Exception {
+        final int numPts = 1000000;
+        final int runs = 10;
+
+        CoordinateReferenceSystem ed50 = CRS.parseWKT(ED50);
+        CoordinateReferenceSystem utm = CRS.parseWKT(UTM_31N);
+        benchmark("ED50 to WGS84 / UTM 31N", CRS.findMathTransform(ed50, utm), 1, numPts, runs);
+        // this one takes millidegrees
+        benchmark(
+                "Synthetic datum shift chain",
+                MathTransformTest.createDatumShiftChain(120),
+                1000,
+                numPts,
+                runs);
+    }
+
+    static void benchmark(
+            String name, MathTransform transform, double scale, int numPts, int runs)
+            throws Exception {
+        final Random random = new Random(42);
+        final double[] points = new double[numPts * transform.getSourceDimensions()];
+        for (int i = 0; i < points.length; i += 2) {
+            // latitude, longitude around the UTM zone
+            points[i] = (40 + 20 * random.nextDouble()) * scale;
+            points[i + 1] = (6 * random.nextDouble()) * scale;
+        }
+        final double[] target = new double[numPts * transform.getTargetDimensions()];
+        System.out.println(name + ": " + transform.getClass().getSimpleName());
+        if (transform instanceof ConcatenatedTransform) {
+            ConcatenatedTransform ct = (ConcatenatedTransform) transform;
+            FlattenedTransformChain chain = ct.getFlattened();
+            System.out.println(
+                    "  steps: "
+                            + ct.getStepCount()
+                            + ", flattened: "
+                            + (chain == null ? ct.getStepCount() : chain.steps.length));
+        }
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            MathTransformTest.transformStepwise(transform, points, 0, target, 0, numPts);
+            long stepwise = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            transform.transform(points, 0, target, 0, numPts);
+            long flattened = System.nanoTime() - start;
+
+            System.out.printf(
+                    "  run %d: stage by stage %.1f Mpts/s, flattened %.1f Mpts/s%n",
+                    run, numPts * 1000d / stepwise, numPts * 1000d / flattened);
+        }
+    }
+}
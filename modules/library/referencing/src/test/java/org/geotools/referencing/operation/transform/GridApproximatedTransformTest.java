@@ -0,0 +1,122 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.AffineTransform;
+import java.util.Random;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.referencing.operation.MathTransform2D;
+
+public class GridApproximatedTransformTest {
+
+    /** WGS84 to UTM 31N, followed by a scale turning meters into 100 meters pixels */
+    MathTransform2D toScreen;
+
+    GeneralEnvelope domain;
+
+    @Before
+    public void setUp() throws Exception {
+        MathTransform2D utm =
+                (MathTransform2D)
+                        CRS.findMathTransform(
+                                DefaultGeographicCRS.WGS84,
+                                CRS.parseWKT(ConcatenatedTransformBenchmark.UTM_31N));
+        AffineTransform pixels = AffineTransform.getScaleInstance(0.01, -0.01);
+        toScreen =
+                (MathTransform2D)
+                        ConcatenatedTransform.create(utm, ProjectiveTransform.create(pixels));
+        domain = new GeneralEnvelope(new double[] {0, 40}, new double[] {6, 60});
+    }
+
+    @Test
+    public void testWithinTolerance() throws Exception {
+        MathTransform2D approximated = GridApproximatedTransform.create(toScreen, domain, 0.5);
+        assertTrue(approximated instanceof GridApproximatedTransform);
+        assertSame(toScreen, ((GridApproximatedTransform) approximated).getTransform());
+
+        Random random = new Random(42);
+        int numPts = 10000;
+        double[] points = new double[numPts * 2];
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] = 6 * random.nextDouble();
+            points[i + 1] = 40 + 20 * random.nextDouble();
+        }
+        double[] exact = new double[points.length];
+        double[] approx = new double[points.length];
+        toScreen.transform(points, 0, exact, 0, numPts);
+        approximated.transform(points, 0, approx, 0, numPts);
+        for (int i = 0; i < points.length; i += 2) {
+            double dx = exact[i] - approx[i];
+            double dy = exact[i + 1] - approx[i + 1];
+            assertTrue(Math.sqrt(dx * dx + dy * dy) < 1);
+        }
+    }
+
+    @Test
+    public void testOutsideDomainIsExact() throws Exception {
+        MathTransform2D approximated = GridApproximatedTransform.create(toScreen, domain, 0.5);
+        double[] points = {-1, 50, 3, 65, Double.NaN, Double.NaN};
+        double[] exact = new double[points.length];
+        double[] approx = new double[points.length];
+        toScreen.transform(points, 0, exact, 0, 3);
+        approximated.transform(points, 0, approx, 0, 3);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(exact[i], approx[i], 0d);
+        }
+        assertTrue(Double.isNaN(approx[4]) && Double.isNaN(approx[5]));
+    }
+
+    @Test
+    public void testOverlappingArrays() throws Exception {
+        MathTransform2D approximated = GridApproximatedTransform.create(toScreen, domain, 0.5);
+        double[] points = {1, 45, 2, 50, 3, 55, 0, 0};
+        double[] expected = new double[6];
+        approximated.transform(points, 0, expected, 0, 3);
+        // shift forward in place, the target overlaps the source not yet read
+        approximated.transform(points, 0, points, 2, 3);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(expected[i], points[i + 2], 0d);
+        }
+    }
+
+    @Test
+    public void testNotApproximated() throws Exception {
+        // linear transforms are returned as is
+        MathTransform2D affine =
+                (MathTransform2D)
+                        ProjectiveTransform.create(AffineTransform.getScaleInstance(2, 3));
+        assertSame(affine, GridApproximatedTransform.create(affine, domain, 0.5));
+        // same for a zero tolerance, or an empty domain
+        assertSame(toScreen, GridApproximatedTransform.create(toScreen, domain, 0));
+        GeneralEnvelope empty = new GeneralEnvelope(new double[] {0, 40}, new double[] {0, 60});
+        assertSame(toScreen, GridApproximatedTransform.create(toScreen, empty, 0.5));
+    }
+
+    @Test
+    public void testInverse() throws Exception {
+        MathTransform2D approximated = GridApproximatedTransform.create(toScreen, domain, 0.5);
+        assertEquals(toScreen.inverse(), approximated.inverse());
+    }
+}
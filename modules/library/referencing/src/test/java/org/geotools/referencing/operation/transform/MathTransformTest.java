@@ -27,6 +27,9 @@ import org.geotools.referencing.CRS;
 import org.geotools.referencing.ReferencingFactoryFinder;
 import org.geotools.referencing.WKT;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.referencing.datum.BursaWolfParameters;
+import org.geotools.referencing.datum.DefaultEllipsoid;
+import org.geotools.referencing.datum.DefaultGeodeticDatum;
 import org.geotools.referencing.operation.DefaultMathTransformFactory;
 import org.geotools.referencing.operation.LinearTransform;
 import org.geotools.referencing.operation.matrix.GeneralMatrix;
@@ -610,4 +613,128 @@ public final class MathTransformTest {
             // expected
         }
     }
+
+    /**
+     * Builds a datum shift chain without the simplifications of {@link
+     * ConcatenatedTransform#create}: scale, geographic to geocentric, Helmert, geocentric to
+     * geographic, translation.
+     */
+    static ConcatenatedTransform createDatumShiftChain(double dx) throws TransformException {
+        final GeocentricTransform geocentric =
+                new GeocentricTransform(DefaultEllipsoid.WGS84, false);
+        final BursaWolfParameters shift = new BursaWolfParameters(DefaultGeodeticDatum.WGS84);
+        shift.dx = dx;
+        shift.dy = -dx / 2;
+        final MathTransform[] steps = {
+            ProjectiveTransform.create(AffineTransform.getScaleInstance(1E-3, 1E-3)),
+            geocentric,
+            new GeocentricTranslation(shift),
+            geocentric.inverse(),
+            ProjectiveTransform.create(AffineTransform.getTranslateInstance(0.5, 0.25))
+        };
+        ConcatenatedTransform chain =
+                ConcatenatedTransform.createConcatenatedTransform(steps[0], steps[1]);
+        for (int i = 2; i < steps.length; i++) {
+            chain = ConcatenatedTransform.createConcatenatedTransform(chain, steps[i]);
+        }
+        return chain;
+    }
+
+    /** Transforms the points one stage at a time, each stage over the whole array. */
+    static double[] transformStepwise(MathTransform transform, double[] points, int numPts)
+            throws TransformException {
+        final double[] result = new double[numPts * transform.getTargetDimensions()];
+        transformStepwise(transform, points, 0, result, 0, numPts);
+        return result;
+    }
+
+    /**
+     * Transforms the points one stage at a time, the way {@link ConcatenatedTransform} did before
+     * flattening: in place in the target array when the dimensions allow it, through a small
+     * temporary buffer otherwise.
+     */
+    static void transformStepwise(
+            MathTransform transform,
+            double[] srcPts,
+            int srcOff,
+            double[] dstPts,
+            int dstOff,
+            int numPts)
+            throws TransformException {
+        if (!(transform instanceof ConcatenatedTransform)) {
+            transform.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+            return;
+        }
+        final ConcatenatedTransform ct = (ConcatenatedTransform) transform;
+        final int intermDim = ct.transform1.getTargetDimensions();
+        final int targetDim = ct.getTargetDimensions();
+        if (intermDim <= targetDim) {
+            transformStepwise(ct.transform1, srcPts, srcOff, dstPts, dstOff, numPts);
+            transformStepwise(ct.transform2, dstPts, dstOff, dstPts, dstOff, numPts);
+            return;
+        }
+        if (numPts <= 0) {
+            return;
+        }
+        int numTmp = numPts;
+        int length = numTmp * intermDim;
+        if (length > ConcatenatedTransform.TEMPORARY_ARRAY_LENGTH) {
+            numTmp = Math.max(1, ConcatenatedTransform.TEMPORARY_ARRAY_LENGTH / intermDim);
+            length = numTmp * intermDim;
+        }
+        final double[] tmp = new double[length];
+        final int sourceDim = ct.getSourceDimensions();
+        do {
+            if (numTmp > numPts) {
+                numTmp = numPts;
+            }
+            transformStepwise(ct.transform1, srcPts, srcOff, tmp, 0, numTmp);
+            transformStepwise(ct.transform2, tmp, 0, dstPts, dstOff, numTmp);
+            srcOff += numTmp * sourceDim;
+            dstOff += numTmp * targetDim;
+            numPts -= numTmp;
+        } while (numPts != 0);
+    }
+
+    /** Tests the execution of deep concatenations as a flattened chain. */
+    @Test
+    public void testFlattenedConcatenation() throws TransformException {
+        final int numPts = FlattenedTransformChain.BLOCK_POINTS * 3 + 17;
+        final double[] points = new double[numPts * 2];
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] = 20000 * random.nextDouble() - 10000;
+            points[i + 1] = 30000 * random.nextDouble() + 30000;
+        }
+
+        final ConcatenatedTransform chain = createDatumShiftChain(120);
+        assertEquals(5, chain.getFlattened().steps.length);
+        final double[] expected = transformStepwise(chain, points, numPts);
+        final double[] actual = new double[points.length];
+        chain.transform(points, 0, actual, 0, numPts);
+        assertArrayEquals(expected, actual, 1E-12);
+        // in place
+        final double[] inPlace = points.clone();
+        chain.transform(inPlace, 0, inPlace, 0, numPts);
+        assertArrayEquals(expected, inPlace, 1E-12);
+        // overlapping, target after the source
+        final double[] shifted = Arrays.copyOf(points, points.length + 4);
+        chain.transform(shifted, 0, shifted, 4, numPts);
+        assertArrayEquals(expected, Arrays.copyOfRange(shifted, 4, shifted.length), 1E-12);
+        // floats
+        final float[] floats = new float[points.length];
+        for (int i = 0; i < points.length; i++) {
+            floats[i] = (float) points[i];
+        }
+        chain.transform(floats, 0, floats, 0, numPts);
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(expected[i], floats[i], 1E-3);
+        }
+
+        // identity datum shift, the geocentric round trip goes away and the affines get merged
+        final ConcatenatedTransform identityShift = createDatumShiftChain(0);
+        assertEquals(1, identityShift.getFlattened().steps.length);
+        assertTrue(identityShift.getFlattened().steps[0] instanceof LinearTransform);
+        identityShift.transform(points, 0, actual, 0, numPts);
+        assertArrayEquals(transformStepwise(identityShift, points, numPts), actual, 1E-7);
+    }
 }
@@ -0,0 +1,225 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings and counters collected while rendering a map, reported to the {@link
+ * RenderingStatisticsListener} instances registered in the renderer. The collection only happens
+ * if at least one such listener is registered.
+ *
+ * <p>The counters are updated concurrently by the thread reading the data and the one painting
+ * it, the report is complete only once the rendering is over.
+ */
+public class RenderingStatistics {
+
+    /** The rendering phases timed for each layer */
+    public enum Phase {
+        /** Building the query and opening the feature collection */
+        QUERY,
+        /** Reading the features, including the geometry decoding performed by the data store */
+        READ,
+        /** Reprojecting, generalizing and decimating the geometries */
+        TRANSFORM,
+        /** Painting the shapes, performed in a separate thread */
+        PAINT
+    }
+
+    /** Timings and counters for a single layer */
+    public static class LayerStatistics {
+        String layerId;
+
+        String title;
+
+        AtomicLong featuresRead = new AtomicLong();
+
+        AtomicLong screenMapSkips = new AtomicLong();
+
+        AtomicLong shapesPainted = new AtomicLong();
+
+        AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+
+        LayerStatistics(String layerId, String title) {
+            this.layerId = layerId;
+            this.title = title;
+        }
+
+        /** The layer identifier, as used in the label cache */
+        public String getLayerId() {
+            return layerId;
+        }
+
+        /** The layer title, if any */
+        public String getTitle() {
+            return title;
+        }
+
+        /** Number of features read from the layer */
+        public long getFeaturesRead() {
+            return featuresRead.get();
+        }
+
+        /** Number of shapes skipped by the renderer because their pixel was already painted */
+        public long getScreenMapSkips() {
+            return screenMapSkips.get();
+        }
+
+        /** Number of shapes painted, one for each symbolizer applied to a feature */
+        public long getShapesPainted() {
+            return shapesPainted.get();
+        }
+
+        /** Time spent in the specified phase, in nanoseconds */
+        public long getNanos(Phase phase) {
+            return nanos.get(phase.ordinal());
+        }
+
+        /** Total time spent on the layer, in nanoseconds */
+        public long getTotalNanos() {
+            long total = 0;
+            for (int i = 0; i < nanos.length(); i++) {
+                total += nanos.get(i);
+            }
+            return total;
+        }
+
+        public void addNanos(Phase phase, long nanos) {
+            this.nanos.addAndGet(phase.ordinal(), nanos);
+        }
+
+        public void featureRead() {
+            featuresRead.incrementAndGet();
+        }
+
+        public void screenMapSkip() {
+            screenMapSkips.incrementAndGet();
+        }
+
+        public void shapePainted() {
+            shapesPainted.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Layer ").append(layerId);
+            if (title != null) {
+                sb.append(" (").append(title).append(")");
+            }
+            sb.append(": ")
+                    .append(getFeaturesRead())
+                    .append(" features read, ")
+                    .append(getScreenMapSkips())
+                    .append(" screen map skips, ")
+                    .append(getShapesPainted())
+                    .append(" shapes painted");
+            for (Phase phase : Phase.values()) {
+                sb.append(", ")
+                        .append(phase.name().toLowerCase())
+                        .append(" ")
+                        .append(TimeUnit.NANOSECONDS.toMillis(getNanos(phase)))
+                        .append("ms");
+            }
+            return sb.toString();
+        }
+    }
+
+    Map<String, LayerStatistics> layers = new LinkedHashMap<String, LayerStatistics>();
+
+    AtomicLong labelsPlaced = new AtomicLong();
+
+    AtomicLong labelsRejected = new AtomicLong();
+
+    AtomicLong labellingNanos = new AtomicLong();
+
+    AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * Returns the statistics for the specified layer, creating them if missing
+     *
+     * @param layerId The layer identifier
+     * @param title The layer title, used for reporting purposes
+     */
+    public synchronized LayerStatistics getLayer(String layerId, String title) {
+        LayerStatistics result = layers.get(layerId);
+        if (result == null) {
+            result = new LayerStatistics(layerId, title);
+            layers.put(layerId, result);
+        }
+        return result;
+    }
+
+    /** Returns the statistics of the rendered layers, in painting order */
+    public synchronized List<LayerStatistics> getLayers() {
+        return new ArrayList<LayerStatistics>(layers.values());
+    }
+
+    /** Number of labels painted */
+    public long getLabelsPlaced() {
+        return labelsPlaced.get();
+    }
+
+    /** Number of labels discarded because of conflicts or lack of space */
+    public long getLabelsRejected() {
+        return labelsRejected.get();
+    }
+
+    /** Time spent resolving label conflicts and painting labels, in nanoseconds */
+    public long getLabellingNanos() {
+        return labellingNanos.get();
+    }
+
+    /** Total rendering time, in nanoseconds */
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public void addLabels(long placed, long rejected, long nanos) {
+        labelsPlaced.addAndGet(placed);
+        labelsRejected.addAndGet(rejected);
+        labellingNanos.addAndGet(nanos);
+    }
+
+    public void setTotalNanos(long nanos) {
+        totalNanos.set(nanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Rendering took ")
+                .append(TimeUnit.NANOSECONDS.toMillis(getTotalNanos()))
+                .append("ms, labelling ")
+                .append(TimeUnit.NANOSECONDS.toMillis(getLabellingNanos()))
+                .append("ms with ")
+                .append(getLabelsPlaced())
+                .append(" labels placed and ")
+                .append(getLabelsRejected())
+                .append(" rejected");
+        for (LayerStatistics layer : getLayers()) {
+            sb.append("\n").append(layer);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer;
+
+/**
+ * A {@link RenderListener} that also receives the timings and counters collected during the
+ * rendering. Registering one in the renderer enables the statistics collection, which is
+ * otherwise skipped.
+ */
+public interface RenderingStatisticsListener extends RenderListener {
+
+    /**
+     * Reports the statistics collected while rendering a map, called once the rendering is
+     * complete, labels included. Not called if the rendering has been stopped.
+     *
+     * @param statistics
+     */
+    public void renderingStatistics(RenderingStatistics statistics);
+}
@@ -32,11 +32,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -187,6 +192,26 @@ public class LabelCacheImpl implements LabelCache {
     private BiFunction<Graphics2D, LabelRenderingMode, LabelPainter> constructPainter =
             LabelPainter::new;
 
+    /** Minimum number of labels for the parallel location computation to kick in */
+    static final int PARALLEL_THRESHOLD = 256;
+
+    /** Marks labels whose location could not be computed in advance */
+    private static final Object NOT_PREPARED = new Object();
+
+    /** Used to compute the label locations in parallel, if set */
+    private ExecutorService threadPool;
+
+    /** The label locations computed in advance, if any */
+    private Map<LabelCacheItem, Object> preparedLocations;
+
+    /** Labels painted and discarded during the last {@link #end(Graphics2D, Rectangle)} call */
+    private int placedLabels;
+
+    private int rejectedLabels;
+
+    /** Time spent in the last {@link #end(Graphics2D, Rectangle)} call, in nanoseconds */
+    private long labellingTime;
+
     public void enableLayer(String layerId) {
         needsOrdering = true;
         enabledLayers.add(layerId);
@@ -210,6 +235,17 @@ public class LabelCacheImpl implements LabelCache {
         this.constructPainter = constructPainter;
     }
 
+    /**
+     * Sets a thread pool used to compute the representative locations of the labels in parallel,
+     * before painting them. Conflict resolution and painting still happen sequentially, in
+     * priority order, so the output does not change. The pool is not shut down by the cache.
+     *
+     * @param threadPool The thread pool, or null to compute the locations while painting
+     */
+    public void setThreadPool(ExecutorService threadPool) {
+        this.threadPool = threadPool;
+    }
+
     public void stop() {
         stop = true;
         activeLayers.clear();
@@ -414,11 +450,27 @@ public class LabelCacheImpl implements LabelCache {
     /** Return a list with all the values in priority order. Both grouped and non-grouped */
     public List<LabelCacheItem> orderedLabels() {
         List<LabelCacheItem> al = getActiveLabels();
-        Collections.sort(al);
-        Collections.reverse(al);
+        LabelCacheItem[] items = al.toArray(new LabelCacheItem[al.size()]);
+        // the sort is stable, labels with the same priority just need to be reversed
+        if (!hasUniformPriority(items)) {
+            Arrays.parallelSort(items);
+        }
+        al.clear();
+        for (int i = items.length - 1; i >= 0; i--) {
+            al.add(items[i]);
+        }
         return al;
     }
 
+    private boolean hasUniformPriority(LabelCacheItem[] items) {
+        for (int i = 1; i < items.length; i++) {
+            if (items[i].compareTo(items[0]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns a list of all active labels
      *
@@ -448,6 +500,9 @@ public class LabelCacheImpl implements LabelCache {
 
     /** @see org.geotools.renderer.lite.LabelCache#end(java.awt.Graphics2D, java.awt.Rectangle) */
     public void end(Graphics2D graphics, Rectangle displayArea) {
+        final long start = System.nanoTime();
+        placedLabels = 0;
+        rejectedLabels = 0;
         final Object antialiasing = graphics.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
         final Object textAntialiasing =
                 graphics.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
@@ -467,9 +522,28 @@ public class LabelCacheImpl implements LabelCache {
             if (antialiasing != null) {
                 graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
             }
+            labellingTime = System.nanoTime() - start;
         }
     }
 
+    /** Returns the number of labels painted during the last labelling run */
+    public int getPlacedLabels() {
+        return placedLabels;
+    }
+
+    /**
+     * Returns the number of labels that could not be painted during the last labelling run,
+     * because of conflicts, or because they did not fit the geometry or the display area
+     */
+    public int getRejectedLabels() {
+        return rejectedLabels;
+    }
+
+    /** Returns the time spent in the last labelling run, in nanoseconds */
+    public long getLabellingTime() {
+        return labellingTime;
+    }
+
     void paintLabels(Graphics2D graphics, Rectangle displayArea) {
         if (!activeLayers.isEmpty()) {
             throw new IllegalStateException(
@@ -509,13 +583,25 @@ public class LabelCacheImpl implements LabelCache {
         } else {
             items = getActiveLabels();
         }
+        if (threadPool != null && items.size() >= PARALLEL_THRESHOLD) {
+            prepareLocations(items, displayArea);
+        }
         LabelPainter painter = constructPainter.apply(graphics, labelRenderingMode);
-        for (LabelCacheItem labelItem : items) {
-            if (stop) return;
-
-            paintedLineLabels =
-                    paintLabel(
-                            graphics, displayArea, glyphs, paintedLineLabels, painter, labelItem);
+        try {
+            for (LabelCacheItem labelItem : items) {
+                if (stop) return;
+
+                paintedLineLabels =
+                        paintLabel(
+                                graphics,
+                                displayArea,
+                                glyphs,
+                                paintedLineLabels,
+                                painter,
+                                labelItem);
+            }
+        } finally {
+            preparedLocations = null;
         }
         // Output for line labels
         LOGGER.log(Level.FINE, "TOTAL LINE LABELS : {0}", items.size());
@@ -523,6 +609,100 @@ public class LabelCacheImpl implements LabelCache {
         LOGGER.log(Level.FINE, "REMAINING LINE LABELS : {0}", items.size() - paintedLineLabels);
     }
 
+    /**
+     * Computes the representative locations of the labels using the thread pool, the calling thread
+     * takes part in the computation too, so that a busy pool cannot stall the labelling
+     */
+    void prepareLocations(final List<LabelCacheItem> items, final Rectangle displayArea) {
+        final Object[] locations = new Object[items.size()];
+        final AtomicInteger next = new AtomicInteger();
+        Runnable worker =
+                () -> {
+                    int i;
+                    while (!stop && (i = next.getAndIncrement()) < locations.length) {
+                        try {
+                            locations[i] = computeLocation(items.get(i), displayArea);
+                        } catch (Exception e) {
+                            // will be computed, and reported, while painting
+                            locations[i] = NOT_PREPARED;
+                        }
+                    }
+                };
+
+        int helpers = Math.min(Runtime.getRuntime().availableProcessors() - 1, locations.length);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < helpers; i++) {
+                futures.add(threadPool.submit(worker));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Could not submit the label location tasks", e);
+        }
+        worker.run();
+        for (Future<?> future : futures) {
+            // tasks not started yet are not needed anymore, wait for the running ones
+            if (!future.cancel(false)) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.FINE, "Label location task failed", e);
+                    return;
+                }
+            }
+        }
+
+        // if stopped, only part of the labels have been processed
+        int processed = Math.min(next.get(), locations.length);
+        Map<LabelCacheItem, Object> prepared = new IdentityHashMap<>();
+        for (int i = 0; i < processed; i++) {
+            if (locations[i] != NOT_PREPARED) {
+                prepared.put(items.get(i), locations[i]);
+            }
+        }
+        preparedLocations = prepared;
+    }
+
+    /**
+     * Computes the representative location of a label, mirroring the choices made in {@link
+     * #paintLabel}
+     */
+    private Object computeLocation(LabelCacheItem labelItem, Rectangle displayArea) {
+        Geometry geom = labelItem.getGeometry();
+        if ((geom instanceof Point) || (geom instanceof MultiPoint)) {
+            return getPointSetRepresentativeLocation(
+                    labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
+        } else if (((geom instanceof LineString) && !(geom instanceof LinearRing))
+                || (geom instanceof MultiLineString)) {
+            return getLineSetRepresentativeLocation(
+                    labelItem.getGeoms(),
+                    displayArea,
+                    labelItem.removeGroupOverlaps(),
+                    labelItem.isPartialsEnabled());
+        } else if ((geom instanceof Polygon
+                        || geom instanceof MultiPolygon
+                        || geom instanceof LinearRing)
+                && labelItem.getTextStyle().isPointPlacement()
+                && !labelItem.isFollowLineEnabled()) {
+            return getPolySetRepresentativeLocation(
+                    labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
+        }
+        return NOT_PREPARED;
+    }
+
+    /**
+     * Returns the location computed in advance for the label, or {@link #NOT_PREPARED} if it has to
+     * be computed
+     */
+    private Object getPreparedLocation(LabelCacheItem labelItem) {
+        if (preparedLocations != null && preparedLocations.containsKey(labelItem)) {
+            return preparedLocations.remove(labelItem);
+        }
+        return NOT_PREPARED;
+    }
+
     int paintLabel(
             Graphics2D graphics,
             Rectangle displayArea,
@@ -530,7 +710,7 @@ public class LabelCacheImpl implements LabelCache {
             int paintedLineLabels,
             LabelPainter painter,
             LabelCacheItem labelItem) {
-        boolean painted;
+        boolean painted = false;
         try {
             painter.setLabel(labelItem);
             // LabelCacheItem labelItem = (LabelCacheItem)
@@ -553,7 +733,7 @@ public class LabelCacheImpl implements LabelCache {
 
             Geometry geom = labelItem.getGeometry();
             if ((geom instanceof Point) || (geom instanceof MultiPoint))
-                paintPointLabel(painter, tempTransform, displayArea, glyphs);
+                painted = paintPointLabel(painter, tempTransform, displayArea, glyphs);
             else if (((geom instanceof LineString) && !(geom instanceof LinearRing))
                     || (geom instanceof MultiLineString)) {
                 if (!DISABLE_LETTER_LEVEL_CONFLICT)
@@ -570,10 +750,10 @@ public class LabelCacheImpl implements LabelCache {
                 if (labelItem.getTextStyle().isPointPlacement()
                         && !labelItem.isFollowLineEnabled()) {
                     // labelling the polygon centroid/label point
-                    paintPolygonLabel(painter, tempTransform, displayArea, glyphs);
+                    painted = paintPolygonLabel(painter, tempTransform, displayArea, glyphs);
                 } else {
                     // labelling the polygon border(s)
-                    paintPolygonBorder(painter, tempTransform, displayArea, glyphs);
+                    painted = paintPolygonBorder(painter, tempTransform, displayArea, glyphs);
                 }
         } catch (Exception e) {
             if (LOGGER.isLoggable(Level.FINE)) {
@@ -583,6 +763,11 @@ public class LabelCacheImpl implements LabelCache {
                 listener.errorOccurred(e);
             }
         }
+        if (painted) {
+            placedLabels++;
+        } else {
+            rejectedLabels++;
+        }
         return paintedLineLabels;
     }
 
@@ -675,12 +860,7 @@ public class LabelCacheImpl implements LabelCache {
             LabelIndex paintedBounds)
             throws Exception {
         final LabelCacheItem labelItem = painter.getLabel();
-        List<LineString> lines =
-                getLineSetRepresentativeLocation(
-                        labelItem.getGeoms(),
-                        displayArea,
-                        labelItem.removeGroupOverlaps(),
-                        labelItem.isPartialsEnabled());
+        List<LineString> lines = getLineSetRepresentativeLocation(labelItem, displayArea);
 
         if (lines == null || lines.size() == 0) return false;
 
@@ -899,12 +1079,7 @@ public class LabelCacheImpl implements LabelCache {
             LabelIndex paintedBounds)
             throws Exception {
         final LabelCacheItem labelItem = painter.getLabel();
-        List<LineString> lines =
-                getLineSetRepresentativeLocation(
-                        labelItem.getGeoms(),
-                        displayArea,
-                        labelItem.removeGroupOverlaps(),
-                        labelItem.isPartialsEnabled());
+        List<LineString> lines = getLineSetRepresentativeLocation(labelItem, displayArea);
 
         if (lines == null || lines.size() == 0) return false;
 
@@ -1286,9 +1461,12 @@ public class LabelCacheImpl implements LabelCache {
             throws Exception {
         LabelCacheItem labelItem = painter.getLabel();
         // get the point onto the shape has to be painted
+        Object prepared = getPreparedLocation(labelItem);
         Point point =
-                getPointSetRepresentativeLocation(
-                        labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
+                prepared != NOT_PREPARED
+                        ? (Point) prepared
+                        : getPointSetRepresentativeLocation(
+                                labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
         if (point == null) return false;
 
         // prepare for the search loop
@@ -1522,9 +1700,12 @@ public class LabelCacheImpl implements LabelCache {
             LabelIndex glyphs)
             throws Exception {
         LabelCacheItem labelItem = painter.getLabel();
+        Object prepared = getPreparedLocation(labelItem);
         Polygon geom =
-                getPolySetRepresentativeLocation(
-                        labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
+                prepared != NOT_PREPARED
+                        ? (Polygon) prepared
+                        : getPolySetRepresentativeLocation(
+                                labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
         if (geom == null) {
             return false;
         }
@@ -1716,6 +1897,21 @@ public class LabelCacheImpl implements LabelCache {
         return pts.get(0);
     }
 
+    /** Returns the representative lines of the label, computed in advance if possible */
+    @SuppressWarnings("unchecked")
+    private List<LineString> getLineSetRepresentativeLocation(
+            LabelCacheItem labelItem, Rectangle displayArea) {
+        Object prepared = getPreparedLocation(labelItem);
+        if (prepared != NOT_PREPARED) {
+            return (List<LineString>) prepared;
+        }
+        return getLineSetRepresentativeLocation(
+                labelItem.getGeoms(),
+                displayArea,
+                labelItem.removeGroupOverlaps(),
+                labelItem.isPartialsEnabled());
+    }
+
     /**
      * 1. make a list of all the geoms (not clipped) NOTE: reject points, convert polygons to their
      * exterior ring (you shouldnt be calling this function with points and polys) 2. join the lines
@@ -17,20 +17,80 @@
 package org.geotools.renderer.label;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.index.quadtree.Quadtree;
 
 /**
  * Stores label items and helps in finding the interferering ones, either by pure overlap or within
  * a certain distance from the specified bounds
  *
+ * <p>The label bounds are packed in a primitive array and indexed by a uniform grid, the grid cells
+ * being looked up in an open addressing hash table, so that the index does not need to know the
+ * extent of the map in advance. Items spanning too many cells, like large reserved areas, are kept
+ * aside and checked linearly. The interference checks are the same as the ones performed on JTS
+ * envelopes, bounds touching each other are considered to interfere.
+ *
  * @author Andrea Aime
  */
 public class LabelIndex {
 
-    Quadtree index = new Quadtree();
+    /** Default grid cell size, in pixels, in the same order of magnitude of a short label */
+    static final double DEFAULT_CELL_SIZE = 64;
+
+    /** Items covering more cells than this are not gridded, but checked linearly */
+    static final int MAX_ITEM_CELLS = 64;
+
+    static final int EMPTY = -1;
+
+    final double cellSize;
+
+    /** The item bounds, packed as minx, miny, maxx, maxy */
+    double[] bounds = new double[64];
+
+    /** The items (keeping the item around helps in debugging), null for reserved areas */
+    LabelCacheItem[] items = new LabelCacheItem[16];
+
+    int count;
+
+    /** The items not stored in the grid */
+    int[] large = new int[8];
+
+    int largeCount;
+
+    /** Grid cell keys, in an open addressing hash table */
+    long[] cellKeys;
+
+    /** Head of the entry list for each cell, parallel to {@link #cellKeys} */
+    int[] cellHeads;
+
+    int cellCount;
+
+    /** Item referenced by each grid entry */
+    int[] entryItems = new int[64];
+
+    /** Next entry in the same cell, or {@link #EMPTY} */
+    int[] entryNext = new int[64];
+
+    int entryCount;
+
+    public LabelIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Builds an index with the specified grid cell size
+     *
+     * @param cellSize The cell size, in pixels
+     */
+    public LabelIndex(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive, got " + cellSize);
+        }
+        this.cellSize = cellSize;
+        cellKeys = new long[64];
+        cellHeads = new int[64];
+        Arrays.fill(cellHeads, EMPTY);
+    }
 
     /**
      * Returns true if there is any label in the index within the specified distance from the
@@ -41,20 +101,55 @@ public class LabelIndex {
      * @param distance
      * @return
      */
-    @SuppressWarnings("unchecked")
     public boolean labelsWithinDistance(Rectangle2D bounds, double distance) {
         if (distance < 0) return false;
+        if (count == 0) return false;
 
-        Envelope e = toEnvelope(bounds);
-        e.expandBy(distance);
-        List<InterferenceItem> results = index.query(e);
-        if (results.size() == 0) return false;
-        for (Iterator<InterferenceItem> it = results.iterator(); it.hasNext(); ) {
-            InterferenceItem item = it.next();
-            if (item.env.intersects(e)) {
+        double minx = Math.min(bounds.getMinX(), bounds.getMaxX()) - distance;
+        double maxx = Math.max(bounds.getMinX(), bounds.getMaxX()) + distance;
+        double miny = Math.min(bounds.getMinY(), bounds.getMaxY()) - distance;
+        double maxy = Math.max(bounds.getMinY(), bounds.getMaxY()) + distance;
+        if (maxx < minx || maxy < miny) {
+            // same as a null envelope, it does not intersect anything
+            return false;
+        }
+
+        for (int i = 0; i < largeCount; i++) {
+            if (intersects(large[i], minx, miny, maxx, maxy)) {
                 return true;
             }
         }
+        if (count == largeCount) {
+            return false;
+        }
+
+        int c0 = cell(minx);
+        int c1 = cell(maxx);
+        int r0 = cell(miny);
+        int r1 = cell(maxy);
+        long cells = ((long) c1 - c0 + 1) * ((long) r1 - r0 + 1);
+        if (cells > count || Double.isNaN(minx + maxx + miny + maxy)) {
+            // cheaper to scan all items than to probe all the cells
+            for (int i = 0; i < count; i++) {
+                if (intersects(i, minx, miny, maxx, maxy)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int slot = findSlot(key(c, r));
+                for (int e = cellHeads[slot]; e != EMPTY; e = entryNext[e]) {
+                    if (intersects(entryItems[e], minx, miny, maxx, maxy)) {
+                        return true;
+                    }
+                }
+                if (c == Integer.MAX_VALUE) break;
+            }
+            if (r == Integer.MAX_VALUE) break;
+        }
         return false;
     }
 
@@ -65,48 +160,140 @@ public class LabelIndex {
      * @param bounds
      */
     public void addLabel(LabelCacheItem item, Rectangle2D bounds) {
-        Envelope e = toEnvelope(bounds);
-        index.insert(e, new InterferenceItem(e, item));
+        insert(item, bounds);
     }
 
     /**
-     * Turns the specified Java2D rectangle into a JTS envelope
+     * Reserve the area indicated by these Geometry.
      *
-     * @param bounds
-     * @return
+     * @param reserved
      */
-    private Envelope toEnvelope(Rectangle2D bounds) {
-        return new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds.getMaxY());
+    public void reserveArea(List<Rectangle2D> reserved) {
+        for (Rectangle2D area : reserved) {
+            insert(null, area);
+        }
     }
 
-    /**
-     * Simple structure stored into the quadtree (keeping the item around helps in debugging)
-     *
-     * @author Andrea Aime
-     */
-    static class InterferenceItem {
-        Envelope env;
+    private void insert(LabelCacheItem item, Rectangle2D area) {
+        // same normalization as a JTS envelope
+        double x1 = area.getMinX();
+        double x2 = area.getMaxX();
+        double y1 = area.getMinY();
+        double y2 = area.getMaxY();
+        double minx = x1 < x2 ? x1 : x2;
+        double maxx = x1 < x2 ? x2 : x1;
+        double miny = y1 < y2 ? y1 : y2;
+        double maxy = y1 < y2 ? y2 : y1;
+
+        int idx = count++;
+        if (idx == items.length) {
+            items = Arrays.copyOf(items, items.length * 2);
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        items[idx] = item;
+        bounds[idx * 4] = minx;
+        bounds[idx * 4 + 1] = miny;
+        bounds[idx * 4 + 2] = maxx;
+        bounds[idx * 4 + 3] = maxy;
 
-        LabelCacheItem item;
+        int c0 = cell(minx);
+        int c1 = cell(maxx);
+        int r0 = cell(miny);
+        int r1 = cell(maxy);
+        long cells = ((long) c1 - c0 + 1) * ((long) r1 - r0 + 1);
+        if (cells > MAX_ITEM_CELLS || Double.isNaN(minx + maxx + miny + maxy)) {
+            if (largeCount == large.length) {
+                large = Arrays.copyOf(large, large.length * 2);
+            }
+            large[largeCount++] = idx;
+            return;
+        }
 
-        public InterferenceItem(Envelope env, LabelCacheItem item) {
-            super();
-            this.env = env;
-            this.item = item;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                addEntry(key(c, r), idx);
+                if (c == Integer.MAX_VALUE) break;
+            }
+            if (r == Integer.MAX_VALUE) break;
         }
     }
 
-    /**
-     * Reserve the area indicated by these Geometry.
-     *
-     * @param reserved
-     */
-    public void reserveArea(List<Rectangle2D> reserved) {
-        for (Rectangle2D area : reserved) {
-            Envelope env = toEnvelope(area);
+    /** Same checks as {@link org.locationtech.jts.geom.Envelope#intersects} */
+    private boolean intersects(int idx, double minx, double miny, double maxx, double maxy) {
+        int base = idx * 4;
+        double iminx = bounds[base];
+        double iminy = bounds[base + 1];
+        double imaxx = bounds[base + 2];
+        double imaxy = bounds[base + 3];
+        if (imaxx < iminx) {
+            return false;
+        }
+        return !(iminx > maxx || imaxx < minx || iminy > maxy || imaxy < miny);
+    }
+
+    /** Returns the grid cell containing the ordinate, saturating on the int range */
+    private int cell(double ordinate) {
+        double c = Math.floor(ordinate / cellSize);
+        if (c >= Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        } else if (c <= Integer.MIN_VALUE) {
+            return Integer.MIN_VALUE;
+        } else {
+            return (int) c;
+        }
+    }
+
+    private static long key(int column, int row) {
+        return ((long) column << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
 
-            InterferenceItem item = new InterferenceItem(env, null);
-            index.insert(env, item);
+    /** Returns the slot holding the key, or the empty slot where it should be inserted */
+    private int findSlot(long key) {
+        int mask = cellKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (cellHeads[slot] != EMPTY && cellKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void addEntry(long key, int idx) {
+        if (entryCount == entryItems.length) {
+            entryItems = Arrays.copyOf(entryItems, entryItems.length * 2);
+            entryNext = Arrays.copyOf(entryNext, entryNext.length * 2);
+        }
+        int slot = findSlot(key);
+        if (cellHeads[slot] == EMPTY) {
+            if ((cellCount + 1) * 2 > cellKeys.length) {
+                rehash();
+                slot = findSlot(key);
+            }
+            cellKeys[slot] = key;
+            cellCount++;
+        }
+        int entry = entryCount++;
+        entryItems[entry] = idx;
+        entryNext[entry] = cellHeads[slot];
+        cellHeads[slot] = entry;
+    }
+
+    private void rehash() {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+        cellKeys = new long[oldKeys.length * 2];
+        cellHeads = new int[oldHeads.length * 2];
+        Arrays.fill(cellHeads, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != EMPTY) {
+                int slot = findSlot(oldKeys[i]);
+                cellKeys[slot] = oldKeys[i];
+                cellHeads[slot] = oldHeads[i];
+            }
         }
     }
 }
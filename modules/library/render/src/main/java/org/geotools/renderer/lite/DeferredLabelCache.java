@@ -0,0 +1,189 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.referencing.operation.transform.ProjectiveTransform;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.util.NumberRange;
+import org.opengis.feature.Feature;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * A label cache that just records the labels and the reserved areas it receives, so that they
+ * can be replayed later into the label cache of the map being rendered. Used when layers are
+ * rendered in parallel, in order to keep a single, deterministic label conflict resolution at the
+ * end of the rendering process, or when a meta tile is split in tiles, to resolve the labels of
+ * each tile separately.
+ *
+ * <p>The cache lifecycle calls (start, end, layer management) are ignored, the target label cache
+ * is managed by the renderer that owns the map.
+ */
+final class DeferredLabelCache implements LabelCache {
+
+    static final class DeferredLabel {
+        String layerId;
+
+        TextSymbolizer symbolizer;
+
+        Feature feature;
+
+        LiteShape2 shape;
+
+        NumberRange<Double> scaleRange;
+
+        DeferredLabel(
+                String layerId,
+                TextSymbolizer symbolizer,
+                Feature feature,
+                LiteShape2 shape,
+                NumberRange<Double> scaleRange) {
+            this.layerId = layerId;
+            this.symbolizer = symbolizer;
+            this.feature = feature;
+            this.shape = shape;
+            this.scaleRange = scaleRange;
+        }
+    }
+
+    List<DeferredLabel> labels = new ArrayList<DeferredLabel>();
+
+    List<Rectangle2D> reserved = new ArrayList<Rectangle2D>();
+
+    Set<String> layerIds = new LinkedHashSet<String>();
+
+    public synchronized void put(
+            String layerId,
+            TextSymbolizer symbolizer,
+            Feature feature,
+            LiteShape2 shape,
+            NumberRange<Double> scaleRange) {
+        layerIds.add(layerId);
+        labels.add(new DeferredLabel(layerId, symbolizer, feature, shape, scaleRange));
+    }
+
+    public synchronized void put(Rectangle2D area) {
+        reserved.add(area);
+    }
+
+    /**
+     * Pushes the recorded labels and reserved areas into the target label cache, associating the
+     * labels with the specified layer, and then clears the recorded state
+     *
+     * @param target The label cache used by the map renderer
+     * @param layerId The layer identifier in the target label cache
+     */
+    public synchronized void replay(LabelCache target, String layerId) {
+        for (Rectangle2D area : reserved) {
+            target.put(area);
+        }
+        for (DeferredLabel label : labels) {
+            target.put(layerId, label.symbolizer, label.feature, label.shape, label.scaleRange);
+        }
+        clear();
+    }
+
+    /**
+     * Returns the identifiers of the layers that produced labels, in the order they have been
+     * received
+     */
+    public synchronized List<String> getLayerIds() {
+        return new ArrayList<String>(layerIds);
+    }
+
+    /**
+     * Pushes the recorded labels and reserved areas intersecting the specified area into the target
+     * label cache, translating them by the specified offsets. The recorded state is preserved,
+     * allowing to replay it in several caches.
+     *
+     * @param target The label cache receiving the labels
+     * @param area The area of interest, in the coordinates of the recorded labels
+     * @param dx The horizontal translation applied to the labels
+     * @param dy The vertical translation applied to the labels
+     */
+    public synchronized void replay(LabelCache target, Rectangle2D area, double dx, double dy)
+            throws TransformException, FactoryException {
+        AffineTransform at = AffineTransform.getTranslateInstance(dx, dy);
+        MathTransform translation = ProjectiveTransform.create(at);
+        for (Rectangle2D reservedArea : reserved) {
+            if (reservedArea.intersects(area)) {
+                target.put(at.createTransformedShape(reservedArea).getBounds2D());
+            }
+        }
+        for (DeferredLabel label : labels) {
+            if (label.shape.getBounds2D().intersects(area)) {
+                LiteShape2 shape =
+                        new LiteShape2(label.shape.getGeometry(), translation, null, false);
+                target.put(
+                        label.layerId, label.symbolizer, label.feature, shape, label.scaleRange);
+            }
+        }
+    }
+
+    public void start() {
+        // nothing to do, the target cache is managed by the map renderer
+    }
+
+    public void startLayer(String layerId) {
+        // nothing to do, the target cache is managed by the map renderer
+    }
+
+    public void endLayer(String layerId, Graphics2D graphics, Rectangle displayArea) {
+        // nothing to do, the target cache is managed by the map renderer
+    }
+
+    public void end(Graphics2D graphics, Rectangle displayArea) {
+        // nothing to do, labels are painted by the map renderer
+    }
+
+    public void stop() {
+        // nothing to do, the target cache is managed by the map renderer
+    }
+
+    public synchronized void clear() {
+        labels.clear();
+        reserved.clear();
+        layerIds.clear();
+    }
+
+    public void clear(String layerId) {
+        clear();
+    }
+
+    public void disableLayer(String layerId) {
+        // nothing to do, the target cache is managed by the map renderer
+    }
+
+    public void enableLayer(String layerId) {
+        // nothing to do, the target cache is managed by the map renderer
+    }
+
+    public List orderedLabels() {
+        return Collections.emptyList();
+    }
+}
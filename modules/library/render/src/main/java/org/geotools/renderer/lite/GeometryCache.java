@@ -0,0 +1,306 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.geotools.data.DataAccess;
+import org.geotools.geometry.jts.Decimator;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.type.Name;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * A bounded, least recently used cache of geometries already reprojected and generalized for
+ * rendering, allowing layers whose data does not change to skip both steps on the following
+ * requests: only the affine transformation to the screen is applied to the cached geometries.
+ *
+ * <p>The cache is enabled by setting an instance as the {@link
+ * StreamingRenderer#GEOMETRY_CACHE_KEY} renderer hint, and is used only for the layers having
+ * {@link #STATIC_LAYER_KEY} set to {@link Boolean#TRUE} in their user data. The same instance can
+ * be shared among renderers, and should be {@link #clear() cleared} when the data of a static
+ * layer is modified.
+ *
+ * <p>Geometries are cached by data source, feature type, geometry property, source and target
+ * CRS, feature identifier and scale band. A scale band covers a quarter of a zoom level, the
+ * geometries are generalized at the finest distance of the band, so that the same geometry is
+ * used for all the scales in the band. The cache is not used for features lacking a stable
+ * identifier, for point symbolizers, and when advanced projection handling is enabled, as the
+ * latter cuts and wraps the geometries depending on the area being rendered.
+ */
+public class GeometryCache {
+
+    /**
+     * Layer user data key, marking the layer as static. Geometries of static layers are cached
+     * when the renderer has a geometry cache.
+     */
+    public static final String STATIC_LAYER_KEY = "staticLayer";
+
+    /** The default maximum number of cached coordinates, about 32MB of 2D coordinates */
+    public static final long DEFAULT_MAX_COORDINATES = 2 * 1024 * 1024;
+
+    /** Number of scale bands per zoom level (halving of the generalization distance) */
+    static final int BANDS_PER_OCTAVE = 4;
+
+    /** Estimated overhead of an entry, expressed in coordinates */
+    static final int ENTRY_OVERHEAD = 8;
+
+    /** Band used when no generalization is performed */
+    static final int NO_GENERALIZATION = Integer.MIN_VALUE;
+
+    /**
+     * The portion of the cache key shared by all the features of a layer rendered at a given
+     * scale, with the decimator generalizing geometries at the finest distance of the band.
+     */
+    static final class Band {
+        final DataAccess<?, ?> source;
+
+        final Name typeName;
+
+        final String geometryName;
+
+        final CoordinateReferenceSystem sourceCrs;
+
+        final CoordinateReferenceSystem targetCrs;
+
+        final int band;
+
+        final Decimator decimator;
+
+        final int hashCode;
+
+        Band(
+                DataAccess<?, ?> source,
+                Name typeName,
+                String geometryName,
+                CoordinateReferenceSystem sourceCrs,
+                CoordinateReferenceSystem targetCrs,
+                int band,
+                Decimator decimator) {
+            this.source = source;
+            this.typeName = typeName;
+            this.geometryName = geometryName;
+            this.sourceCrs = sourceCrs;
+            this.targetCrs = targetCrs;
+            this.band = band;
+            this.decimator = decimator;
+            this.hashCode =
+                    Objects.hash(
+                            System.identityHashCode(source),
+                            typeName,
+                            geometryName,
+                            sourceCrs,
+                            targetCrs,
+                            band);
+        }
+
+        /** The decimator generalizing the geometries of this band */
+        Decimator getDecimator() {
+            return decimator;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Band)) {
+                return false;
+            }
+            Band other = (Band) obj;
+            return source == other.source
+                    && band == other.band
+                    && hashCode == other.hashCode
+                    && Objects.equals(typeName, other.typeName)
+                    && Objects.equals(geometryName, other.geometryName)
+                    && Objects.equals(sourceCrs, other.sourceCrs)
+                    && Objects.equals(targetCrs, other.targetCrs);
+        }
+    }
+
+    static final class Key {
+        final Band band;
+
+        final String fid;
+
+        Key(Band band, String fid) {
+            this.band = band;
+            this.fid = fid;
+        }
+
+        @Override
+        public int hashCode() {
+            return band.hashCode * 31 + fid.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return fid.equals(other.fid) && band.equals(other.band);
+        }
+    }
+
+    static final class Entry {
+        final Geometry geometry;
+
+        final long weight;
+
+        Entry(Geometry geometry, long weight) {
+            this.geometry = geometry;
+            this.weight = weight;
+        }
+    }
+
+    final long maxCoordinates;
+
+    final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(1024, 0.75f, true);
+
+    long coordinates;
+
+    long hits;
+
+    long misses;
+
+    /** Builds a cache holding at most {@link #DEFAULT_MAX_COORDINATES} coordinates */
+    public GeometryCache() {
+        this(DEFAULT_MAX_COORDINATES);
+    }
+
+    /**
+     * Builds a cache holding at most the specified number of coordinates. The least recently used
+     * geometries are evicted when the limit is exceeded.
+     *
+     * @param maxCoordinates The maximum number of coordinates in the cache
+     */
+    public GeometryCache(long maxCoordinates) {
+        if (maxCoordinates <= 0) {
+            throw new IllegalArgumentException(
+                    "The maximum number of coordinates must be positive");
+        }
+        this.maxCoordinates = maxCoordinates;
+    }
+
+    /**
+     * Builds the band for the specified layer and generalization spans
+     *
+     * @param source The data source of the layer
+     * @param typeName The layer feature type name
+     * @param geometryName The rendered geometry property, or null for the default geometry
+     * @param sourceCrs The native CRS of the geometries
+     * @param targetCrs The rendering CRS
+     * @param decimator The decimator built for the current rendering, in native units
+     */
+    static Band getBand(
+            DataAccess<?, ?> source,
+            Name typeName,
+            String geometryName,
+            CoordinateReferenceSystem sourceCrs,
+            CoordinateReferenceSystem targetCrs,
+            Decimator decimator) {
+        double spanx = decimator.getSpanX();
+        double spany = decimator.getSpanY();
+        int band;
+        Decimator bandDecimator;
+        if (spanx <= 0 || spany <= 0 || Double.isInfinite(spanx) || Double.isNaN(spanx)) {
+            band = NO_GENERALIZATION;
+            bandDecimator = new Decimator(-1, -1);
+        } else {
+            // generalize at the finest distance of the band, the result is the same for all
+            // the scales falling in it
+            band = (int) Math.floor(Math.log(spanx) / Math.log(2) * BANDS_PER_OCTAVE);
+            double bandSpan = Math.pow(2, band / (double) BANDS_PER_OCTAVE);
+            bandDecimator = new Decimator(bandSpan, spany * bandSpan / spanx);
+        }
+        return new Band(source, typeName, geometryName, sourceCrs, targetCrs, band, bandDecimator);
+    }
+
+    /**
+     * Returns the cached geometry, or null if missing. The returned geometry is shared and must
+     * not be modified.
+     */
+    synchronized Geometry get(Band band, String fid) {
+        Entry entry = entries.get(new Key(band, fid));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.geometry;
+    }
+
+    /**
+     * Caches the geometry, evicting the least recently used ones if the cache grows past its
+     * limit. Geometries larger than the whole cache are ignored.
+     */
+    synchronized void put(Band band, String fid, Geometry geometry) {
+        long weight = geometry.getNumPoints() + ENTRY_OVERHEAD;
+        if (weight > maxCoordinates) {
+            return;
+        }
+        Entry previous = entries.put(new Key(band, fid), new Entry(geometry, weight));
+        if (previous != null) {
+            coordinates -= previous.weight;
+        }
+        coordinates += weight;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (coordinates > maxCoordinates && it.hasNext()) {
+            coordinates -= it.next().getValue().weight;
+            it.remove();
+        }
+    }
+
+    /** Removes all the cached geometries */
+    public synchronized void clear() {
+        entries.clear();
+        coordinates = 0;
+    }
+
+    /** Returns the number of cached geometries */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Returns the estimated number of coordinates held by the cache */
+    public synchronized long getCoordinates() {
+        return coordinates;
+    }
+
+    /** Returns the maximum number of coordinates held by the cache */
+    public long getMaxCoordinates() {
+        return maxCoordinates;
+    }
+
+    /** Returns the number of lookups that found a cached geometry */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Returns the number of lookups that did not find a cached geometry */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
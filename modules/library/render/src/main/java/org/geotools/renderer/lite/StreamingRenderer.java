@@ -30,6 +30,7 @@ import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
@@ -38,17 +39,23 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.logging.Level;
@@ -105,6 +112,10 @@ import org.geotools.referencing.operation.transform.ConcatenatedTransform;
 import org.geotools.referencing.operation.transform.ProjectiveTransform;
 import org.geotools.renderer.GTRenderer;
 import org.geotools.renderer.RenderListener;
+import org.geotools.renderer.RenderingStatistics;
+import org.geotools.renderer.RenderingStatistics.LayerStatistics;
+import org.geotools.renderer.RenderingStatistics.Phase;
+import org.geotools.renderer.RenderingStatisticsListener;
 import org.geotools.renderer.crs.ProjectionHandler;
 import org.geotools.renderer.crs.ProjectionHandlerFinder;
 import org.geotools.renderer.label.LabelCacheImpl;
@@ -120,6 +131,7 @@ import org.geotools.styling.PointSymbolizer;
 import org.geotools.styling.RasterSymbolizer;
 import org.geotools.styling.Rule;
 import org.geotools.styling.RuleImpl;
+import org.geotools.styling.Style;
 import org.geotools.styling.Symbolizer;
 import org.geotools.styling.TextSymbolizer;
 import org.geotools.styling.visitor.DpiRescaleStyleVisitor;
@@ -146,6 +158,7 @@ import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.expression.Function;
 import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.parameter.GeneralParameterValue;
 import org.opengis.referencing.FactoryException;
@@ -345,6 +358,47 @@ public class StreamingRenderer implements GTRenderer {
      */
     public static final String OPTIMIZE_FTS_RENDERING_KEY = "optimizeFTSRendering";
 
+    /**
+     * Boolean flag enabling parallel rendering of layers (disabled by default).
+     *
+     * <p>When enabled, and a thread pool has been provided via {@link
+     * #setThreadPool(ExecutorService)}, each layer not involved in compositing is read and painted
+     * in its own back buffer on the thread pool. The back buffers are then merged in z-order onto
+     * the target graphics, while labels are still resolved in a single label cache at the end of
+     * the rendering.
+     *
+     * <p>Each layer rendered in parallel uses a back buffer as big as the image being rendered,
+     * trading memory for a lower rendering latency on multi-core machines.
+     */
+    public static final String PARALLEL_LAYER_RENDERING_KEY = "parallelLayerRendering";
+
+    /**
+     * Boolean flag making the screen map cells as big as the generalization distance, instead of
+     * one pixel (disabled by default).
+     *
+     * <p>With a generalization distance below one pixel the screen map tracks sub-pixel positions,
+     * painting more of the small features, with a distance above one pixel it becomes coarser,
+     * allowing data stores to skip more features before decoding their geometries.
+     */
+    public static final String GENERALIZATION_AWARE_SCREENMAP_KEY = "generalizationAwareScreenMap";
+
+    /**
+     * The {@link GeometryCache} holding the reprojected and generalized geometries of the static
+     * layers, that is, the layers having {@link GeometryCache#STATIC_LAYER_KEY} set in their user
+     * data (no cache by default). The cache can be shared among renderers.
+     */
+    public static final String GEOMETRY_CACHE_KEY = "geometryCache";
+
+    /**
+     * Number of pixels by which reprojected vertices may be off their exact position (disabled by
+     * default). When set, and advanced projection handling is enabled, the reprojection is
+     * approximated by interpolating on a grid covering the query area, making its cost close to the
+     * one of an affine transform. A value of 0.5 or less is visually indistinguishable from exact
+     * reprojection.
+     */
+    public static final String APPROXIMATE_REPROJECTION_TOLERANCE_KEY =
+            "approximateReprojectionTolerance";
+
     /**
      * Enables advanced reprojection handling. Geometries will be sliced to fit into the area of
      * definition of the rendering projection.
@@ -403,6 +457,25 @@ public class StreamingRenderer implements GTRenderer {
 
     private PainterThread painterThread;
 
+    /** The renderer painting a meta tile, while {@link #paintTiles} is running */
+    private StreamingRenderer metaTileRenderer;
+
+    /** The layers being rendered in parallel whose labels have not been collected yet */
+    private List<ParallelLayerTask> parallelLayerTasks =
+            new CopyOnWriteArrayList<ParallelLayerTask>();
+
+    /** The screen maps allocated for the layer being rendered, released once it's done */
+    private List<ScreenMap> screenMaps = new ArrayList<ScreenMap>();
+
+    /** The statistics of the current rendering, if any {@link RenderingStatisticsListener} */
+    private RenderingStatistics statistics;
+
+    /** The statistics of the layer being rendered, if statistics are being collected */
+    private LayerStatistics layerStatistics;
+
+    /** Set on renderers painting a single layer on behalf of another one */
+    private LayerStatistics parentLayerStatistics;
+
     /**
      * Creates a new instance of LiteRenderer without a context. Use it only to gain access to
      * utility methods of this class or if you want to render random feature collections instead of
@@ -411,7 +484,8 @@ public class StreamingRenderer implements GTRenderer {
     public StreamingRenderer() {}
 
     /**
-     * Sets a thread pool to be used in parallel rendering
+     * Sets a thread pool to be used in parallel rendering. The pool is also used by the label
+     * cache, if a {@link LabelCacheImpl}, to compute the label locations.
      *
      * @param threadPool
      */
@@ -479,6 +553,38 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    /**
+     * Builds the statistics collector, if any listener is interested in them
+     *
+     * @return
+     */
+    private RenderingStatistics createStatistics() {
+        for (RenderListener listener : renderListeners) {
+            if (listener instanceof RenderingStatisticsListener) {
+                return new RenderingStatistics();
+            }
+        }
+        return null;
+    }
+
+    /** Returns the statistics collector for the specified layer, or null if not collecting */
+    private LayerStatistics getLayerStatistics(Layer layer, String layerId) {
+        if (parentLayerStatistics != null) {
+            return parentLayerStatistics;
+        } else if (statistics != null) {
+            return statistics.getLayer(layerId, layer.getTitle());
+        }
+        return null;
+    }
+
+    private void fireStatisticsEvent(RenderingStatistics statistics) {
+        for (RenderListener listener : renderListeners) {
+            if (listener instanceof RenderingStatisticsListener) {
+                ((RenderingStatisticsListener) listener).renderingStatistics(statistics);
+            }
+        }
+    }
+
     private void fireErrorEvent(Throwable t) {
         LOGGER.log(Level.SEVERE, t.getLocalizedMessage(), t);
         if (renderListeners.size() > 0) {
@@ -502,9 +608,19 @@ public class StreamingRenderer implements GTRenderer {
      */
     public void stopRendering() {
         renderingStopRequested = true;
+        // stop the meta tile rendering, if any
+        StreamingRenderer tileRenderer = metaTileRenderer;
+        if (tileRenderer != null) {
+            tileRenderer.stopRendering();
+            return;
+        }
         // un-block the queue in case it was filled with requests and the main
         // thread got blocked on it
         requests.clear();
+        // stop the layers being rendered in parallel, if any
+        for (ParallelLayerTask task : parallelLayerTasks) {
+            task.stop();
+        }
         // wake up the painter and put a death pill in the queue
         painterThread.interrupt();
         try {
@@ -745,6 +861,9 @@ public class StreamingRenderer implements GTRenderer {
         graphics.setRenderingHint(StyledShapePainter.TEXTURE_ANCHOR_HINT_KEY, textureAnchor);
         // reset the abort flag
         renderingStopRequested = false;
+        statistics = parentLayerStatistics == null ? createStatistics() : null;
+        // the timers are read only when statistics are collected
+        final long paintStart = statistics != null ? System.nanoTime() : 0;
 
         // setup the graphic clip
         graphics.setClip(paintArea);
@@ -794,6 +913,8 @@ public class StreamingRenderer implements GTRenderer {
             localPool = true;
         }
         Future painterFuture = localThreadPool.submit(painterThread);
+        parallelLayerTasks.clear();
+        final boolean parallelLayers = isParallelLayerRenderingEnabled();
         List<CompositingGroup> compositingGroups = null;
         try {
             if (mapContent == null) {
@@ -822,9 +943,13 @@ public class StreamingRenderer implements GTRenderer {
                 // ////////////////////////////////////////////////////////////////////
                 labelCache.start();
                 if (labelCache instanceof LabelCacheImpl) {
-                    ((LabelCacheImpl) labelCache)
-                            .setLabelRenderingMode(
-                                    LabelRenderingMode.valueOf(getTextRenderingMethod()));
+                    LabelCacheImpl labelCacheImpl = (LabelCacheImpl) labelCache;
+                    labelCacheImpl.setLabelRenderingMode(
+                            LabelRenderingMode.valueOf(getTextRenderingMethod()));
+                    if (threadPool != null) {
+                        // compute the label locations in parallel too
+                        labelCacheImpl.setThreadPool(threadPool);
+                    }
                 }
 
                 for (Layer layer : currentMapContent.layers()) {
@@ -839,8 +964,21 @@ public class StreamingRenderer implements GTRenderer {
                         return;
                     }
 
+                    layerStatistics = getLayerStatistics(layer, layerId);
+                    boolean parallel = parallelLayers && isParallelRenderable(layer);
+                    if (!parallel) {
+                        // keep the labels in the same order a sequential rendering would use
+                        collectParallelLayerLabels();
+                    }
+
                     labelCache.startLayer(layerId);
-                    if (layer instanceof DirectLayer) {
+                    if (parallel) {
+                        try {
+                            submitParallelLayer(compositingGraphic, layer, layerId);
+                        } catch (InterruptedException e) {
+                            fireErrorEvent(e);
+                        }
+                    } else if (layer instanceof DirectLayer) {
                         RenderingRequest request =
                                 new RenderDirectLayerRequest(
                                         compositingGraphic, (DirectLayer) layer);
@@ -868,6 +1006,7 @@ public class StreamingRenderer implements GTRenderer {
 
                     labelCache.endLayer(layerId, graphics, screenSize);
                 }
+                collectParallelLayerLabels();
 
                 // have we been painting on a back buffer? If so, merge on the main graphic
                 if (compositingGraphic instanceof DelayedBackbufferGraphic) {
@@ -910,10 +1049,25 @@ public class StreamingRenderer implements GTRenderer {
         }
 
         if (!renderingStopRequested) {
+            long labelStart = statistics != null ? System.nanoTime() : 0;
             labelCache.end(graphics, paintArea);
+            if (statistics != null) {
+                long labelTime = System.nanoTime() - labelStart;
+                if (labelCache instanceof LabelCacheImpl) {
+                    LabelCacheImpl cache = (LabelCacheImpl) labelCache;
+                    statistics.addLabels(
+                            cache.getPlacedLabels(), cache.getRejectedLabels(), labelTime);
+                } else {
+                    statistics.addLabels(0, 0, labelTime);
+                }
+                statistics.setTotalNanos(System.nanoTime() - paintStart);
+                fireStatisticsEvent(statistics);
+            }
         } else {
             labelCache.clear();
         }
+        statistics = null;
+        layerStatistics = null;
 
         if (LOGGER.isLoggable(Level.FINE))
             LOGGER.fine(
@@ -933,6 +1087,142 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    /**
+     * Renders a meta tile and splits it into a grid of tiles. The layers are queried, reprojected
+     * and generalized once for the whole meta tile, while each tile gets its own label conflict
+     * resolution, as if it was rendered on its own. The labels considered for a tile are the ones
+     * whose geometry intersects the tile area, expanded by the rendering buffer, if any.
+     *
+     * <p>The labels of each tile are resolved by a new {@link LabelCacheImpl}, the label cache
+     * eventually provided with the {@link #LABEL_CACHE_KEY} hint is not used.
+     *
+     * @param metaTileArea The area covered by the whole meta tile, in map coordinates
+     * @param tileWidth The width of a single tile, in pixels
+     * @param tileHeight The height of a single tile, in pixels
+     * @param rows The number of tile rows in the meta tile
+     * @param cols The number of tile columns in the meta tile
+     * @return The tiles, indexed as [row][column], with row zero at the top of the meta tile, or
+     *     null if the rendering has been stopped
+     */
+    public BufferedImage[][] paintTiles(
+            ReferencedEnvelope metaTileArea, int tileWidth, int tileHeight, int rows, int cols) {
+        if (metaTileArea == null) {
+            LOGGER.severe("renderer passed null metaTileArea argument");
+            throw new NullPointerException("renderer requires metaTileArea");
+        } else if (tileWidth <= 0 || tileHeight <= 0 || rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid tile grid, tiles are "
+                            + tileWidth
+                            + "x"
+                            + tileHeight
+                            + " pixels, arranged in "
+                            + rows
+                            + " rows and "
+                            + cols
+                            + " columns");
+        }
+
+        // paint the geometries of the whole meta tile once, collecting the labels
+        DeferredLabelCache labels = new DeferredLabelCache();
+        StreamingRenderer renderer = createDelegateRenderer(labels);
+        renderer.setThreadPool(threadPool);
+        renderer.setMapContent(mapContent);
+        Rectangle metaTileSize = new Rectangle(0, 0, tileWidth * cols, tileHeight * rows);
+        BufferedImage metaTile =
+                new BufferedImage(
+                        metaTileSize.width, metaTileSize.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D metaGraphics = metaTile.createGraphics();
+        renderingStopRequested = false;
+        metaTileRenderer = renderer;
+        try {
+            renderer.paint(metaGraphics, metaTileSize, metaTileArea);
+        } finally {
+            metaTileRenderer = null;
+            metaGraphics.dispose();
+        }
+        if (renderingStopRequested) {
+            return null;
+        }
+
+        // split in tiles, each one resolving its own labels
+        int buffer = getRenderingBuffer();
+        BufferedImage[][] tiles = new BufferedImage[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                Rectangle tileArea =
+                        new Rectangle(col * tileWidth, row * tileHeight, tileWidth, tileHeight);
+                BufferedImage tile =
+                        new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D tileGraphics = tile.createGraphics();
+                try {
+                    if (java2dHints != null) {
+                        tileGraphics.setRenderingHints(java2dHints);
+                    }
+                    tileGraphics.drawImage(metaTile, -tileArea.x, -tileArea.y, null);
+                    paintTileLabels(tileGraphics, labels, tileArea, buffer);
+                } finally {
+                    tileGraphics.dispose();
+                }
+                tiles[row][col] = tile;
+            }
+        }
+
+        return tiles;
+    }
+
+    /** Resolves and paints the labels of a single tile, extracted from a meta tile */
+    private void paintTileLabels(
+            Graphics2D graphics, DeferredLabelCache labels, Rectangle tileArea, int buffer) {
+        LabelCacheImpl tileLabelCache = new LabelCacheImpl();
+        tileLabelCache.setLabelRenderingMode(LabelRenderingMode.valueOf(getTextRenderingMethod()));
+        for (RenderListener listener : renderListeners) {
+            tileLabelCache.addRenderListener(listener);
+        }
+        Rectangle displayArea = new Rectangle(0, 0, tileArea.width, tileArea.height);
+        Rectangle2D labelArea =
+                new Rectangle2D.Double(
+                        tileArea.x - buffer,
+                        tileArea.y - buffer,
+                        tileArea.width + buffer * 2,
+                        tileArea.height + buffer * 2);
+        List<String> layerIds = labels.getLayerIds();
+
+        tileLabelCache.start();
+        for (String layerId : layerIds) {
+            tileLabelCache.startLayer(layerId);
+        }
+        try {
+            labels.replay(tileLabelCache, labelArea, -tileArea.x, -tileArea.y);
+        } catch (TransformException | FactoryException e) {
+            fireErrorEvent(e);
+        }
+        for (String layerId : layerIds) {
+            tileLabelCache.endLayer(layerId, graphics, displayArea);
+        }
+        tileLabelCache.end(graphics, displayArea);
+    }
+
+    /**
+     * Builds a renderer mirroring the configuration of this one, collecting the labels in the
+     * provided cache instead of painting them
+     */
+    private StreamingRenderer createDelegateRenderer(DeferredLabelCache labels) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        Map<Object, Object> hints = new HashMap<Object, Object>();
+        if (rendererHints != null) {
+            hints.putAll(rendererHints);
+        }
+        hints.put(LABEL_CACHE_KEY, labels);
+        renderer.setRendererHints(hints);
+        renderer.setJava2DHints(java2dHints);
+        renderer.setGeneralizationDistance(generalizationDistance);
+        renderer.setInteractive(interactive);
+        for (RenderListener listener : renderListeners) {
+            renderer.addRenderListener(listener);
+        }
+        return renderer;
+    }
+
     /**
      * Builds the blocking queue used to bridge between the data loading thread and the painting one
      *
@@ -942,6 +1232,83 @@ public class StreamingRenderer implements GTRenderer {
         return new RenderingBlockingQueue(10000);
     }
 
+    /**
+     * Schedules the rendering of the layer in its own back buffer on the thread pool, and queues
+     * the request that will merge the back buffer on the graphics, preserving the layer z-order
+     */
+    private void submitParallelLayer(Graphics2D graphics, Layer layer, String layerId)
+            throws InterruptedException {
+        final ReferencedEnvelope layerMapArea = originalMapExtent;
+        final Rectangle layerPaintArea = screenSize;
+        final AffineTransform layerWorldToScreen = worldToScreenTransform;
+        final DeferredLabelCache layerLabels = new DeferredLabelCache();
+
+        // configure a renderer for the single layer, the lack of a thread pool disables nested
+        // parallel rendering
+        final StreamingRenderer renderer = createDelegateRenderer(layerLabels);
+        renderer.parentLayerStatistics = layerStatistics;
+
+        ParallelLayerTask task =
+                new ParallelLayerTask(
+                        layerId,
+                        renderer,
+                        layerLabels,
+                        () -> {
+                            BufferedImage image =
+                                    new BufferedImage(
+                                            layerPaintArea.width,
+                                            layerPaintArea.height,
+                                            BufferedImage.TYPE_INT_ARGB_PRE);
+                            Graphics2D layerGraphics = image.createGraphics();
+                            // created only when the task runs, a cancelled task leaves nothing
+                            // to dispose
+                            final MapContent layerContent = new MapContent();
+                            try {
+                                layerContent.addLayer(layer);
+                                renderer.setMapContent(layerContent);
+                                renderer.paint(
+                                        layerGraphics,
+                                        layerPaintArea,
+                                        layerMapArea,
+                                        layerWorldToScreen);
+                            } finally {
+                                layerGraphics.dispose();
+                                // the layer belongs to the caller map, do not dispose it
+                                layerContent.removeLayer(layer);
+                                layerContent.dispose();
+                            }
+                            return image;
+                        });
+        parallelLayerTasks.add(task);
+        threadPool.execute(task);
+        requests.put(new MergeLayerBackbufferRequest(graphics, task));
+    }
+
+    /**
+     * Waits for the layers being rendered in parallel to complete, and moves their labels in the
+     * label cache, in z-order
+     */
+    private void collectParallelLayerLabels() {
+        for (ParallelLayerTask task : parallelLayerTasks) {
+            if (renderingStopRequested) {
+                break;
+            }
+            // if no thread picked the task yet, run it in the current one
+            task.run();
+            try {
+                task.get();
+                task.labels.replay(labelCache, task.layerId);
+            } catch (ExecutionException e) {
+                fireErrorEvent(e.getCause());
+            } catch (CancellationException e) {
+                // rendering has been stopped, nothing to collect
+            } catch (InterruptedException e) {
+                fireErrorEvent(e);
+            }
+        }
+        parallelLayerTasks.clear();
+    }
+
     /**
      * Extends the provided {@link Envelope} in order to add the number of pixels specified by
      * <code>buffer</code> in every direction.
@@ -1038,6 +1405,7 @@ public class StreamingRenderer implements GTRenderer {
                 for (LiteFeatureTypeStyle lfts : styleList) {
                     if (lfts.screenMap != null) {
                         lfts.screenMap = new ScreenMap(lfts.screenMap, metaBuffer);
+                        screenMaps.add(lfts.screenMap);
                     }
                 }
             }
@@ -1501,6 +1869,78 @@ public class StreamingRenderer implements GTRenderer {
         return Boolean.TRUE.equals(result);
     }
 
+    /**
+     * Checks if the screen map cells should be sized after the generalization distance
+     *
+     * @return
+     */
+    private boolean isGeneralizationAwareScreenMapEnabled() {
+        if (rendererHints == null) return false;
+        Object result = rendererHints.get(GENERALIZATION_AWARE_SCREENMAP_KEY);
+        if (result == null) return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Returns the tolerance, in pixels, of the approximated reprojection, or 0 if reprojection is
+     * not to be approximated. See {@link #APPROXIMATE_REPROJECTION_TOLERANCE_KEY}.
+     */
+    private double getApproximateReprojectionTolerance() {
+        if (rendererHints == null) return 0;
+        Object result = rendererHints.get(APPROXIMATE_REPROJECTION_TOLERANCE_KEY);
+        if (result instanceof Number) return ((Number) result).doubleValue();
+        return 0;
+    }
+
+    /**
+     * Returns the geometry cache for static layers, if any
+     *
+     * @return
+     */
+    private GeometryCache getGeometryCache() {
+        if (rendererHints == null) return null;
+        Object result = rendererHints.get(GEOMETRY_CACHE_KEY);
+        if (result instanceof GeometryCache) return (GeometryCache) result;
+        return null;
+    }
+
+    /**
+     * Checks if layers should be rendered in parallel, in separate back buffers
+     *
+     * @return
+     */
+    private boolean isParallelLayerRenderingEnabled() {
+        if (rendererHints == null || threadPool == null || concatTransforms) return false;
+        Object result = rendererHints.get(PARALLEL_LAYER_RENDERING_KEY);
+        if (result == null) return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Checks if the layer can be rendered in its own back buffer. Blending composites need to be
+     * applied against the layers below, layers using them are painted sequentially instead.
+     *
+     * @param layer
+     * @return
+     */
+    private boolean isParallelRenderable(Layer layer) {
+        if (layer instanceof DirectLayer
+                || layer instanceof ZGroupLayer
+                || layer.getFeatureSource() == null) {
+            return false;
+        }
+        Style style = layer.getStyle();
+        if (style == null) {
+            return false;
+        }
+        for (FeatureTypeStyle fts : style.featureTypeStyles()) {
+            if (SLDStyleFactory.getComposite(fts.getOptions()) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Checks if the advanced projection handling is enabled
      *
@@ -1826,6 +2266,10 @@ public class StreamingRenderer implements GTRenderer {
                                     screenSize.y - renderingBuffer,
                                     screenSize.width + renderingBuffer * 2,
                                     screenSize.height + renderingBuffer * 2);
+                    if (isGeneralizationAwareScreenMapEnabled()) {
+                        lfts.screenMap.setCellSize(generalizationDistance);
+                    }
+                    screenMaps.add(lfts.screenMap);
                 }
 
                 result.add(lfts);
@@ -2026,18 +2470,30 @@ public class StreamingRenderer implements GTRenderer {
         List<List<LiteFeatureTypeStyle>> txClassified = classifyByFeatureProduction(lfts);
 
         // render groups by uniform transformation
-        for (List<LiteFeatureTypeStyle> uniform : txClassified) {
-            FeatureCollection features = getFeatures(layer, schema, uniform);
-            if (features == null) {
-                continue;
-            }
+        try {
+            for (List<LiteFeatureTypeStyle> uniform : txClassified) {
+                long queryStart = layerStatistics != null ? System.nanoTime() : 0;
+                FeatureCollection features = getFeatures(layer, schema, uniform);
+                if (layerStatistics != null) {
+                    layerStatistics.addNanos(Phase.QUERY, System.nanoTime() - queryStart);
+                }
+                if (features == null) {
+                    continue;
+                }
 
-            // finally, perform rendering
-            if (isOptimizedFTSRenderingEnabled() && lfts.size() > 1) {
-                drawOptimized(graphics, layerId, features, uniform);
-            } else {
-                drawPlain(graphics, layerId, features, uniform);
+                // finally, perform rendering
+                if (isOptimizedFTSRenderingEnabled() && lfts.size() > 1) {
+                    drawOptimized(graphics, layerId, features, uniform);
+                } else {
+                    drawPlain(graphics, layerId, features, uniform);
+                }
             }
+        } finally {
+            // the readers are closed, the screenmaps bitmaps can be reused by the next layer
+            for (ScreenMap screenMap : screenMaps) {
+                screenMap.release();
+            }
+            screenMaps.clear();
         }
     }
 
@@ -2449,8 +2905,7 @@ public class StreamingRenderer implements GTRenderer {
 
         // for each lite feature type style, scan the whole collection and draw
         for (LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
-            try (FeatureIterator<?> featureIterator =
-                    ((FeatureCollection<?, ?>) features).features()) {
+            try (FeatureIterator<?> featureIterator = openFeatures(features)) {
                 if (featureIterator == null) {
                     return; // nothing to do
                 }
@@ -2481,6 +2936,24 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    /**
+     * Opens the feature iterator, wrapping it so that the read time is recorded, if statistics are
+     * being collected
+     */
+    private <T extends FeatureType, F extends Feature> FeatureIterator<F> openFeatures(
+            FeatureCollection<T, F> features) {
+        if (layerStatistics == null) {
+            return features.features();
+        }
+        long start = System.nanoTime();
+        FeatureIterator<F> iterator = features.features();
+        layerStatistics.addNanos(Phase.READ, System.nanoTime() - start);
+        if (iterator == null) {
+            return null;
+        }
+        return new StatisticsFeatureIterator<F>(iterator, layerStatistics);
+    }
+
     /**
      * Builds a new renderable feature for the given layerId and set of lite feature type styles
      *
@@ -2504,7 +2977,7 @@ public class StreamingRenderer implements GTRenderer {
             FeatureCollection features,
             final List<LiteFeatureTypeStyle> lfts) {
 
-        try (FeatureIterator<?> iterator = features.features()) {
+        try (FeatureIterator<?> iterator = openFeatures(features)) {
             if (iterator == null) return; // nothing to do
 
             boolean cloningRequired = isCloningRequired(lfts);
@@ -2613,6 +3086,7 @@ public class StreamingRenderer implements GTRenderer {
             // init the renderable feature for this fts
             rf.inMemoryGeneralization = fts.inMemoryGeneralization;
             rf.projectionHandler = fts.projectionHandler;
+            rf.transformation = fts.transformation;
             rf.setScreenMap(fts.screenMap);
             rf.layer = fts.layer;
             rf.metaBuffer = fts.metaBuffer;
@@ -2663,6 +3137,26 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    /**
+     * Gives subclasses a chance to take over the output of a feature geometry instead of having it
+     * painted, e.g., to encode it in a vector format. The shape is expressed in screen coordinates,
+     * it has already been reprojected, generalized and processed by the projection handlers, but
+     * not yet clipped.
+     *
+     * <p>This method is called on the thread reading the data. The default implementation returns
+     * false.
+     *
+     * @param layer The layer being rendered
+     * @param feature The feature being rendered
+     * @param symbolizer The symbolizer that would be used to paint the shape
+     * @param shape The shape, in screen coordinates
+     * @return true if the shape has been handled and must not be painted, false otherwise
+     */
+    protected boolean handleShape(
+            Layer layer, Feature feature, Symbolizer symbolizer, LiteShape2 shape) {
+        return false;
+    }
+
     /**
      * Applies each of a set of symbolizers in turn to a given feature.
      *
@@ -2744,12 +3238,20 @@ public class StreamingRenderer implements GTRenderer {
                 // FEATURE
                 //
                 // /////////////////////////////////////////////////////////////////
+                long transformStart = layerStatistics != null ? System.nanoTime() : 0;
                 LiteShape2 shape = drawMe.getShape(symbolizer, worldToScreenTransform);
+                if (layerStatistics != null) {
+                    layerStatistics.addNanos(
+                            Phase.TRANSFORM, System.nanoTime() - transformStart);
+                }
                 if (shape == null) {
                     continue;
                 }
 
-                if (symbolizer instanceof TextSymbolizer && drawMe.feature instanceof Feature) {
+                if (handleShape(drawMe.layer, drawMe.feature, symbolizer, shape)) {
+                    paintCommands++;
+                } else if (symbolizer instanceof TextSymbolizer
+                        && drawMe.feature instanceof Feature) {
                     labelCache.put(
                             drawMe.layerId,
                             (TextSymbolizer) symbolizer,
@@ -2826,6 +3328,7 @@ public class StreamingRenderer implements GTRenderer {
 
                     PaintShapeRequest paintShapeRequest =
                             new PaintShapeRequest(graphics, shape, style, scaleDenominator);
+                    paintShapeRequest.statistics = layerStatistics;
                     if (symbolizer.hasOption("labelObstacle")) {
                         paintShapeRequest.setLabelObstacle(true);
                     }
@@ -3153,6 +3656,8 @@ public class StreamingRenderer implements GTRenderer {
         boolean inMemoryGeneralization;
         ProjectionHandler projectionHandler;
         int metaBuffer;
+        /** The rendering transformation that produced the feature, if any */
+        Expression transformation;
         private IdentityHashMap symbolizerAssociationHT =
                 new IdentityHashMap(); // associate a value
         private List geometries = new ArrayList();
@@ -3188,6 +3693,7 @@ public class StreamingRenderer implements GTRenderer {
                 // the geometry will be transformed simplified in place and the screenmap
                 // really needs to play against the original coordinates, plus, once we start
                 // drawing a geometry we want to apply all symbolizers on it)
+                boolean simplified = false;
                 if (screenMap != null //
                         && !(symbolizer instanceof PointSymbolizer) //
                         && !(g instanceof Point)
@@ -3195,8 +3701,12 @@ public class StreamingRenderer implements GTRenderer {
                     Envelope env = g.getEnvelopeInternal();
                     if (screenMap.canSimplify(env))
                         if (screenMap.checkAndSet(env)) {
+                            if (layerStatistics != null) {
+                                layerStatistics.screenMapSkip();
+                            }
                             return null;
                         } else {
+                            simplified = true;
                             g =
                                     screenMap.getSimplifiedShape(
                                             env.getMinX(),
@@ -3227,11 +3737,19 @@ public class StreamingRenderer implements GTRenderer {
                     sa.xform = fullTransform;
                     sa.crsxform = crsTransform;
                     sa.axform = atTransform;
-                    if (projectionHandler != null) {
+                    double tolerance = getApproximateReprojectionTolerance();
+                    if (projectionHandler != null && tolerance > 0 && sa.crsxform != null) {
+                        // the tolerance is in pixels, the rendering transform in world units
+                        double scale = XAffineTransform.getScale(at);
+                        sa.rxform =
+                                projectionHandler.getApproximatedRenderingTransform(
+                                        sa.crsxform, tolerance / scale);
+                    } else if (projectionHandler != null) {
                         sa.rxform = projectionHandler.getRenderingTransform(sa.crsxform);
                     } else {
                         sa.rxform = sa.crsxform;
                     }
+                    sa.cacheBand = getCacheBand(symbolizer, sa);
 
                     symbolizerAssociationHT.put(symbolizer, sa);
                 }
@@ -3271,6 +3789,8 @@ public class StreamingRenderer implements GTRenderer {
                     } else {
                         return getTransformedShape(RendererUtilities.getCentroid(g), sa);
                     }
+                } else if (sa.cacheBand != null && !simplified) {
+                    return getCachedShape(g, sa);
                 } else {
                     return getTransformedShape(g, sa);
                 }
@@ -3294,6 +3814,74 @@ public class StreamingRenderer implements GTRenderer {
             return -1;
         }
 
+        /**
+         * Returns the geometry cache band for the symbolizer, or null if the geometries it
+         * renders cannot be cached. The geometries produced by a rendering transformation are
+         * not, they are not the ones stored in the layer
+         */
+        private GeometryCache.Band getCacheBand(Symbolizer symbolizer, SymbolizerAssociation sa) {
+            if (projectionHandler != null
+                    || transformation != null
+                    || symbolizer instanceof PointSymbolizer
+                    || sa.axform == null
+                    || layer == null
+                    || layer.getFeatureSource() == null
+                    || !Boolean.TRUE.equals(
+                            layer.getUserData().get(GeometryCache.STATIC_LAYER_KEY))
+                    || getGeometryCache() == null) {
+                return null;
+            }
+            // only plain geometry properties are cached, not computed geometries
+            String geometryName = null;
+            Expression geometry = symbolizer.getGeometry();
+            if (geometry instanceof PropertyName) {
+                geometryName = ((PropertyName) geometry).getPropertyName();
+            } else if (geometry != null) {
+                return null;
+            }
+            FeatureSource<?, ?> source = layer.getFeatureSource();
+            return GeometryCache.getBand(
+                    source.getDataStore(),
+                    source.getSchema().getName(),
+                    geometryName,
+                    sa.crs,
+                    destinationCrs,
+                    getDecimator(sa.xform));
+        }
+
+        /**
+         * Returns the shape for the geometry, using the geometry cache to skip reprojection and
+         * generalization: only the world to screen transformation is applied to the cached
+         * geometry
+         */
+        private LiteShape2 getCachedShape(Geometry originalGeom, SymbolizerAssociation sa)
+                throws TransformException, FactoryException {
+            int idx = getGeometryIndex(originalGeom);
+            if (idx != -1) {
+                return (LiteShape2) shapes.get(idx);
+            }
+            FeatureId id = feature.getIdentifier();
+            if (id == null || id.getID() == null) {
+                return getTransformedShape(originalGeom, sa);
+            }
+
+            GeometryCache cache = getGeometryCache();
+            Geometry geom = cache.get(sa.cacheBand, id.getID());
+            if (geom == null) {
+                int dim = sa.crs != null ? sa.crs.getCoordinateSystem().getDimension() : 2;
+                geom = LiteCoordinateSequence.cloneGeometry(originalGeom, dim);
+                geom = sa.cacheBand.getDecimator().decimateTransformGeneralize(geom, sa.crsxform);
+                geom.geometryChanged();
+                cache.put(sa.cacheBand, id.getID(), geom);
+            }
+            // the cached geometry is shared, transform a copy
+            LiteShape2 shape = new LiteShape2(geom, sa.axform, null, false, true);
+
+            geometries.add(originalGeom);
+            shapes.add(shape);
+            return shape;
+        }
+
         private LiteShape2 getTransformedShape(Geometry originalGeom, SymbolizerAssociation sa)
                 throws TransformException, FactoryException {
             int idx = getGeometryIndex(originalGeom);
@@ -3404,6 +3992,50 @@ public class StreamingRenderer implements GTRenderer {
         abstract void execute();
     }
 
+    /** Wraps a feature iterator, recording the time spent reading and the features read */
+    static class StatisticsFeatureIterator<F extends Feature> implements FeatureIterator<F> {
+        FeatureIterator<F> delegate;
+
+        LayerStatistics statistics;
+
+        StatisticsFeatureIterator(FeatureIterator<F> delegate, LayerStatistics statistics) {
+            this.delegate = delegate;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            try {
+                return delegate.hasNext();
+            } finally {
+                statistics.addNanos(Phase.READ, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public F next() throws NoSuchElementException {
+            long start = System.nanoTime();
+            try {
+                F next = delegate.next();
+                statistics.featureRead();
+                return next;
+            } finally {
+                statistics.addNanos(Phase.READ, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void close() {
+            long start = System.nanoTime();
+            try {
+                delegate.close();
+            } finally {
+                statistics.addNanos(Phase.READ, System.nanoTime() - start);
+            }
+        }
+    }
+
     /**
      * A request to paint a shape with a specific Style2D
      *
@@ -3420,6 +4052,8 @@ public class StreamingRenderer implements GTRenderer {
 
         boolean labelObstacle = false;
 
+        LayerStatistics statistics;
+
         public PaintShapeRequest(
                 Graphics2D graphic, LiteShape2 shape, Style2D style, double scale) {
             this.graphic = graphic;
@@ -3438,11 +4072,16 @@ public class StreamingRenderer implements GTRenderer {
                 ((DelayedBackbufferGraphic) graphic).init();
             }
 
+            long start = statistics != null ? System.nanoTime() : 0;
             try {
                 painter.paint(graphic, shape, style, scale, labelObstacle);
             } catch (Throwable t) {
                 fireErrorEvent(t);
             }
+            if (statistics != null) {
+                statistics.addNanos(Phase.PAINT, System.nanoTime() - start);
+                statistics.shapePainted();
+            }
         }
     }
 
@@ -3506,6 +4145,44 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    /**
+     * A request to merge the back buffer of a layer rendered in parallel to the main graphics. The
+     * painter thread waits for the layer rendering to complete, thus preserving the layer z-order.
+     */
+    protected class MergeLayerBackbufferRequest extends RenderingRequest {
+        Graphics2D graphics;
+
+        ParallelLayerTask task;
+
+        public MergeLayerBackbufferRequest(Graphics2D graphics, ParallelLayerTask task) {
+            this.graphics = graphics;
+            this.task = task;
+        }
+
+        @Override
+        void execute() {
+            // if no thread picked the task yet, run it in the current one
+            task.run();
+            final BufferedImage image;
+            try {
+                image = task.get();
+            } catch (InterruptedException e) {
+                // the rendering is being stopped, preserve the flag for the painter loop
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | CancellationException e) {
+                // failures are reported when collecting the layer labels
+                return;
+            }
+
+            if (graphics instanceof DelayedBackbufferGraphic) {
+                ((DelayedBackbufferGraphic) graphics).init();
+            }
+            graphics.setComposite(AlphaComposite.SrcOver);
+            graphics.drawImage(image, 0, 0, null);
+        }
+    }
+
     protected class MargeCompositingGroupRequest extends RenderingRequest {
         Graphics2D graphics;
 
@@ -3745,6 +4422,35 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    /**
+     * The rendering of a single layer in its own back buffer, performed by a dedicated renderer
+     * whose labels are collected in a {@link DeferredLabelCache}
+     */
+    class ParallelLayerTask extends FutureTask<BufferedImage> {
+        String layerId;
+
+        StreamingRenderer renderer;
+
+        DeferredLabelCache labels;
+
+        public ParallelLayerTask(
+                String layerId,
+                StreamingRenderer renderer,
+                DeferredLabelCache labels,
+                Callable<BufferedImage> rendering) {
+            super(rendering);
+            this.layerId = layerId;
+            this.renderer = renderer;
+            this.labels = labels;
+        }
+
+        /** Stops the layer rendering, without interrupting the thread performing it */
+        public void stop() {
+            renderer.renderingStopRequested = true;
+            cancel(false);
+        }
+    }
+
     /**
      * The secondary thread that actually issues the paint requests against the graphic object
      *
@@ -52,4 +52,10 @@ class SymbolizerAssociation {
      * the projection handler
      */
     public MathTransform rxform;
+
+    /**
+     * The geometry cache band used for the geometries rendered by the symbolizer, or null if they
+     * are not cached
+     */
+    public GeometryCache.Band cacheBand;
 }
@@ -0,0 +1,507 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.mvt;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Encodes features in a Mapbox Vector Tile (version 2.1). The geometries are expected to be in
+ * screen coordinates, with the origin in the upper left corner of the tile, and are quantized on
+ * the tile extent grid while encoding.
+ *
+ * <p>The protocol buffer messages are written directly, the format is simple enough not to
+ * require a dependency on the protobuf runtime.
+ */
+public class VectorTileEncoder {
+
+    /** The default tile extent, as recommended by the specification */
+    public static final int DEFAULT_EXTENT = 4096;
+
+    static final int GEOM_POINT = 1;
+
+    static final int GEOM_LINESTRING = 2;
+
+    static final int GEOM_POLYGON = 3;
+
+    static final int CMD_MOVE_TO = 1;
+
+    static final int CMD_LINE_TO = 2;
+
+    static final int CMD_CLOSE_PATH = 7;
+
+    static final int WIRE_VARINT = 0;
+
+    static final int WIRE_FIXED64 = 1;
+
+    static final int WIRE_LENGTH_DELIMITED = 2;
+
+    static final int WIRE_FIXED32 = 5;
+
+    int extent;
+
+    double scale;
+
+    Map<String, Layer> layers = new LinkedHashMap<String, Layer>();
+
+    /**
+     * Builds a new encoder
+     *
+     * @param extent The tile extent, that is, the size of the grid geometries are quantized to
+     * @param tileSize The tile size in pixels, the coordinates of the geometries are expected to
+     *     be in the [0, tileSize] range, plus eventual buffer
+     */
+    public VectorTileEncoder(int extent, int tileSize) {
+        if (extent <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Extent and tile size must be positive, got " + extent + " and " + tileSize);
+        }
+        this.extent = extent;
+        this.scale = extent / (double) tileSize;
+    }
+
+    /**
+     * Adds a feature to the specified layer. Geometry collections are split in their components,
+     * geometries that collapse once quantized on the tile grid are skipped.
+     *
+     * @param layerName The layer name
+     * @param attributes The feature attributes, null values and values that cannot be represented
+     *     in a vector tile are skipped
+     * @param geometry The feature geometry, in screen coordinates
+     * @return true if the feature has been added, false otherwise
+     */
+    public boolean addFeature(String layerName, Map<String, Object> attributes, Geometry geometry) {
+        if (geometry == null || geometry.isEmpty()) {
+            return false;
+        }
+        if (geometry instanceof GeometryCollection
+                && !(geometry instanceof MultiPoint)
+                && !(geometry instanceof MultiLineString)
+                && !(geometry instanceof MultiPolygon)) {
+            boolean added = false;
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                added |= addFeature(layerName, attributes, geometry.getGeometryN(i));
+            }
+            return added;
+        }
+
+        int type = getGeometryType(geometry);
+        int[] commands = encodeGeometry(geometry);
+        if (commands.length == 0) {
+            return false;
+        }
+
+        Layer layer = layers.get(layerName);
+        if (layer == null) {
+            layer = new Layer(layerName);
+            layers.put(layerName, layer);
+        }
+        layer.features.add(new Feature(type, layer.encodeTags(attributes), commands));
+        return true;
+    }
+
+    /** Returns the number of features encoded so far in the specified layer */
+    public int getFeatureCount(String layerName) {
+        Layer layer = layers.get(layerName);
+        return layer == null ? 0 : layer.features.size();
+    }
+
+    /** Returns the names of the layers encoded so far */
+    public List<String> getLayerNames() {
+        return new ArrayList<String>(layers.keySet());
+    }
+
+    /** Encodes the tile, as a protocol buffer message */
+    public byte[] encode() {
+        ProtoWriter tile = new ProtoWriter();
+        for (Layer layer : layers.values()) {
+            tile.writeMessage(3, layer.encode());
+        }
+        return tile.toByteArray();
+    }
+
+    static int getGeometryType(Geometry geometry) {
+        if (geometry instanceof Point || geometry instanceof MultiPoint) {
+            return GEOM_POINT;
+        } else if (geometry instanceof LineString || geometry instanceof MultiLineString) {
+            return GEOM_LINESTRING;
+        } else if (geometry instanceof Polygon || geometry instanceof MultiPolygon) {
+            return GEOM_POLYGON;
+        }
+        throw new IllegalArgumentException("Unsupported geometry type " + geometry);
+    }
+
+    /** Encodes the geometry as a sequence of commands and zig-zag encoded parameters */
+    int[] encodeGeometry(Geometry geometry) {
+        CommandBuilder builder = new CommandBuilder();
+        if (geometry instanceof Point || geometry instanceof MultiPoint) {
+            builder.points(geometry);
+        } else {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Geometry part = geometry.getGeometryN(i);
+                if (part instanceof LineString) {
+                    builder.lineString(((LineString) part).getCoordinateSequence());
+                } else if (part instanceof Polygon) {
+                    builder.polygon((Polygon) part);
+                }
+            }
+        }
+        return builder.toArray();
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    /** Accumulates geometry commands, tracking the cursor position across them */
+    class CommandBuilder {
+        int[] commands = new int[32];
+
+        int size;
+
+        int cursorX;
+
+        int cursorY;
+
+        void points(Geometry geometry) {
+            int count = geometry.getNumGeometries();
+            int header = size;
+            add(0);
+            int added = 0;
+            for (int i = 0; i < count; i++) {
+                Point p = (Point) geometry.getGeometryN(i);
+                if (p.isEmpty()) {
+                    continue;
+                }
+                moveCursor(quantize(p.getX()), quantize(p.getY()));
+                added++;
+            }
+            if (added == 0) {
+                size = header;
+            } else {
+                commands[header] = command(CMD_MOVE_TO, added);
+            }
+        }
+
+        void lineString(CoordinateSequence cs) {
+            int[] xy = quantize(cs, false);
+            int points = xy.length / 2;
+            if (points < 2) {
+                return;
+            }
+            add(command(CMD_MOVE_TO, 1));
+            moveCursor(xy[0], xy[1]);
+            add(command(CMD_LINE_TO, points - 1));
+            for (int i = 1; i < points; i++) {
+                moveCursor(xy[i * 2], xy[i * 2 + 1]);
+            }
+        }
+
+        void polygon(Polygon polygon) {
+            // holes are meaningless if the shell collapsed
+            if (!ring(polygon.getExteriorRing().getCoordinateSequence(), true)) {
+                return;
+            }
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                ring(polygon.getInteriorRingN(i).getCoordinateSequence(), false);
+            }
+        }
+
+        /**
+         * Encodes a ring, exterior rings must have a positive area in screen coordinates
+         * (clockwise as seen on screen), interior ones a negative area
+         */
+        boolean ring(CoordinateSequence cs, boolean exterior) {
+            int[] xy = quantize(cs, true);
+            int points = xy.length / 2;
+            if (points < 3) {
+                return false;
+            }
+            long area = 0;
+            for (int i = 0; i < points; i++) {
+                int j = (i + 1) % points;
+                area += (long) xy[i * 2] * xy[j * 2 + 1] - (long) xy[j * 2] * xy[i * 2 + 1];
+            }
+            if (area == 0) {
+                return false;
+            }
+            boolean reverse = (area > 0) != exterior;
+            add(command(CMD_MOVE_TO, 1));
+            int first = reverse ? points - 1 : 0;
+            moveCursor(xy[first * 2], xy[first * 2 + 1]);
+            add(command(CMD_LINE_TO, points - 1));
+            for (int i = 1; i < points; i++) {
+                int idx = reverse ? points - 1 - i : i;
+                moveCursor(xy[idx * 2], xy[idx * 2 + 1]);
+            }
+            add(command(CMD_CLOSE_PATH, 1));
+            return true;
+        }
+
+        /**
+         * Quantizes the coordinates on the tile grid, removing the consecutive duplicates and, for
+         * rings, the closing point
+         */
+        int[] quantize(CoordinateSequence cs, boolean ring) {
+            int n = cs.size();
+            int[] xy = new int[n * 2];
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                int x = VectorTileEncoder.this.quantize(cs.getOrdinate(i, 0));
+                int y = VectorTileEncoder.this.quantize(cs.getOrdinate(i, 1));
+                if (count > 0 && xy[count * 2 - 2] == x && xy[count * 2 - 1] == y) {
+                    continue;
+                }
+                xy[count * 2] = x;
+                xy[count * 2 + 1] = y;
+                count++;
+            }
+            if (ring && count > 1 && xy[0] == xy[count * 2 - 2] && xy[1] == xy[count * 2 - 1]) {
+                count--;
+            }
+            int[] result = new int[count * 2];
+            System.arraycopy(xy, 0, result, 0, count * 2);
+            return result;
+        }
+
+        void moveCursor(int x, int y) {
+            add(zigZag(x - cursorX));
+            add(zigZag(y - cursorY));
+            cursorX = x;
+            cursorY = y;
+        }
+
+        void add(int value) {
+            if (size == commands.length) {
+                int[] grown = new int[commands.length * 2];
+                System.arraycopy(commands, 0, grown, 0, size);
+                commands = grown;
+            }
+            commands[size++] = value;
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            System.arraycopy(commands, 0, result, 0, size);
+            return result;
+        }
+    }
+
+    int quantize(double ordinate) {
+        return (int) Math.round(ordinate * scale);
+    }
+
+    /** A vector tile layer, with its key and value dictionaries */
+    class Layer {
+        String name;
+
+        Map<String, Integer> keys = new LinkedHashMap<String, Integer>();
+
+        Map<Object, Integer> values = new LinkedHashMap<Object, Integer>();
+
+        List<Feature> features = new ArrayList<Feature>();
+
+        Layer(String name) {
+            this.name = name;
+        }
+
+        int[] encodeTags(Map<String, Object> attributes) {
+            if (attributes == null || attributes.isEmpty()) {
+                return new int[0];
+            }
+            int[] tags = new int[attributes.size() * 2];
+            int count = 0;
+            for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+                Object value = normalize(entry.getValue());
+                if (entry.getKey() == null || value == null) {
+                    continue;
+                }
+                Integer key = keys.get(entry.getKey());
+                if (key == null) {
+                    key = keys.size();
+                    keys.put(entry.getKey(), key);
+                }
+                Integer valueIdx = values.get(value);
+                if (valueIdx == null) {
+                    valueIdx = values.size();
+                    values.put(value, valueIdx);
+                }
+                tags[count++] = key;
+                tags[count++] = valueIdx;
+            }
+            int[] result = new int[count];
+            System.arraycopy(tags, 0, result, 0, count);
+            return result;
+        }
+
+        /** Maps the value to one of the types supported by the value message */
+        Object normalize(Object value) {
+            if (value == null || value instanceof Geometry) {
+                return null;
+            } else if (value instanceof Byte
+                    || value instanceof Short
+                    || value instanceof Integer
+                    || value instanceof Long) {
+                return ((Number) value).longValue();
+            } else if (value instanceof Float
+                    || value instanceof Double
+                    || value instanceof String
+                    || value instanceof Boolean) {
+                return value;
+            } else if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            return value.toString();
+        }
+
+        byte[] encode() {
+            ProtoWriter writer = new ProtoWriter();
+            writer.writeUInt32(15, 2);
+            writer.writeString(1, name);
+            for (Feature feature : features) {
+                writer.writeMessage(2, feature.encode());
+            }
+            for (String key : keys.keySet()) {
+                writer.writeString(3, key);
+            }
+            for (Object value : values.keySet()) {
+                writer.writeMessage(4, encodeValue(value));
+            }
+            writer.writeUInt32(5, extent);
+            return writer.toByteArray();
+        }
+
+        byte[] encodeValue(Object value) {
+            ProtoWriter writer = new ProtoWriter();
+            if (value instanceof String) {
+                writer.writeString(1, (String) value);
+            } else if (value instanceof Float) {
+                writer.writeTag(2, WIRE_FIXED32);
+                writer.writeFixed32(Float.floatToIntBits((Float) value));
+            } else if (value instanceof Double) {
+                writer.writeTag(3, WIRE_FIXED64);
+                writer.writeFixed64(Double.doubleToLongBits((Double) value));
+            } else if (value instanceof Long) {
+                long l = (Long) value;
+                writer.writeTag(6, WIRE_VARINT);
+                writer.writeVarint((l << 1) ^ (l >> 63));
+            } else if (value instanceof Boolean) {
+                writer.writeTag(7, WIRE_VARINT);
+                writer.writeVarint(((Boolean) value) ? 1 : 0);
+            }
+            return writer.toByteArray();
+        }
+    }
+
+    /** An encoded feature */
+    static class Feature {
+        int type;
+
+        int[] tags;
+
+        int[] geometry;
+
+        Feature(int type, int[] tags, int[] geometry) {
+            this.type = type;
+            this.tags = tags;
+            this.geometry = geometry;
+        }
+
+        byte[] encode() {
+            ProtoWriter writer = new ProtoWriter();
+            if (tags.length > 0) {
+                writer.writePacked(2, tags);
+            }
+            writer.writeUInt32(3, type);
+            writer.writePacked(4, geometry);
+            return writer.toByteArray();
+        }
+    }
+
+    /** Minimal protocol buffer wire format writer */
+    static class ProtoWriter {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void writeTag(int field, int wireType) {
+            writeVarint((field << 3) | wireType);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        void writeFixed32(int value) {
+            for (int i = 0; i < 4; i++) {
+                out.write((value >>> (i * 8)) & 0xFF);
+            }
+        }
+
+        void writeFixed64(long value) {
+            for (int i = 0; i < 8; i++) {
+                out.write((int) ((value >>> (i * 8)) & 0xFF));
+            }
+        }
+
+        void writeUInt32(int field, int value) {
+            writeTag(field, WIRE_VARINT);
+            writeVarint(value & 0xFFFFFFFFL);
+        }
+
+        void writeString(int field, String value) {
+            writeMessage(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeMessage(int field, byte[] bytes) {
+            writeTag(field, WIRE_LENGTH_DELIMITED);
+            writeVarint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        void writePacked(int field, int[] values) {
+            ProtoWriter packed = new ProtoWriter();
+            for (int value : values) {
+                packed.writeVarint(value & 0xFFFFFFFFL);
+            }
+            writeMessage(field, packed.toByteArray());
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
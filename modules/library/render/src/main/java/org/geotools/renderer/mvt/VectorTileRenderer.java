@@ -0,0 +1,170 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.mvt;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.geotools.geometry.jts.GeometryClipper;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.Layer;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.Symbolizer;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.Feature;
+import org.opengis.feature.Property;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.identity.FeatureId;
+
+/**
+ * A {@link StreamingRenderer} producing Mapbox Vector Tiles instead of painting. The features are
+ * selected, queried, reprojected and generalized exactly as they would be for painting the same
+ * map, the resulting screen space geometries are then clipped at the tile buffer and quantized on
+ * the tile extent grid.
+ *
+ * <p>Each feature is encoded once per layer, with the attributes loaded for rendering, regardless
+ * of how many symbolizers apply to it. Raster data is not encoded, and parallel layer rendering is
+ * not supported.
+ */
+public class VectorTileRenderer extends StreamingRenderer {
+
+    int extent = VectorTileEncoder.DEFAULT_EXTENT;
+
+    int buffer = 16;
+
+    VectorTileEncoder encoder;
+
+    GeometryClipper clipper;
+
+    Set<String> encodedFeatures = new HashSet<String>();
+
+    /** Returns the tile extent, the size of the grid the geometries are quantized to */
+    public int getExtent() {
+        return extent;
+    }
+
+    /** Sets the tile extent, the size of the grid the geometries are quantized to */
+    public void setExtent(int extent) {
+        this.extent = extent;
+    }
+
+    /** Returns the tile buffer, in pixels, at which the geometries are clipped */
+    public int getBuffer() {
+        return buffer;
+    }
+
+    /** Sets the tile buffer, in pixels, at which the geometries are clipped */
+    public void setBuffer(int buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void setRendererHints(Map hints) {
+        if (hints != null && hints.containsKey(PARALLEL_LAYER_RENDERING_KEY)) {
+            hints = new HashMap(hints);
+            hints.remove(PARALLEL_LAYER_RENDERING_KEY);
+        }
+        super.setRendererHints(hints);
+    }
+
+    /**
+     * Renders the map content in a vector tile
+     *
+     * @param tileArea The area covered by the tile, in map coordinates
+     * @param tileSize The tile size in pixels, used to compute the scale denominator and the
+     *     generalization distance
+     * @return The encoded vector tile
+     */
+    public byte[] paintVectorTile(ReferencedEnvelope tileArea, int tileSize) {
+        encoder = new VectorTileEncoder(extent, tileSize);
+        clipper =
+                new GeometryClipper(
+                        new Envelope(-buffer, tileSize + buffer, -buffer, tileSize + buffer));
+        encodedFeatures.clear();
+
+        // the rendering machinery needs a graphics, but no vector data will be painted on it
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            paint(graphics, new Rectangle(0, 0, tileSize, tileSize), tileArea);
+            return encoder.encode();
+        } finally {
+            graphics.dispose();
+            encoder = null;
+            clipper = null;
+            encodedFeatures.clear();
+        }
+    }
+
+    @Override
+    protected boolean handleShape(
+            Layer layer, Feature feature, Symbolizer symbolizer, LiteShape2 shape) {
+        if (encoder == null) {
+            // a plain paint call
+            return false;
+        }
+
+        String layerName = getLayerName(layer);
+        FeatureId id = feature.getIdentifier();
+        if (id != null && !encodedFeatures.add(layerName + "/" + id.getID())) {
+            return true;
+        }
+
+        Geometry geometry = clipper.clipSafe(shape.getGeometry(), false, 1);
+        if (geometry != null && !geometry.isEmpty()) {
+            encoder.addFeature(layerName, getAttributes(feature), geometry);
+        }
+        return true;
+    }
+
+    String getLayerName(Layer layer) {
+        String title = layer.getTitle();
+        if (title != null && !title.isEmpty()) {
+            return title;
+        }
+        return layer.getFeatureSource().getSchema().getName().getLocalPart();
+    }
+
+    Map<String, Object> getAttributes(Feature feature) {
+        Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+        if (feature instanceof SimpleFeature) {
+            SimpleFeature sf = (SimpleFeature) feature;
+            for (AttributeDescriptor ad : sf.getFeatureType().getAttributeDescriptors()) {
+                if (!(ad instanceof GeometryDescriptor)) {
+                    String name = ad.getLocalName();
+                    attributes.put(name, sf.getAttribute(name));
+                }
+            }
+        } else {
+            for (Property property : feature.getProperties()) {
+                if (!(property.getDescriptor() instanceof GeometryDescriptor)) {
+                    attributes.put(property.getName().getLocalPart(), property.getValue());
+                }
+            }
+        }
+        return attributes;
+    }
+}
@@ -11,14 +11,25 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import org.geotools.data.DataUtilities;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.renderer.RenderListener;
 import org.geotools.renderer.lite.RendererBaseTest;
+import org.geotools.renderer.lite.StreamingRenderer;
 import org.geotools.styling.Font;
 import org.geotools.styling.StyleBuilder;
 import org.geotools.styling.TextSymbolizer;
@@ -303,6 +314,137 @@ public class LabelCacheImplTest {
         assertNull(exception.get());
     }
 
+    @Test
+    public void testOrderedLabelsStableOnTies() throws Exception {
+        TextSymbolizer low = sb.createTextSymbolizer(Color.BLACK, (Font) null, "name");
+        low.setPriority(sb.literalExpression(10));
+        TextSymbolizer high = sb.createTextSymbolizer(Color.BLACK, (Font) null, "name");
+        high.setPriority(sb.literalExpression(20));
+        for (int i = 0; i < 20; i++) {
+            SimpleFeature f = createFeature("label" + i, L1);
+            cache.put(
+                    LAYER_ID,
+                    i % 3 == 0 ? high : low,
+                    f,
+                    new LiteShape2((Geometry) f.getDefaultGeometry(), null, null, false),
+                    ALL_SCALES);
+        }
+
+        // the historical ordering, sort and then reverse
+        List<LabelCacheItem> expected = cache.getActiveLabels();
+        Collections.sort(expected);
+        Collections.reverse(expected);
+        List<LabelCacheItem> actual = cache.orderedLabels();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testParallelLocationsSameOutput() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            BufferedImage sequential = paintManyLabels(null);
+            BufferedImage parallel = paintManyLabels(pool);
+            int w = sequential.getWidth();
+            int h = sequential.getHeight();
+            assertArrayEquals(
+                    sequential.getRGB(0, 0, w, h, null, 0, w),
+                    parallel.getRGB(0, 0, w, h, null, 0, w));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private BufferedImage paintManyLabels(ExecutorService pool) throws Exception {
+        LabelCacheImpl cache = new LabelCacheImpl();
+        cache.setThreadPool(pool);
+        cache.startLayer(LAYER_ID);
+        Font font = sb.createFont("Bitstream Vera Sans", 10);
+        TextSymbolizer ts = sb.createTextSymbolizer(Color.BLACK, font, "name");
+        Random random = new Random(0);
+        WKTReader reader = new WKTReader();
+        for (int i = 0; i < LabelCacheImpl.PARALLEL_THRESHOLD * 2; i++) {
+            double x = random.nextDouble() * 300;
+            double y = random.nextDouble() * 300;
+            Geometry geom =
+                    i % 2 == 0
+                            ? reader.read("POINT(" + x + " " + y + ")")
+                            : reader.read(
+                                    "LINESTRING(" + x + " " + y + ", " + (x + 60) + " " + y + ")");
+            SimpleFeature f = createFeature("l" + i, geom);
+            cache.put(LAYER_ID, ts, f, new LiteShape2(geom, null, null, false), ALL_SCALES);
+        }
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        cache.endLayer(LAYER_ID, graphics, new Rectangle(0, 0, 300, 300));
+        cache.end(graphics, new Rectangle(0, 0, 300, 300));
+        graphics.dispose();
+        return image;
+    }
+
+    @Test
+    public void testParallelLocationsThroughRenderer() throws Exception {
+        List<SimpleFeature> features = new ArrayList<>();
+        Random random = new Random(0);
+        WKTReader reader = new WKTReader();
+        for (int i = 0; i < LabelCacheImpl.PARALLEL_THRESHOLD * 2; i++) {
+            double x = random.nextDouble() * 30;
+            double y = random.nextDouble() * 30;
+            features.add(createFeature("l" + i, reader.read("POINT(" + x + " " + y + ")")));
+        }
+        TextSymbolizer ts =
+                sb.createTextSymbolizer(
+                        Color.BLACK, sb.createFont("Bitstream Vera Sans", 10), "name");
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(DataUtilities.collection(features), sb.createStyle(ts)));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            AtomicInteger sequentialPreparations = new AtomicInteger();
+            BufferedImage sequential = renderLabels(mc, null, sequentialPreparations);
+            assertEquals(0, sequentialPreparations.get());
+            AtomicInteger parallelPreparations = new AtomicInteger();
+            BufferedImage parallel = renderLabels(mc, pool, parallelPreparations);
+            // the renderer handed its pool to the label cache
+            assertEquals(1, parallelPreparations.get());
+            int w = sequential.getWidth();
+            int h = sequential.getHeight();
+            assertArrayEquals(
+                    sequential.getRGB(0, 0, w, h, null, 0, w),
+                    parallel.getRGB(0, 0, w, h, null, 0, w));
+        } finally {
+            pool.shutdown();
+            mc.dispose();
+        }
+    }
+
+    private BufferedImage renderLabels(
+            MapContent mc, ExecutorService pool, AtomicInteger preparations) {
+        LabelCacheImpl labels =
+                new LabelCacheImpl() {
+                    @Override
+                    void prepareLocations(List<LabelCacheItem> items, Rectangle displayArea) {
+                        preparations.incrementAndGet();
+                        super.prepareLocations(items, displayArea);
+                    }
+                };
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        renderer.setThreadPool(pool);
+        Map<Object, Object> hints = new HashMap<>();
+        hints.put(StreamingRenderer.LABEL_CACHE_KEY, labels);
+        renderer.setRendererHints(hints);
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        renderer.paint(
+                graphics,
+                new Rectangle(0, 0, 300, 300),
+                new ReferencedEnvelope(0, 30, 0, 30, DefaultGeographicCRS.WGS84));
+        graphics.dispose();
+        return image;
+    }
+
     private SimpleFeature createFeature(String label, Geometry geom) {
         fb.add(label);
         fb.add(geom);
@@ -0,0 +1,99 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+
+public class LabelIndexTest {
+
+    @Test
+    public void testEmpty() {
+        LabelIndex index = new LabelIndex();
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(0, 0, 10, 10), 0));
+    }
+
+    @Test
+    public void testTouchingAndDistance() {
+        LabelIndex index = new LabelIndex();
+        index.addLabel(null, new Rectangle2D.Double(0, 0, 10, 10));
+
+        // touching bounds do interfere
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(10, 10, 5, 5), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(12, 12, 5, 5), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(12, 12, 5, 5), 2));
+        // negative distances disable the check
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(5, 5, 1, 1), -1));
+    }
+
+    @Test
+    public void testReservedAndLargeAreas() {
+        LabelIndex index = new LabelIndex(8);
+        index.reserveArea(Collections.singletonList(new Rectangle2D.Double(-1000, 0, 3000, 10)));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(1500, 5, 1, 1), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(1500, 15, 1, 1), 0));
+
+        // a query spanning many cells
+        index.addLabel(null, new Rectangle2D.Double(-50, -50, 1, 1));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(-60, -60, 500, 5), 0));
+    }
+
+    @Test
+    public void testSameAsEnvelopeChecks() {
+        Random random = new Random(0);
+        LabelIndex index = new LabelIndex(16);
+        List<Envelope> envelopes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Rectangle2D r = randomRectangle(random);
+            envelopes.add(new Envelope(r.getMinX(), r.getMaxX(), r.getMinY(), r.getMaxY()));
+            index.addLabel(null, r);
+
+            Rectangle2D query = randomRectangle(random);
+            double distance = random.nextInt(5);
+            Envelope qe =
+                    new Envelope(
+                            query.getMinX(), query.getMaxX(), query.getMinY(), query.getMaxY());
+            qe.expandBy(distance);
+            boolean expected = false;
+            for (Envelope e : envelopes) {
+                if (e.intersects(qe)) {
+                    expected = true;
+                    break;
+                }
+            }
+            assertEquals(expected, index.labelsWithinDistance(query, distance));
+        }
+    }
+
+    private Rectangle2D randomRectangle(Random random) {
+        double x = random.nextInt(2000) - 500;
+        double y = random.nextInt(2000) - 500;
+        // mostly label sized, a few very large ones
+        double w = random.nextInt(10) == 0 ? random.nextInt(1000) : random.nextInt(60);
+        double h = random.nextInt(20);
+        return new Rectangle2D.Double(x, y, w, h);
+    }
+}
@@ -0,0 +1,176 @@
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.Decimator;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.Layer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.FilterFactory2;
+
+public class GeometryCacheTest {
+
+    PropertyDataStore ds;
+
+    MapContent mc;
+
+    ReferencedEnvelope bounds = new ReferencedEnvelope(-1, 11, -1, 11, DefaultGeographicCRS.WGS84);
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "square.properties").toURI());
+        ds = new PropertyDataStore(property.getParentFile());
+
+        StyleBuilder sb = new StyleBuilder();
+        Style polygons =
+                sb.createStyle(sb.createPolygonSymbolizer(Color.LIGHT_GRAY, Color.BLACK, 1));
+        Style lines = sb.createStyle(sb.createLineSymbolizer(Color.RED, 3));
+
+        mc = new MapContent();
+        mc.addLayer(staticLayer(new FeatureLayer(ds.getFeatureSource("bigsquare"), polygons)));
+        mc.addLayer(staticLayer(new FeatureLayer(ds.getFeatureSource("square"), polygons)));
+        mc.addLayer(staticLayer(new FeatureLayer(ds.getFeatureSource("diaglines"), lines)));
+    }
+
+    private Layer staticLayer(Layer layer) {
+        layer.getUserData().put(GeometryCache.STATIC_LAYER_KEY, Boolean.TRUE);
+        return layer;
+    }
+
+    @After
+    public void tearDown() {
+        mc.dispose();
+        ds.dispose();
+    }
+
+    @Test
+    public void testSameOutput() throws Exception {
+        GeometryCache cache = new GeometryCache();
+        BufferedImage reference = render(bounds, null);
+        BufferedImage first = render(bounds, cache);
+        assertEquals(0, cache.getHits());
+        assertTrue(cache.size() > 0);
+        BufferedImage second = render(bounds, cache);
+        assertEquals(cache.getMisses(), cache.getHits());
+
+        ImageAssert.assertEquals(reference, first, 10);
+        ImageAssert.assertEquals(reference, second, 10);
+    }
+
+    @Test
+    public void testSameOutputReprojected() throws Exception {
+        ReferencedEnvelope mercator = bounds.transform(CRS.decode("EPSG:3857"), true);
+        GeometryCache cache = new GeometryCache();
+        BufferedImage reference = render(mercator, null);
+        render(mercator, cache);
+        BufferedImage cached = render(mercator, cache);
+        assertTrue(cache.getHits() > 0);
+
+        ImageAssert.assertEquals(reference, cached, 10);
+    }
+
+    @Test
+    public void testNonStaticLayersNotCached() throws Exception {
+        for (Layer layer : mc.layers()) {
+            layer.getUserData().remove(GeometryCache.STATIC_LAYER_KEY);
+        }
+        GeometryCache cache = new GeometryCache();
+        render(bounds, cache);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTransformedStylesNotCached() throws Exception {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        AttributeRenameFunction rename = new AttributeRenameFunction();
+        rename.setParameters(Arrays.asList(ff.literal("name"), ff.literal("label")));
+        for (Layer layer : mc.layers()) {
+            ((FeatureLayer) layer).getStyle().featureTypeStyles().get(0).setTransformation(rename);
+        }
+        GeometryCache cache = new GeometryCache();
+        render(bounds, cache);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testScaleBands() throws Exception {
+        Name name = ds.getSchema("square").getName();
+        GeometryCache.Band band =
+                GeometryCache.getBand(ds, name, null, null, null, new Decimator(0.1, 0.1));
+        GeometryCache.Band sameBand =
+                GeometryCache.getBand(ds, name, null, null, null, new Decimator(0.105, 0.105));
+        GeometryCache.Band nextBand =
+                GeometryCache.getBand(ds, name, null, null, null, new Decimator(0.2, 0.2));
+        assertEquals(band, sameBand);
+        assertTrue(band.getDecimator().getSpanX() <= 0.1);
+        assertTrue(!band.equals(nextBand));
+    }
+
+    @Test
+    public void testLRUEviction() throws Exception {
+        Name name = ds.getSchema("square").getName();
+        GeometryCache.Band band =
+                GeometryCache.getBand(ds, name, null, null, null, new Decimator(-1, -1));
+        Geometry line = new WKTReader().read("LINESTRING(0 0, 1 1)");
+        long weight = line.getNumPoints() + GeometryCache.ENTRY_OVERHEAD;
+        GeometryCache cache = new GeometryCache(weight * 2);
+        cache.put(band, "a", line);
+        cache.put(band, "b", line);
+        // access "a", making "b" the least recently used
+        assertSame(line, cache.get(band, "a"));
+        cache.put(band, "c", line);
+        assertEquals(2, cache.size());
+        assertEquals(weight * 2, cache.getCoordinates());
+        assertNull(cache.get(band, "b"));
+        assertSame(line, cache.get(band, "a"));
+        assertSame(line, cache.get(band, "c"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getCoordinates());
+    }
+
+    private BufferedImage render(ReferencedEnvelope area, GeometryCache cache) throws Exception {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        Map<Object, Object> hints = new HashMap<>();
+        if (cache != null) {
+            hints.put(StreamingRenderer.GEOMETRY_CACHE_KEY, cache);
+        }
+        renderer.setRendererHints(hints);
+
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        renderer.paint(graphics, new Rectangle(0, 0, image.getWidth(), image.getHeight()), area);
+        graphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,128 @@
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.RenderListener;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+
+public class ParallelLayerRenderingTest {
+
+    PropertyDataStore ds;
+
+    ExecutorService pool;
+
+    MapContent mc;
+
+    ReferencedEnvelope bounds = new ReferencedEnvelope(-1, 11, -1, 11, DefaultGeographicCRS.WGS84);
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "line.properties").toURI());
+        ds = new PropertyDataStore(property.getParentFile());
+        pool = Executors.newFixedThreadPool(4);
+
+        StyleBuilder sb = new StyleBuilder();
+        Style polygons =
+                sb.createStyle(sb.createPolygonSymbolizer(Color.LIGHT_GRAY, Color.BLACK, 1));
+        Style lines = sb.createStyle(sb.createLineSymbolizer(Color.RED, 3));
+        Style points = sb.createStyle(sb.createPointSymbolizer());
+        points.featureTypeStyles()
+                .get(0)
+                .rules()
+                .get(0)
+                .symbolizers()
+                .add(sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 10), "code"));
+
+        mc = new MapContent();
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("bigsquare"), polygons));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("square"), polygons));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("line"), lines));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("point"), points));
+    }
+
+    @After
+    public void tearDown() {
+        mc.dispose();
+        pool.shutdown();
+        ds.dispose();
+    }
+
+    @Test
+    public void testSameOutputAsSequential() throws Exception {
+        BufferedImage sequential = render(false);
+        BufferedImage parallel = render(true);
+        ImageAssert.assertEquals(sequential, parallel, 10);
+    }
+
+    @Test
+    public void testFeatureEvents() throws Exception {
+        AtomicCountingListener sequentialListener = new AtomicCountingListener();
+        render(false, sequentialListener);
+        AtomicCountingListener parallelListener = new AtomicCountingListener();
+        render(true, parallelListener);
+        assertEquals(0, parallelListener.errors.get());
+        assertEquals(sequentialListener.features.get(), parallelListener.features.get());
+    }
+
+    private BufferedImage render(boolean parallel) throws Exception {
+        return render(parallel, null);
+    }
+
+    private BufferedImage render(boolean parallel, RenderListener listener) throws Exception {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        renderer.setThreadPool(pool);
+        Map<Object, Object> hints = new HashMap<>();
+        hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_KEY, parallel);
+        renderer.setRendererHints(hints);
+        if (listener != null) {
+            renderer.addRenderListener(listener);
+        }
+
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        renderer.paint(
+                graphics, new Rectangle(0, 0, image.getWidth(), image.getHeight()), bounds);
+        graphics.dispose();
+        return image;
+    }
+
+    /** Layers rendered in parallel notify their listeners from different threads */
+    static class AtomicCountingListener implements RenderListener {
+        AtomicInteger features = new AtomicInteger();
+
+        AtomicInteger errors = new AtomicInteger();
+
+        public void featureRenderer(SimpleFeature feature) {
+            features.incrementAndGet();
+        }
+
+        public void errorOccurred(Exception e) {
+            errors.incrementAndGet();
+        }
+    }
+}
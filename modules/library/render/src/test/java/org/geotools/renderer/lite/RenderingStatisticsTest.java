@@ -0,0 +1,146 @@
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.RenderingStatistics;
+import org.geotools.renderer.RenderingStatistics.LayerStatistics;
+import org.geotools.renderer.RenderingStatistics.Phase;
+import org.geotools.renderer.RenderingStatisticsListener;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+
+public class RenderingStatisticsTest {
+
+    PropertyDataStore ds;
+
+    MapContent mc;
+
+    ReferencedEnvelope bounds = new ReferencedEnvelope(-1, 11, -1, 11, DefaultGeographicCRS.WGS84);
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "square.properties").toURI());
+        ds = new PropertyDataStore(property.getParentFile());
+
+        StyleBuilder sb = new StyleBuilder();
+        Style polygons =
+                sb.createStyle(sb.createPolygonSymbolizer(Color.LIGHT_GRAY, Color.BLACK, 1));
+        Style points = sb.createStyle(sb.createPointSymbolizer());
+        points.featureTypeStyles()
+                .get(0)
+                .rules()
+                .get(0)
+                .symbolizers()
+                .add(sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 10), "code"));
+
+        mc = new MapContent();
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("square"), polygons));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("point"), points));
+    }
+
+    @After
+    public void tearDown() {
+        mc.dispose();
+        ds.dispose();
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        StreamingRenderer renderer = new StreamingRenderer();
+        RenderingStatistics statistics = render(renderer);
+
+        assertNotNull(statistics);
+        List<LayerStatistics> layers = statistics.getLayers();
+        assertEquals(2, layers.size());
+        LayerStatistics squares = layers.get(0);
+        assertEquals(2, squares.getFeaturesRead());
+        assertEquals(2, squares.getShapesPainted());
+        assertTrue(squares.getNanos(Phase.READ) > 0);
+        assertTrue(squares.getNanos(Phase.PAINT) > 0);
+        LayerStatistics points = layers.get(1);
+        assertTrue(points.getFeaturesRead() > 0);
+        assertTrue(statistics.getLabelsPlaced() > 0);
+        assertEquals(
+                points.getFeaturesRead(),
+                statistics.getLabelsPlaced() + statistics.getLabelsRejected());
+        assertTrue(statistics.getTotalNanos() >= statistics.getLabellingNanos());
+    }
+
+    @Test
+    public void testParallelStatistics() throws Exception {
+        RenderingStatistics sequential = render(new StreamingRenderer());
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            StreamingRenderer renderer = new StreamingRenderer();
+            renderer.setThreadPool(pool);
+            renderer.setRendererHints(
+                    Collections.singletonMap(StreamingRenderer.PARALLEL_LAYER_RENDERING_KEY, true));
+            RenderingStatistics parallel = render(renderer);
+
+            assertEquals(sequential.getLayers().size(), parallel.getLayers().size());
+            for (int i = 0; i < sequential.getLayers().size(); i++) {
+                LayerStatistics expected = sequential.getLayers().get(i);
+                LayerStatistics actual = parallel.getLayers().get(i);
+                assertEquals(expected.getFeaturesRead(), actual.getFeaturesRead());
+                assertEquals(expected.getShapesPainted(), actual.getShapesPainted());
+            }
+            assertEquals(sequential.getLabelsPlaced(), parallel.getLabelsPlaced());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private RenderingStatistics render(StreamingRenderer renderer) {
+        renderer.setMapContent(mc);
+        StatisticsCollector collector = new StatisticsCollector();
+        renderer.addRenderListener(collector);
+
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        renderer.paint(graphics, new Rectangle(0, 0, image.getWidth(), image.getHeight()), bounds);
+        graphics.dispose();
+        assertEquals(0, collector.errors);
+        return collector.statistics;
+    }
+
+    static class StatisticsCollector implements RenderingStatisticsListener {
+        RenderingStatistics statistics;
+
+        int errors;
+
+        @Override
+        public void featureRenderer(SimpleFeature feature) {}
+
+        @Override
+        public void errorOccurred(Exception e) {
+            errors++;
+        }
+
+        @Override
+        public void renderingStatistics(RenderingStatistics statistics) {
+            this.statistics = statistics;
+        }
+    }
+}
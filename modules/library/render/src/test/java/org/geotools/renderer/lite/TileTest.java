@@ -17,17 +17,25 @@
 package org.geotools.renderer.lite;
 
 import static java.awt.RenderingHints.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.Color;
 import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import org.geotools.data.property.PropertyDataStore;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
 import org.geotools.map.FeatureLayer;
 import org.geotools.map.MapContent;
 import org.geotools.renderer.style.FontCache;
 import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
 import org.geotools.test.TestData;
 import org.junit.Before;
 import org.junit.Test;
@@ -103,4 +111,54 @@ public class TileTest {
         RendererBaseTest.showRender(
                 "StrokeAlignment", renderer, TIME, leftTileBounds, rightTileBounds);
     }
+
+    @Test
+    public void testMetaTile() throws Exception {
+        StyleBuilder sb = new StyleBuilder();
+        Style style = sb.createStyle(sb.createPolygonSymbolizer(Color.BLUE, Color.BLACK, 1));
+
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(polyfs, style));
+
+        // render the two tiles on their own
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        CountingRenderListener singleTilesListener = new CountingRenderListener();
+        renderer.addRenderListener(singleTilesListener);
+        BufferedImage left = renderTile(renderer, leftTileBounds);
+        BufferedImage right = renderTile(renderer, rightTileBounds);
+
+        // render them as a meta tile
+        renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        CountingRenderListener metaTileListener = new CountingRenderListener();
+        renderer.addRenderListener(metaTileListener);
+        ReferencedEnvelope metaTileBounds = new ReferencedEnvelope(leftTileBounds);
+        metaTileBounds.expandToInclude(rightTileBounds);
+        BufferedImage[][] tiles = renderer.paintTiles(metaTileBounds, 100, 100, 1, 2);
+        mc.dispose();
+
+        assertEquals(1, tiles.length);
+        assertEquals(2, tiles[0].length);
+        ImageAssert.assertEquals(left, tiles[0][0], 10);
+        ImageAssert.assertEquals(right, tiles[0][1], 10);
+        // features crossing the tile border are painted once
+        assertEquals(0, metaTileListener.errors);
+        assertTrue(metaTileListener.features <= singleTilesListener.features);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMetaTileInvalidGrid() throws Exception {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(new MapContent());
+        renderer.paintTiles(leftTileBounds, 256, 256, 0, 2);
+    }
+
+    private BufferedImage renderTile(StreamingRenderer renderer, ReferencedEnvelope bounds) {
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        renderer.paint(graphics, new Rectangle(0, 0, 100, 100), bounds);
+        graphics.dispose();
+        return image;
+    }
 }
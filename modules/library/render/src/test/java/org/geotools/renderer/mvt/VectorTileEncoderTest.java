@@ -0,0 +1,117 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.mvt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+
+public class VectorTileEncoderTest {
+
+    VectorTileEncoder encoder = new VectorTileEncoder(4096, 4096);
+
+    @Test
+    public void testPoint() throws Exception {
+        // examples from the vector tile specification
+        assertArrayEquals(new int[] {9, 50, 34}, encoder.encodeGeometry(geom("POINT(25 17)")));
+        assertArrayEquals(
+                new int[] {17, 10, 14, 3, 9},
+                encoder.encodeGeometry(geom("MULTIPOINT((5 7), (3 2))")));
+    }
+
+    @Test
+    public void testLineString() throws Exception {
+        assertArrayEquals(
+                new int[] {9, 4, 4, 18, 0, 16, 16, 0},
+                encoder.encodeGeometry(geom("LINESTRING(2 2, 2 10, 10 10)")));
+        assertArrayEquals(
+                new int[] {9, 4, 4, 18, 0, 16, 16, 0, 9, 17, 17, 10, 4, 8},
+                encoder.encodeGeometry(
+                        geom("MULTILINESTRING((2 2, 2 10, 10 10), (1 1, 3 5))")));
+    }
+
+    @Test
+    public void testPolygon() throws Exception {
+        int[] expected = {9, 6, 12, 18, 10, 12, 24, 44, 15};
+        assertArrayEquals(
+                expected, encoder.encodeGeometry(geom("POLYGON((3 6, 8 12, 20 34, 3 6))")));
+        // same polygon, opposite orientation, gets reversed
+        int[] reversed = encoder.encodeGeometry(geom("POLYGON((3 6, 20 34, 8 12, 3 6))"));
+        assertEquals(expected.length, reversed.length);
+        assertEquals(9, reversed[0]);
+        assertEquals(15, reversed[reversed.length - 1]);
+    }
+
+    @Test
+    public void testQuantization() throws Exception {
+        VectorTileEncoder scaled = new VectorTileEncoder(4096, 256);
+        // 16 times the screen coordinates
+        assertArrayEquals(new int[] {9, 32, 64}, scaled.encodeGeometry(geom("POINT(1 2)")));
+        // collapses on the grid
+        assertArrayEquals(
+                new int[0], scaled.encodeGeometry(geom("LINESTRING(1 1, 1.01 1.01)")));
+        assertFalse(
+                scaled.addFeature(
+                        "test", null, geom("POLYGON((1 1, 1.01 1, 1.01 1.01, 1 1.01, 1 1))")));
+        assertEquals(0, scaled.getFeatureCount("test"));
+    }
+
+    @Test
+    public void testEncodeTile() throws Exception {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("name", "foo");
+        attributes.put("value", 10);
+        assertTrue(encoder.addFeature("layer", attributes, geom("POINT(25 17)")));
+        assertTrue(
+                encoder.addFeature(
+                        "layer", Collections.singletonMap("name", "bar"), geom("POINT(1 1)")));
+        assertEquals(2, encoder.getFeatureCount("layer"));
+        assertEquals(Collections.singletonList("layer"), encoder.getLayerNames());
+
+        byte[] tile = encoder.encode();
+        // a layer message, field 3, length delimited
+        assertEquals(0x1A, tile[0]);
+        String contents = new String(tile, StandardCharsets.ISO_8859_1);
+        assertTrue(contents.contains("layer"));
+        assertTrue(contents.contains("name"));
+        assertTrue(contents.contains("foo"));
+        assertTrue(contents.contains("bar"));
+    }
+
+    @Test
+    public void testGeometryCollection() throws Exception {
+        assertTrue(
+                encoder.addFeature(
+                        "layer",
+                        null,
+                        geom("GEOMETRYCOLLECTION(POINT(1 1), LINESTRING(0 0, 10 10))")));
+        assertEquals(2, encoder.getFeatureCount("layer"));
+    }
+
+    private Geometry geom(String wkt) throws Exception {
+        return new WKTReader().read(wkt);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.mvt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.lite.CountingRenderListener;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.Test;
+
+public class VectorTileRendererTest {
+
+    @Test
+    public void testPaintVectorTile() throws Exception {
+        File property =
+                new File(
+                        TestData.getResource(StreamingRenderer.class, "square.properties")
+                                .toURI());
+        PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+        StyleBuilder sb = new StyleBuilder();
+        // two symbolizers, the features must be encoded once anyways
+        Style style = sb.createStyle(sb.createPolygonSymbolizer(Color.BLUE, Color.BLACK, 1));
+        style.featureTypeStyles()
+                .get(0)
+                .rules()
+                .get(0)
+                .symbolizers()
+                .add(sb.createLineSymbolizer(Color.RED, 2));
+
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("square"), style));
+        VectorTileRenderer renderer = new VectorTileRenderer();
+        renderer.setMapContent(mc);
+        CountingRenderListener listener = new CountingRenderListener();
+        renderer.addRenderListener(listener);
+
+        ReferencedEnvelope tileArea =
+                new ReferencedEnvelope(0, 11, 0, 11, DefaultGeographicCRS.WGS84);
+        byte[] tile = renderer.paintVectorTile(tileArea, 256);
+        mc.dispose();
+        ds.dispose();
+
+        assertEquals(0, listener.errors);
+        assertEquals(2, listener.features);
+        assertTrue(tile.length > 0);
+        String contents = new String(tile, StandardCharsets.ISO_8859_1);
+        assertTrue(contents.contains("square"));
+        assertTrue(contents.contains("major"));
+    }
+}
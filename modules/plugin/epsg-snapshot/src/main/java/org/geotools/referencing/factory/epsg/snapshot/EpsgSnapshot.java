@@ -0,0 +1,313 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+import org.geotools.metadata.iso.extent.GeographicBoundingBoxImpl;
+import org.geotools.referencing.wkt.Parser;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.DerivedCRS;
+import org.opengis.referencing.crs.EngineeringCRS;
+import org.opengis.referencing.crs.GeocentricCRS;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.referencing.crs.VerticalCRS;
+
+/**
+ * A read only snapshot of the coordinate reference systems of the EPSG database, stored as Well
+ * Known Text in a compact binary file that can be memory mapped. The file layout, all numbers being
+ * big endian, is:
+ *
+ * <ul>
+ *   <li>the {@link #MAGIC} number, including the format version
+ *   <li>the EPSG database version, as an int length followed by the UTF-8 bytes
+ *   <li>the number of entries
+ *   <li>the EPSG codes, as an array of ints in ascending order
+ *   <li>the start of each WKT in the text area, as an array of ints, plus the end of the last one
+ *   <li>the geographic bounding box of the domain of validity of each entry, as west, east, south
+ *       and north bound doubles, all NaN if unknown
+ *   <li>the CRS type of each entry, as an index in {@link #TYPES}, one byte per entry
+ *   <li>the text area, the UTF-8 bytes of the WKT definitions one after the other
+ * </ul>
+ *
+ * Lookups are binary searches on the codes, and only the looked up WKT gets decoded, so opening the
+ * snapshot costs nothing but the mapping of the file.
+ */
+final class EpsgSnapshot {
+
+    /** "GTEPSG" followed by the format version */
+    static final long MAGIC = 0x4754455053470002L;
+
+    /** The CRS types, identified by their index in the snapshot */
+    @SuppressWarnings("unchecked")
+    static final Class<? extends CoordinateReferenceSystem>[] TYPES =
+            new Class[] {
+                CoordinateReferenceSystem.class,
+                GeographicCRS.class,
+                ProjectedCRS.class,
+                GeocentricCRS.class,
+                VerticalCRS.class,
+                CompoundCRS.class,
+                EngineeringCRS.class,
+                DerivedCRS.class
+            };
+
+    /** The snapshot content, never read through its position, so that it can be shared */
+    private final ByteBuffer buffer;
+
+    private final String version;
+
+    private final int count;
+
+    private final IntBuffer codes;
+
+    private final IntBuffer offsets;
+
+    private final DoubleBuffer extents;
+
+    /** Position of the types in the buffer */
+    private final int typesStart;
+
+    /** Position of the text area in the buffer */
+    private final int textStart;
+
+    EpsgSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        ByteBuffer header = buffer.duplicate();
+        if (header.remaining() < 16 || header.getLong() != MAGIC) {
+            throw new IOException("Not an EPSG snapshot, or unsupported format version");
+        }
+        byte[] versionBytes = new byte[header.getInt()];
+        header.get(versionBytes);
+        this.version = new String(versionBytes, StandardCharsets.UTF_8);
+        this.count = header.getInt();
+        int position = header.position();
+        this.codes = slice(position, count * 4).asIntBuffer();
+        position += count * 4;
+        this.offsets = slice(position, (count + 1) * 4).asIntBuffer();
+        position += (count + 1) * 4;
+        this.extents = slice(position, count * 32).asDoubleBuffer();
+        position += count * 32;
+        this.typesStart = position;
+        this.textStart = position + count;
+        if (textStart + offsets.get(count) > buffer.limit()) {
+            throw new IOException("Truncated EPSG snapshot");
+        }
+    }
+
+    private ByteBuffer slice(int position, int bytes) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position);
+        slice.limit(position + bytes);
+        return slice.slice();
+    }
+
+    /**
+     * Opens the snapshot at the given location. Files are memory mapped, other locations (e.g.,
+     * entries in a jar) are read in memory.
+     */
+    static EpsgSnapshot open(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return map(new File(url.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // fall back on reading the stream
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                bytes.write(chunk, 0, read);
+            }
+            return new EpsgSnapshot(ByteBuffer.wrap(bytes.toByteArray()));
+        }
+    }
+
+    /** Memory maps the given snapshot file */
+    static EpsgSnapshot map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new EpsgSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** Returns the version of the EPSG database the snapshot was taken from */
+    String getVersion() {
+        return version;
+    }
+
+    /** Returns the number of entries */
+    int size() {
+        return count;
+    }
+
+    /** Returns the EPSG code of the entry at the given index */
+    int getCode(int index) {
+        return codes.get(index);
+    }
+
+    /** Returns the index of the given code, or a negative number if not found */
+    int indexOf(int code) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int candidate = codes.get(mid);
+            if (candidate < code) {
+                low = mid + 1;
+            } else if (candidate > code) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /** Returns the type of the entry at the given index */
+    Class<? extends CoordinateReferenceSystem> getType(int index) {
+        int type = buffer.get(typesStart + index);
+        return type < TYPES.length ? TYPES[type] : CoordinateReferenceSystem.class;
+    }
+
+    /**
+     * Returns the geographic bounding box of the domain of validity of the entry at the given
+     * index, or null if unknown
+     */
+    GeographicBoundingBox getGeographicBoundingBox(int index) {
+        int i = index * 4;
+        double west = extents.get(i);
+        if (Double.isNaN(west)) {
+            return null;
+        }
+        return new GeographicBoundingBoxImpl(
+                west, extents.get(i + 1), extents.get(i + 2), extents.get(i + 3));
+    }
+
+    /** Returns the WKT of the entry at the given index */
+    String getWKT(int index) {
+        int start = offsets.get(index);
+        byte[] bytes = new byte[offsets.get(index + 1) - start];
+        ByteBuffer text = buffer.duplicate();
+        text.position(textStart + start);
+        text.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the index in {@link #TYPES} of the CRS defined by the given WKT */
+    static int typeOf(String wkt) {
+        int end = 0;
+        while (end < wkt.length() && Character.isJavaIdentifierPart(wkt.charAt(end))) end++;
+        Class<?> type = Parser.getClassOf(wkt.substring(0, end));
+        for (int i = TYPES.length; --i > 0; ) {
+            if (TYPES[i].equals(type)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes a snapshot.
+     *
+     * @param version The EPSG database version
+     * @param definitions The WKT definitions by EPSG code
+     * @param extents The bounding boxes of the domains of validity by EPSG code, codes without one
+     *     can be omitted
+     */
+    static void write(
+            OutputStream out,
+            String version,
+            SortedMap<Integer, String> definitions,
+            Map<Integer, GeographicBoundingBox> extents)
+            throws IOException {
+        byte[][] texts = new byte[definitions.size()][];
+        int i = 0;
+        for (String wkt : definitions.values()) {
+            texts[i++] = wkt.getBytes(StandardCharsets.UTF_8);
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeLong(MAGIC);
+        byte[] versionBytes = version.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(versionBytes.length);
+        data.write(versionBytes);
+        data.writeInt(texts.length);
+        for (Integer code : definitions.keySet()) {
+            data.writeInt(code);
+        }
+        int offset = 0;
+        for (byte[] text : texts) {
+            data.writeInt(offset);
+            offset += text.length;
+        }
+        data.writeInt(offset);
+        for (Integer code : definitions.keySet()) {
+            GeographicBoundingBox box = extents.get(code);
+            if (box == null) {
+                for (int j = 0; j < 4; j++) {
+                    data.writeDouble(Double.NaN);
+                }
+            } else {
+                data.writeDouble(box.getWestBoundLongitude());
+                data.writeDouble(box.getEastBoundLongitude());
+                data.writeDouble(box.getSouthBoundLatitude());
+                data.writeDouble(box.getNorthBoundLatitude());
+            }
+        }
+        for (String wkt : definitions.values()) {
+            data.writeByte(typeOf(wkt));
+        }
+        for (byte[] text : texts) {
+            data.write(text);
+        }
+        data.flush();
+    }
+
+    /** Writes a snapshot file, see {@link #write(OutputStream, String, SortedMap, Map)} */
+    static void write(
+            File file,
+            String version,
+            SortedMap<Integer, String> definitions,
+            Map<Integer, GeographicBoundingBox> extents)
+            throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(out, version, definitions, extents);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.factory.epsg.hsql.ThreadedHsqlEpsgFactory;
+import org.geotools.referencing.wkt.Formattable;
+import org.geotools.util.logging.Logging;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Builds the EPSG snapshot from the EPSG database of the {@code epsg-hsql} plugin, which needs to
+ * be in the classpath. Invoked by the build with the snapshot file path as the only argument.
+ * Coordinate reference systems which cannot be created, or formatted as strict WKT, are left out.
+ * Along with the WKT the geographic bounding box of the domain of validity of each CRS is stored.
+ */
+public class EpsgSnapshotBuilder {
+
+    static final Logger LOGGER = Logging.getLogger(EpsgSnapshotBuilder.class);
+
+    public static void main(String[] args) throws IOException, FactoryException {
+        if (args.length != 1) {
+            System.err.println("Usage: EpsgSnapshotBuilder <snapshot file>");
+            System.exit(1);
+        }
+        ThreadedHsqlEpsgFactory factory = new ThreadedHsqlEpsgFactory();
+        try {
+            SortedMap<Integer, String> definitions = new TreeMap<>();
+            Map<Integer, GeographicBoundingBox> extents = new HashMap<>();
+            collect(factory, definitions, extents);
+            File file = new File(args[0]);
+            EpsgSnapshot.write(
+                    file, ThreadedHsqlEpsgFactory.VERSION.toString(), definitions, extents);
+            LOGGER.info(
+                    "Wrote " + definitions.size() + " coordinate reference systems to " + file);
+        } finally {
+            factory.dispose();
+        }
+    }
+
+    /**
+     * Collects the WKT and the domain of validity bounding boxes of the coordinate reference
+     * systems the factory can create
+     */
+    static void collect(
+            ThreadedHsqlEpsgFactory factory,
+            SortedMap<Integer, String> definitions,
+            Map<Integer, GeographicBoundingBox> extents)
+            throws FactoryException {
+        int skipped = 0;
+        for (String code : factory.getAuthorityCodes(CoordinateReferenceSystem.class)) {
+            int number;
+            try {
+                number = Integer.parseInt(code.trim());
+            } catch (NumberFormatException e) {
+                skipped++;
+                continue;
+            }
+            try {
+                CoordinateReferenceSystem crs = factory.createCoordinateReferenceSystem(code);
+                if (crs instanceof Formattable) {
+                    definitions.put(number, ((Formattable) crs).toWKT(Formattable.SINGLE_LINE));
+                    GeographicBoundingBox box = CRS.getGeographicBoundingBox(crs);
+                    if (box != null) {
+                        extents.put(number, box);
+                    }
+                } else {
+                    skipped++;
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Skipping EPSG:" + code, e);
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            LOGGER.info("Skipped " + skipped + " codes that could not be turned into WKT");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.logging.Level;
+import org.geotools.metadata.i18n.ErrorKeys;
+import org.geotools.metadata.i18n.Errors;
+import org.geotools.metadata.iso.citation.Citations;
+import org.geotools.referencing.factory.AbstractAuthorityFactory;
+import org.geotools.referencing.factory.DeferredAuthorityFactory;
+import org.geotools.referencing.factory.FactoryNotFoundException;
+import org.geotools.referencing.factory.ReferencingFactoryContainer;
+import org.geotools.util.factory.Hints;
+import org.geotools.util.logging.Logging;
+import org.opengis.metadata.citation.Citation;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+
+/**
+ * EPSG authority factory backed by a binary snapshot of the coordinate reference systems of the
+ * EPSG database, taken at build time from the {@code epsg-hsql} plugin. Opening the snapshot does
+ * not involve any SQL engine or extraction to the temporary directory, making the first lookups as
+ * fast as the following ones.
+ *
+ * <p>The snapshot holds the WKT of each coordinate reference system, along with the geographic
+ * bounding box of its domain of validity. Datums, coordinate systems and coordinate operations are
+ * not available on their own, and metadata not expressed in WKT, such as aliases, remarks or the
+ * textual description of the domain of validity, is not available.
+ *
+ * <p>The snapshot shipped in the jar is read in memory, a snapshot file given with the {@value
+ * #SNAPSHOT_FILE_KEY} system property is memory mapped instead.
+ *
+ * <p>The priority is lower than the {@code epsg-hsql} one, the two plugins are meant to be
+ * alternatives rather than used together.
+ *
+ * @since 21
+ */
+public class EpsgSnapshotFactory extends DeferredAuthorityFactory implements CRSAuthorityFactory {
+
+    /** The name of the snapshot resource, in the package of this class */
+    public static final String FILENAME = "epsg.snapshot";
+
+    /** System property pointing to a snapshot file to be used instead of the built-in one */
+    public static final String SNAPSHOT_FILE_KEY = "org.geotools.referencing.epsg.snapshot";
+
+    /** Default priority, between the EPSG database factories and their WKT extensions */
+    static final int PRIORITY = MAXIMUM_PRIORITY - 15;
+
+    /** The factories to be given to the backing store. */
+    private final ReferencingFactoryContainer factories;
+
+    /** Constructs an authority factory using the default set of factories. */
+    public EpsgSnapshotFactory() {
+        this(null);
+    }
+
+    /**
+     * Constructs an authority factory using a set of factories created from the specified hints.
+     * This constructor recognizes the {@link Hints#CRS_FACTORY CRS}, {@link Hints#CS_FACTORY CS},
+     * {@link Hints#DATUM_FACTORY DATUM} and {@link Hints#MATH_TRANSFORM_FACTORY MATH_TRANSFORM}
+     * {@code FACTORY} hints.
+     */
+    public EpsgSnapshotFactory(final Hints userHints) {
+        super(userHints, PRIORITY);
+        factories = ReferencingFactoryContainer.instance(userHints);
+    }
+
+    @Override
+    public Citation getAuthority() {
+        return Citations.EPSG;
+    }
+
+    /**
+     * Returns the location of the snapshot, the file given by the {@value #SNAPSHOT_FILE_KEY}
+     * system property if any, or the built-in one otherwise.
+     *
+     * @return The URL, or {@code null} if none.
+     */
+    protected URL getSnapshotURL() {
+        try {
+            final String path = System.getProperty(SNAPSHOT_FILE_KEY);
+            if (path != null) {
+                final File file = new File(path);
+                if (file.isFile()) {
+                    return file.toURI().toURL();
+                }
+                LOGGER.warning("EPSG snapshot " + path + " not found, using the built-in one");
+            }
+        } catch (SecurityException | MalformedURLException exception) {
+            Logging.unexpectedException(LOGGER, exception);
+        }
+        return EpsgSnapshotFactory.class.getResource(FILENAME);
+    }
+
+    /**
+     * Creates the backing store authority factory.
+     *
+     * @return The backing store to uses in {@code createXXX(...)} methods.
+     * @throws FactoryNotFoundException if the no snapshot has been found.
+     * @throws FactoryException if the snapshot could not be read.
+     */
+    @Override
+    protected AbstractAuthorityFactory createBackingStore() throws FactoryException {
+        final URL url = getSnapshotURL();
+        if (url == null) {
+            throw new FactoryNotFoundException(
+                    Errors.format(ErrorKeys.FILE_DOES_NOT_EXIST_$1, FILENAME));
+        }
+        try {
+            final EpsgSnapshot snapshot = EpsgSnapshot.open(url);
+            if (LOGGER.isLoggable(Level.CONFIG)) {
+                LOGGER.config(
+                        "Using EPSG snapshot "
+                                + url
+                                + ", database version "
+                                + snapshot.getVersion()
+                                + ", "
+                                + snapshot.size()
+                                + " coordinate reference systems");
+            }
+            return new SnapshotAuthorityFactory(factories, snapshot);
+        } catch (IOException exception) {
+            throw new FactoryException(Errors.format(ErrorKeys.CANT_READ_$1, url), exception);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg.snapshot;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.geotools.metadata.iso.extent.ExtentImpl;
+import org.geotools.metadata.iso.citation.Citations;
+import org.geotools.referencing.factory.DirectAuthorityFactory;
+import org.geotools.referencing.factory.ReferencingFactoryContainer;
+import org.geotools.referencing.wkt.Parser;
+import org.geotools.referencing.wkt.Symbols;
+import org.geotools.util.SimpleInternationalString;
+import org.geotools.util.factory.Hints;
+import org.opengis.metadata.citation.Citation;
+import org.opengis.metadata.extent.Extent;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.util.InternationalString;
+
+/**
+ * Authority factory backed by an {@link EpsgSnapshot}. Like {@link
+ * org.geotools.referencing.factory.PropertyAuthorityFactory} it parses the WKT on each call, and
+ * should be wrapped in a buffered factory for caching. The domain of validity stored in the
+ * snapshot is attached to the parsed coordinate reference systems.
+ */
+class SnapshotAuthorityFactory extends DirectAuthorityFactory implements CRSAuthorityFactory {
+
+    private final EpsgSnapshot snapshot;
+
+    /** The codes by requested type, computed when first needed */
+    private final Map<Class<?>, Set<String>> codes = new ConcurrentHashMap<>();
+
+    /** A WKT parser, not thread safe */
+    private final SnapshotParser parser;
+
+    /** A parser giving the domain of validity to the parsed coordinate reference system */
+    static class SnapshotParser extends Parser {
+        /** The domain of validity of the CRS being parsed, or null if unknown */
+        Extent domainOfValidity;
+
+        SnapshotParser(ReferencingFactoryContainer factories) {
+            super(Symbols.DEFAULT, factories);
+        }
+
+        @Override
+        protected Map<String, Object> alterProperties(Map<String, Object> properties) {
+            if (domainOfValidity != null) {
+                properties.put(CoordinateReferenceSystem.DOMAIN_OF_VALIDITY_KEY, domainOfValidity);
+            }
+            return properties;
+        }
+    }
+
+    SnapshotAuthorityFactory(ReferencingFactoryContainer factories, EpsgSnapshot snapshot) {
+        super(factories, MINIMUM_PRIORITY + 10);
+        this.snapshot = snapshot;
+        this.parser = new SnapshotParser(factories);
+        // the WKT definitions have the EPSG axis order and units
+        hints.put(Hints.FORCE_STANDARD_AXIS_DIRECTIONS, Boolean.FALSE);
+        hints.put(Hints.FORCE_STANDARD_AXIS_UNITS, Boolean.FALSE);
+    }
+
+    @Override
+    public Citation getAuthority() {
+        return Citations.EPSG;
+    }
+
+    @Override
+    public String getBackingStoreDescription() throws FactoryException {
+        return "EPSG snapshot, database version " + snapshot.getVersion();
+    }
+
+    /**
+     * Returns the codes of the coordinate reference systems assignable to the given type. The
+     * snapshot contains no datum, coordinate system or other non CRS object.
+     */
+    @Override
+    public Set<String> getAuthorityCodes(Class<? extends IdentifiedObject> type)
+            throws FactoryException {
+        final Class<?> key = type == null ? IdentifiedObject.class : type;
+        return codes.computeIfAbsent(key, this::collectCodes);
+    }
+
+    private Set<String> collectCodes(Class<?> type) {
+        final boolean all = type.isAssignableFrom(CoordinateReferenceSystem.class);
+        final Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (all || type.isAssignableFrom(snapshot.getType(i))) {
+                result.add(String.valueOf(snapshot.getCode(i)));
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /** Returns the WKT for the given code */
+    String getWKT(String code) throws NoSuchAuthorityCodeException {
+        return snapshot.getWKT(getIndex(code));
+    }
+
+    /** Returns the position of the given code in the snapshot */
+    private int getIndex(String code) throws NoSuchAuthorityCodeException {
+        ensureNonNull("code", code);
+        int index = -1;
+        try {
+            index = snapshot.indexOf(Integer.parseInt(trimAuthority(code)));
+        } catch (NumberFormatException e) {
+            // not an EPSG code, reported below
+        }
+        if (index < 0) {
+            throw noSuchAuthorityCode(IdentifiedObject.class, code);
+        }
+        return index;
+    }
+
+    /** Returns the name of the coordinate reference system, without parsing its definition */
+    @Override
+    public InternationalString getDescriptionText(String code) throws FactoryException {
+        final String wkt = getWKT(code);
+        int start = wkt.indexOf('"');
+        if (start >= 0) {
+            final int end = wkt.indexOf('"', ++start);
+            if (end >= 0) {
+                return new SimpleInternationalString(wkt.substring(start, end).trim());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public IdentifiedObject createObject(String code) throws FactoryException {
+        return createCoordinateReferenceSystem(code);
+    }
+
+    @Override
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(String code)
+            throws FactoryException {
+        final int index = getIndex(code);
+        final String wkt = snapshot.getWKT(index);
+        final GeographicBoundingBox box = snapshot.getGeographicBoundingBox(index);
+        Extent domainOfValidity = null;
+        if (box != null) {
+            ExtentImpl extent = new ExtentImpl();
+            extent.getGeographicElements().add(box);
+            domainOfValidity = (Extent) extent.unmodifiable();
+        }
+        try {
+            synchronized (parser) {
+                parser.domainOfValidity = domainOfValidity;
+                try {
+                    return parser.parseCoordinateReferenceSystem(wkt);
+                } finally {
+                    parser.domainOfValidity = null;
+                }
+            }
+        } catch (ParseException exception) {
+            throw new FactoryException(exception);
+        }
+    }
+}
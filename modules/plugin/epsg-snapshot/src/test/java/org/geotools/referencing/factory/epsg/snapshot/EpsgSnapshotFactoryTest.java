@@ -0,0 +1,146 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.geotools.metadata.iso.extent.GeographicBoundingBoxImpl;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.referencing.factory.epsg.hsql.ThreadedHsqlEpsgFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+
+public class EpsgSnapshotFactoryTest {
+
+    static EpsgSnapshotFactory factory;
+
+    @BeforeClass
+    public static void setupClass() {
+        factory = new EpsgSnapshotFactory();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        factory.dispose();
+    }
+
+    @Test
+    public void testSnapshotFormat() throws Exception {
+        SortedMap<Integer, String> definitions = new TreeMap<>();
+        definitions.put(4326, DefaultGeographicCRS.WGS84.toWKT());
+        definitions.put(3, "PROJCS[\"Fake\"]");
+        definitions.put(10, "VERT_CS[\"Fake\"]");
+        Map<Integer, GeographicBoundingBox> extents =
+                Collections.singletonMap(4326, new GeographicBoundingBoxImpl(-180, 180, -90, 90));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EpsgSnapshot.write(bytes, "1.0", definitions, extents);
+
+        EpsgSnapshot snapshot = new EpsgSnapshot(ByteBuffer.wrap(bytes.toByteArray()));
+        assertEquals("1.0", snapshot.getVersion());
+        assertEquals(3, snapshot.size());
+        assertEquals(0, snapshot.indexOf(3));
+        assertEquals(2, snapshot.indexOf(4326));
+        assertTrue(snapshot.indexOf(5) < 0);
+        assertTrue(snapshot.indexOf(1) < 0);
+        assertTrue(snapshot.indexOf(5000) < 0);
+        assertEquals(DefaultGeographicCRS.WGS84.toWKT(), snapshot.getWKT(2));
+        assertEquals("VERT_CS[\"Fake\"]", snapshot.getWKT(1));
+        assertEquals(ProjectedCRS.class, snapshot.getType(0));
+        assertEquals(GeographicCRS.class, snapshot.getType(2));
+        assertEquals(extents.get(4326), snapshot.getGeographicBoundingBox(2));
+        assertNull(snapshot.getGeographicBoundingBox(0));
+
+        // the same, memory mapped
+        File file = File.createTempFile("epsg", ".snapshot");
+        try {
+            EpsgSnapshot.write(file, "1.0", definitions, extents);
+            EpsgSnapshot mapped = EpsgSnapshot.open(file.toURI().toURL());
+            assertEquals(3, mapped.size());
+            assertEquals(DefaultGeographicCRS.WGS84.toWKT(), mapped.getWKT(2));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSameAsDatabase() throws Exception {
+        ThreadedHsqlEpsgFactory hsql = new ThreadedHsqlEpsgFactory();
+        try {
+            for (String code : new String[] {"4326", "4230", "32632", "3857", "2154"}) {
+                CoordinateReferenceSystem expected =
+                        hsql.createCoordinateReferenceSystem("EPSG:" + code);
+                CoordinateReferenceSystem actual =
+                        factory.createCoordinateReferenceSystem("EPSG:" + code);
+                assertTrue(code, CRS.equalsIgnoreMetadata(expected, actual));
+                assertEquals(Integer.valueOf(code), CRS.lookupEpsgCode(actual, false));
+                GeographicBoundingBox box = CRS.getGeographicBoundingBox(actual);
+                assertNotNull(code, box);
+                assertEquals(code, CRS.getGeographicBoundingBox(expected), box);
+            }
+        } finally {
+            hsql.dispose();
+        }
+    }
+
+    @Test
+    public void testAuthorityCodes() throws Exception {
+        Set<String> all = factory.getAuthorityCodes(CoordinateReferenceSystem.class);
+        assertTrue(all.contains("4326"));
+        assertTrue(all.contains("32632"));
+        Set<String> projected = factory.getAuthorityCodes(ProjectedCRS.class);
+        assertTrue(projected.contains("32632"));
+        assertFalse(projected.contains("4326"));
+        assertTrue(all.size() > projected.size());
+    }
+
+    @Test
+    public void testDescription() throws Exception {
+        assertEquals("WGS 84", factory.getDescriptionText("EPSG:4326").toString());
+    }
+
+    @Test
+    public void testUnknownCodes() throws Exception {
+        for (String code : new String[] {"EPSG:999999", "EPSG:abc", "4326a"}) {
+            try {
+                factory.createCoordinateReferenceSystem(code);
+                fail("Should have failed on " + code);
+            } catch (NoSuchAuthorityCodeException e) {
+                // fine
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.geotools.geopkg.geom;
 
 import java.io.IOException;
 import java.io.InputStream;
+import org.geotools.geometry.jts.ArrayWKBReader;
 import org.geotools.geometry.jts.JTS;
 import org.geotools.util.factory.Hints;
 import org.locationtech.jts.geom.CoordinateSequence;
@@ -52,6 +53,12 @@ public class GeoPkgGeomReader {
 
     protected InStream input;
 
+    /** The whole blob, when available, allows decoding the geometry without copies */
+    protected byte[] bytes;
+
+    /** The position of the WKB geometry in the blob, known once the header has been read */
+    private int wkbOffset;
+
     protected GeometryHeader header = null;
 
     protected Geometry geometry = null;
@@ -72,6 +79,7 @@ public class GeoPkgGeomReader {
 
     public GeoPkgGeomReader(byte[] bytes) {
         this.input = new ByteArrayInStream(bytes);
+        this.bytes = bytes;
     }
 
     public GeometryHeader getHeader() throws IOException {
@@ -159,6 +167,10 @@ public class GeoPkgGeomReader {
 
     public Envelope getEnvelope() throws IOException {
         if (getHeader().getFlags().getEnvelopeIndicator() == EnvelopeType.NONE) {
+            if (geometry == null && bytes != null) {
+                // no need to build the geometry just to compute its bounds
+                return new ArrayWKBReader(factory).readEnvelope(bytes, wkbOffset);
+            }
             return get().getEnvelopeInternal();
         } else {
             return getHeader().getEnvelope();
@@ -167,6 +179,12 @@ public class GeoPkgGeomReader {
 
     protected Geometry read() throws IOException { // header must be read!
         // read the geometry
+        if (bytes != null) {
+            // decode straight from the blob into the coordinate sequences
+            Geometry g = new ArrayWKBReader(factory).read(bytes, wkbOffset);
+            g.setSRID(header.getSrid());
+            return g;
+        }
         try {
             WKBReader wkbReader = new WKBReader(factory);
             Geometry g = wkbReader.read(input);
@@ -244,6 +262,8 @@ public class GeoPkgGeomReader {
 
             h.setEnvelope(new Envelope(x1, x2, y1, y2));
         }
+        // magic, flags, srid and the envelope
+        wkbOffset = 8 + h.getFlags().getEnvelopeIndicator().getLength();
         return h;
     }
 
@@ -35,6 +35,19 @@ public class GeoPkgIOTest {
         assertTrue(g1.equals(g2));
     }
 
+    @Test
+    public void testReadWithoutEnvelope() throws IOException {
+        Geometry g1 = new GeometryBuilder().point(5, 5).buffer(10);
+        GeoPkgGeomWriter.Configuration config = new GeoPkgGeomWriter.Configuration();
+        config.setWriteEnvelope(false);
+        byte[] bytes = new GeoPkgGeomWriter(config).write(g1);
+
+        // the bounds are computed without building the geometry
+        assertEquals(g1.getEnvelopeInternal(), new GeoPkgGeomReader(bytes).getEnvelope());
+        Geometry g2 = new GeoPkgGeomReader(bytes).get();
+        assertTrue(g1.equals(g2));
+    }
+
     @Test
     public void testHeader() throws IOException {
         Geometry g1 = new GeometryBuilder().point(0, 0).buffer(10);
@@ -27,6 +27,7 @@ import java.sql.Types;
 import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Level;
+import org.geotools.geometry.jts.ArrayWKBReader;
 import org.geotools.geometry.jts.Geometries;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.SQLDialect;
@@ -41,8 +42,6 @@ import org.locationtech.jts.geom.MultiPoint;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
-import org.locationtech.jts.io.ParseException;
-import org.locationtech.jts.io.WKBReader;
 import org.locationtech.jts.io.WKTWriter;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
@@ -411,11 +410,7 @@ public class H2Dialect extends SQLDialect {
             return null;
         }
 
-        try {
-            return new WKBReader(factory).read(bytes);
-        } catch (ParseException e) {
-            throw (IOException) new IOException().initCause(e);
-        }
+        return new ArrayWKBReader(factory).read(bytes);
 
         // return JTS.geometryFromBytes( bytes );
     }
@@ -23,14 +23,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Map;
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.geometry.jts.ArrayWKBReader;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.util.factory.Hints;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.io.ParseException;
-import org.locationtech.jts.io.WKBReader;
 import org.locationtech.jts.io.WKTWriter;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
@@ -232,11 +231,7 @@ public class H2DialectBasic extends BasicSQLDialect {
             return null;
         }
 
-        try {
-            return new WKBReader(factory).read(bytes);
-        } catch (ParseException e) {
-            throw (IOException) new IOException().initCause(e);
-        }
+        return new ArrayWKBReader(factory).read(bytes);
     }
 
     @Override
@@ -45,9 +45,12 @@ import org.geotools.data.oracle.sdo.SDOSqlDumper;
 import org.geotools.data.oracle.sdo.TT;
 import org.geotools.geometry.jts.JTS;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.jdbc.BulkLoader;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.MultiRowInsertBulkLoader;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.geotools.jdbc.PrimaryKey;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.cs.DefaultCoordinateSystemAxis;
 import org.geotools.util.SoftValueHashMap;
@@ -112,6 +115,9 @@ public class OracleDialect extends PreparedStatementSQLDialect {
 
     private static final int DEFAULT_AXIS_MIN = -10000000;
 
+    /** The number of rows sent in a single batch by the bulk loads */
+    private static final int BULK_BATCH_SIZE = 1000;
+
     private static final Pattern AXIS_NAME_VALIDATOR = Pattern.compile("^[\\w]{1,30}");
 
     /** Marks a geometry column as geodetic */
@@ -1391,6 +1397,14 @@ public class OracleDialect extends PreparedStatementSQLDialect {
         return sequenceName + ".NEXTVAL";
     }
 
+    @Override
+    public BulkLoader createBulkLoader(SimpleFeatureType featureType, PrimaryKey key, Connection cx)
+            throws SQLException, IOException {
+        // no multi row VALUES in Oracle, bind one row per statement and send large batches
+        // of them instead, the driver turns them into array binds
+        return new MultiRowInsertBulkLoader(dataStore, featureType, key, cx, 1, BULK_BATCH_SIZE);
+    }
+
     @Override
     public void postDropTable(String schemaName, SimpleFeatureType featureType, Connection cx)
             throws SQLException {
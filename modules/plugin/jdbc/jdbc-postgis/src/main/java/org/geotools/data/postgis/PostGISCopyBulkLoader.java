@@ -0,0 +1,505 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.data.jdbc.datasource.DataSourceFinder;
+import org.geotools.data.jdbc.datasource.UnWrapper;
+import org.geotools.jdbc.BulkLoader;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
+import org.geotools.jdbc.SequencedPrimaryKeyColumn;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.io.WKBWriter;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Loads features with the PostgreSQL <code>COPY ... FROM STDIN</code> command, streaming the rows
+ * to the server through the driver copy API.
+ *
+ * <p>The binary copy format is used when all the columns have a simple binary representation
+ * (integers, floating points, booleans, strings, byte arrays, uuids, geometries and geographies),
+ * the text one otherwise. Geometries are sent as EWKB in both cases.
+ *
+ * <p>The primary key columns are not part of the copy, their values are set by the column
+ * defaults, so the loader is used only if the key sequences are the ones owned by the columns.
+ *
+ * <p>The copy is started on the first feature added, and ended by {@link #finish()}, the
+ * connection cannot run other statements in between.
+ */
+class PostGISCopyBulkLoader extends BulkLoader {
+
+    static final Logger LOGGER = Logging.getLogger(PostGISCopyBulkLoader.class);
+
+    /** The signature, flags and header extension length of the binary copy format */
+    static final byte[] BINARY_HEADER = {
+        'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0, 0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    /** The amount of data accumulated before it's sent to the server */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /** The types with a binary representation the loader can produce */
+    enum ColumnType {
+        INT2,
+        INT4,
+        INT8,
+        FLOAT4,
+        FLOAT8,
+        BOOL,
+        TEXT,
+        BYTEA,
+        UUID,
+        GEOMETRY
+    }
+
+    static final Map<String, ColumnType> BINARY_TYPES = new HashMap<>();
+
+    static {
+        BINARY_TYPES.put("int2", ColumnType.INT2);
+        BINARY_TYPES.put("int4", ColumnType.INT4);
+        BINARY_TYPES.put("int8", ColumnType.INT8);
+        BINARY_TYPES.put("float4", ColumnType.FLOAT4);
+        BINARY_TYPES.put("float8", ColumnType.FLOAT8);
+        BINARY_TYPES.put("bool", ColumnType.BOOL);
+        BINARY_TYPES.put("text", ColumnType.TEXT);
+        BINARY_TYPES.put("varchar", ColumnType.TEXT);
+        BINARY_TYPES.put("bpchar", ColumnType.TEXT);
+        BINARY_TYPES.put("name", ColumnType.TEXT);
+        BINARY_TYPES.put("bytea", ColumnType.BYTEA);
+        BINARY_TYPES.put("uuid", ColumnType.UUID);
+        BINARY_TYPES.put("geometry", ColumnType.GEOMETRY);
+        BINARY_TYPES.put("geography", ColumnType.GEOMETRY);
+    }
+
+    /** The binary type of each column, or null if the text format is used */
+    final ColumnType[] types;
+
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE + 1024);
+
+    final DataOutputStream out = new DataOutputStream(buffer);
+
+    /** The WKB writers, by dimension */
+    final WKBWriter[] writers = new WKBWriter[5];
+
+    final StringBuilder row = new StringBuilder();
+
+    /** The native connection, set when the loader is created by {@link #create} */
+    PGConnection pgConnection;
+
+    /** The copy in progress, or null if none */
+    CopyIn copy;
+
+    PostGISCopyBulkLoader(
+            JDBCDataStore dataStore,
+            SimpleFeatureType featureType,
+            PrimaryKey key,
+            Connection cx,
+            boolean binary) {
+        super(dataStore, featureType, key, cx);
+        if (binary) {
+            types = new ColumnType[attributes.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = getBinaryType(attributes.get(i));
+            }
+        } else {
+            types = null;
+        }
+    }
+
+    /**
+     * Creates a loader for the table, the copy is started only when the first feature is added
+     *
+     * @return The loader, or null if the table cannot be loaded with a copy
+     */
+    static PostGISCopyBulkLoader create(
+            PostGISDialect dialect,
+            JDBCDataStore dataStore,
+            SimpleFeatureType featureType,
+            PrimaryKey key,
+            Connection cx)
+            throws SQLException, IOException {
+        // the key columns are left to their defaults, make sure they call the key sequences
+        Set<String> keyColumns = new HashSet<>();
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            keyColumns.add(col.getName());
+            if (col instanceof SequencedPrimaryKeyColumn) {
+                String sequenceName = ((SequencedPrimaryKeyColumn) col).getSequenceName();
+                String owned =
+                        dialect.getSequenceForColumn(
+                                dataStore.getDatabaseSchema(),
+                                featureType.getTypeName(),
+                                col.getName(),
+                                cx);
+                if (owned == null || !owned.equals(sequenceName)) {
+                    return null;
+                }
+            }
+        }
+
+        PGConnection pgConnection = unwrap(cx);
+        if (pgConnection == null) {
+            return null;
+        }
+
+        boolean binary = true;
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (keyColumns.contains(att.getLocalName())) {
+                continue;
+            }
+            if (Objects.equals(Types.ARRAY, att.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPE))
+                    || HStore.class.isAssignableFrom(att.getType().getBinding())) {
+                // no copy encoding for these
+                return null;
+            }
+            binary &= getBinaryType(att) != null;
+        }
+
+        PostGISCopyBulkLoader loader =
+                new PostGISCopyBulkLoader(dataStore, featureType, key, cx, binary);
+        loader.pgConnection = pgConnection;
+        return loader;
+    }
+
+    static ColumnType getBinaryType(AttributeDescriptor att) {
+        Object typeName = att.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME);
+        if (!(typeName instanceof String)
+                || BigDate.class.isAssignableFrom(att.getType().getBinding())) {
+            return null;
+        }
+        return BINARY_TYPES.get(((String) typeName).toLowerCase());
+    }
+
+    /** Unwraps the native PostgreSQL connection, returns null if not possible */
+    static PGConnection unwrap(Connection cx) {
+        try {
+            Connection current = cx;
+            for (int i = 0; i < 10 && current != null; i++) {
+                if (current instanceof PGConnection) {
+                    return (PGConnection) current;
+                }
+                UnWrapper unwrapper = DataSourceFinder.getUnWrapper(current);
+                if (unwrapper == null) {
+                    break;
+                }
+                Connection unwrapped = unwrapper.unwrap(current);
+                if (unwrapped == current) {
+                    break;
+                }
+                current = unwrapped;
+            }
+            if (cx.isWrapperFor(PGConnection.class)) {
+                return cx.unwrap(PGConnection.class);
+            }
+        } catch (Throwable t) {
+            // not a mistake, old DBCP versions will throw an Error here, we need to catch it
+            LOGGER.log(Level.FINER, "Failed to unwrap the PostgreSQL connection", t);
+        }
+        return null;
+    }
+
+    private void start() throws IOException {
+        StringBuffer sql = new StringBuffer("COPY ");
+        dataStore.encodeTableName(featureType.getTypeName(), sql, null);
+        sql.append(" (");
+        for (AttributeDescriptor att : attributes) {
+            dataStore.getSQLDialect().encodeColumnName(null, att.getLocalName(), sql);
+            sql.append(",");
+        }
+        sql.setLength(sql.length() - 1);
+        sql.append(") FROM STDIN");
+        if (types != null) {
+            sql.append(" WITH BINARY");
+        }
+        LOGGER.log(Level.FINE, "Bulk loading features: {0}", sql);
+
+        try {
+            copy = pgConnection.getCopyAPI().copyIn(sql.toString());
+        } catch (SQLException e) {
+            throw new IOException("Error starting the features copy", e);
+        }
+        buffer.reset();
+        if (types != null) {
+            out.write(BINARY_HEADER);
+        }
+    }
+
+    @Override
+    public void add(SimpleFeature feature) throws IOException {
+        if (copy == null) {
+            start();
+        }
+        if (types != null) {
+            writeBinaryRow(feature);
+        } else {
+            writeTextRow(feature);
+        }
+        if (buffer.size() >= BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    @Override
+    public int finish() throws IOException {
+        if (copy == null) {
+            return 0;
+        }
+        if (types != null) {
+            // the file trailer
+            out.writeShort(-1);
+        }
+        flush();
+        try {
+            long rows = copy.endCopy();
+            copy = null;
+            return (int) rows;
+        } catch (SQLException e) {
+            // left to close() for cancellation
+            throw new IOException("Error loading features", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (copy != null && copy.isActive()) {
+            try {
+                copy.cancelCopy();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Failed to cancel the copy", e);
+            }
+        }
+        copy = null;
+    }
+
+    private void flush() throws IOException {
+        if (buffer.size() > 0) {
+            try {
+                copy.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            } catch (SQLException e) {
+                throw new IOException("Error loading features", e);
+            }
+            buffer.reset();
+        }
+    }
+
+    private void writeBinaryRow(SimpleFeature feature) throws IOException {
+        out.writeShort(types.length);
+        for (int i = 0; i < types.length; i++) {
+            AttributeDescriptor att = attributes.get(i);
+            Object value = getValue(feature, att);
+            if (value == null) {
+                out.writeInt(-1);
+                continue;
+            }
+            switch (types[i]) {
+                case INT2:
+                    out.writeInt(2);
+                    out.writeShort(convert(value, Short.class));
+                    break;
+                case INT4:
+                    out.writeInt(4);
+                    out.writeInt(convert(value, Integer.class));
+                    break;
+                case INT8:
+                    out.writeInt(8);
+                    out.writeLong(convert(value, Long.class));
+                    break;
+                case FLOAT4:
+                    out.writeInt(4);
+                    out.writeFloat(convert(value, Float.class));
+                    break;
+                case FLOAT8:
+                    out.writeInt(8);
+                    out.writeDouble(convert(value, Double.class));
+                    break;
+                case BOOL:
+                    out.writeInt(1);
+                    out.writeByte(convert(value, Boolean.class) ? 1 : 0);
+                    break;
+                case TEXT:
+                    writeBytes(value.toString().getBytes(StandardCharsets.UTF_8));
+                    break;
+                case BYTEA:
+                    writeBytes(convert(value, byte[].class));
+                    break;
+                case UUID:
+                    UUID uuid = convert(value, UUID.class);
+                    out.writeInt(16);
+                    out.writeLong(uuid.getMostSignificantBits());
+                    out.writeLong(uuid.getLeastSignificantBits());
+                    break;
+                case GEOMETRY:
+                    byte[] wkb = toEWKB((Geometry) value, att);
+                    if (wkb == null) {
+                        out.writeInt(-1);
+                    } else {
+                        writeBytes(wkb);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private <T> T convert(Object value, Class<T> target) throws IOException {
+        T converted = Converters.convert(value, target);
+        if (converted == null) {
+            throw new IOException("Cannot convert " + value + " to " + target.getSimpleName());
+        }
+        return converted;
+    }
+
+    private void writeTextRow(SimpleFeature feature) throws IOException {
+        row.setLength(0);
+        for (AttributeDescriptor att : attributes) {
+            Object value = getValue(feature, att);
+            encodeText(value, att, row);
+            row.append('\t');
+        }
+        row.setCharAt(row.length() - 1, '\n');
+        out.write(row.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Encodes a value in the copy text format */
+    void encodeText(Object value, AttributeDescriptor att, StringBuilder sb) throws IOException {
+        if (value instanceof Geometry) {
+            // geometries are parsed from the plain hex of their EWKB
+            byte[] ewkb = toEWKB((Geometry) value, att);
+            if (ewkb == null) {
+                sb.append("\\N");
+            } else {
+                appendHex(ewkb, sb);
+            }
+        } else if (value == null) {
+            sb.append("\\N");
+        } else if (value instanceof byte[]) {
+            // the hex bytea input format, with the backslash escaped
+            sb.append("\\\\x");
+            appendHex((byte[]) value, sb);
+        } else if (value instanceof Boolean) {
+            sb.append(((Boolean) value) ? 't' : 'f');
+        } else if (value instanceof Date
+                && (BigDate.class.isAssignableFrom(att.getType().getBinding()))) {
+            sb.append(((Date) value).getTime());
+        } else if (value instanceof Date
+                && !(value instanceof java.sql.Date)
+                && !(value instanceof java.sql.Time)
+                && !(value instanceof Timestamp)) {
+            sb.append(new Timestamp(((Date) value).getTime()));
+        } else {
+            escape(value.toString(), sb);
+        }
+    }
+
+    static void escape(String value, StringBuilder sb) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    static void appendHex(byte[] bytes, StringBuilder sb) {
+        for (byte b : bytes) {
+            sb.append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+        }
+    }
+
+    /**
+     * Encodes the geometry as EWKB, with the srid of the column, returns null for null and empty
+     * geometries
+     */
+    byte[] toEWKB(Geometry g, AttributeDescriptor att) throws IOException {
+        if (g == null || g.isEmpty()) {
+            return null;
+        }
+        if (g instanceof LinearRing) {
+            // postgis does not handle linear rings, convert to just a line string
+            g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
+        }
+        int dimension = Math.max(2, Math.min(4, getGeometryDimension(g, att)));
+        int srid = getGeometrySRID(g, att);
+        WKBWriter writer = writers[dimension];
+        if (writer == null) {
+            writer = writers[dimension] = new WKBWriter(dimension);
+        }
+        return toEWKB(writer.write(g), srid);
+    }
+
+    /**
+     * Adds the srid to a big endian WKB, setting the srid flag and inserting the srid after the
+     * geometry type
+     */
+    static byte[] toEWKB(byte[] wkb, int srid) {
+        if (srid <= 0) {
+            return wkb;
+        }
+        byte[] ewkb = new byte[wkb.length + 4];
+        System.arraycopy(wkb, 0, ewkb, 0, 5);
+        ewkb[1] |= 0x20;
+        ewkb[5] = (byte) (srid >>> 24);
+        ewkb[6] = (byte) (srid >>> 16);
+        ewkb[7] = (byte) (srid >>> 8);
+        ewkb[8] = (byte) srid;
+        System.arraycopy(wkb, 5, ewkb, 9, wkb.length - 5);
+        return ewkb;
+    }
+}
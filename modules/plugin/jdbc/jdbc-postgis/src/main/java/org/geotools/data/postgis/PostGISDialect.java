@@ -36,6 +36,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
+import org.geotools.data.Base64;
 import org.geotools.data.jdbc.FilterToSQL;
 import org.geotools.geometry.jts.CircularRing;
 import org.geotools.geometry.jts.CircularString;
@@ -48,8 +49,10 @@ import org.geotools.geometry.jts.MultiSurface;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.geometry.jts.WKTWriter2;
 import org.geotools.jdbc.BasicSQLDialect;
+import org.geotools.jdbc.BulkLoader;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKey;
 import org.geotools.referencing.CRS;
 import org.geotools.util.Version;
 import org.geotools.util.factory.Hints;
@@ -192,6 +195,10 @@ public class PostGISDialect extends BasicSQLDialect {
 
     boolean simplifyEnabled = true;
 
+    boolean binaryGeometryEncodingEnabled = false;
+
+    Integer twkbPrecision;
+
     Version version, pgsqlVersion;
 
     public boolean isLooseBBOXEnabled() {
@@ -241,6 +248,39 @@ public class PostGISDialect extends BasicSQLDialect {
         this.simplifyEnabled = simplifyEnabled;
     }
 
+    public boolean isBinaryGeometryEncodingEnabled() {
+        return binaryGeometryEncodingEnabled;
+    }
+
+    /**
+     * Enables/disables transferring the geometries as raw bytea values, instead of base64 encoded
+     * text. The raw values are smaller and cheaper to decode only when the driver uses its binary
+     * result format, that is, with server side prepared statements: in the text format they are
+     * sent hex encoded, twice their size, while base64 adds a third
+     *
+     * @param binaryGeometryEncodingEnabled
+     * @see PostgisNGDataStoreFactory#BINARY_GEOMETRY
+     */
+    public void setBinaryGeometryEncodingEnabled(boolean binaryGeometryEncodingEnabled) {
+        this.binaryGeometryEncodingEnabled = binaryGeometryEncodingEnabled;
+    }
+
+    public Integer getTWKBPrecision() {
+        return twkbPrecision;
+    }
+
+    /**
+     * Sets the number of decimal digits kept when simplified geometries (as requested by map
+     * rendering) are transferred using the TWKB format. When null, the default, simplified
+     * geometries are transferred as WKB like all others.
+     *
+     * @param twkbPrecision
+     * @see PostgisNGDataStoreFactory#TWKB_PRECISION
+     */
+    public void setTWKBPrecision(Integer twkbPrecision) {
+        this.twkbPrecision = twkbPrecision;
+    }
+
     @Override
     public void initializeConnection(Connection cx) throws SQLException {
         super.initializeConnection(cx);
@@ -272,6 +312,8 @@ public class PostGISDialect extends BasicSQLDialect {
 
     ThreadLocal<WKBAttributeIO> wkbReader = new ThreadLocal<WKBAttributeIO>();
 
+    ThreadLocal<TWKBReader> twkbReader = new ThreadLocal<TWKBReader>();
+
     @Override
     public Geometry decodeGeometryValue(
             GeometryDescriptor descriptor,
@@ -281,6 +323,9 @@ public class PostGISDialect extends BasicSQLDialect {
             Connection cx,
             Hints hints)
             throws IOException, SQLException {
+        if (isTWKBEncoded(descriptor, hints)) {
+            return readTWKB(rs.getBytes(column), factory);
+        }
         WKBAttributeIO reader = getWKBReader(factory);
 
         return (Geometry) reader.read(rs, column);
@@ -294,6 +339,9 @@ public class PostGISDialect extends BasicSQLDialect {
             Connection cx,
             Hints hints)
             throws IOException, SQLException {
+        if (isTWKBEncoded(descriptor, hints)) {
+            return readTWKB(rs.getBytes(column), factory);
+        }
         WKBAttributeIO reader = getWKBReader(factory);
 
         return (Geometry) reader.read(rs, column);
@@ -307,9 +355,68 @@ public class PostGISDialect extends BasicSQLDialect {
         } else {
             reader.setGeometryFactory(factory);
         }
+        reader.setBase64EncodingEnabled(!binaryGeometryEncodingEnabled);
         return reader;
     }
 
+    private Geometry readTWKB(byte[] bytes, GeometryFactory factory) throws IOException {
+        if (bytes == null) {
+            return null;
+        }
+        if (!binaryGeometryEncodingEnabled) {
+            bytes = Base64.decode(bytes);
+        }
+        TWKBReader reader = twkbReader.get();
+        if (reader == null) {
+            reader = new TWKBReader(factory);
+            twkbReader.set(reader);
+        } else {
+            reader.setGeometryFactory(factory);
+        }
+        return reader.read(bytes);
+    }
+
+    /**
+     * Returns true if the column is going to be encoded as TWKB by {@link
+     * #encodeGeometryColumnSimplified(GeometryDescriptor, String, int, StringBuffer, Double)},
+     * mirroring the checks the store performs before calling it. Geometries read without a
+     * descriptor are never TWKB encoded.
+     */
+    boolean isTWKBEncoded(GeometryDescriptor gatt, Hints hints) {
+        if (gatt == null
+                || hints == null
+                || !hints.containsKey(Hints.GEOMETRY_SIMPLIFICATION)
+                || hints.containsKey(Hints.GEOMETRY_GENERALIZATION)
+                || gatt.getType().getBinding() == Point.class) {
+            return false;
+        }
+        return isTWKBEnabled(gatt);
+    }
+
+    /** Returns true if simplified values of the specified column are encoded as TWKB */
+    boolean isTWKBEnabled(GeometryDescriptor gatt) {
+        return twkbPrecision != null
+                && simplifyEnabled
+                && version != null
+                && version.compareTo(V_2_2_0) >= 0
+                && !"geography".equals(gatt.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME))
+                && NON_CURVED_GEOMETRY_CLASSES.contains(gatt.getType().getBinding());
+    }
+
+    /** Opens the transfer encoding of a geometry column, if any */
+    private void encodeGeometryTransferStart(StringBuffer sql) {
+        if (!binaryGeometryEncodingEnabled) {
+            sql.append("encode(");
+        }
+    }
+
+    /** Closes the transfer encoding of a geometry column, if any */
+    private void encodeGeometryTransferEnd(StringBuffer sql) {
+        if (!binaryGeometryEncodingEnabled) {
+            sql.append(",'base64')");
+        }
+    }
+
     @Override
     public void encodeGeometryColumn(
             GeometryDescriptor gatt, String prefix, int srid, StringBuffer sql) {
@@ -323,10 +430,11 @@ public class PostGISDialect extends BasicSQLDialect {
         boolean geography =
                 "geography".equals(gatt.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME));
 
+        encodeGeometryTransferStart(sql);
         if (geography) {
-            sql.append("encode(ST_AsBinary(");
+            sql.append("ST_AsBinary(");
             encodeColumnName(prefix, gatt.getLocalName(), sql);
-            sql.append("),'base64')");
+            sql.append(")");
         } else {
             boolean force2D =
                     hints != null
@@ -334,15 +442,16 @@ public class PostGISDialect extends BasicSQLDialect {
                             && Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D));
 
             if (force2D) {
-                sql.append("encode(ST_AsBinary(" + getForce2DFunction() + "(");
+                sql.append("ST_AsBinary(" + getForce2DFunction() + "(");
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
-                sql.append(")),'base64')");
+                sql.append("))");
             } else {
-                sql.append("encode(ST_AsEWKB(");
+                sql.append("ST_AsEWKB(");
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
-                sql.append("),'base64')");
+                sql.append(")");
             }
         }
+        encodeGeometryTransferEnd(sql);
     }
 
     @Override
@@ -358,18 +467,25 @@ public class PostGISDialect extends BasicSQLDialect {
             boolean geography =
                     "geography".equals(gatt.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME));
 
+            encodeGeometryTransferStart(sql);
             if (geography) {
-                sql.append("encode(ST_AsBinary(");
+                sql.append("ST_AsBinary(");
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
-                sql.append("),'base64')");
+                sql.append(")");
+            } else if (isTWKBEnabled(gatt)) {
+                // coordinates rounded to the requested precision and delta encoded,
+                // the simplification keeps the number of points low anyways
+                sql.append("ST_AsTWKB(ST_Simplify(" + getForce2DFunction() + "(");
+                encodeColumnName(prefix, gatt.getLocalName(), sql);
+                sql.append("), " + distance + preserveCollapsed + "), " + twkbPrecision + ")");
             } else {
                 if (NON_CURVED_GEOMETRY_CLASSES.contains(gatt.getType().getBinding())) {
-                    sql.append("encode(ST_AsBinary(ST_Simplify(" + getForce2DFunction() + "(");
+                    sql.append("ST_AsBinary(ST_Simplify(" + getForce2DFunction() + "(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
-                    sql.append("), " + distance + preserveCollapsed + ")),'base64')");
+                    sql.append("), " + distance + preserveCollapsed + "))");
                 } else {
                     // we can have curves mixed in
-                    sql.append("encode(ST_AsBinary(");
+                    sql.append("ST_AsBinary(");
                     sql.append("CASE WHEN ST_HasArc(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
                     sql.append(") THEN ");
@@ -377,9 +493,10 @@ public class PostGISDialect extends BasicSQLDialect {
                     sql.append(" ELSE ");
                     sql.append("ST_Simplify(" + getForce2DFunction() + "(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
-                    sql.append("), " + distance + preserveCollapsed + ") END),'base64')");
+                    sql.append("), " + distance + preserveCollapsed + ") END)");
                 }
             }
+            encodeGeometryTransferEnd(sql);
         }
     }
 
@@ -970,6 +1087,12 @@ public class PostGISDialect extends BasicSQLDialect {
         return "nextval('" + sequenceName + "')";
     }
 
+    @Override
+    public BulkLoader createBulkLoader(SimpleFeatureType featureType, PrimaryKey key, Connection cx)
+            throws SQLException, IOException {
+        return PostGISCopyBulkLoader.create(this, dataStore, featureType, key, cx);
+    }
+
     @Override
     public boolean lookupGeneratedValuesPostInsert() {
         return true;
@@ -23,10 +23,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.Map;
+import org.geotools.jdbc.BulkLoader;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.geotools.jdbc.PrimaryKey;
 import org.geotools.util.factory.Hints;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
@@ -71,7 +73,7 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
             Connection cx,
             Hints hints)
             throws IOException, SQLException {
-        return delegate.decodeGeometryValue(descriptor, rs, column, factory, cx, new Hints());
+        return delegate.decodeGeometryValue(descriptor, rs, column, factory, cx, hints);
     }
 
     public Geometry decodeGeometryValue(
@@ -147,6 +149,12 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         return delegate.encodeNextSequenceValue(schemaName, sequenceName);
     }
 
+    @Override
+    public BulkLoader createBulkLoader(SimpleFeatureType featureType, PrimaryKey key, Connection cx)
+            throws SQLException, IOException {
+        return delegate.createBulkLoader(featureType, key, cx);
+    }
+
     public String getSequenceForColumn(
             String schemaName, String tableName, String columnName, Connection cx)
             throws SQLException {
@@ -123,6 +123,35 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
                     false,
                     Boolean.TRUE);
 
+    /**
+     * Enables transferring geometries as raw bytea values instead of base64 encoded text, used
+     * only along with {@link #PREPARED_STATEMENTS}
+     */
+    public static final Param BINARY_GEOMETRY =
+            new Param(
+                    "Binary geometry transfer",
+                    Boolean.class,
+                    "When enabled along with prepared statements, geometries are transferred as "
+                            + "raw bytes instead of base64 encoded text, once the driver uses "
+                            + "its binary result format. Ignored without prepared statements, "
+                            + "the raw bytes would then be sent as hex encoded text, which is "
+                            + "larger than base64",
+                    false,
+                    Boolean.FALSE,
+                    new KVP(Param.LEVEL, "advanced"));
+
+    /** Number of decimals kept when transferring simplified geometries as TWKB */
+    public static final Param TWKB_PRECISION =
+            new Param(
+                    "TWKB precision",
+                    Integer.class,
+                    "When set, simplified geometries (as requested by map rendering) are "
+                            + "transferred in the compact TWKB format, rounding the coordinates to "
+                            + "the given number of decimal digits. Requires PostGIS 2.2 or newer",
+                    false,
+                    null,
+                    new KVP(Param.LEVEL, "advanced"));
+
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
         return new PostGISDialect(dataStore);
@@ -192,6 +221,13 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         Boolean simplify = (Boolean) SIMPLIFY.lookUp(params);
         dialect.setSimplifyEnabled(simplify == null || simplify);
 
+        // check the geometry transfer format (base64 text by default). Raw bytes are smaller
+        // only in the binary result format, which the driver uses for prepared statements
+        Boolean binary = (Boolean) BINARY_GEOMETRY.lookUp(params);
+        dialect.setBinaryGeometryEncodingEnabled(
+                Boolean.TRUE.equals(binary) && Boolean.TRUE.equals(usePs));
+        dialect.setTWKBPrecision((Integer) TWKB_PRECISION.lookUp(params));
+
         // encode BBOX filter with wrapping ST_Envelope (GEOT-5167)
         Boolean encodeBBOXAsEnvelope = false;
         String largeGeometriesOptimized =
@@ -219,6 +255,8 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
         parameters.put(ENCODE_FUNCTIONS.key, ENCODE_FUNCTIONS);
         parameters.put(SIMPLIFY.key, SIMPLIFY);
+        parameters.put(BINARY_GEOMETRY.key, BINARY_GEOMETRY);
+        parameters.put(TWKB_PRECISION.key, TWKB_PRECISION);
         parameters.put(CREATE_DB_IF_MISSING.key, CREATE_DB_IF_MISSING);
         parameters.put(CREATE_PARAMS.key, CREATE_PARAMS);
     }
@@ -41,5 +41,7 @@ public class PostgisNGJNDIDataStoreFactory extends JDBCJNDIDataStoreFactory {
         parameters.put(PREPARED_STATEMENTS.key, PREPARED_STATEMENTS);
         parameters.put(ENCODE_FUNCTIONS.key, ENCODE_FUNCTIONS);
         parameters.put(SIMPLIFY.key, SIMPLIFY);
+        parameters.put(BINARY_GEOMETRY.key, BINARY_GEOMETRY);
+        parameters.put(TWKB_PRECISION.key, TWKB_PRECISION);
     }
 }
@@ -0,0 +1,311 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.io.IOException;
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Reads a {@link Geometry} from its Tiny Well Known Binary representation, as produced by the
+ * PostGIS <code>ST_AsTWKB</code> function. See <a
+ * href="https://github.com/TWKB/Specification">the TWKB specification</a> for details about the
+ * format.
+ *
+ * <p>When the geometry factory uses a {@link LiteCoordinateSequenceFactory} the ordinates are
+ * decoded straight into the arrays backing the {@link LiteCoordinateSequence} objects, without
+ * intermediate coordinates.
+ *
+ * <p>This class is designed to support reuse of a single instance to read multiple geometries. This
+ * class is not thread-safe; each thread should create its own instance.
+ */
+public class TWKBReader {
+
+    static final int POINT = 1;
+
+    static final int LINESTRING = 2;
+
+    static final int POLYGON = 3;
+
+    static final int MULTIPOINT = 4;
+
+    static final int MULTILINESTRING = 5;
+
+    static final int MULTIPOLYGON = 6;
+
+    static final int GEOMETRYCOLLECTION = 7;
+
+    static final int BBOX_FLAG = 0x01;
+
+    static final int SIZE_FLAG = 0x02;
+
+    static final int IDLIST_FLAG = 0x04;
+
+    static final int EXTENDED_DIMS_FLAG = 0x08;
+
+    static final int EMPTY_FLAG = 0x10;
+
+    GeometryFactory factory;
+
+    byte[] bytes;
+
+    int position;
+
+    /** The number of dimensions of the geometry being read, including the measures */
+    int dimension;
+
+    int measures;
+
+    /** The power of ten each dimension is divided by, as per its precision */
+    double[] scales = new double[4];
+
+    /** The last coordinate read, the coordinates are delta encoded */
+    long[] last = new long[4];
+
+    public TWKBReader(GeometryFactory factory) {
+        this.factory = factory;
+    }
+
+    public void setGeometryFactory(GeometryFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Reads a single geometry
+     *
+     * @param bytes The TWKB encoded geometry
+     * @return The geometry
+     * @throws IOException If the bytes are not a valid TWKB geometry
+     */
+    public Geometry read(byte[] bytes) throws IOException {
+        this.bytes = bytes;
+        this.position = 0;
+        try {
+            return readGeometry();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Unexpected end of the TWKB geometry", e);
+        } finally {
+            this.bytes = null;
+        }
+    }
+
+    private Geometry readGeometry() throws IOException {
+        final int typeAndPrecision = bytes[position++] & 0xFF;
+        final int type = typeAndPrecision & 0x0F;
+        final int precision = decodeZigZag(typeAndPrecision >> 4);
+        final int metadata = bytes[position++] & 0xFF;
+
+        dimension = 2;
+        measures = 0;
+        scales[0] = scales[1] = Math.pow(10, precision);
+        if ((metadata & EXTENDED_DIMS_FLAG) != 0) {
+            final int extended = bytes[position++] & 0xFF;
+            if ((extended & 0x01) != 0) {
+                scales[dimension++] = Math.pow(10, (extended >> 2) & 0x07);
+            }
+            if ((extended & 0x02) != 0) {
+                scales[dimension++] = Math.pow(10, (extended >> 5) & 0x07);
+                measures = 1;
+            }
+        }
+        if ((metadata & SIZE_FLAG) != 0) {
+            readUnsignedVarInt();
+        }
+        if ((metadata & BBOX_FLAG) != 0) {
+            // the bounding box is not needed, skip it
+            for (int i = 0; i < dimension * 2; i++) {
+                readUnsignedVarInt();
+            }
+        }
+        if ((metadata & EMPTY_FLAG) != 0) {
+            return createEmpty(type);
+        }
+
+        for (int i = 0; i < dimension; i++) {
+            last[i] = 0;
+        }
+        switch (type) {
+            case POINT:
+                return factory.createPoint(readCoordinates(1));
+            case LINESTRING:
+                return factory.createLineString(readCoordinates((int) readUnsignedVarInt()));
+            case POLYGON:
+                return readPolygon();
+            case MULTIPOINT:
+                {
+                    Point[] points = new Point[readCount(metadata)];
+                    for (int i = 0; i < points.length; i++) {
+                        points[i] = factory.createPoint(readCoordinates(1));
+                    }
+                    return factory.createMultiPoint(points);
+                }
+            case MULTILINESTRING:
+                {
+                    LineString[] lines = new LineString[readCount(metadata)];
+                    for (int i = 0; i < lines.length; i++) {
+                        lines[i] =
+                                factory.createLineString(
+                                        readCoordinates((int) readUnsignedVarInt()));
+                    }
+                    return factory.createMultiLineString(lines);
+                }
+            case MULTIPOLYGON:
+                {
+                    Polygon[] polygons = new Polygon[readCount(metadata)];
+                    for (int i = 0; i < polygons.length; i++) {
+                        polygons[i] = readPolygon();
+                    }
+                    return factory.createMultiPolygon(polygons);
+                }
+            case GEOMETRYCOLLECTION:
+                {
+                    // each member has its own header
+                    Geometry[] geometries = new Geometry[readCount(metadata)];
+                    for (int i = 0; i < geometries.length; i++) {
+                        geometries[i] = readGeometry();
+                    }
+                    return factory.createGeometryCollection(geometries);
+                }
+            default:
+                throw new IOException("Unknown TWKB geometry type: " + type);
+        }
+    }
+
+    private Geometry createEmpty(int type) throws IOException {
+        switch (type) {
+            case POINT:
+                return factory.createPoint((CoordinateSequence) null);
+            case LINESTRING:
+                return factory.createLineString((CoordinateSequence) null);
+            case POLYGON:
+                return factory.createPolygon((CoordinateSequence) null);
+            case MULTIPOINT:
+                return factory.createMultiPoint((Point[]) null);
+            case MULTILINESTRING:
+                return factory.createMultiLineString(null);
+            case MULTIPOLYGON:
+                return factory.createMultiPolygon(null);
+            case GEOMETRYCOLLECTION:
+                return factory.createGeometryCollection(null);
+            default:
+                throw new IOException("Unknown TWKB geometry type: " + type);
+        }
+    }
+
+    /** Reads the number of members of a multi geometry, skipping the id list if present */
+    private int readCount(int metadata) {
+        final int count = (int) readUnsignedVarInt();
+        if ((metadata & IDLIST_FLAG) != 0) {
+            for (int i = 0; i < count; i++) {
+                readUnsignedVarInt();
+            }
+        }
+        return count;
+    }
+
+    private Polygon readPolygon() {
+        final int numRings = (int) readUnsignedVarInt();
+        if (numRings == 0) {
+            return factory.createPolygon((CoordinateSequence) null);
+        }
+        LinearRing shell = factory.createLinearRing(readRing());
+        LinearRing[] holes = new LinearRing[numRings - 1];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = factory.createLinearRing(readRing());
+        }
+        return factory.createPolygon(shell, holes);
+    }
+
+    private CoordinateSequence readRing() {
+        final int numPoints = (int) readUnsignedVarInt();
+        CoordinateSequence cs = readCoordinates(numPoints);
+        // rings are closed by the encoder, but make sure of it anyways
+        if (numPoints > 0) {
+            boolean closed = true;
+            for (int i = 0; i < dimension && closed; i++) {
+                closed = cs.getOrdinate(0, i) == cs.getOrdinate(numPoints - 1, i);
+            }
+            if (!closed) {
+                CoordinateSequence closedCs = createSequence(numPoints + 1);
+                for (int p = 0; p < numPoints; p++) {
+                    for (int i = 0; i < dimension; i++) {
+                        closedCs.setOrdinate(p, i, cs.getOrdinate(p, i));
+                    }
+                }
+                for (int i = 0; i < dimension; i++) {
+                    closedCs.setOrdinate(numPoints, i, cs.getOrdinate(0, i));
+                }
+                cs = closedCs;
+            }
+        }
+        return cs;
+    }
+
+    private CoordinateSequence readCoordinates(int numPoints) {
+        if (factory.getCoordinateSequenceFactory() instanceof LiteCoordinateSequenceFactory) {
+            // decode straight into the backing array
+            double[] ordinates = new double[numPoints * dimension];
+            for (int p = 0, k = 0; p < numPoints; p++) {
+                for (int i = 0; i < dimension; i++) {
+                    last[i] += decodeZigZag(readUnsignedVarInt());
+                    ordinates[k++] = last[i] / scales[i];
+                }
+            }
+            return new LiteCoordinateSequence(ordinates, dimension, measures);
+        }
+
+        CoordinateSequence cs = createSequence(numPoints);
+        for (int p = 0; p < numPoints; p++) {
+            for (int i = 0; i < dimension; i++) {
+                last[i] += decodeZigZag(readUnsignedVarInt());
+                cs.setOrdinate(p, i, last[i] / scales[i]);
+            }
+        }
+        return cs;
+    }
+
+    private CoordinateSequence createSequence(int numPoints) {
+        return factory.getCoordinateSequenceFactory().create(numPoints, dimension, measures);
+    }
+
+    long readUnsignedVarInt() {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position++];
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    static long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int decodeZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -39,6 +39,7 @@ public class WKBAttributeIO {
     WKBReader wkbr;
     ByteArrayInStream inStream = new ByteArrayInStream(new byte[0]);
     GeometryFactory gf;
+    boolean base64EncodingEnabled = true;
 
     public WKBAttributeIO() {
         this(new GeometryFactory());
@@ -52,6 +53,14 @@ public class WKBAttributeIO {
         wkbr = new WKBReader(gf);
     }
 
+    /**
+     * Sets whether the values read from the result set are base64 encoded (the default), or raw
+     * WKB bytes
+     */
+    public void setBase64EncodingEnabled(boolean base64EncodingEnabled) {
+        this.base64EncodingEnabled = base64EncodingEnabled;
+    }
+
     /**
      * This method will convert a Well Known Binary representation to a JTS Geometry object.
      *
@@ -81,7 +90,7 @@ public class WKBAttributeIO {
             byte bytes[] = rs.getBytes(columnName);
             if (bytes == null) // ie. its a null column -> return a null geometry!
             return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return wkb2Geometry(base64EncodingEnabled ? Base64.decode(bytes) : bytes);
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
@@ -93,7 +102,7 @@ public class WKBAttributeIO {
             byte bytes[] = rs.getBytes(columnIndex);
             if (bytes == null) // ie. its a null column -> return a null geometry!
             return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return wkb2Geometry(base64EncodingEnabled ? Base64.decode(bytes) : bytes);
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
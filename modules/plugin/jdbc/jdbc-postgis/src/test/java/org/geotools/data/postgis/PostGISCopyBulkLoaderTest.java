@@ -0,0 +1,99 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.sql.Timestamp;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.NullPrimaryKey;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class PostGISCopyBulkLoaderTest {
+
+    SimpleFeatureType schema;
+
+    PostGISCopyBulkLoader loader;
+
+    @Before
+    public void setUp() {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("test");
+        tb.userData(JDBCDataStore.JDBC_NATIVE_TYPENAME, "varchar");
+        tb.add("name", String.class);
+        tb.userData(JDBCDataStore.JDBC_NATIVE_TYPENAME, "timestamp");
+        tb.add("time", Timestamp.class);
+        tb.userData(JDBCDataStore.JDBC_NATIVE_TYPENAME, "bytea");
+        tb.add("bytes", byte[].class);
+        tb.userData(JDBCDataStore.JDBC_NATIVE_TYPENAME, "bool");
+        tb.add("flag", Boolean.class);
+        schema = tb.buildFeatureType();
+        loader = new PostGISCopyBulkLoader(null, schema, new NullPrimaryKey("test"), null, false);
+    }
+
+    @Test
+    public void testBinaryTypes() {
+        assertEquals(
+                PostGISCopyBulkLoader.ColumnType.TEXT,
+                PostGISCopyBulkLoader.getBinaryType(schema.getDescriptor("name")));
+        assertEquals(
+                PostGISCopyBulkLoader.ColumnType.BOOL,
+                PostGISCopyBulkLoader.getBinaryType(schema.getDescriptor("flag")));
+        // no binary encoding for timestamps, the text format is used
+        assertNull(PostGISCopyBulkLoader.getBinaryType(schema.getDescriptor("time")));
+    }
+
+    @Test
+    public void testTextEncoding() throws Exception {
+        assertEquals("a\\\\b\\tc\\nd", encode("name", "a\\b\tc\nd"));
+        assertEquals("\\N", encode("name", null));
+        assertEquals("t", encode("flag", Boolean.TRUE));
+        assertEquals("\\\\x00FF10", encode("bytes", new byte[] {0, (byte) 0xFF, 0x10}));
+        Timestamp time = Timestamp.valueOf("2018-05-04 10:20:30.5");
+        assertEquals("2018-05-04 10:20:30.5", encode("time", time));
+    }
+
+    @Test
+    public void testEWKB() throws Exception {
+        Geometry point = new WKTReader().read("POINT(1 2)");
+        byte[] wkb = new WKBWriter(2).write(point);
+        assertSame(wkb, PostGISCopyBulkLoader.toEWKB(wkb, 0));
+
+        byte[] ewkb = PostGISCopyBulkLoader.toEWKB(wkb, 4326);
+        // the type has the srid flag, followed by the srid
+        assertEquals("0020000001000010E63FF00000000000004000000000000000", WKBWriter.toHex(ewkb));
+        // same as the JTS encoding
+        point.setSRID(4326);
+        assertEquals(WKBWriter.toHex(new WKBWriter(2, true).write(point)), WKBWriter.toHex(ewkb));
+        assertEquals(4326, new WKBReader().read(ewkb).getSRID());
+    }
+
+    private String encode(String attribute, Object value) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        loader.encodeText(value, schema.getDescriptor(attribute), sb);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.util.Version;
+import org.geotools.util.factory.Hints;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+
+public class PostGISDialectTest {
+
+    PostGISDialect dialect;
+
+    GeometryDescriptor lines;
+
+    GeometryDescriptor points;
+
+    @Before
+    public void setUp() {
+        dialect = new PostGISDialect(null);
+        dialect.version = new Version("2.4.0");
+
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("test");
+        tb.add("line", LineString.class);
+        tb.add("point", Point.class);
+        SimpleFeatureType schema = tb.buildFeatureType();
+        lines = (GeometryDescriptor) schema.getDescriptor("line");
+        points = (GeometryDescriptor) schema.getDescriptor("point");
+    }
+
+    @Test
+    public void testBase64Encoding() {
+        StringBuffer sql = new StringBuffer();
+        dialect.encodeGeometryColumn(lines, null, 4326, null, sql);
+        assertEquals("encode(ST_AsEWKB(\"line\"),'base64')", sql.toString());
+    }
+
+    @Test
+    public void testBinaryEncoding() {
+        dialect.setBinaryGeometryEncodingEnabled(true);
+        StringBuffer sql = new StringBuffer();
+        dialect.encodeGeometryColumn(lines, "a", 4326, null, sql);
+        assertEquals("ST_AsEWKB(\"a\".\"line\")", sql.toString());
+
+        sql = new StringBuffer();
+        dialect.encodeGeometryColumnSimplified(lines, null, 4326, sql, 10d);
+        assertEquals("ST_AsBinary(ST_Simplify(ST_Force2D(\"line\"), 10.0, true))", sql.toString());
+    }
+
+    @Test
+    public void testTWKBEncoding() {
+        dialect.setBinaryGeometryEncodingEnabled(true);
+        dialect.setTWKBPrecision(2);
+        StringBuffer sql = new StringBuffer();
+        dialect.encodeGeometryColumnSimplified(lines, null, 4326, sql, 10d);
+        assertEquals(
+                "ST_AsTWKB(ST_Simplify(ST_Force2D(\"line\"), 10.0, true), 2)", sql.toString());
+
+        // decoding side agrees with the encoding one
+        Hints hints = new Hints(Hints.GEOMETRY_SIMPLIFICATION, 10d);
+        assertTrue(dialect.isTWKBEncoded(lines, hints));
+        assertFalse(dialect.isTWKBEncoded(lines, null));
+        assertFalse(dialect.isTWKBEncoded(points, hints));
+        // no descriptor, as in JDBCDataStore.getGmlObject
+        assertFalse(dialect.isTWKBEncoded(null, hints));
+    }
+
+    @Test
+    public void testTWKBRequiresPostGIS22() {
+        dialect.version = new Version("2.1.0");
+        dialect.setTWKBPrecision(2);
+        StringBuffer sql = new StringBuffer();
+        dialect.encodeGeometryColumnSimplified(lines, null, 4326, sql, 10d);
+        assertEquals(
+                "encode(ST_AsBinary(ST_Simplify(ST_Force2D(\"line\"), 10.0)),'base64')",
+                sql.toString());
+        assertFalse(
+                dialect.isTWKBEncoded(lines, new Hints(Hints.GEOMETRY_SIMPLIFICATION, 10d)));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.io.WKTReader;
+
+public class TWKBReaderTest {
+
+    TWKBReader reader = new TWKBReader(new GeometryFactory());
+
+    @Test
+    public void testPoint() throws Exception {
+        // precision 0, x = 1, y = 2
+        assertGeometry("POINT(1 2)", 0x01, 0x00, 0x02, 0x04);
+        // precision 1 (zigzag encoded as 2), x = 15, y = -23
+        assertGeometry("POINT(1.5 -2.3)", 0x21, 0x00, 0x1E, 0x2D);
+        // multi byte varint, x = 100, y = 0
+        assertGeometry("POINT(100 0)", 0x01, 0x00, 0xC8, 0x01, 0x00);
+    }
+
+    @Test
+    public void testBoundingBoxAndSize() throws Exception {
+        // bbox and size flags, both skipped
+        assertGeometry("POINT(1 2)", 0x01, 0x03, 0x06, 0x02, 0x00, 0x04, 0x00, 0x02, 0x04);
+    }
+
+    @Test
+    public void testLineString() throws Exception {
+        // the second point is delta encoded
+        assertGeometry("LINESTRING(1 1, 5 5)", 0x02, 0x00, 0x02, 0x02, 0x02, 0x08, 0x08);
+    }
+
+    @Test
+    public void testPolygon() throws Exception {
+        assertGeometry(
+                "POLYGON((0 0, 2 0, 2 2, 0 0))",
+                0x03,
+                0x00,
+                0x01,
+                0x04,
+                0x00,
+                0x00,
+                0x04,
+                0x00,
+                0x00,
+                0x04,
+                0x03,
+                0x03);
+    }
+
+    @Test
+    public void testMultiPointDeltas() throws Exception {
+        // the deltas carry over from one member to the next
+        assertGeometry("MULTIPOINT((1 1), (2 3))", 0x04, 0x00, 0x02, 0x02, 0x02, 0x02, 0x04);
+        // with an id list, skipped
+        assertGeometry(
+                "MULTIPOINT((1 1), (2 3))", 0x04, 0x04, 0x02, 0x02, 0x04, 0x02, 0x02, 0x02, 0x04);
+    }
+
+    @Test
+    public void testCollection() throws Exception {
+        // each member has its own header, and restarts the deltas
+        assertGeometry(
+                "GEOMETRYCOLLECTION(POINT(1 2), POINT(1 2))",
+                0x07,
+                0x00,
+                0x02,
+                0x01,
+                0x00,
+                0x02,
+                0x04,
+                0x01,
+                0x00,
+                0x02,
+                0x04);
+    }
+
+    @Test
+    public void testThreeDimensions() throws Exception {
+        // extended dimensions, z with precision 1
+        Geometry g = read(0x01, 0x08, 0x05, 0x02, 0x04, 0x0A);
+        assertEquals(0.5, g.getCoordinate().getZ(), 0d);
+        assertEquals(1, g.getCoordinate().x, 0d);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertTrue(read(0x03, 0x10).isEmpty());
+        assertTrue(read(0x01, 0x10).isEmpty());
+    }
+
+    @Test
+    public void testLiteCoordinateSequence() throws Exception {
+        reader.setGeometryFactory(new GeometryFactory(new LiteCoordinateSequenceFactory()));
+        LineString ls = (LineString) read(0x02, 0x00, 0x02, 0x02, 0x02, 0x08, 0x08);
+        assertTrue(ls.getCoordinateSequence() instanceof LiteCoordinateSequence);
+        assertEquals(new WKTReader().read("LINESTRING(1 1, 5 5)"), ls);
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        try {
+            read(0x02, 0x00, 0x02, 0x02);
+            fail("Should have failed, the geometry is truncated");
+        } catch (IOException e) {
+            // fine
+        }
+    }
+
+    private void assertGeometry(String expected, int... bytes) throws Exception {
+        assertTrue(new WKTReader().read(expected).equalsExact(read(bytes)));
+    }
+
+    private Geometry read(int... bytes) throws IOException {
+        byte[] twkb = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            twkb[i] = (byte) bytes[i];
+        }
+        return reader.read(twkb);
+    }
+}
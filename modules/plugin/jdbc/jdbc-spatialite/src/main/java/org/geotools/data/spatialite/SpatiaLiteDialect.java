@@ -28,6 +28,7 @@ import java.sql.Types;
 import java.util.Map;
 import java.util.logging.Level;
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.geometry.jts.ArrayWKBReader;
 import org.geotools.geometry.jts.Geometries;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.JDBCDataStore;
@@ -37,7 +38,6 @@ import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.io.ParseException;
-import org.locationtech.jts.io.WKBReader;
 import org.locationtech.jts.io.WKTReader;
 import org.locationtech.jts.io.WKTWriter;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -332,11 +332,7 @@ public class SpatiaLiteDialect extends BasicSQLDialect {
         if (wkb == null) {
             return null;
         }
-        try {
-            return new WKBReader(factory).read(wkb);
-        } catch (ParseException e) {
-            throw (IOException) new IOException().initCause(e);
-        }
+        return new ArrayWKBReader(factory).read(wkb);
     }
 
     @Override
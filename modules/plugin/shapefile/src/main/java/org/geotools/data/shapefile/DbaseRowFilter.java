@@ -0,0 +1,268 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.dbf.DbaseFileReader.Row;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * Evaluates the simple numeric comparisons of a filter (equal to, less/greater than, between, a
+ * property against a literal) straight on the bytes of a dbf record, before the geometry is read
+ * and the feature is built. The filter is only a first pass: it returns false only when the
+ * original filter would certainly fail, the original filter still needs to be evaluated on the
+ * features passing it.
+ */
+class DbaseRowFilter {
+
+    enum Operator {
+        EQ,
+        LT,
+        LE,
+        GT,
+        GE
+    }
+
+    /** A comparison between a dbf field and a literal, with the field on the left side */
+    static class Comparison {
+        final int column;
+
+        final Operator operator;
+
+        final boolean integral;
+
+        final long longValue;
+
+        final double doubleValue;
+
+        Comparison(int column, Operator operator, boolean integral, Number value) {
+            this.column = column;
+            this.operator = operator;
+            this.integral = integral;
+            this.longValue = value.longValue();
+            this.doubleValue = value.doubleValue();
+        }
+
+        boolean accepts(Row row) throws IOException {
+            int result =
+                    integral
+                            ? row.compareIntegral(column, longValue)
+                            : row.compareDecimal(column, doubleValue);
+            if (result == DbaseFileReader.NULL_VALUE) {
+                // comparisons against null are always false
+                return false;
+            } else if (result == DbaseFileReader.NOT_COMPARABLE) {
+                return true;
+            }
+            // decimal comparisons do not know about the sign of zero, the object
+            // comparison does, so leave equality to the full filter
+            switch (operator) {
+                case EQ:
+                    return result == 0;
+                case LT:
+                    return result < 0 || (!integral && result == 0);
+                case LE:
+                    return result <= 0;
+                case GT:
+                    return result > 0 || (!integral && result == 0);
+                case GE:
+                    return result >= 0;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    final List<Comparison> comparisons;
+
+    DbaseRowFilter(List<Comparison> comparisons) {
+        this.comparisons = comparisons;
+    }
+
+    /**
+     * Returns false if the row certainly does not match the filter this pre-filter has been built
+     * from
+     */
+    boolean accepts(Row row) throws IOException {
+        for (Comparison comparison : comparisons) {
+            if (!comparison.accepts(row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds a row filter out of the simple comparisons found in the filter, or at the top level of
+     * a logical and.
+     *
+     * @param filter The query filter
+     * @param schema The schema being read
+     * @param dbfindexes The dbf field number of each schema attribute, -1 for the geometry
+     * @param header The dbf header
+     * @return The row filter, or null if the filter has no comparison that can be evaluated on the
+     *     records bytes
+     */
+    static DbaseRowFilter build(
+            Filter filter, SimpleFeatureType schema, int[] dbfindexes, DbaseFileHeader header) {
+        if (filter == null || dbfindexes == null) {
+            return null;
+        }
+        List<Filter> conjuncts;
+        if (filter instanceof And) {
+            conjuncts = ((And) filter).getChildren();
+        } else {
+            conjuncts = Collections.singletonList(filter);
+        }
+        List<Comparison> comparisons = new ArrayList<Comparison>();
+        for (Filter f : conjuncts) {
+            if (f instanceof PropertyIsBetween) {
+                PropertyIsBetween between = (PropertyIsBetween) f;
+                addComparison(
+                        comparisons,
+                        between.getExpression(),
+                        between.getLowerBoundary(),
+                        Operator.GE,
+                        schema,
+                        dbfindexes,
+                        header);
+                addComparison(
+                        comparisons,
+                        between.getExpression(),
+                        between.getUpperBoundary(),
+                        Operator.LE,
+                        schema,
+                        dbfindexes,
+                        header);
+            } else if (f instanceof BinaryComparisonOperator) {
+                Operator operator = getOperator(f);
+                if (operator != null) {
+                    BinaryComparisonOperator bc = (BinaryComparisonOperator) f;
+                    if (bc.getExpression1() instanceof PropertyName) {
+                        addComparison(
+                                comparisons,
+                                bc.getExpression1(),
+                                bc.getExpression2(),
+                                operator,
+                                schema,
+                                dbfindexes,
+                                header);
+                    } else {
+                        addComparison(
+                                comparisons,
+                                bc.getExpression2(),
+                                bc.getExpression1(),
+                                flip(operator),
+                                schema,
+                                dbfindexes,
+                                header);
+                    }
+                }
+            }
+        }
+
+        return comparisons.isEmpty() ? null : new DbaseRowFilter(comparisons);
+    }
+
+    private static Operator getOperator(Filter filter) {
+        if (filter instanceof PropertyIsEqualTo) {
+            return Operator.EQ;
+        } else if (filter instanceof PropertyIsLessThan) {
+            return Operator.LT;
+        } else if (filter instanceof PropertyIsLessThanOrEqualTo) {
+            return Operator.LE;
+        } else if (filter instanceof PropertyIsGreaterThan) {
+            return Operator.GT;
+        } else if (filter instanceof PropertyIsGreaterThanOrEqualTo) {
+            return Operator.GE;
+        }
+        return null;
+    }
+
+    private static Operator flip(Operator operator) {
+        switch (operator) {
+            case LT:
+                return Operator.GT;
+            case LE:
+                return Operator.GE;
+            case GT:
+                return Operator.LT;
+            case GE:
+                return Operator.LE;
+            default:
+                return operator;
+        }
+    }
+
+    private static void addComparison(
+            List<Comparison> comparisons,
+            Expression property,
+            Expression literal,
+            Operator operator,
+            SimpleFeatureType schema,
+            int[] dbfindexes,
+            DbaseFileHeader header) {
+        if (!(property instanceof PropertyName) || !(literal instanceof Literal)) {
+            return;
+        }
+        int index = schema.indexOf(((PropertyName) property).getPropertyName());
+        if (index < 0 || dbfindexes[index] < 0) {
+            return;
+        }
+        int column = dbfindexes[index];
+        Object value = ((Literal) literal).getValue();
+        Class<?> fieldClass = header.getFieldClass(column);
+        if (!(value instanceof Number)) {
+            return;
+        }
+        // stick to the literals whose comparison with the attribute values is exact
+        if (fieldClass == Integer.class || fieldClass == Long.class) {
+            if (value instanceof Integer
+                    || value instanceof Long
+                    || value instanceof Short
+                    || value instanceof Byte) {
+                comparisons.add(new Comparison(column, operator, true, (Number) value));
+            }
+        } else if (fieldClass == Double.class) {
+            if (value instanceof Double
+                    || value instanceof Float
+                    || value instanceof Integer
+                    || value instanceof Short
+                    || value instanceof Byte
+                    || (value instanceof Long && Math.abs((Long) value) <= (1L << 53))) {
+                comparisons.add(new Comparison(column, operator, false, (Number) value));
+            }
+        }
+    }
+}
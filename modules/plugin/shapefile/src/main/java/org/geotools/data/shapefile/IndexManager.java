@@ -1,6 +1,7 @@
 package org.geotools.data.shapefile;
 
 import static org.geotools.data.shapefile.files.ShpFileType.FIX;
+import static org.geotools.data.shapefile.files.ShpFileType.PQX;
 import static org.geotools.data.shapefile.files.ShpFileType.QIX;
 import static org.geotools.data.shapefile.files.ShpFileType.SHP;
 import static org.geotools.data.shapefile.files.ShpFileType.SHX;
@@ -8,6 +9,7 @@ import static org.geotools.data.shapefile.files.ShpFileType.SHX;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
@@ -24,6 +26,7 @@ import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.shapefile.index.CachedQuadTree;
 import org.geotools.data.shapefile.index.Data;
 import org.geotools.data.shapefile.index.DataDefinition;
+import org.geotools.data.shapefile.index.PackedRTree;
 import org.geotools.data.shapefile.index.TreeException;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
@@ -53,6 +56,10 @@ class IndexManager {
 
     CachedQuadTree cachedTree;
 
+    PackedRTree packedTree;
+
+    long packedTreeLastModified;
+
     ShapefileDataStore store;
 
     /** Used to lock the files when doing accesses to check indexes and the like */
@@ -92,13 +99,24 @@ class IndexManager {
     public boolean createSpatialIndex(boolean force) {
         // create index as needed
         try {
-            if (shpFiles.isLocal() && (isIndexStale(QIX) || force)) {
+            if (!shpFiles.isLocal()) {
+                return false;
+            }
+            boolean quadTreeStale = force || isIndexStale(QIX);
+            boolean packedTreeStale =
+                    store.isPackedIndexEnabled() && (force || isIndexStale(PQX));
+            if (quadTreeStale || packedTreeStale) {
                 ShapefileDataStoreFactory.LOGGER.fine(
                         "Creating spatial index for " + shpFiles.get(SHP));
 
                 ShapeFileIndexer indexer = new ShapeFileIndexer();
                 indexer.setShapeFileName(shpFiles);
-                indexer.index(false, new NullProgressListener());
+                if (quadTreeStale) {
+                    indexer.setPackedIndex(packedTreeStale);
+                    indexer.index(false, new NullProgressListener());
+                } else {
+                    indexer.buildPackedIndex();
+                }
 
                 return true;
             }
@@ -175,7 +193,8 @@ class IndexManager {
      * @return
      */
     boolean isSpatialIndexAvailable() {
-        return shpFiles.isLocal() && shpFiles.exists(QIX);
+        return shpFiles.isLocal()
+                && (shpFiles.exists(QIX) || store.isPackedIndexEnabled() && shpFiles.exists(PQX));
     }
 
     /**
@@ -303,6 +322,17 @@ class IndexManager {
         // check if the spatial index needs recreating
         createSpatialIndex(false);
 
+        if (store.isPackedIndexEnabled()) {
+            PackedRTree tree = openPackedTree();
+            if (tree != null) {
+                if (!bbox.contains(tree.getBounds())) {
+                    return tree.search(bbox);
+                } else {
+                    return null;
+                }
+            }
+        }
+
         if (cachedTree == null) {
             boolean canCache = false;
             URL treeURL = shpFiles.acquireRead(QIX, writer);
@@ -381,7 +411,38 @@ class IndexManager {
         }
     }
 
+    /**
+     * Returns the packed R-tree index, memory mapping it the first time and every time the file
+     * changes, or null if the index is missing or outdated
+     *
+     * @return
+     * @throws IOException
+     */
+    synchronized PackedRTree openPackedTree() throws IOException {
+        if (!shpFiles.isLocal() || !shpFiles.exists(PQX) || isIndexStale(PQX)) {
+            packedTree = null;
+            return null;
+        }
+        URL treeURL = shpFiles.acquireRead(PQX, writer);
+        try {
+            long lastModified = URLs.urlToFile(treeURL).lastModified();
+            if (packedTree == null || packedTreeLastModified != lastModified) {
+                FileChannel channel = (FileChannel) shpFiles.getReadChannel(PQX, writer);
+                try {
+                    packedTree = PackedRTree.open(channel);
+                    packedTreeLastModified = lastModified;
+                } finally {
+                    channel.close();
+                }
+            }
+            return packedTree;
+        } finally {
+            shpFiles.unlockRead(treeURL, writer);
+        }
+    }
+
     public void dispose() {
         this.cachedTree = null;
+        this.packedTree = null;
     }
 }
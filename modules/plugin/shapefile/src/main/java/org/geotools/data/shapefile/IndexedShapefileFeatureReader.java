@@ -81,6 +81,17 @@ class IndexedShapefileFeatureReader extends ShapefileFeatureReader {
 
             Record record = shp.nextRecord();
 
+            // check the attributes first if possible, it's cheaper than decoding the geometry
+            // (deleted rows are not skipped, as when no filter is pushed down)
+            Row row = null;
+            if (rowFilter != null) {
+                ((IndexedDbaseFileReader) dbf).goTo(record.number);
+                row = dbf.readRow();
+                if (!rowFilter.accepts(row)) {
+                    continue;
+                }
+            }
+
             // read the geometry, so that we can decide if this row is to be skipped or not
             Geometry geometry = getGeometry(record);
             if (geometry == SKIP) {
@@ -88,15 +99,12 @@ class IndexedShapefileFeatureReader extends ShapefileFeatureReader {
             }
 
             // read the dbf only if the geometry was not skipped
-            Row row;
-            if (dbf != null) {
+            if (dbf != null && row == null) {
                 ((IndexedDbaseFileReader) dbf).goTo(record.number);
                 row = dbf.readRow();
-            } else {
-                row = null;
             }
 
-            nextFeature = buildFeature(record.number, geometry, row, record.envelope());
+            nextFeature = buildFeature(record, geometry, row);
         }
 
         return nextFeature != null;
@@ -19,6 +19,7 @@ package org.geotools.data.shapefile;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,6 +32,8 @@ import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.shapefile.files.StorageFile;
 import org.geotools.data.shapefile.index.LockTimeoutException;
+import org.geotools.data.shapefile.index.PackedRTree;
+import org.geotools.data.shapefile.index.PackedRTreeBuilder;
 import org.geotools.data.shapefile.index.TreeException;
 import org.geotools.data.shapefile.index.quadtree.Node;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
@@ -57,6 +60,7 @@ class ShapeFileIndexer implements FileWriter {
 
     private int max = -1;
     private int leafSize = 16;
+    private boolean packedIndex = false;
 
     private String byteOrder;
     private boolean interactive = false;
@@ -83,6 +87,8 @@ class ShapeFileIndexer implements FileWriter {
                 idx.setLeafSize(Integer.parseInt(args[++i]));
             } else if (args[i].equals("-b")) {
                 idx.setByteOrder(args[++i]);
+            } else if (args[i].equals("-p")) {
+                idx.setPackedIndex(true);
             } else {
                 if (!args[i].toLowerCase().endsWith(".shp")) {
                     System.out.println("File extension must be '.shp'");
@@ -115,7 +121,8 @@ class ShapeFileIndexer implements FileWriter {
                         + "[-M <max tree depth>] "
                         + "[-b <byte order NL | NM>] "
                         + "<shape file>"
-                        + "[-s <max number of items in a leaf>]");
+                        + "[-s <max number of items in a leaf>] "
+                        + "[-p]");
 
         System.out.println();
 
@@ -124,6 +131,8 @@ class ShapeFileIndexer implements FileWriter {
         System.out.println();
         System.out.println("Following options apllies only to QUADTREE:");
         System.out.println("\t-b byte order to use: NL = LSB; " + "NM = MSB (default)");
+        System.out.println();
+        System.out.println("\t-p also build the packed R-tree index (.pqx)");
 
         System.exit(1);
     }
@@ -188,6 +197,54 @@ class ShapeFileIndexer implements FileWriter {
         // Final index file
         storage.replaceOriginal();
 
+        if (packedIndex) {
+            buildPackedIndex();
+        }
+
+        return cnt;
+    }
+
+    /**
+     * Builds the packed R-tree index (.pqx), a flat array layout that the store memory maps and
+     * searches in place
+     *
+     * @return The number of indexed records
+     */
+    int buildPackedIndex() throws IOException {
+        StorageFile storage = shpFiles.getStorageFile(ShpFileType.PQX);
+        ShapefileReader reader = null;
+        IndexFile shpIndex = null;
+        int cnt = 0;
+        try {
+            reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
+            shpIndex = new IndexFile(shpFiles, false);
+            ShapefileHeader header = reader.getHeader();
+            Envelope bounds =
+                    new Envelope(header.minX(), header.maxX(), header.minY(), header.maxY());
+            LOGGER.fine(
+                    "Building packed R-tree spatial index for file "
+                            + shpFiles.get(ShpFileType.SHP));
+
+            PackedRTreeBuilder builder =
+                    new PackedRTreeBuilder(
+                            shpIndex.getRecordCount(), PackedRTree.DEFAULT_NODE_SIZE, bounds);
+            while (reader.hasNext()) {
+                Record rec = reader.nextRecord();
+                builder.add(rec.minX, rec.minY, rec.maxX, rec.maxY, rec.offset());
+                cnt++;
+            }
+            FileChannel channel = storage.getWriteChannel();
+            try {
+                builder.write(channel);
+            } finally {
+                channel.close();
+            }
+        } finally {
+            if (shpIndex != null) shpIndex.close();
+            if (reader != null) reader.close();
+        }
+        storage.replaceOriginal();
+
         return cnt;
     }
 
@@ -420,4 +477,17 @@ class ShapeFileIndexer implements FileWriter {
     public void setLeafSize(int leafSize) {
         this.leafSize = leafSize;
     }
+
+    public boolean isPackedIndex() {
+        return packedIndex;
+    }
+
+    /**
+     * When true the packed R-tree index (.pqx) is built along with the quadtree one (.qix)
+     *
+     * @param packedIndex
+     */
+    public void setPackedIndex(boolean packedIndex) {
+        this.packedIndex = packedIndex;
+    }
 }
@@ -34,7 +34,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.TimeZone;
 import java.util.logging.Level;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.geotools.data.DataSourceException;
+import org.geotools.data.DataUtilities;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.FeatureWriter;
 import org.geotools.data.FileDataStore;
@@ -107,6 +110,10 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
 
     boolean indexCreationEnabled = true;
 
+    boolean packedIndexEnabled = false;
+
+    boolean parallelScanEnabled = false;
+
     boolean fidIndexed = true;
 
     IndexManager indexManager;
@@ -500,6 +507,10 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
                 + bufferCachingEnabled
                 + ", indexed="
                 + indexed
+                + ", packedIndexEnabled="
+                + packedIndexEnabled
+                + ", parallelScanEnabled="
+                + parallelScanEnabled
                 + ", fidIndexed="
                 + fidIndexed
                 + "]";
@@ -541,6 +552,76 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
         this.indexCreationEnabled = indexCreationEnabled;
     }
 
+    /**
+     * Returns true if the store uses the packed R-tree spatial index (.pqx) instead of the quadtree
+     * one (.qix)
+     *
+     * @return
+     */
+    public boolean isPackedIndexEnabled() {
+        return packedIndexEnabled;
+    }
+
+    /**
+     * When set to true (false by default) the spatial index is searched using the packed R-tree
+     * (.pqx), which is memory mapped and searched in place, without loading it in memory. The file
+     * is created along with the quadtree one if index creation is enabled.
+     *
+     * @param packedIndexEnabled
+     */
+    public void setPackedIndexEnabled(boolean packedIndexEnabled) {
+        this.packedIndexEnabled = packedIndexEnabled;
+    }
+
+    /**
+     * Returns true if full scans performed by feature visitors decode the shapefile records in
+     * parallel
+     *
+     * @return
+     */
+    public boolean isParallelScanEnabled() {
+        return parallelScanEnabled;
+    }
+
+    /**
+     * When set to true (false by default) the features visited by a {@link
+     * org.opengis.feature.FeatureVisitor} are read by several threads, each one working on a range
+     * of records of the shapefile. The visitor is called by one thread at a time, but the features
+     * are not visited in the order they have in the file, so this should be enabled only if the
+     * visitors in use do not depend on it (as it is the case for the aggregate ones). Sorted and
+     * paged queries are still read sequentially.
+     *
+     * @param parallelScanEnabled
+     */
+    public void setParallelScanEnabled(boolean parallelScanEnabled) {
+        this.parallelScanEnabled = parallelScanEnabled;
+    }
+
+    /**
+     * Returns a parallel stream of the features matching the query. The shapefile is split in
+     * ranges of records, each one read by its own readers, using the .shx file or the spatial index
+     * to locate the records. Sorted, paged and reprojected queries are read by a single reader. The
+     * stream must be closed, in order to release the readers left open by a partial consumption.
+     *
+     * @param query The query
+     * @return A stream of features, in the order they have in the file unless {@link
+     *     Stream#unordered()} is used
+     */
+    public Stream<SimpleFeature> getFeatureStream(Query query) throws IOException {
+        ContentFeatureSource fs = getFeatureSource();
+        ShapefileFeatureSource source;
+        if (fs instanceof ShapefileFeatureStore) {
+            source = ((ShapefileFeatureStore) fs).delegate;
+        } else {
+            source = (ShapefileFeatureSource) fs;
+        }
+        ShapefileFeatureSpliterator spliterator =
+                source.getFeatureSpliterator(
+                        DataUtilities.simplifyFilter(query),
+                        ShapefileFeatureSpliterator.MIN_RANGE_SIZE);
+        return StreamSupport.stream(spliterator, true).onClose(spliterator::close);
+    }
+
     @Override
     public void removeSchema(String typeName) throws IOException {
         removeSchema(new NameImpl(null, typeName));
@@ -167,6 +167,27 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
                     true,
                     new KVP(Param.LEVEL, "advanced"));
 
+    /** Optional - use the packed R-tree spatial index (.pqx) instead of the quadtree one */
+    public static final Param PACKED_SPATIAL_INDEX =
+            new Param(
+                    "packed spatial index",
+                    Boolean.class,
+                    "use a memory mapped, packed R-tree spatial index instead of the quadtree one",
+                    false,
+                    false,
+                    new KVP(Param.LEVEL, "advanced"));
+
+    /** Optional - decode the records in parallel when visiting all the features */
+    public static final Param PARALLEL_SCAN =
+            new Param(
+                    "parallel scan",
+                    Boolean.class,
+                    "read the features in parallel, using multiple threads, when computing "
+                            + "aggregates and other visits",
+                    false,
+                    false,
+                    new KVP(Param.LEVEL, "advanced"));
+
     public String getDisplayName() {
         return "Shapefile";
     }
@@ -181,6 +202,8 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             NAMESPACEP,
             ENABLE_SPATIAL_INDEX,
             CREATE_SPATIAL_INDEX,
+            PACKED_SPATIAL_INDEX,
+            PARALLEL_SCAN,
             DBFCHARSET,
             DBFTIMEZONE,
             MEMORY_MAPPED,
@@ -206,6 +229,8 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
         Charset dbfCharset = lookup(DBFCHARSET, params, Charset.class);
         TimeZone dbfTimeZone = lookup(DBFTIMEZONE, params, TimeZone.class);
         Boolean isCreateSpatialIndex = lookup(CREATE_SPATIAL_INDEX, params, Boolean.class);
+        Boolean isPackedSpatialIndex = lookup(PACKED_SPATIAL_INDEX, params, Boolean.class);
+        Boolean isParallelScan = lookup(PARALLEL_SCAN, params, Boolean.class);
         Boolean isEnableSpatialIndex = (Boolean) ENABLE_SPATIAL_INDEX.lookUp(params);
         if (isEnableSpatialIndex == null) {
             // should not be needed as default is TRUE
@@ -236,6 +261,8 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             store.setTimeZone(dbfTimeZone);
             store.setIndexed(enableIndex);
             store.setIndexCreationEnabled(createIndex);
+            store.setPackedIndexEnabled(isPackedSpatialIndex);
+            store.setParallelScanEnabled(isParallelScan);
             return store;
         }
     }
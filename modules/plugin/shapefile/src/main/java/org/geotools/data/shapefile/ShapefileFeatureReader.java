@@ -84,6 +84,9 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     Filter filter;
 
+    /** Pre-filters the dbf rows before decoding the geometries, or null */
+    DbaseRowFilter rowFilter;
+
     public ShapefileFeatureReader(
             SimpleFeatureType schema,
             ShapefileReader shp,
@@ -136,6 +139,25 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
                     }
                 }
             }
+
+            // if only some of the fields are needed, avoid copying the others out of the records
+            boolean[] used = new boolean[head.getNumFields()];
+            int usedCount = 0;
+            for (int index : dbfindexes) {
+                if (index >= 0 && !used[index]) {
+                    used[index] = true;
+                    usedCount++;
+                }
+            }
+            if (usedCount < used.length) {
+                int[] fields = new int[usedCount];
+                for (int i = 0, j = 0; i < used.length; i++) {
+                    if (used[i]) {
+                        fields[j++] = i;
+                    }
+                }
+                dbf.setReadFields(fields);
+            }
         }
     }
 
@@ -183,6 +205,19 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
         while (nextFeature == null && filesHaveMore()) {
             Record record = shp.nextRecord();
 
+            // check the attributes first if possible, it's cheaper than decoding the geometry
+            if (rowFilter != null) {
+                Row row = dbf.readRow();
+                if (row.isDeleted() || !rowFilter.accepts(row)) {
+                    continue;
+                }
+                Geometry geometry = getGeometry(record);
+                if (geometry != SKIP) {
+                    nextFeature = buildFeature(record, geometry, row);
+                }
+                continue;
+            }
+
             Geometry geometry = getGeometry(record);
             if (geometry != SKIP) {
                 // also grab the dbf row
@@ -196,7 +231,7 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
                     row = null;
                 }
 
-                nextFeature = buildFeature(record.number, geometry, row, record.envelope());
+                nextFeature = buildFeature(record, geometry, row);
             } else {
                 if (dbf != null) {
                     dbf.skip();
@@ -215,22 +250,24 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
      * @return
      */
     protected Geometry getGeometry(Record record) {
-        // read the geometry, so that we can decide if this row is to be skipped or not
-        Envelope envelope = record.envelope();
+        // read the geometry, so that we can decide if this row is to be skipped or not,
+        // working off the record bounds to avoid allocating an envelope for skipped records
         Geometry geometry = null;
         if (schema.getGeometryDescriptor() != null) {
             // ... if geometry is out of the target bbox, skip both geom and row
-            if (targetBBox != null && !targetBBox.isNull() && !targetBBox.intersects(envelope)) {
+            if (targetBBox != null && !targetBBox.isNull() && !intersectsTarget(record)) {
                 geometry = SKIP;
                 // ... if the geometry is awfully small avoid reading it (unless it's a point)
             } else if (simplificationDistance > 0
-                    && envelope.getWidth() < simplificationDistance
-                    && envelope.getHeight() < simplificationDistance) {
+                    && record.maxX - record.minX < simplificationDistance
+                    && record.maxY - record.minY < simplificationDistance) {
                 try {
                     // if we have the screenmap, we either have no filter, and we
                     // can directly alter the screenmap, or we have a filter, in that
                     // case we just check if the screenmap is already busy
-                    if (screenMap != null && screenMap.get(envelope)) {
+                    if (screenMap != null
+                            && screenMap.get(
+                                    record.minX, record.minY, record.maxX, record.maxY)) {
                         geometry = SKIP;
                     } else {
                         // if we are using the screenmap better provide a slightly modified
@@ -249,8 +286,14 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
         return geometry;
     }
 
-    SimpleFeature buildFeature(int number, Geometry geometry, Row row, Envelope envelope)
-            throws IOException {
+    private boolean intersectsTarget(Record record) {
+        return record.minX <= targetBBox.getMaxX()
+                && record.maxX >= targetBBox.getMinX()
+                && record.minY <= targetBBox.getMaxY()
+                && record.maxY >= targetBBox.getMinY();
+    }
+
+    SimpleFeature buildFeature(Record record, Geometry geometry, Row row) throws IOException {
         if (dbfindexes != null) {
             for (int i = 0; i < dbfindexes.length; i++) {
                 if (dbfindexes[i] == -1) {
@@ -263,7 +306,7 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
             builder.add(geometry);
         }
         // build the feature id
-        String featureId = buildFeatureId(number);
+        String featureId = buildFeatureId(record.number);
         SimpleFeature feature = builder.buildFeature(featureId);
         if (filter != null) {
             // if we should not return the feature, just drop it and continue reading
@@ -278,7 +321,7 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
             // we are going to keep the feature, if we have the screenmap do update
             // it (if we got here, we already checked the screenmap was not busy)
             try {
-                screenMap.checkAndSet(envelope);
+                screenMap.checkAndSet(record.minX, record.minY, record.maxX, record.maxY);
             } catch (TransformException e) {
                 if (LOGGER.isLoggable(Level.FINE)) {
                     LOGGER.log(Level.FINE, "Failed to set screenmap", e);
@@ -377,5 +420,10 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     public void setFilter(Filter filter) {
         this.filter = filter;
+        if (dbf != null) {
+            this.rowFilter = DbaseRowFilter.build(filter, schema, dbfindexes, dbf.getHeader());
+        } else {
+            this.rowFilter = null;
+        }
     }
 }
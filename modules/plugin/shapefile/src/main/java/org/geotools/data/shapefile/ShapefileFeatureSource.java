@@ -19,6 +19,7 @@ package org.geotools.data.shapefile;
 import static org.geotools.data.shapefile.files.ShpFileType.SHP;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
@@ -30,6 +31,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.StreamSupport;
 import org.geotools.data.CloseableIterator;
 import org.geotools.data.DataSourceException;
 import org.geotools.data.EmptyFeatureReader;
@@ -38,8 +40,10 @@ import org.geotools.data.FeatureSource;
 import org.geotools.data.PrjFileReader;
 import org.geotools.data.Query;
 import org.geotools.data.ReTypeFeatureReader;
+import org.geotools.data.Transaction;
 import org.geotools.data.shapefile.dbf.DbaseFileHeader;
 import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.dbf.IndexedDbaseFileReader;
 import org.geotools.data.shapefile.fid.IndexedFidReader;
 import org.geotools.data.shapefile.files.FileReader;
 import org.geotools.data.shapefile.files.ShpFiles;
@@ -312,13 +316,7 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         GeometryFactory geometryFactory = getGeometryFactory(q);
 
         // grab the target bbox, if any
-        Envelope bbox = new ReferencedEnvelope();
-        if (q.getFilter() != null) {
-            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
-            if (bbox == null) {
-                bbox = new ReferencedEnvelope();
-            }
-        }
+        Envelope bbox = getTargetBBox(q);
 
         // see if we can use indexing to speedup the data access
         Filter filter = q != null ? q.getFilter() : null;
@@ -367,14 +365,7 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         // setup the feature readers
         ShapefileSetManager shpManager = getDataStore().shpManager;
         ShapefileReader shapeReader = shpManager.openShapeReader(geometryFactory, goodRecs != null);
-        DbaseFileReader dbfReader = null;
-        List<AttributeDescriptor> attributes = readSchema.getAttributeDescriptors();
-        if (attributes.size() < 1
-                || (attributes.size() == 1 && readSchema.getGeometryDescriptor() != null)) {
-            LOGGER.fine("The DBF file won't be opened since no attributes will be read from it");
-        } else {
-            dbfReader = shpManager.openDbfReader(goodRecs != null);
-        }
+        DbaseFileReader dbfReader = openDbfReader(readSchema, goodRecs != null);
         ShapefileFeatureReader reader;
         if (goodRecs != null) {
             reader =
@@ -383,6 +374,67 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         } else {
             reader = new ShapefileFeatureReader(readSchema, shapeReader, dbfReader, fidReader);
         }
+        return setupReader(q, reader, shapeReader, bbox, readSchema, resultSchema);
+    }
+
+    /**
+     * Returns a reader over a range of the records of the shapefile, reading them by .shp offset
+     *
+     * @param q The query, its sorting, paging and reprojection are not handled by the reader
+     * @param offsets The sorted .shp offsets of the records, as returned by {@link
+     *     #getRecordOffsets(Query)}
+     * @param start The position of the first offset to read
+     * @param end The position past the last offset to read
+     */
+    FeatureReader<SimpleFeatureType, SimpleFeature> getReaderInternal(
+            Query q, int[] offsets, int start, int end) throws IOException {
+        SimpleFeatureType resultSchema = getResultSchema(q);
+        SimpleFeatureType readSchema = getReadSchema(q);
+        GeometryFactory geometryFactory = getGeometryFactory(q);
+        Envelope bbox = getTargetBBox(q);
+
+        ShapefileReader shapeReader =
+                getDataStore().shpManager.openShapeReader(geometryFactory, true);
+        IndexedDbaseFileReader dbfReader = (IndexedDbaseFileReader) openDbfReader(readSchema, true);
+        ShapefileFeatureReader reader =
+                new ShapefileRangeFeatureReader(
+                        readSchema, shapeReader, dbfReader, null, offsets, start, end);
+        return setupReader(q, reader, shapeReader, bbox, readSchema, resultSchema);
+    }
+
+    /** Grabs the target bbox of the query, if any, or returns an empty envelope otherwise */
+    Envelope getTargetBBox(Query q) {
+        Envelope bbox = new ReferencedEnvelope();
+        if (q.getFilter() != null) {
+            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
+            if (bbox == null) {
+                bbox = new ReferencedEnvelope();
+            }
+        }
+        return bbox;
+    }
+
+    private DbaseFileReader openDbfReader(SimpleFeatureType readSchema, boolean indexed)
+            throws IOException {
+        List<AttributeDescriptor> attributes = readSchema.getAttributeDescriptors();
+        if (attributes.size() < 1
+                || (attributes.size() == 1 && readSchema.getGeometryDescriptor() != null)) {
+            LOGGER.fine("The DBF file won't be opened since no attributes will be read from it");
+            return null;
+        } else {
+            return getDataStore().shpManager.openDbfReader(indexed);
+        }
+    }
+
+    /** Sets up the filter, target bbox and generalization hints of the reader, and retypes it */
+    private FeatureReader<SimpleFeatureType, SimpleFeature> setupReader(
+            Query q,
+            ShapefileFeatureReader reader,
+            ShapefileReader shapeReader,
+            Envelope bbox,
+            SimpleFeatureType readSchema,
+            SimpleFeatureType resultSchema) {
+        Filter filter = q != null ? q.getFilter() : null;
         if (filter != null && !Filter.INCLUDE.equals(filter)) {
             reader.setFilter(filter);
         }
@@ -598,8 +650,121 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         }
     }
 
+    /**
+     * Visits the features decoding them in parallel, when enabled in the store and the query can be
+     * split in ranges of records. The visitor is called by one thread at a time, but not in the
+     * order of the records in the file.
+     */
     @Override
     protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
+        if (getDataStore().isParallelScanEnabled() && isPartitionable(query)) {
+            int[] offsets = getRecordOffsets(query);
+            if (offsets != null) {
+                ShapefileFeatureSpliterator spliterator =
+                        new ShapefileFeatureSpliterator(
+                                this, query, offsets, ShapefileFeatureSpliterator.MIN_RANGE_SIZE);
+                try {
+                    StreamSupport.stream(spliterator, true)
+                            .forEach(
+                                    f -> {
+                                        synchronized (visitor) {
+                                            visitor.visit(f);
+                                        }
+                                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } finally {
+                    spliterator.close();
+                }
+                return true;
+            }
+        }
         return super.handleVisitor(query, visitor);
     }
+
+    /**
+     * Returns a spliterator over the features matching the query, splitting the shapefile in ranges
+     * of records that can be read in parallel. Queries that cannot be split are read by a single
+     * reader.
+     */
+    ShapefileFeatureSpliterator getFeatureSpliterator(Query query, int minRangeSize)
+            throws IOException {
+        int[] offsets = isPartitionable(query) ? getRecordOffsets(query) : null;
+        return new ShapefileFeatureSpliterator(this, query, offsets, minRangeSize);
+    }
+
+    /**
+     * Returns true if the query can be answered by range readers, that is, it does not need
+     * sorting, paging, reprojection, there are no pending changes in the current transaction, and
+     * the store has no .fix file (range readers compute the ids from the record numbers, which
+     * can differ from the .fix ones once records have been deleted)
+     */
+    boolean isPartitionable(Query query) {
+        Transaction transaction = getTransaction();
+        ShapefileDataStore store = getDataStore();
+        if (store.isFidIndexed() && store.indexManager.hasFidIndex(false)) {
+            return false;
+        }
+        return (query.getSortBy() == null || query.getSortBy().length == 0)
+                && query.getStartIndex() == null
+                && query.isMaxFeaturesUnlimited()
+                && query.getCoordinateSystem() == null
+                && query.getCoordinateSystemReproject() == null
+                && query.getJoins().isEmpty()
+                && (transaction == null || transaction == Transaction.AUTO_COMMIT);
+    }
+
+    /**
+     * Returns the sorted .shp offsets of the records to be read for the query, from the spatial
+     * index if the query has a bbox and the index is available, or from the .shx file otherwise.
+     * Returns null if the .shx file is missing.
+     */
+    int[] getRecordOffsets(Query query) throws IOException {
+        Envelope bbox = getTargetBBox(query);
+        ShapefileDataStore store = getDataStore();
+        if (store.isIndexed()
+                && !bbox.isNull()
+                && !Double.isInfinite(bbox.getWidth())
+                && !Double.isInfinite(bbox.getHeight())) {
+            try {
+                IndexManager indexManager = store.indexManager;
+                if (indexManager.isSpatialIndexAvailable() || store.isIndexCreationEnabled()) {
+                    CloseableIterator<Data> records = indexManager.querySpatialIndex(bbox);
+                    if (records != null) {
+                        try {
+                            int[] offsets = new int[64];
+                            int count = 0;
+                            while (records.hasNext()) {
+                                if (count == offsets.length) {
+                                    offsets = Arrays.copyOf(offsets, count * 2);
+                                }
+                                offsets[count++] = ((Long) records.next().getValue(1)).intValue();
+                            }
+                            offsets = Arrays.copyOf(offsets, count);
+                            Arrays.sort(offsets);
+                            return offsets;
+                        } finally {
+                            records.close();
+                        }
+                    }
+                }
+            } catch (TreeException e) {
+                throw new IOException("Error querying index: " + e.getMessage());
+            }
+        }
+
+        IndexFile shx = store.shpManager.openIndexFile();
+        if (shx == null) {
+            return null;
+        }
+        try {
+            int[] offsets = new int[shx.getRecordCount()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = shx.getOffsetInBytes(i);
+            }
+            return offsets;
+        } finally {
+            shx.close();
+        }
+    }
 }
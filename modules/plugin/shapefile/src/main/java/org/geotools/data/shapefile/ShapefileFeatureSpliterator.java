@@ -0,0 +1,196 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * A {@link Spliterator} over the features of a shapefile, that splits the records in ranges using
+ * their .shp offsets (read from the .shx file, or from the spatial index). Each range is read by
+ * its own {@link ShapefileRangeFeatureReader}, opened on first access, so that the ranges can be
+ * decoded in parallel. When the files are memory mapped and the memory map cache is enabled, all
+ * the readers share the same mapped buffers.
+ *
+ * <p>If the offsets are not available, or the query requires a post processing the ranges cannot
+ * handle (sorting, paging, reprojection, pending transaction changes), the spliterator reads all
+ * the features from a single reader, and does not split.
+ *
+ * <p>The readers are closed once their range is consumed. {@link #close()} releases the readers
+ * left open by a partial consumption, and should always be called, it applies to all the
+ * spliterators split from the same root.
+ */
+class ShapefileFeatureSpliterator implements Spliterator<SimpleFeature>, Closeable {
+
+    /** The minimum number of records in a range, below it ranges are not split further */
+    static final int MIN_RANGE_SIZE = 1024;
+
+    final ShapefileFeatureSource source;
+
+    final Query query;
+
+    final int[] offsets;
+
+    final int minRangeSize;
+
+    /** The readers currently open, shared among all the spliterators of the same root */
+    final Set<FeatureReader<SimpleFeatureType, SimpleFeature>> openReaders;
+
+    int start;
+
+    int end;
+
+    FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+
+    boolean done;
+
+    /**
+     * Builds a new spliterator
+     *
+     * @param source The source of the features
+     * @param query The query, already validated by the source
+     * @param offsets The sorted .shp offsets of the records to be read, or null if the whole query
+     *     is to be read by a single reader
+     * @param minRangeSize The minimum number of records in a range
+     */
+    ShapefileFeatureSpliterator(
+            ShapefileFeatureSource source, Query query, int[] offsets, int minRangeSize) {
+        this(
+                source,
+                query,
+                offsets,
+                minRangeSize,
+                new HashSet<FeatureReader<SimpleFeatureType, SimpleFeature>>(),
+                0,
+                offsets == null ? 0 : offsets.length);
+    }
+
+    private ShapefileFeatureSpliterator(
+            ShapefileFeatureSource source,
+            Query query,
+            int[] offsets,
+            int minRangeSize,
+            Set<FeatureReader<SimpleFeatureType, SimpleFeature>> openReaders,
+            int start,
+            int end) {
+        this.source = source;
+        this.query = query;
+        this.offsets = offsets;
+        this.minRangeSize = Math.max(1, minRangeSize);
+        this.openReaders = openReaders;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super SimpleFeature> action) {
+        if (done) {
+            return false;
+        }
+        try {
+            if (reader == null) {
+                if (offsets == null) {
+                    reader = source.getReader(query);
+                } else if (start < end) {
+                    reader = source.getReaderInternal(query, offsets, start, end);
+                } else {
+                    done = true;
+                    return false;
+                }
+                synchronized (openReaders) {
+                    openReaders.add(reader);
+                }
+            }
+            if (reader.hasNext()) {
+                action.accept(reader.next());
+                return true;
+            }
+            done = true;
+            closeReader();
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Spliterator<SimpleFeature> trySplit() {
+        // ranges are split only before reading
+        if (offsets == null || reader != null || done || end - start < minRangeSize * 2) {
+            return null;
+        }
+        int mid = (start + end) >>> 1;
+        ShapefileFeatureSpliterator prefix =
+                new ShapefileFeatureSpliterator(
+                        source, query, offsets, minRangeSize, openReaders, start, mid);
+        start = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        if (offsets == null) {
+            return done ? 0 : Long.MAX_VALUE;
+        }
+        // an upper bound, the filter might drop some records
+        return done ? 0 : end - start;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    private void closeReader() throws IOException {
+        FeatureReader<SimpleFeatureType, SimpleFeature> toClose = reader;
+        reader = null;
+        synchronized (openReaders) {
+            openReaders.remove(toClose);
+        }
+        toClose.close();
+    }
+
+    /** Closes all the readers still open, opened by this spliterator or by its splits */
+    @Override
+    public void close() {
+        List<FeatureReader<SimpleFeatureType, SimpleFeature>> readers;
+        synchronized (openReaders) {
+            readers = new ArrayList<>(openReaders);
+            openReaders.clear();
+        }
+        for (FeatureReader<SimpleFeatureType, SimpleFeature> r : readers) {
+            try {
+                r.close();
+            } catch (IOException e) {
+                ShapefileFeatureReader.LOGGER.log(
+                        Level.FINE, "Failed to close a shapefile range reader", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import org.geotools.data.shapefile.dbf.DbaseFileReader.Row;
+import org.geotools.data.shapefile.dbf.IndexedDbaseFileReader;
+import org.geotools.data.shapefile.fid.IndexedFidReader;
+import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.geotools.data.shapefile.shp.ShapefileReader.Record;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Reads a range of the records of a shapefile, given their .shp offsets. Used to split a shapefile
+ * scan among several readers, each one working on its own range of records.
+ */
+class ShapefileRangeFeatureReader extends ShapefileFeatureReader {
+
+    int[] offsets;
+
+    int position;
+
+    int end;
+
+    /**
+     * Create the range reader
+     *
+     * @param schema - the schema of the features being read
+     * @param shp - the shape reader, required, opened for random access
+     * @param dbf - the indexed dbf file reader. May be null, in this case no attributes will be
+     *     read from the dbf file
+     * @param offsets The sorted .shp offsets of the records, in bytes
+     * @param start The position of the first offset to read
+     * @param end The position past the last offset to read
+     */
+    public ShapefileRangeFeatureReader(
+            SimpleFeatureType schema,
+            ShapefileReader shp,
+            IndexedDbaseFileReader dbf,
+            IndexedFidReader fidReader,
+            int[] offsets,
+            int start,
+            int end)
+            throws IOException {
+        super(schema, shp, dbf, fidReader);
+        this.offsets = offsets;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        while (nextFeature == null && position < end) {
+            shp.goTo(offsets[position++]);
+            Record record = shp.nextRecord();
+
+            // check the attributes first if possible, it's cheaper than decoding the geometry
+            Row row = null;
+            if (rowFilter != null) {
+                ((IndexedDbaseFileReader) dbf).goTo(record.number);
+                row = dbf.readRow();
+                if (row.isDeleted() || !rowFilter.accepts(row)) {
+                    continue;
+                }
+            }
+
+            // read the geometry, so that we can decide if this row is to be skipped or not
+            Geometry geometry = getGeometry(record);
+            if (geometry == SKIP) {
+                continue;
+            }
+
+            // read the dbf only if the geometry was not skipped
+            if (dbf != null && row == null) {
+                ((IndexedDbaseFileReader) dbf).goTo(record.number);
+                row = dbf.readRow();
+                if (row.isDeleted()) {
+                    continue;
+                }
+            }
+
+            nextFeature = buildFeature(record, geometry, row);
+        }
+
+        return nextFeature != null;
+    }
+}
@@ -29,6 +29,7 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -66,15 +67,87 @@ import org.geotools.util.NIOUtilities;
  */
 public class DbaseFileReader implements FileReader {
 
+    /**
+     * Returned by the row comparison methods when the field value is null, comparisons against a
+     * null value are always false
+     */
+    public static final int NULL_VALUE = Integer.MIN_VALUE;
+
+    /**
+     * Returned by the row comparison methods when the field value cannot be compared without
+     * decoding it as an object
+     */
+    public static final int NOT_COMPARABLE = Integer.MIN_VALUE + 1;
+
     public final class Row {
 
         boolean deleted;
 
         public Object read(final int column) throws IOException {
+            checkSelected(column);
             final int offset = fieldOffsets[column];
             return readObject(offset, column);
         }
 
+        /**
+         * Compares the value of an integral numeric field with the specified one, parsing it
+         * straight from the record bytes.
+         *
+         * @param column The field number (zero based)
+         * @param value The value to compare with
+         * @return -1, 0 or 1 as the field value is less than, equal to, or greater than the
+         *     specified value, {@link #NULL_VALUE} if the field is null, {@link #NOT_COMPARABLE}
+         *     if the field is not an integral number
+         */
+        public int compareIntegral(final int column, final long value) throws IOException {
+            checkSelected(column);
+            final int offset = fieldOffsets[column];
+            if (!isNumeric(column)) {
+                return NOT_COMPARABLE;
+            }
+            if (bytes[offset] == '*') {
+                return NULL_VALUE;
+            }
+            switch (parseIntegral(offset, fieldLengths[column])) {
+                case PARSED:
+                    return Long.compare(parsedLong, value);
+                case BLANK:
+                    return NULL_VALUE;
+                default:
+                    return NOT_COMPARABLE;
+            }
+        }
+
+        /**
+         * Compares the value of a numeric field with the specified one, parsing it straight from
+         * the record bytes. The comparison follows the semantics of the primitive double
+         * comparison operators.
+         *
+         * @param column The field number (zero based)
+         * @param value The value to compare with
+         * @return -1, 0 or 1 as the field value is less than, equal to, or greater than the
+         *     specified value, {@link #NULL_VALUE} if the field is null, {@link #NOT_COMPARABLE}
+         *     if the field is not a plain decimal number
+         */
+        public int compareDecimal(final int column, final double value) throws IOException {
+            checkSelected(column);
+            final int offset = fieldOffsets[column];
+            if (!isNumeric(column)) {
+                return NOT_COMPARABLE;
+            }
+            if (bytes[offset] == '*') {
+                return NULL_VALUE;
+            }
+            switch (parseDecimal(offset, fieldLengths[column])) {
+                case PARSED:
+                    return parsedDouble < value ? -1 : (parsedDouble > value ? 1 : 0);
+                case BLANK:
+                    return NULL_VALUE;
+                default:
+                    return NOT_COMPARABLE;
+            }
+        }
+
         public String toString() {
             final StringBuffer ret = new StringBuffer("DBF Row - ");
             for (int i = 0; i < header.getNumFields(); i++) {
@@ -108,6 +181,40 @@ public class DbaseFileReader implements FileReader {
 
     int[] fieldOffsets;
 
+    /** The fields copied out of each record, or null if all of them are */
+    boolean[] selectedFields;
+
+    /** Offsets of the runs of contiguous selected fields, relative to the record */
+    int[] runOffsets;
+
+    /** Lengths of the runs of contiguous selected fields */
+    int[] runLengths;
+
+    /** The last number parsed by {@link #parseIntegral(int, int)} */
+    long parsedLong;
+
+    /** The last number parsed by {@link #parseDecimal(int, int)} */
+    double parsedDouble;
+
+    static final int PARSED = 0;
+
+    static final int BLANK = 1;
+
+    static final int INVALID = 2;
+
+    /** Powers of ten exactly representable as doubles */
+    static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /** The largest mantissa that can be converted to a double without loss of precision */
+    static final long MAX_EXACT_MANTISSA = 1L << 53;
+
     int cnt = 1;
 
     Row row;
@@ -277,6 +384,57 @@ public class DbaseFileReader implements FileReader {
         }
     }
 
+    /**
+     * Enables the column pruned mode, in which only the specified fields are copied out of each
+     * record, skipping over the others. Reading a field that has not been selected results in an
+     * exception. Useful when only a few fields of a wide record are needed.
+     *
+     * @param fields The field numbers (zero based) to be read, or null to read all of them
+     */
+    public void setReadFields(final int[] fields) {
+        if (fields == null) {
+            selectedFields = null;
+            runOffsets = null;
+            runLengths = null;
+            return;
+        }
+        final int numFields = header.getNumFields();
+        selectedFields = new boolean[numFields];
+        for (int field : fields) {
+            selectedFields[field] = true;
+        }
+        // merge the contiguous fields, so that each run is copied with a single bulk get
+        int[] offsets = new int[numFields];
+        int[] lengths = new int[numFields];
+        int runs = 0;
+        for (int i = 0; i < numFields; i++) {
+            if (!selectedFields[i] || fieldLengths[i] == 0) {
+                continue;
+            }
+            if (runs > 0 && offsets[runs - 1] + lengths[runs - 1] == fieldOffsets[i]) {
+                lengths[runs - 1] += fieldLengths[i];
+            } else {
+                offsets[runs] = fieldOffsets[i];
+                lengths[runs] = fieldLengths[i];
+                runs++;
+            }
+        }
+        runOffsets = Arrays.copyOf(offsets, runs);
+        runLengths = Arrays.copyOf(lengths, runs);
+    }
+
+    private void checkSelected(final int field) throws IOException {
+        if (selectedFields != null && !selectedFields[field]) {
+            throw new IOException(
+                    "Field " + header.getFieldName(field) + " has not been selected for reading");
+        }
+    }
+
+    private boolean isNumeric(final int field) {
+        final char type = fieldTypes[field];
+        return type == 'N' || type == 'n' || type == 'F' || type == 'f';
+    }
+
     /**
      * Get the header from this file. The header is read upon instantiation.
      *
@@ -385,6 +543,7 @@ public class DbaseFileReader implements FileReader {
         final int numFields = header.getNumFields();
 
         for (int j = 0; j < numFields; j++) {
+            checkSelected(j);
             entry[j + offset] = readObject(fieldOffsets[j], j);
         }
 
@@ -401,6 +560,7 @@ public class DbaseFileReader implements FileReader {
      * @return The value of the field
      */
     public Object readField(final int fieldNum) throws IOException {
+        checkSelected(fieldNum);
         return readObject(fieldOffsets[fieldNum], fieldNum);
     }
 
@@ -430,9 +590,19 @@ public class DbaseFileReader implements FileReader {
             final char deleted = (char) buffer.get();
             row.deleted = deleted == '*';
 
-            buffer.limit(buffer.position() + header.getRecordLength() - 1);
-            buffer.get(bytes); // SK: There is a side-effect here!!!
-            buffer.limit(buffer.capacity());
+            if (runOffsets == null) {
+                buffer.limit(buffer.position() + header.getRecordLength() - 1);
+                buffer.get(bytes); // SK: There is a side-effect here!!!
+                buffer.limit(buffer.capacity());
+            } else {
+                // column pruned mode, copy only the selected fields
+                final int start = buffer.position();
+                for (int i = 0; i < runOffsets.length; i++) {
+                    buffer.position(start + runOffsets[i]);
+                    buffer.get(bytes, runOffsets[i], runLengths[i]);
+                }
+                buffer.position(start + bytes.length);
+            }
 
             foundRecord = true;
         }
@@ -502,12 +672,9 @@ public class DbaseFileReader implements FileReader {
                     for (int i = 0; i < 8; i++) {
                         if (bytes[fieldOffset + i] != '0') {
                             try {
-                                String tempString = fastParse(bytes, fieldOffset, 4);
-                                final int tempYear = Integer.parseInt(tempString);
-                                tempString = fastParse(bytes, fieldOffset + 4, 2);
-                                final int tempMonth = Integer.parseInt(tempString) - 1;
-                                tempString = fastParse(bytes, fieldOffset + 6, 2);
-                                final int tempDay = Integer.parseInt(tempString);
+                                final int tempYear = parseDigits(fieldOffset, 4);
+                                final int tempMonth = parseDigits(fieldOffset + 4, 2) - 1;
+                                final int tempDay = parseDigits(fieldOffset + 6, 2);
                                 calendar.clear();
                                 calendar.set(Calendar.YEAR, tempYear);
                                 calendar.set(Calendar.MONTH, tempMonth);
@@ -559,23 +726,22 @@ public class DbaseFileReader implements FileReader {
                     if (bytes[fieldOffset] == '*') {
                         break;
                     } else {
-                        final String string = fastParse(bytes, fieldOffset, fieldLen).trim();
-                        Class clazz = header.getFieldClass(fieldNum);
-                        if (clazz == Integer.class) {
-                            try {
-                                object = Integer.parseInt(string);
+                        final Class clazz = header.getFieldClass(fieldNum);
+                        if (clazz == Integer.class || clazz == Long.class) {
+                            // parse without building strings, the accepted syntax is the same
+                            // as Long.parseLong on the trimmed value
+                            final int status = parseIntegral(fieldOffset, fieldLen);
+                            if (status == PARSED) {
+                                if (clazz == Integer.class
+                                        && parsedLong >= Integer.MIN_VALUE
+                                        && parsedLong <= Integer.MAX_VALUE) {
+                                    object = Integer.valueOf((int) parsedLong);
+                                } else {
+                                    object = Long.valueOf(parsedLong);
+                                }
                                 break;
-                            } catch (NumberFormatException e) {
-                                // try to parse as long...
-                                clazz = Long.class;
-                            }
-                        }
-                        if (clazz == Long.class) {
-                            try {
-                                object = Long.parseLong(string);
+                            } else if (status == BLANK) {
                                 break;
-                            } catch (final NumberFormatException e2) {
-                                // fall through to the floating point number
                             }
                         }
                     }
@@ -585,11 +751,18 @@ public class DbaseFileReader implements FileReader {
                 case 'f':
                 case 'F':
                     if (bytes[fieldOffset] != '*') {
-                        try {
-                            object = Double.parseDouble(fastParse(bytes, fieldOffset, fieldLen));
-                        } catch (final NumberFormatException e) {
-                            // okay, now whatever we got was truly indigestible.
-                            object = null;
+                        final int status = parseDecimal(fieldOffset, fieldLen);
+                        if (status == PARSED) {
+                            object = Double.valueOf(parsedDouble);
+                        } else if (status == INVALID) {
+                            // exponents, suffixes, very long numbers and the like
+                            try {
+                                object =
+                                        Double.parseDouble(fastParse(bytes, fieldOffset, fieldLen));
+                            } catch (final NumberFormatException e) {
+                                // okay, now whatever we got was truly indigestible.
+                                object = null;
+                            }
                         }
                     }
                     break;
@@ -600,6 +773,118 @@ public class DbaseFileReader implements FileReader {
         return object;
     }
 
+    /**
+     * Parses an integral number out of the record bytes, with the same syntax accepted by {@link
+     * Long#parseLong(String)} on the trimmed field, storing the result in {@link #parsedLong}
+     *
+     * @return {@link #PARSED}, {@link #BLANK} if the field is empty, or {@link #INVALID}
+     */
+    int parseIntegral(final int fieldOffset, final int fieldLen) {
+        int i = fieldOffset;
+        int end = fieldOffset + fieldLen;
+        while (i < end && (bytes[i] & 0xFF) <= ' ') {
+            i++;
+        }
+        while (end > i && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (i == end) {
+            return BLANK;
+        }
+        boolean negative = false;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            if (++i == end) {
+                return INVALID;
+            }
+        }
+        // accumulate negatively, like Long.parseLong, to handle Long.MIN_VALUE
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multmin = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            final int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || result < multmin) {
+                return INVALID;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return INVALID;
+            }
+            result -= digit;
+        }
+        parsedLong = negative ? result : -result;
+        return PARSED;
+    }
+
+    /**
+     * Parses a plain decimal number (sign, digits and decimal point) out of the record bytes,
+     * storing the result in {@link #parsedDouble}. The conversion is exact, the result is the same
+     * as {@link Double#parseDouble(String)}, but only numbers with up to 15 significant digits and
+     * 22 decimals are handled.
+     *
+     * @return {@link #PARSED}, {@link #BLANK} if the field is empty, or {@link #INVALID} if the
+     *     field is not a plain decimal number, or cannot be converted exactly
+     */
+    int parseDecimal(final int fieldOffset, final int fieldLen) {
+        int i = fieldOffset;
+        int end = fieldOffset + fieldLen;
+        while (i < end && (bytes[i] & 0xFF) <= ' ') {
+            i++;
+        }
+        while (end > i && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (i == end) {
+            return BLANK;
+        }
+        boolean negative = false;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int decimals = 0;
+        boolean point = false;
+        boolean digits = false;
+        for (; i < end; i++) {
+            final byte b = bytes[i];
+            if (b == '.' && !point) {
+                point = true;
+                continue;
+            }
+            final int digit = b - '0';
+            if (digit < 0 || digit > 9 || mantissa > (MAX_EXACT_MANTISSA - digit) / 10) {
+                return INVALID;
+            }
+            mantissa = mantissa * 10 + digit;
+            digits = true;
+            if (point) {
+                decimals++;
+            }
+        }
+        if (!digits || decimals >= POWERS_OF_TEN.length) {
+            return INVALID;
+        }
+        // both values are exact, the division is correctly rounded
+        final double value = decimals == 0 ? mantissa : mantissa / POWERS_OF_TEN[decimals];
+        parsedDouble = negative ? -value : value;
+        return PARSED;
+    }
+
+    /** Parses a fixed length run of digits, falling back on Integer.parseInt for anything else */
+    private int parseDigits(final int offset, final int length) {
+        int result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(fastParse(bytes, offset, length));
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
     /**
      * Performs a faster byte[] to String conversion under the assumption the content is represented
      * with one byte per char
@@ -39,6 +39,11 @@ public enum ShpFileType {
      * mapservers shptree tool generates
      */
     QIX("qix"),
+    /**
+     * the .pqx file, a Hilbert packed R-tree spatial index of the shapefile, laid out in flat
+     * arrays that are memory mapped and searched in place
+     */
+    PQX("pqx"),
     /**
      * the .fix file, it contains all the Feature IDs for constant time lookup by fid also so that
      * the fids stay consistent across deletes and adds
@@ -0,0 +1,301 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.quadtree.StoreException;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * A read only, Hilbert packed R-tree stored in a .pqx file. The tree is laid out as two flat
+ * arrays, one with the node boxes and one with the node values, that are memory mapped and searched
+ * in place: opening the index does not depend on its size, and searching it allocates no objects
+ * per visited node.
+ *
+ * <p>The file starts with a {@link #HEADER_SIZE} bytes header (magic number, version, node size,
+ * number of items, bounds of the indexed shapes), followed by the node boxes, stored as four floats
+ * each (minx, miny, maxx, maxy, rounded outwards), and by the node values, stored as ints. The
+ * leaves come first, sorted by the Hilbert code of their center, followed by the upper levels of
+ * the tree, up to the root. The value of a leaf is the offset of the record in the .shp file, the
+ * value of an inner node is the position of its first child. All values are little endian.
+ *
+ * <p>The tree is thread safe, it can be searched concurrently.
+ */
+public class PackedRTree {
+
+    /** The "PQX1" magic number, little endian */
+    static final int MAGIC = 0x31585150;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+
+    /** The default number of children per node */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    final int nodeSize;
+
+    final int numItems;
+
+    final int numNodes;
+
+    final int[] levelBounds;
+
+    final Envelope bounds;
+
+    final FloatBuffer boxes;
+
+    final IntBuffer values;
+
+    PackedRTree(
+            int nodeSize, int numItems, Envelope bounds, FloatBuffer boxes, IntBuffer values) {
+        this.nodeSize = nodeSize;
+        this.numItems = numItems;
+        this.levelBounds = computeLevelBounds(numItems, nodeSize);
+        this.numNodes = levelBounds[levelBounds.length - 1];
+        this.bounds = bounds;
+        this.boxes = boxes;
+        this.values = values;
+    }
+
+    /**
+     * Opens the tree stored in the channel, memory mapping it. If the channel is provided by a
+     * {@link org.geotools.data.shapefile.files.ShpFiles} with the memory map cache enabled, the
+     * mapping is shared with the other readers of the same file. The channel can be closed once the
+     * tree is open.
+     *
+     * @param channel The channel to the .pqx file
+     * @throws StoreException If the file is not a valid packed R-tree
+     */
+    public static PackedRTree open(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(0);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                throw new StoreException("Unexpected end of the packed R-tree header");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new StoreException("Not a packed R-tree index file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new StoreException("Unsupported packed R-tree version " + version);
+        }
+        int nodeSize = header.getInt();
+        int numItems = header.getInt();
+        if (nodeSize < 2 || numItems < 0) {
+            throw new StoreException("Invalid packed R-tree header");
+        }
+        double minX = header.getDouble();
+        double minY = header.getDouble();
+        double maxX = header.getDouble();
+        double maxY = header.getDouble();
+        // an empty tree has null bounds, stored as an inverted envelope
+        Envelope bounds = new Envelope();
+        if (minX <= maxX) {
+            bounds.init(minX, maxX, minY, maxY);
+        }
+
+        int[] levelBounds = computeLevelBounds(numItems, nodeSize);
+        long numNodes = levelBounds[levelBounds.length - 1];
+        long boxesSize = numNodes * 16;
+        long valuesSize = numNodes * 4;
+        if (channel.size() < HEADER_SIZE + boxesSize + valuesSize) {
+            throw new StoreException("Truncated packed R-tree index file");
+        }
+        if (boxesSize > Integer.MAX_VALUE) {
+            throw new StoreException("Packed R-tree index too large to be memory mapped");
+        }
+        FloatBuffer boxes;
+        IntBuffer values;
+        if (numNodes == 0) {
+            boxes = FloatBuffer.allocate(0);
+            values = IntBuffer.allocate(0);
+        } else {
+            boxes =
+                    channel.map(MapMode.READ_ONLY, HEADER_SIZE, boxesSize)
+                            .order(ByteOrder.LITTLE_ENDIAN)
+                            .asFloatBuffer();
+            values =
+                    channel.map(MapMode.READ_ONLY, HEADER_SIZE + boxesSize, valuesSize)
+                            .order(ByteOrder.LITTLE_ENDIAN)
+                            .asIntBuffer();
+        }
+
+        return new PackedRTree(nodeSize, numItems, bounds, boxes, values);
+    }
+
+    /**
+     * Computes the position past the last node of each level, from the leaves up to the root. The
+     * last value is the total number of nodes.
+     */
+    static int[] computeLevelBounds(int numItems, int nodeSize) {
+        if (numItems == 0) {
+            return new int[] {0};
+        }
+        int[] bounds = new int[8];
+        int levels = 0;
+        long n = numItems;
+        long numNodes = n;
+        bounds[levels++] = (int) numNodes;
+        do {
+            n = (n + nodeSize - 1) / nodeSize;
+            numNodes += n;
+            if (numNodes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many items for a packed R-tree");
+            }
+            if (levels == bounds.length) {
+                bounds = Arrays.copyOf(bounds, levels * 2);
+            }
+            bounds[levels++] = (int) numNodes;
+        } while (n != 1);
+        return Arrays.copyOf(bounds, levels);
+    }
+
+    /** The bounds of the indexed shapes */
+    public Envelope getBounds() {
+        return new Envelope(bounds);
+    }
+
+    /** The number of indexed shapes */
+    public int getNumItems() {
+        return numItems;
+    }
+
+    /** The maximum number of children of each node */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Returns the .shp offsets of the shapes whose bounds intersect the search area, sorted in
+     * ascending order, so that the shapefile can be read sequentially
+     *
+     * @param area The search area
+     * @return The sorted offsets, in bytes
+     */
+    public int[] searchOffsets(Envelope area) {
+        if (numItems == 0 || area.isNull()) {
+            return new int[0];
+        }
+        float minX = (float) area.getMinX();
+        float minY = (float) area.getMinY();
+        float maxX = (float) area.getMaxX();
+        float maxY = (float) area.getMaxY();
+        // compensate the float rounding of the search area, the boxes are rounded outwards
+        minX = Math.nextDown(minX);
+        minY = Math.nextDown(minY);
+        maxX = Math.nextUp(maxX);
+        maxY = Math.nextUp(maxY);
+
+        int[] results = new int[64];
+        int resultCount = 0;
+        // each visited node pushes at most nodeSize children, one node per level is expanded
+        int[] stack = new int[nodeSize * levelBounds.length + 1];
+        int stackSize = 0;
+        int nodeIndex = numNodes - 1;
+        while (true) {
+            int end = Math.min(nodeIndex + nodeSize, upperBound(nodeIndex));
+            boolean leaves = nodeIndex < numItems;
+            for (int pos = nodeIndex; pos < end; pos++) {
+                int b = pos * 4;
+                if (boxes.get(b) > maxX
+                        || boxes.get(b + 1) > maxY
+                        || boxes.get(b + 2) < minX
+                        || boxes.get(b + 3) < minY) {
+                    continue;
+                }
+                int value = values.get(pos);
+                if (leaves) {
+                    if (resultCount == results.length) {
+                        results = Arrays.copyOf(results, resultCount * 2);
+                    }
+                    results[resultCount++] = value;
+                } else {
+                    stack[stackSize++] = value;
+                }
+            }
+            if (stackSize == 0) {
+                break;
+            }
+            nodeIndex = stack[--stackSize];
+        }
+
+        Arrays.sort(results, 0, resultCount);
+        return Arrays.copyOf(results, resultCount);
+    }
+
+    /** Returns the position past the last node of the level containing the specified node */
+    private int upperBound(int nodeIndex) {
+        for (int i = 0; i < levelBounds.length; i++) {
+            if (levelBounds[i] > nodeIndex) {
+                return levelBounds[i];
+            }
+        }
+        return numNodes;
+    }
+
+    /**
+     * Searches the shapes whose bounds intersect the specified area, returning them in the same
+     * format as the other shapefile spatial indexes (the second value of each {@link Data} is the
+     * .shp offset). The returned {@link Data} object is reused across calls to next()
+     */
+    public CloseableIterator<Data> search(Envelope area) {
+        final int[] offsets = searchOffsets(area);
+        final Data data = new Data(CachedQuadTree.DATA_DEFINITION);
+        return new CloseableIterator<Data>() {
+            int idx = 0;
+
+            public boolean hasNext() {
+                return idx < offsets.length;
+            }
+
+            public Data next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    data.clear();
+                    data.addValue(0);
+                    data.addValue((long) offsets[idx++]);
+                } catch (TreeException e) {
+                    throw new RuntimeException(e);
+                }
+                return data;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            public void close() throws IOException {
+                idx = offsets.length;
+            }
+        };
+    }
+}
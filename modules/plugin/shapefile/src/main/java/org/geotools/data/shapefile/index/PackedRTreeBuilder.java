@@ -0,0 +1,345 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * Builds a {@link PackedRTree} file. The shapes are added with their bounds and .shp offset, then
+ * sorted along the Hilbert curve and packed bottom up in full nodes, so the tree has no empty slots
+ * and its layout is fully determined by the number of shapes.
+ *
+ * <p>The whole tree is kept in flat arrays while building, using about 30 bytes per shape.
+ */
+public class PackedRTreeBuilder {
+
+    /** Size of the Hilbert grid, along each axis */
+    static final int HILBERT_MAX = (1 << 16) - 1;
+
+    final int nodeSize;
+
+    final Envelope extent;
+
+    float[] boxes;
+
+    int[] values;
+
+    long[] keys;
+
+    int count;
+
+    Envelope bounds = new Envelope();
+
+    /**
+     * Creates a builder
+     *
+     * @param expectedItems The expected number of shapes, used to size the arrays
+     * @param nodeSize The maximum number of children of each node
+     * @param extent The area covered by the shapes, used to compute the Hilbert codes
+     */
+    public PackedRTreeBuilder(int expectedItems, int nodeSize, Envelope extent) {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("Node size must be at least 2");
+        }
+        this.nodeSize = nodeSize;
+        this.extent = extent;
+        allocate(Math.max(expectedItems, 1));
+    }
+
+    private void allocate(int items) {
+        int[] levelBounds = PackedRTree.computeLevelBounds(items, nodeSize);
+        int numNodes = levelBounds[levelBounds.length - 1];
+        if (boxes == null) {
+            boxes = new float[numNodes * 4];
+            values = new int[numNodes];
+            keys = new long[items];
+        } else {
+            boxes = Arrays.copyOf(boxes, numNodes * 4);
+            values = Arrays.copyOf(values, numNodes);
+            keys = Arrays.copyOf(keys, items);
+        }
+    }
+
+    /**
+     * Adds a shape to the tree
+     *
+     * @param minX The shape bounds
+     * @param minY The shape bounds
+     * @param maxX The shape bounds
+     * @param maxY The shape bounds
+     * @param offset The offset of the shape in the .shp file
+     */
+    public void add(double minX, double minY, double maxX, double maxY, int offset) {
+        if (count == keys.length) {
+            allocate(count * 2);
+        }
+        int b = count * 4;
+        if (minX <= maxX && minY <= maxY) {
+            // round outwards, the stored box must contain the shape
+            boxes[b] = roundDown(minX);
+            boxes[b + 1] = roundDown(minY);
+            boxes[b + 2] = roundUp(maxX);
+            boxes[b + 3] = roundUp(maxY);
+            bounds.expandToInclude(minX, minY);
+            bounds.expandToInclude(maxX, maxY);
+        } else {
+            // null shapes, or invalid bounds, an inverted box never matches a search
+            boxes[b] = Float.POSITIVE_INFINITY;
+            boxes[b + 1] = Float.POSITIVE_INFINITY;
+            boxes[b + 2] = Float.NEGATIVE_INFINITY;
+            boxes[b + 3] = Float.NEGATIVE_INFINITY;
+        }
+        values[count] = offset;
+        long hilbert = hilbert(minX, minY, maxX, maxY);
+        keys[count] = (hilbert << 32) | count;
+        count++;
+    }
+
+    static float roundDown(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextDown(f) : f;
+    }
+
+    static float roundUp(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextUp(f) : f;
+    }
+
+    /** Returns the Hilbert code of the box center, as a 31 bits positive value */
+    long hilbert(double minX, double minY, double maxX, double maxY) {
+        double cx = (minX + maxX) / 2;
+        double cy = (minY + maxY) / 2;
+        if (!(minX <= maxX && minY <= maxY) || Double.isNaN(cx) || Double.isNaN(cy)) {
+            // the null shapes go at the end
+            return Integer.MAX_VALUE;
+        }
+        int x = gridCoordinate(cx, extent.getMinX(), extent.getWidth());
+        int y = gridCoordinate(cy, extent.getMinY(), extent.getHeight());
+        return (hilbert(x, y) & 0xFFFFFFFFL) >>> 1;
+    }
+
+    private static int gridCoordinate(double value, double min, double span) {
+        if (!(span > 0)) {
+            return 0;
+        }
+        double scaled = Math.floor(HILBERT_MAX * (value - min) / span);
+        if (scaled < 0) {
+            return 0;
+        } else if (scaled > HILBERT_MAX) {
+            return HILBERT_MAX;
+        }
+        return (int) scaled;
+    }
+
+    /**
+     * Computes the position of the point along the Hilbert curve filling a 2^16 by 2^16 grid,
+     * without loops or branches. See "Fast Hilbert curve generation, sorting, and range queries",
+     * by rawrunprotected (public domain).
+     */
+    static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >> 1);
+        int B = (a >> 1) ^ a;
+        int C = ((c >> 1) ^ (b & (d >> 1))) ^ c;
+        int D = ((a & (c >> 1)) ^ (d >> 1)) ^ d;
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >> 2)) ^ (b & (b >> 2)));
+        B = ((a & (b >> 2)) ^ (b & ((a ^ b) >> 2)));
+        C ^= ((a & (c >> 2)) ^ (b & (d >> 2)));
+        D ^= ((b & (c >> 2)) ^ ((a ^ b) & (d >> 2)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >> 4)) ^ (b & (b >> 4)));
+        B = ((a & (b >> 4)) ^ (b & ((a ^ b) >> 4)));
+        C ^= ((a & (c >> 4)) ^ (b & (d >> 4)));
+        D ^= ((b & (c >> 4)) ^ ((a ^ b) & (d >> 4)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        C ^= ((a & (c >> 8)) ^ (b & (d >> 8)));
+        D ^= ((b & (c >> 8)) ^ ((a ^ b) & (d >> 8)));
+
+        a = C ^ (C >> 1);
+        b = D ^ (D >> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+        i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+        i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        return (i1 << 1) | i0;
+    }
+
+    /** The number of shapes added so far */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Sorts the shapes, builds the upper levels of the tree, and writes it to the channel. The
+     * builder cannot be used anymore after this call.
+     *
+     * @param channel The target channel
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        int[] levelBounds = PackedRTree.computeLevelBounds(count, nodeSize);
+        int numNodes = levelBounds[levelBounds.length - 1];
+
+        if (count > 0) {
+            Arrays.sort(keys, 0, count);
+            sortLeaves();
+            keys = null;
+            buildInnerNodes(levelBounds);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(PackedRTree.MAGIC);
+        buffer.putInt(PackedRTree.VERSION);
+        buffer.putInt(nodeSize);
+        buffer.putInt(count);
+        if (bounds.isNull()) {
+            buffer.putDouble(Double.POSITIVE_INFINITY);
+            buffer.putDouble(Double.POSITIVE_INFINITY);
+            buffer.putDouble(Double.NEGATIVE_INFINITY);
+            buffer.putDouble(Double.NEGATIVE_INFINITY);
+        } else {
+            buffer.putDouble(bounds.getMinX());
+            buffer.putDouble(bounds.getMinY());
+            buffer.putDouble(bounds.getMaxX());
+            buffer.putDouble(bounds.getMaxY());
+        }
+        while (buffer.position() < PackedRTree.HEADER_SIZE) {
+            buffer.put((byte) 0);
+        }
+        for (int i = 0; i < numNodes * 4; i++) {
+            if (buffer.remaining() < 4) {
+                flush(buffer, channel);
+            }
+            buffer.putFloat(boxes[i]);
+        }
+        for (int i = 0; i < numNodes; i++) {
+            if (buffer.remaining() < 4) {
+                flush(buffer, channel);
+            }
+            buffer.putInt(values[i]);
+        }
+        flush(buffer, channel);
+        boxes = null;
+        values = null;
+    }
+
+    private void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Moves the leaves in Hilbert order, following the permutation cycles in place to avoid
+     * allocating a second copy of the boxes
+     */
+    private void sortLeaves() {
+        BitSet moved = new BitSet(count);
+        for (int start = 0; start < count; start++) {
+            if (moved.get(start)) {
+                continue;
+            }
+            int s = start * 4;
+            float minX = boxes[s];
+            float minY = boxes[s + 1];
+            float maxX = boxes[s + 2];
+            float maxY = boxes[s + 3];
+            int value = values[start];
+            int target = start;
+            while (true) {
+                moved.set(target);
+                int source = (int) keys[target];
+                int t = target * 4;
+                if (source == start) {
+                    boxes[t] = minX;
+                    boxes[t + 1] = minY;
+                    boxes[t + 2] = maxX;
+                    boxes[t + 3] = maxY;
+                    values[target] = value;
+                    break;
+                }
+                System.arraycopy(boxes, source * 4, boxes, t, 4);
+                values[target] = values[source];
+                target = source;
+            }
+        }
+    }
+
+    /** Builds the inner nodes, level by level, grouping nodeSize consecutive children */
+    private void buildInnerNodes(int[] levelBounds) {
+        int pos = 0;
+        int parent = levelBounds[0];
+        for (int level = 0; level < levelBounds.length - 1; level++) {
+            int end = levelBounds[level];
+            while (pos < end) {
+                int firstChild = pos;
+                float minX = Float.POSITIVE_INFINITY;
+                float minY = Float.POSITIVE_INFINITY;
+                float maxX = Float.NEGATIVE_INFINITY;
+                float maxY = Float.NEGATIVE_INFINITY;
+                for (int i = 0; i < nodeSize && pos < end; i++, pos++) {
+                    int b = pos * 4;
+                    minX = Math.min(minX, boxes[b]);
+                    minY = Math.min(minY, boxes[b + 1]);
+                    maxX = Math.max(maxX, boxes[b + 2]);
+                    maxY = Math.max(maxY, boxes[b + 3]);
+                }
+                int b = parent * 4;
+                boxes[b] = minX;
+                boxes[b + 1] = minY;
+                boxes[b + 2] = maxX;
+                boxes[b + 3] = maxY;
+                values[parent] = firstChild;
+                parent++;
+            }
+        }
+    }
+}
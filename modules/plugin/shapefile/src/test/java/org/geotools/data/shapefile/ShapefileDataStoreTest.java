@@ -448,6 +448,51 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         ds2.dispose();
     }
 
+    @Test
+    public void testCreateAndReadPackedIndex() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+        File file = sibling(shpFile, ".pqx");
+        if (file.exists()) {
+            file.delete();
+        }
+        file.deleteOnExit();
+
+        ShapefileDataStore ds = new ShapefileDataStore(url);
+        ds.setPackedIndexEnabled(true);
+        ShapefileDataStore ds2 = new ShapefileDataStore(url);
+        ds2.setIndexed(false);
+
+        // reduce the bounds, thus making the store use the spatial index
+        ReferencedEnvelope bounds = ds.getFeatureSource().getBounds();
+        double dx = bounds.getWidth() / 4;
+        double dy = bounds.getHeight() / 4;
+        ReferencedEnvelope center =
+                new ReferencedEnvelope(
+                        bounds.getMinX() + dx,
+                        bounds.getMaxX() - dx,
+                        bounds.getMinY() + dy,
+                        bounds.getMaxY() - dy,
+                        bounds.getCoordinateReferenceSystem());
+        ReferencedEnvelope corner =
+                new ReferencedEnvelope(
+                        bounds.getMinX(),
+                        bounds.getMinX() + dx,
+                        bounds.getMinY(),
+                        bounds.getMinY() + dy,
+                        bounds.getCoordinateReferenceSystem());
+        performQueryComparison(ds, ds2, center);
+        performQueryComparison(ds, ds2, corner);
+
+        assertTrue(file.exists());
+        assertNotNull(ds.indexManager.packedTree);
+        assertEquals(
+                ds2.getFeatureSource().getCount(Query.ALL),
+                ds.indexManager.packedTree.getNumItems());
+        ds.dispose();
+        ds2.dispose();
+    }
+
     @Test
     public void testRemove() throws Exception {
         File shpFile = copyShapefiles(STATE_POP);
@@ -2096,4 +2141,54 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         // compare byte stream produced in shp file
         assertTrue(FileUtils.contentEquals(tmpFile, expected));
     }
+
+    @Test
+    public void testNumericFiltersOnPrunedAttributes() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        ShapefileDataStore ds = new ShapefileDataStore(shpFile.toURI().toURL());
+        try {
+            SimpleFeatureSource fs = ds.getFeatureSource();
+            List<SimpleFeature> all = new ArrayList<SimpleFeature>();
+            try (SimpleFeatureIterator it = fs.getFeatures().features()) {
+                while (it.hasNext()) {
+                    all.add(it.next());
+                }
+            }
+            Object persons = all.get(0).getAttribute("PERSONS");
+            Filter[] filters =
+                    new Filter[] {
+                        ff.greater(ff.property("PERSONS"), ff.literal(3000000)),
+                        ff.between(ff.property("PERSONS"), ff.literal(1000000), ff.literal(5e6)),
+                        ff.lessOrEqual(ff.literal(3000000L), ff.property("PERSONS")),
+                        ff.equals(ff.property("PERSONS"), ff.literal(persons)),
+                        ff.and(
+                                ff.less(ff.property("PERSONS"), ff.literal(2000000)),
+                                ff.like(ff.property("STATE_NAME"), "N*"))
+                    };
+            for (Filter filter : filters) {
+                Set<String> expected = new HashSet<String>();
+                for (SimpleFeature f : all) {
+                    if (filter.evaluate(f)) {
+                        expected.add(f.getID());
+                    }
+                }
+                assertFalse(expected.isEmpty());
+
+                // read only a couple of attributes, the others are skipped in the dbf records
+                Query query = new Query(ds.getTypeName().getLocalPart(), filter);
+                query.setPropertyNames(new String[] {"STATE_NAME", "PERSONS"});
+                Set<String> actual = new HashSet<String>();
+                try (SimpleFeatureIterator it = fs.getFeatures(query).features()) {
+                    while (it.hasNext()) {
+                        SimpleFeature f = it.next();
+                        assertEquals(2, f.getAttributeCount());
+                        actual.add(f.getID());
+                    }
+                }
+                assertEquals(filter.toString(), expected, actual);
+            }
+        } finally {
+            ds.dispose();
+        }
+    }
 }
@@ -0,0 +1,228 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+public class ShapefileFeatureSpliteratorTest extends TestCaseSupport {
+
+    File shpFile;
+
+    ShapefileDataStore store;
+
+    ShapefileFeatureSource source;
+
+    @Before
+    public void setUp() throws Exception {
+        shpFile = copyShapefiles(STATE_POP);
+        store = new ShapefileDataStore(shpFile.toURI().toURL());
+        source = ((ShapefileFeatureStore) store.getFeatureSource()).delegate;
+    }
+
+    @After
+    public void disposeStore() {
+        store.dispose();
+    }
+
+    @Test
+    public void testSplitMatchesSequential() throws Exception {
+        ShapefileFeatureSpliterator spliterator = source.getFeatureSpliterator(Query.ALL, 4);
+        try {
+            assertEquals(49, spliterator.estimateSize());
+            Spliterator<SimpleFeature> prefix = spliterator.trySplit();
+            assertNotNull(prefix);
+            assertEquals(49, prefix.estimateSize() + spliterator.estimateSize());
+
+            List<SimpleFeature> features = new ArrayList<>();
+            prefix.forEachRemaining(features::add);
+            spliterator.forEachRemaining(features::add);
+            assertSameFeatures(Query.ALL, features);
+        } finally {
+            spliterator.close();
+        }
+    }
+
+    @Test
+    public void testParallelStream() throws Exception {
+        ShapefileFeatureSpliterator spliterator = source.getFeatureSpliterator(Query.ALL, 2);
+        List<SimpleFeature> features;
+        try (Stream<SimpleFeature> stream =
+                StreamSupport.stream(spliterator, true).onClose(spliterator::close)) {
+            features = stream.collect(Collectors.toList());
+        }
+        assertSameFeatures(Query.ALL, features);
+        assertTrue(spliterator.openReaders.isEmpty());
+    }
+
+    @Test
+    public void testFilterAndProperties() throws Exception {
+        ReferencedEnvelope bounds = source.getBounds();
+        Filter bbox =
+                ff.bbox(
+                        ff.property(""),
+                        bounds.getMinX(),
+                        bounds.getMinY(),
+                        bounds.getMedian(0),
+                        bounds.getMedian(1),
+                        null);
+        Filter persons = ff.greater(ff.property("PERSONS"), ff.literal(3000000));
+        Query query = new Query(store.getTypeName().getLocalPart(), ff.and(bbox, persons));
+        query.setPropertyNames(new String[] {"STATE_NAME"});
+
+        List<SimpleFeature> features;
+        try (Stream<SimpleFeature> stream = store.getFeatureStream(query)) {
+            features = stream.collect(Collectors.toList());
+        }
+        assertTrue(features.size() > 0);
+        assertEquals(1, features.get(0).getAttributeCount());
+        assertSameFeatures(query, features);
+    }
+
+    @Test
+    public void testSortedQueryNotSplit() throws Exception {
+        Query query = new Query(store.getTypeName().getLocalPart());
+        query.setSortBy(new SortBy[] {ff.sort("STATE_NAME", SortOrder.DESCENDING)});
+        ShapefileFeatureSpliterator spliterator = source.getFeatureSpliterator(query, 2);
+        try {
+            assertNull(spliterator.trySplit());
+            List<SimpleFeature> features = new ArrayList<>();
+            spliterator.forEachRemaining(features::add);
+            assertSameFeatures(query, features);
+        } finally {
+            spliterator.close();
+        }
+    }
+
+    @Test
+    public void testFidIndexedAfterDeleteNotSplit() throws Exception {
+        String typeName = store.getTypeName().getLocalPart();
+        store.indexManager.createFidIndex();
+        SimpleFeatureStore featureStore = (SimpleFeatureStore) store.getFeatureSource();
+        featureStore.removeFeatures(ff.id(Collections.singleton(ff.featureId(typeName + ".2"))));
+        assertTrue(sibling(shpFile, "fix").exists());
+
+        // the ids come from the .fix file, range readers cannot be used
+        assertFalse(source.isPartitionable(Query.ALL));
+        List<SimpleFeature> all;
+        try (Stream<SimpleFeature> stream = store.getFeatureStream(Query.ALL)) {
+            all = stream.collect(Collectors.toList());
+        }
+        assertEquals(48, all.size());
+        assertSameFeatures(Query.ALL, all);
+
+        // the ids are mapped to the shifted records through the .fix file
+        Id ids = ff.id(Collections.singleton(ff.featureId(typeName + ".5")));
+        Query query = new Query(typeName, ff.or(ids, Filter.EXCLUDE));
+        assertFalse(source.isPartitionable(query));
+        ShapefileFeatureSpliterator spliterator = source.getFeatureSpliterator(query, 2);
+        try {
+            assertNull(spliterator.trySplit());
+            List<SimpleFeature> features = new ArrayList<>();
+            spliterator.forEachRemaining(features::add);
+            assertSameFeatures(query, features);
+        } finally {
+            spliterator.close();
+        }
+
+        query = new Query(typeName, ids);
+        List<SimpleFeature> features;
+        try (Stream<SimpleFeature> stream = store.getFeatureStream(query)) {
+            features = stream.collect(Collectors.toList());
+        }
+        assertEquals(1, features.size());
+        assertEquals(typeName + ".5", features.get(0).getID());
+        assertSameFeatures(query, features);
+
+        // without the .fix file the ids are the record numbers, and the queries can be split
+        store.setFidIndexed(false);
+        assertTrue(source.isPartitionable(query));
+        assertTrue(source.isPartitionable(Query.ALL));
+    }
+
+    @Test
+    public void testCloseReleasesReaders() throws Exception {
+        ShapefileFeatureSpliterator spliterator = source.getFeatureSpliterator(Query.ALL, 4);
+        Spliterator<SimpleFeature> prefix = spliterator.trySplit();
+        assertTrue(prefix.tryAdvance(f -> {}));
+        assertTrue(spliterator.tryAdvance(f -> {}));
+        assertEquals(2, spliterator.openReaders.size());
+        spliterator.close();
+        assertTrue(spliterator.openReaders.isEmpty());
+    }
+
+    @Test
+    public void testParallelVisitor() throws Exception {
+        ShapefileDataStore parallel = new ShapefileDataStore(shpFile.toURI().toURL());
+        parallel.setParallelScanEnabled(true);
+        try {
+            SumVisitor expected = new SumVisitor("PERSONS", store.getSchema());
+            store.getFeatureSource().getFeatures().accepts(expected, null);
+            SumVisitor sum = new SumVisitor("PERSONS", parallel.getSchema());
+            CountVisitor count = new CountVisitor();
+            parallel.getFeatureSource().getFeatures().accepts(sum, null);
+            parallel.getFeatureSource().getFeatures().accepts(count, null);
+
+            assertEquals(expected.getResult().toDouble(), sum.getResult().toDouble(), 0d);
+            assertEquals(49, count.getResult().toInt());
+        } finally {
+            parallel.dispose();
+        }
+    }
+
+    private void assertSameFeatures(Query query, List<SimpleFeature> actual) throws Exception {
+        List<SimpleFeature> expected = new ArrayList<>();
+        try (SimpleFeatureIterator it = store.getFeatureSource().getFeatures(query).features()) {
+            while (it.hasNext()) {
+                expected.add(it.next());
+            }
+        }
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            SimpleFeature e = expected.get(i);
+            SimpleFeature a = actual.get(i);
+            assertEquals(e.getID(), a.getID());
+            assertEquals(e.getAttributes(), a.getAttributes());
+        }
+    }
+}
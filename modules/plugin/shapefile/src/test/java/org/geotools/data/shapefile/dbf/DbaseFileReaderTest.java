@@ -18,8 +18,14 @@ package org.geotools.data.shapefile.dbf;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
@@ -60,4 +66,122 @@ public class DbaseFileReaderTest {
         assertThat(records.get(98289L), nullValue());
         assertThat(records.get(98245L), nullValue()); // this fails with 0.0
     }
+
+    static final String[][] NUMBERS = {
+        {"a", "42", "42", "42.5"},
+        {"b", "-123456789", "-9223372036854775808", "-0.10000"},
+        {"c", "", "", ""},
+        {"d", "*********", "********************", "********************"},
+        {"e", "+7", "99999999999999999999", "1.5E3"},
+        {"f", "12a", "1 2", "abc"},
+        {"g", "0", "9223372036854775807", "123456789.12345"}
+    };
+
+    @Test
+    public void testNumbers() throws Exception {
+        DbaseFileReader reader = openNumbers();
+        try {
+            assertArrayEquals(new Object[] {"a", 42, 42L, 42.5}, reader.readEntry());
+            assertArrayEquals(
+                    new Object[] {"b", -123456789, Long.MIN_VALUE, -0.1}, reader.readEntry());
+            assertArrayEquals(new Object[] {"c", null, null, null}, reader.readEntry());
+            assertArrayEquals(new Object[] {"d", null, null, null}, reader.readEntry());
+            // long overflows and exponents fall back on the floating point parsing
+            assertArrayEquals(new Object[] {"e", 7, 1e20, 1500d}, reader.readEntry());
+            assertArrayEquals(new Object[] {"f", null, null, null}, reader.readEntry());
+            assertArrayEquals(
+                    new Object[] {"g", 0, Long.MAX_VALUE, 123456789.12345}, reader.readEntry());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testCompare() throws Exception {
+        DbaseFileReader reader = openNumbers();
+        try {
+            DbaseFileReader.Row row = reader.readRow();
+            assertEquals(0, row.compareIntegral(1, 42));
+            assertEquals(-1, row.compareIntegral(1, 43));
+            assertEquals(1, row.compareIntegral(2, 41));
+            assertEquals(0, row.compareDecimal(3, 42.5));
+            assertEquals(1, row.compareDecimal(3, 42.4999));
+            assertEquals(DbaseFileReader.NOT_COMPARABLE, row.compareIntegral(0, 1));
+
+            row = reader.readRow();
+            assertEquals(-1, row.compareDecimal(3, -0.09));
+            assertEquals(0, row.compareDecimal(3, -0.1));
+
+            row = reader.readRow();
+            assertEquals(DbaseFileReader.NULL_VALUE, row.compareIntegral(1, 0));
+            assertEquals(DbaseFileReader.NULL_VALUE, row.compareDecimal(3, 0));
+
+            row = reader.readRow();
+            assertEquals(DbaseFileReader.NULL_VALUE, row.compareIntegral(2, 0));
+            assertEquals(DbaseFileReader.NULL_VALUE, row.compareDecimal(3, 0));
+
+            row = reader.readRow();
+            assertEquals(DbaseFileReader.NOT_COMPARABLE, row.compareIntegral(2, 0));
+            assertEquals(DbaseFileReader.NOT_COMPARABLE, row.compareDecimal(3, 0));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReadFields() throws Exception {
+        DbaseFileReader full = openNumbers();
+        DbaseFileReader pruned = openNumbers();
+        try {
+            pruned.setReadFields(new int[] {0, 3});
+            while (full.hasNext()) {
+                DbaseFileReader.Row expected = full.readRow();
+                DbaseFileReader.Row actual = pruned.readRow();
+                assertEquals(expected.read(0), actual.read(0));
+                assertEquals(expected.read(3), actual.read(3));
+                try {
+                    actual.read(1);
+                    fail("Field 1 has not been selected, should have failed");
+                } catch (IOException e) {
+                    // fine
+                }
+            }
+        } finally {
+            full.close();
+            pruned.close();
+        }
+    }
+
+    private DbaseFileReader openNumbers() throws IOException {
+        DbaseFileHeader header = new DbaseFileHeader();
+        header.addColumn("NAME", 'C', 5, 0);
+        header.addColumn("INT", 'N', 9, 0);
+        header.addColumn("LONG", 'N', 20, 0);
+        header.addColumn("DOUBLE", 'N', 20, 5);
+        header.setNumRecords(NUMBERS.length);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        header.writeHeader(Channels.newChannel(bos));
+        for (String[] values : NUMBERS) {
+            StringBuilder record = new StringBuilder(" ");
+            for (int i = 0; i < values.length; i++) {
+                int length = header.getFieldLength(i);
+                // numbers are right aligned, strings left aligned
+                for (int j = values[i].length(); j < length && i > 0; j++) {
+                    record.append(' ');
+                }
+                record.append(values[i]);
+                for (int j = values[i].length(); j < length && i == 0; j++) {
+                    record.append(' ');
+                }
+            }
+            bos.write(record.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        bos.write(0x1A);
+
+        return new DbaseFileReader(
+                Channels.newChannel(new ByteArrayInputStream(bos.toByteArray())),
+                false,
+                StandardCharsets.US_ASCII);
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.quadtree.StoreException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+
+public class PackedRTreeTest {
+
+    File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("packed", ".pqx");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testLevelBounds() {
+        assertArrayEquals(new int[] {0}, PackedRTree.computeLevelBounds(0, 16));
+        assertArrayEquals(new int[] {1, 2}, PackedRTree.computeLevelBounds(1, 16));
+        assertArrayEquals(new int[] {16, 17}, PackedRTree.computeLevelBounds(16, 16));
+        assertArrayEquals(new int[] {17, 19, 20}, PackedRTree.computeLevelBounds(17, 16));
+    }
+
+    @Test
+    public void testHilbertCorners() {
+        // the curve starts at the origin and ends at the opposite corner along x
+        assertEquals(0, PackedRTreeBuilder.hilbert(0, 0));
+        int max = PackedRTreeBuilder.HILBERT_MAX;
+        assertEquals(0xFFFFFFFFL, PackedRTreeBuilder.hilbert(max, 0) & 0xFFFFFFFFL);
+        assertTrue(PackedRTreeBuilder.hilbert(0, max) != PackedRTreeBuilder.hilbert(max, max));
+    }
+
+    @Test
+    public void testSearchMatchesLinearScan() throws Exception {
+        Random random = new Random(0);
+        Envelope extent = new Envelope(-180, 180, -90, 90);
+        int count = 5000;
+        List<Envelope> envelopes = new ArrayList<Envelope>();
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(count / 2, 16, extent);
+        // use coordinates that floats represent exactly, so that the results match the
+        // linear scan even when the boxes just touch the search area
+        for (int i = 0; i < count; i++) {
+            double x = -180 + random.nextInt(700) / 2d;
+            double y = -90 + random.nextInt(340) / 2d;
+            double width = random.nextInt(20) / 2d;
+            double height = random.nextInt(20) / 2d;
+            Envelope env = new Envelope(x, x + width, y, y + height);
+            envelopes.add(env);
+            // use the position as the offset, to check the results
+            builder.add(env.getMinX(), env.getMinY(), env.getMaxX(), env.getMaxY(), i);
+        }
+        // a null shape, that should never be returned
+        builder.add(0, 0, -1, -1, count);
+        write(builder);
+
+        PackedRTree tree = open();
+        assertEquals(count + 1, tree.getNumItems());
+        assertTrue(tree.getBounds().contains(new Envelope(-170, 160, -80, 70)));
+        for (int q = 0; q < 100; q++) {
+            double x = -180 + random.nextInt(340);
+            double y = -90 + random.nextInt(160);
+            Envelope area = new Envelope(x, x + random.nextInt(40), y, y + 20);
+            assertArrayEquals(linearScan(envelopes, area), tree.searchOffsets(area));
+        }
+        // the whole extent
+        int[] all = tree.searchOffsets(extent);
+        assertEquals(count, all.length);
+    }
+
+    @Test
+    public void testSearchIterator() throws Exception {
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(3, 4, new Envelope(0, 10, 0, 10));
+        builder.add(0, 0, 1, 1, 300);
+        builder.add(5, 5, 6, 6, 100);
+        builder.add(9, 9, 10, 10, 200);
+        write(builder);
+
+        CloseableIterator<Data> it = open().search(new Envelope(4, 11, 4, 11));
+        try {
+            assertTrue(it.hasNext());
+            assertEquals(100L, it.next().getValue(1));
+            assertTrue(it.hasNext());
+            assertEquals(200L, it.next().getValue(1));
+            assertFalse(it.hasNext());
+        } finally {
+            it.close();
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        write(new PackedRTreeBuilder(0, 16, new Envelope()));
+        PackedRTree tree = open();
+        assertEquals(0, tree.getNumItems());
+        assertTrue(tree.getBounds().isNull());
+        assertEquals(0, tree.searchOffsets(new Envelope(0, 10, 0, 10)).length);
+    }
+
+    @Test
+    public void testInvalidFile() throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.write(new byte[PackedRTree.HEADER_SIZE]);
+        } finally {
+            raf.close();
+        }
+        try {
+            open();
+            fail("Should have failed, not a packed R-tree");
+        } catch (StoreException e) {
+            // fine
+        }
+    }
+
+    private int[] linearScan(List<Envelope> envelopes, Envelope area) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (int i = 0; i < envelopes.size(); i++) {
+            if (envelopes.get(i).intersects(area)) {
+                result.add(i);
+            }
+        }
+        int[] offsets = new int[result.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = result.get(i);
+        }
+        return offsets;
+    }
+
+    private void write(PackedRTreeBuilder builder) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            builder.write(raf.getChannel());
+        } finally {
+            raf.close();
+        }
+    }
+
+    private PackedRTree open() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return PackedRTree.open(channel);
+        } finally {
+            raf.close();
+        }
+    }
+}